@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.data.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.data.impl
+ * <p/>
+ * A flat view of everything descended from a project, as ID/name tuples and the edges between them: project to study to
+ * experiment, and sample to library to dilution to pool to run. Only the fields needed to draw the lineage are held, so a
+ * lineage can be built and cached without loading any of the entities themselves. Each entity carries the ID of its
+ * security profile, so a cached lineage can be cut down to what a given user can read with {@link #readableBy(Set)}.
+ *
+ * @since 0.2.1
+ */
+public class ProjectLineage {
+  private final long projectId;
+  private final String name;
+  private final String alias;
+
+  private final List<Node> studies = new ArrayList<Node>();
+  private final List<Node> experiments = new ArrayList<Node>();
+  private final List<Node> samples = new ArrayList<Node>();
+  private final List<Node> libraries = new ArrayList<Node>();
+  private final List<Node> dilutions = new ArrayList<Node>();
+  private final List<Node> pools = new ArrayList<Node>();
+  private final List<Node> runs = new ArrayList<Node>();
+
+  private final List<Edge> studyExperiments = new ArrayList<Edge>();
+  private final List<Edge> sampleLibraries = new ArrayList<Edge>();
+  private final List<Edge> libraryDilutions = new ArrayList<Edge>();
+  private final List<Edge> dilutionPools = new ArrayList<Edge>();
+  private final List<Edge> poolRuns = new ArrayList<Edge>();
+
+  public ProjectLineage(long projectId, String name, String alias) {
+    this.projectId = projectId;
+    this.name = name;
+    this.alias = alias;
+  }
+
+  public long getProjectId() {
+    return projectId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getAlias() {
+    return alias;
+  }
+
+  /**
+   * @return the project's studies, in ID order
+   */
+  public List<Node> getStudies() {
+    return Collections.unmodifiableList(studies);
+  }
+
+  /**
+   * @return the experiments of the project's studies, in ID order
+   */
+  public List<Node> getExperiments() {
+    return Collections.unmodifiableList(experiments);
+  }
+
+  /**
+   * @return the project's samples, in ID order. A sample is flagged if it has passed QC.
+   */
+  public List<Node> getSamples() {
+    return Collections.unmodifiableList(samples);
+  }
+
+  /**
+   * @return the libraries of the project's samples, in ID order. A library is flagged if it has any QCs.
+   */
+  public List<Node> getLibraries() {
+    return Collections.unmodifiableList(libraries);
+  }
+
+  /**
+   * @return the dilutions of the project's libraries, in ID order
+   */
+  public List<Node> getDilutions() {
+    return Collections.unmodifiableList(dilutions);
+  }
+
+  /**
+   * @return the pools containing the project's dilutions, or linked to its experiments, in ID order
+   */
+  public List<Node> getPools() {
+    return Collections.unmodifiableList(pools);
+  }
+
+  /**
+   * @return the runs that sequenced pools linked to the project's experiments, in ID order. A run is flagged if it has
+   * completed.
+   */
+  public List<Node> getRuns() {
+    return Collections.unmodifiableList(runs);
+  }
+
+  public List<Edge> getStudyExperiments() {
+    return Collections.unmodifiableList(studyExperiments);
+  }
+
+  public List<Edge> getSampleLibraries() {
+    return Collections.unmodifiableList(sampleLibraries);
+  }
+
+  public List<Edge> getLibraryDilutions() {
+    return Collections.unmodifiableList(libraryDilutions);
+  }
+
+  public List<Edge> getDilutionPools() {
+    return Collections.unmodifiableList(dilutionPools);
+  }
+
+  public List<Edge> getPoolRuns() {
+    return Collections.unmodifiableList(poolRuns);
+  }
+
+  public void addStudy(Node study) {
+    studies.add(study);
+  }
+
+  public void addExperiment(long studyId, Node experiment) {
+    experiments.add(experiment);
+    studyExperiments.add(new Edge(studyId, experiment.getId()));
+  }
+
+  public void addSample(Node sample) {
+    samples.add(sample);
+  }
+
+  public void addLibrary(long sampleId, Node library) {
+    libraries.add(library);
+    sampleLibraries.add(new Edge(sampleId, library.getId()));
+  }
+
+  public void addDilution(long libraryId, Node dilution) {
+    dilutions.add(dilution);
+    libraryDilutions.add(new Edge(libraryId, dilution.getId()));
+  }
+
+  public void addPool(Node pool) {
+    pools.add(pool);
+  }
+
+  public void addDilutionPool(long dilutionId, long poolId) {
+    dilutionPools.add(new Edge(dilutionId, poolId));
+  }
+
+  public void addRun(Node run) {
+    runs.add(run);
+  }
+
+  public void addPoolRun(long poolId, long runId) {
+    poolRuns.add(new Edge(poolId, runId));
+  }
+
+  /**
+   * Returns a copy of this lineage holding only the entities whose security profile is one of the given profiles, and the
+   * edges between them. Edges to or from an entity that is left out are dropped, so its children can no longer be reached
+   * through it.
+   *
+   * @param readableProfileIds the IDs of the security profiles that can be read
+   * @return ProjectLineage
+   */
+  public ProjectLineage readableBy(Set<Long> readableProfileIds) {
+    ProjectLineage readable = new ProjectLineage(projectId, name, alias);
+    Set<Long> studyIds = filterNodes(studies, readableProfileIds, readable.studies);
+    Set<Long> experimentIds = filterNodes(experiments, readableProfileIds, readable.experiments);
+    Set<Long> sampleIds = filterNodes(samples, readableProfileIds, readable.samples);
+    Set<Long> libraryIds = filterNodes(libraries, readableProfileIds, readable.libraries);
+    Set<Long> dilutionIds = filterNodes(dilutions, readableProfileIds, readable.dilutions);
+    Set<Long> poolIds = filterNodes(pools, readableProfileIds, readable.pools);
+    Set<Long> runIds = filterNodes(runs, readableProfileIds, readable.runs);
+
+    filterEdges(studyExperiments, studyIds, experimentIds, readable.studyExperiments);
+    filterEdges(sampleLibraries, sampleIds, libraryIds, readable.sampleLibraries);
+    filterEdges(libraryDilutions, libraryIds, dilutionIds, readable.libraryDilutions);
+    filterEdges(dilutionPools, dilutionIds, poolIds, readable.dilutionPools);
+    filterEdges(poolRuns, poolIds, runIds, readable.poolRuns);
+    return readable;
+  }
+
+  private static Set<Long> filterNodes(List<Node> nodes, Set<Long> readableProfileIds, List<Node> into) {
+    Set<Long> kept = new HashSet<Long>();
+    for (Node node : nodes) {
+      if (readableProfileIds.contains(node.getSecurityProfileId())) {
+        into.add(node);
+        kept.add(node.getId());
+      }
+    }
+    return kept;
+  }
+
+  private static void filterEdges(List<Edge> edges, Set<Long> parentIds, Set<Long> childIds, List<Edge> into) {
+    for (Edge edge : edges) {
+      if (parentIds.contains(edge.getParentId()) && childIds.contains(edge.getChildId())) {
+        into.add(edge);
+      }
+    }
+  }
+
+  /**
+   * Returns the IDs of the children of the given parent along the given edges, in the order the edges were added
+   *
+   * @param edges of type List<Edge>
+   * @param parentId of type long
+   * @return List<Long>
+   */
+  public static List<Long> childIds(List<Edge> edges, long parentId) {
+    List<Long> ids = new ArrayList<Long>();
+    for (Edge e : edges) {
+      if (e.getParentId() == parentId) {
+        ids.add(e.getChildId());
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * An entity in the lineage. The meaning of the flag depends on the kind of entity.
+   */
+  public static class Node {
+    private final long id;
+    private final String name;
+    private final String alias;
+    private final boolean flagged;
+    private final long securityProfileId;
+
+    public Node(long id, String name, String alias, boolean flagged, long securityProfileId) {
+      this.id = id;
+      this.name = name;
+      this.alias = alias;
+      this.flagged = flagged;
+      this.securityProfileId = securityProfileId;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getAlias() {
+      return alias;
+    }
+
+    public boolean isFlagged() {
+      return flagged;
+    }
+
+    public long getSecurityProfileId() {
+      return securityProfileId;
+    }
+  }
+
+  /**
+   * A link from a parent entity to a child entity, by ID
+   */
+  public static class Edge {
+    private final long parentId;
+    private final long childId;
+
+    public Edge(long parentId, long childId) {
+      this.parentId = parentId;
+      this.childId = childId;
+    }
+
+    public long getParentId() {
+      return parentId;
+    }
+
+    public long getChildId() {
+      return childId;
+    }
+  }
+}
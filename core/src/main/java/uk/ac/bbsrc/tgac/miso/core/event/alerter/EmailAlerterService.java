@@ -30,13 +30,21 @@ import uk.ac.bbsrc.tgac.miso.core.event.AlerterService;
 import uk.ac.bbsrc.tgac.miso.core.exception.AlertingException;
 import uk.ac.bbsrc.tgac.miso.core.util.EmailUtils;
 
+import javax.mail.Message;
 import javax.mail.MessagingException;
-import java.util.Properties;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * uk.ac.bbsrc.tgac.miso.core.event.service
  * <p/>
- * Info
+ * Sends alerts by email. Alerts are queued on a bounded buffer when raised and delivered by a single background dispatcher
+ * thread, so raising an alert never waits on the SMTP server. Alerts raised for the same recipient within the digest window
+ * are sent as a single digest email over one pooled SMTP connection, and failed deliveries are retried with exponential backoff.
  *
  * @author Rob Davey
  * @date 29/09/11
@@ -47,10 +55,55 @@ public class EmailAlerterService implements AlerterService {
 
   private Properties mailProps = new Properties();
 
+  private int queueCapacity = 10000;
+  private long digestWindow = 30000;
+  private int maxRetries = 5;
+  private long retryDelay = 60000;
+
+  private BlockingQueue<QueuedAlert> queue;
+  private Thread dispatcher;
+  private volatile boolean running = true;
+
   public void setMailProps(Properties mailProps) {
     this.mailProps = mailProps;
   }
 
+  /**
+   * Sets the maximum number of alerts waiting to be sent. Alerts raised when the queue is full are rejected.
+   *
+   * @param queueCapacity of type int
+   */
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Sets how long, in milliseconds, alerts are collected for before being sent as a digest to each recipient
+   *
+   * @param digestWindow of type long
+   */
+  public void setDigestWindow(long digestWindow) {
+    this.digestWindow = digestWindow;
+  }
+
+  /**
+   * Sets the number of times a failed email is retried before its alerts are dropped
+   *
+   * @param maxRetries of type int
+   */
+  public void setMaxRetries(int maxRetries) {
+    this.maxRetries = maxRetries;
+  }
+
+  /**
+   * Sets the delay, in milliseconds, before the first retry of a failed email. The delay doubles on each further retry.
+   *
+   * @param retryDelay of type long
+   */
+  public void setRetryDelay(long retryDelay) {
+    this.retryDelay = retryDelay;
+  }
+
   @Override
   public void raiseAlert(Alert a) throws AlertingException {
     if (!mailProps.containsKey("mail.smtp.host")) {
@@ -58,25 +111,231 @@ public class EmailAlerterService implements AlerterService {
       throw new AlertingException("No SMTP host specified in the mail.properties configuration file. Cannot send email.");
     }
     else {
-      String from = mailProps.getProperty("mail.from");
-      if (from == null || "".equals(from)) {
-        from = "miso@your.miso.server";
-      }
-
-      String to = a.getAlertUser().getEmail();
-      String subject = "MISO ALERT: " + a.getAlertTitle();
-      String text = "Hello " +
-                    a.getAlertUser().getFullName() +
-                    ",\n\nMISO would like to tell you about something:\n\n" +
-                    a.getAlertTitle() + " ("+a.getAlertDate()+")" +
-                    "\n\n" +
-                    a.getAlertText();
+      QueuedAlert q = new QueuedAlert(a);
+      if (!getQueue().offer(q)) {
+        log.error("Email alert queue is full. Cannot send email to " + q.to + ": " + q.title);
+        throw new AlertingException("Email alert queue is full. Cannot send email to alert recipients");
+      }
+    }
+  }
+
+  private synchronized BlockingQueue<QueuedAlert> getQueue() {
+    if (queue == null) {
+      queue = new LinkedBlockingQueue<QueuedAlert>(queueCapacity);
+      dispatcher = new Thread(new Dispatcher(), "email-alerter");
+      dispatcher.setDaemon(true);
+      dispatcher.start();
+    }
+    return queue;
+  }
+
+  /**
+   * Stops the dispatcher thread, making a final attempt to send any queued alerts
+   */
+  public synchronized void destroy() {
+    running = false;
+    if (dispatcher != null) {
+      dispatcher.interrupt();
       try {
-        EmailUtils.send(to, from, subject, text, mailProps);
-      } catch (MessagingException e) {
-        log.error("Cannot send email to alert recipients:" + e.getMessage());
-        throw new AlertingException("Cannot send email to alert recipients", e);
+        dispatcher.join(10000);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private String getFrom() {
+    String from = mailProps.getProperty("mail.from");
+    if (from == null || "".equals(from)) {
+      from = "miso@your.miso.server";
+    }
+    return from;
+  }
+
+  /**
+   * The parts of an alert needed to email it, captured when the alert is raised
+   */
+  private static class QueuedAlert {
+    private final String to;
+    private final String fullName;
+    private final String title;
+    private final String text;
+
+    QueuedAlert(Alert a) {
+      this.to = a.getAlertUser().getEmail();
+      this.fullName = a.getAlertUser().getFullName();
+      this.title = a.getAlertTitle();
+      this.text = a.getAlertTitle() + " (" + a.getAlertDate() + ")" + "\n\n" + a.getAlertText();
+    }
+  }
+
+  /**
+   * All the alerts for one recipient that are sent in a single email
+   */
+  private static class Digest {
+    private final String to;
+    private final String fullName;
+    private final List<QueuedAlert> alerts = new ArrayList<QueuedAlert>();
+    private int attempts = 0;
+    private long nextAttempt = 0;
+
+    Digest(String to, String fullName) {
+      this.to = to;
+      this.fullName = fullName;
+    }
+
+    String getSubject() {
+      if (alerts.size() == 1) {
+        return "MISO ALERT: " + alerts.get(0).title;
+      }
+      return "MISO ALERTS: " + alerts.size() + " new alerts";
+    }
+
+    String getText() {
+      StringBuilder sb = new StringBuilder();
+      sb.append("Hello ").append(fullName).append(",\n\n");
+      if (alerts.size() == 1) {
+        sb.append("MISO would like to tell you about something:\n\n");
+        sb.append(alerts.get(0).text);
+      }
+      else {
+        sb.append("MISO would like to tell you about ").append(alerts.size()).append(" things:");
+        for (QueuedAlert a : alerts) {
+          sb.append("\n\n----------\n\n").append(a.text);
+        }
+      }
+      return sb.toString();
+    }
+  }
+
+  private class Dispatcher implements Runnable {
+    private final List<Digest> retries = new ArrayList<Digest>();
+    private Session session;
+    private Transport transport;
+
+    @Override
+    public void run() {
+      List<QueuedAlert> batch = new ArrayList<QueuedAlert>();
+      while (running) {
+        try {
+          QueuedAlert first = queue.poll(nextWait(), TimeUnit.MILLISECONDS);
+          if (first != null) {
+            batch.add(first);
+            // collect everything else raised within the digest window so recipients get one email per window
+            Thread.sleep(digestWindow);
+            queue.drainTo(batch);
+          }
+          deliver(batch, false);
+          batch = new ArrayList<QueuedAlert>();
+        }
+        catch (InterruptedException e) {
+          // keep any batch collected before the interrupt so it goes out with the final drain
+          running = false;
+        }
+        catch (RuntimeException e) {
+          // never let one bad batch stop the dispatcher, or every later alert is rejected as the queue fills
+          log.error("Cannot deliver " + batch.size() + " email alert(s)", e);
+          batch = new ArrayList<QueuedAlert>();
+        }
+      }
+
+      queue.drainTo(batch);
+      deliver(batch, true);
+      closeTransport();
+    }
+
+    private long nextWait() {
+      long wait = digestWindow;
+      long now = System.currentTimeMillis();
+      for (Digest d : retries) {
+        wait = Math.min(wait, Math.max(d.nextAttempt - now, 1));
+      }
+      return wait;
+    }
+
+    private void deliver(List<QueuedAlert> batch, boolean finalAttempt) {
+      Map<String, Digest> digests = new LinkedHashMap<String, Digest>();
+      for (QueuedAlert a : batch) {
+        Digest d = digests.get(a.to);
+        if (d == null) {
+          d = new Digest(a.to, a.fullName);
+          digests.put(a.to, d);
+        }
+        d.alerts.add(a);
+      }
+
+      // take the due retries off the list before sending, as a digest that fails again is put straight back on it
+      List<Digest> due = new ArrayList<Digest>();
+      long now = System.currentTimeMillis();
+      for (Iterator<Digest> it = retries.iterator(); it.hasNext(); ) {
+        Digest d = it.next();
+        if (finalAttempt || d.nextAttempt <= now) {
+          it.remove();
+          due.add(d);
+        }
+      }
+      due.addAll(digests.values());
+
+      for (Digest d : due) {
+        try {
+          send(d, finalAttempt);
+        }
+        catch (RuntimeException e) {
+          closeTransport();
+          log.error("Cannot send email to alert recipient " + d.to + ". Dropping " + d.alerts.size() + " alert(s)", e);
+        }
+      }
+    }
+
+    private void send(Digest d, boolean finalAttempt) {
+      try {
+        Message message = EmailUtils.createMessage(getSession(), d.to, getFrom(), d.getSubject(), d.getText());
+        Transport t = getTransport();
+        t.sendMessage(message, message.getAllRecipients());
+      }
+      catch (MessagingException e) {
+        // the connection may have been dropped by the server, so start a fresh one for the next attempt
+        closeTransport();
+        d.attempts++;
+        if (finalAttempt || d.attempts > maxRetries) {
+          log.error("Cannot send email to alert recipient " + d.to + " after " + d.attempts + " attempts. Dropping " + d.alerts.size() + " alert(s): " + e.getMessage());
+        }
+        else {
+          d.nextAttempt = System.currentTimeMillis() + (retryDelay << (d.attempts - 1));
+          log.warn("Cannot send email to alert recipient " + d.to + ". Retrying in " + (d.nextAttempt - System.currentTimeMillis()) + "ms: " + e.getMessage());
+          retries.add(d);
+        }
+      }
+    }
+
+    private Session getSession() {
+      if (session == null) {
+        session = Session.getInstance(mailProps);
+      }
+      return session;
+    }
+
+    private Transport getTransport() throws MessagingException {
+      if (transport == null) {
+        transport = getSession().getTransport("smtp");
+      }
+      if (!transport.isConnected()) {
+        transport.connect();
+      }
+      return transport;
+    }
+
+    private void closeTransport() {
+      if (transport != null) {
+        try {
+          transport.close();
+        }
+        catch (MessagingException e) {
+          log.debug("Error closing SMTP connection: " + e.getMessage());
+        }
+        transport = null;
       }
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.event.impl;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import uk.ac.bbsrc.tgac.miso.core.data.Project;
+import uk.ac.bbsrc.tgac.miso.core.data.Sample;
+import uk.ac.bbsrc.tgac.miso.core.data.Study;
+import uk.ac.bbsrc.tgac.miso.core.store.ProjectLineageStore;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.event
+ * <p/>
+ * Evicts cached project lineages when an entity in a lineage is saved or deleted. Saving a project, study or sample only
+ * evicts its own project. Any other change evicts every project, as finding the project of a library, pool or run would
+ * cost more than rebuilding the lineages.
+ *
+ * @since 0.2.1
+ */
+@Aspect
+public class ProjectLineageUpdateAspect {
+  private ProjectLineageStore projectLineageStore;
+
+  public void setProjectLineageStore(ProjectLineageStore projectLineageStore) {
+    this.projectLineageStore = projectLineageStore;
+  }
+
+  public void update(JoinPoint join) {
+    Object[] args = join.getArgs();
+    Object entity = args.length > 0 ? args[0] : null;
+
+    Project project = null;
+    if (entity instanceof Project) {
+      project = (Project) entity;
+    }
+    else if (entity instanceof Study) {
+      project = ((Study) entity).getProject();
+    }
+    else if (entity instanceof Sample) {
+      project = ((Sample) entity).getProject();
+    }
+
+    if (project != null && project.getProjectId() != null && !join.getSignature().getName().startsWith("delete")) {
+      projectLineageStore.evict(project.getProjectId());
+    }
+    else {
+      projectLineageStore.evictAll();
+    }
+  }
+}
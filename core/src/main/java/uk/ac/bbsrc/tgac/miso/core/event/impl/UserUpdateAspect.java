@@ -27,6 +27,7 @@ import org.aspectj.lang.annotation.Aspect;
 import uk.ac.bbsrc.tgac.miso.core.event.manager.PoolAlertManager;
 import uk.ac.bbsrc.tgac.miso.core.event.manager.ProjectAlertManager;
 import uk.ac.bbsrc.tgac.miso.core.event.manager.RunAlertManager;
+import uk.ac.bbsrc.tgac.miso.core.store.WatcherStore;
 
 import java.io.IOException;
 
@@ -44,6 +45,7 @@ public class UserUpdateAspect {
   private ProjectAlertManager projectAlertManager;
   private RunAlertManager runAlertManager;
   private PoolAlertManager poolAlertManager;
+  private WatcherStore watcherStore;
 
   public void setProjectAlertManager(ProjectAlertManager projectAlertManager) {
     this.projectAlertManager = projectAlertManager;
@@ -57,7 +59,14 @@ public class UserUpdateAspect {
     this.poolAlertManager = poolAlertManager;
   }
 
+  public void setWatcherStore(WatcherStore watcherStore) {
+    this.watcherStore = watcherStore;
+  }
+
   public void update(Long userId) {
+    if (watcherStore != null) {
+      watcherStore.clearWatcherGroupCache();
+    }
     try {
       runAlertManager.updateGroupWatcher(userId);
       projectAlertManager.updateGroupWatcher(userId);
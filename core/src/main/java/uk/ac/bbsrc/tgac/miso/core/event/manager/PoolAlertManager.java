@@ -29,23 +29,21 @@ import com.rits.cloning.Cloner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import uk.ac.bbsrc.tgac.miso.core.data.AbstractPool;
 import uk.ac.bbsrc.tgac.miso.core.data.Pool;
-import uk.ac.bbsrc.tgac.miso.core.data.Poolable;
-import uk.ac.bbsrc.tgac.miso.core.data.Run;
-import uk.ac.bbsrc.tgac.miso.core.data.impl.PoolImpl;
 import uk.ac.bbsrc.tgac.miso.core.event.listener.MisoListener;
+import uk.ac.bbsrc.tgac.miso.core.event.model.PoolEvent;
+import uk.ac.bbsrc.tgac.miso.core.event.type.MisoEventType;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * uk.ac.bbsrc.tgac.miso.core.event.manager
  * <p/>
- * Info
+ * Keeps a {@link PoolAlertState} for each watched pool, and fires pool ready events to the pool listener when an updated pool
+ * is ready to run
  *
  * @author Rob Davey
  * @date 11/11/11
@@ -53,7 +51,7 @@ import java.util.*;
  */
 public class PoolAlertManager {
   protected static final Logger log = LoggerFactory.getLogger(PoolAlertManager.class);
-  final Map<Long, Pool> pools = new HashMap<Long, Pool>();
+  final Map<Long, PoolAlertState> pools = new ConcurrentHashMap<Long, PoolAlertState>();
   final Set<User> poolWatchers = new HashSet<User>();
 
   private RequestManager misoRequestManager;
@@ -86,33 +84,15 @@ public class PoolAlertManager {
     this.enabled = enabled;
   }
 
-  public void applyListeners(Pool pool) {
-    pool.addListener(getPoolListener());
-  }
-
-  public void removeListeners(Pool pool) {
-    pool.removeListener(getPoolListener());
-  }
-
   public void push(Pool pool) {
     if (enabled) {
       if (pool != null) {
-        log.debug("Attempting to clone pool " + pool.getId());
-        try {
-          Pool clone = cloner.deepClone(pool);
-          if (clone != null) {
-            applyListeners(clone);
-            if (pools.containsKey(pool.getId())) {
-              log.debug("Not replacing Pool " + clone.getId() + ": Ready? " + clone.getReadyToRun());
-            }
-            else {
-              pools.put(pool.getId(), clone);
-              log.debug("Queued Pool " + clone.getId() + ": Ready? " + clone.getReadyToRun());
-            }
-          }
+        if (pools.containsKey(pool.getId())) {
+          log.debug("Not replacing Pool " + pool.getId() + ": Ready? " + pool.getReadyToRun());
         }
-        catch (Exception e) {
-          e.printStackTrace();
+        else {
+          pools.put(pool.getId(), PoolAlertState.of(pool));
+          log.debug("Queued Pool " + pool.getId() + ": Ready? " + pool.getReadyToRun());
         }
       }
     }
@@ -123,12 +103,8 @@ public class PoolAlertManager {
 
   public void pop(Pool pool) {
     if (enabled) {
-      if (pool!= null) {
-        Pool clone = pools.get(pool.getId());
-        if (clone != null) {
-          removeListeners(clone);
-          clone = null;
-          pools.remove(pool.getId());
+      if (pool != null) {
+        if (pools.remove(pool.getId()) != null) {
           log.debug("Dequeued " + pool.getId());
         }
       }
@@ -144,9 +120,9 @@ public class PoolAlertManager {
 
   private void update(Pool p) throws IOException {
     if (enabled) {
-      Pool clone = pools.get(p.getId());
-      if (clone == null) {
-        log.debug("Update: no clone - pushing");
+      PoolAlertState state = pools.get(p.getId());
+      if (state == null) {
+        log.debug("Update: no state - pushing");
         //new run - add all PoolWatchers!
         for (User u : securityManager.listUsersByGroupName("PoolWatchers")) {
           p.addWatcher(u);
@@ -154,64 +130,50 @@ public class PoolAlertManager {
         push(p);
       }
       else {
-        log.debug("Update: got clone of " + clone.getId());
-        //TODO EVIL EVIL EVIL FIX UPON PAIN OF DEATH
-        if (clone.getReadyToRun()) {
-          try {
-            //fire event if pool has been saved initially to ready to run
-            Method m = AbstractPool.class.getDeclaredMethod("firePoolReadyEvent");
-            m.setAccessible(true);
-            m.invoke(clone);
-          }
-          catch (Exception e) {
-            log.error("Cannot fire pool ready event: " + e.getMessage());
-            e.printStackTrace();
-          }
-        }
-        else {
-          log.debug("Updating Pool " + clone.getId() + " ...");
-
-          //find any watchable setters on the clone and call the respective getter from the clone parent
-          //i.e. clone.setFoo(parent.getFoo()); where @WatchableSetter Class.setFoo(T t);
-          /*
-          for (Method setter : clone.getClass().getMethods()) {
-            if (setter.getAnnotation(WatchableSetter.class)) {
-              try {
-                Method getter = clone.getClass().getMethod(setter.getName().replaceFirst("set", "get"));
-                setter.invoke(clone, getter.invoke(p));
-              }
-              catch (NoSuchMethodException e) {
-                e.printStackTrace();
-              }
-              catch (InvocationTargetException e) {
-                e.printStackTrace();
-              }
-              catch (IllegalAccessException e) {
-                e.printStackTrace();
-              }
-            }
-          }
-          */
-          //TODO the above will get rid of this necessity to call each method explicitly
-          clone.setReadyToRun(p.getReadyToRun());
+        log.debug("Update: got state of " + state.getPoolId());
+        pools.put(p.getId(), PoolAlertState.of(p));
+
+        //fire event if pool has been saved initially to ready to run, or has just become ready to run
+        if (state.getReadyToRun() || p.getReadyToRun()) {
+          firePoolReadyEvent(p, state);
         }
+      }
+    }
+  }
 
-        pop(clone);
-        push(p);
+  /**
+   * Fires a pool ready event to the pool listener. The event is raised against a shallow copy of the pool carrying the watchers
+   * known to this manager, so the pool itself is left untouched.
+   */
+  private void firePoolReadyEvent(Pool p, PoolAlertState state) throws IOException {
+    if (p.getId() != 0L && getPoolListener() != null) {
+      Pool watched = cloner.shallowClone(p);
+      watched.setWatchers(resolveWatchers(state.getWatcherIds()));
+      getPoolListener().stateChanged(new PoolEvent(watched, MisoEventType.POOL_READY, "Pool " + p.getName() + " ready to run"));
+    }
+  }
+
+  private Set<User> resolveWatchers(Set<Long> watcherIds) throws IOException {
+    Set<User> watchers = new HashSet<User>();
+    for (Long userId : watcherIds) {
+      User u = securityManager.getUserById(userId);
+      if (u != null) {
+        watchers.add(u);
       }
     }
+    return watchers;
   }
 
   public void addWatcher(Pool pool, Long userId) throws IOException {
     User user = securityManager.getUserById(userId);
     if (user != null) {
-      Pool clone = pools.get(pool.getId());
-      if (clone == null) {
+      PoolAlertState state = pools.get(pool.getId());
+      if (state == null) {
         pool.addWatcher(user);
         push(pool);
       }
       else {
-        clone.addWatcher(user);
+        pools.put(pool.getId(), state.withWatcher(userId));
       }
     }
   }
@@ -219,13 +181,13 @@ public class PoolAlertManager {
   public void removeWatcher(Pool pool, Long userId) throws IOException {
     User user = securityManager.getUserById(userId);
     if (user != null && pool.getWatchers().contains(user)) {
-      Pool clone = pools.get(pool.getId());
-      if (clone == null) {
+      PoolAlertState state = pools.get(pool.getId());
+      if (state == null) {
         pool.removeWatcher(user);
         push(pool);
       }
       else {
-        clone.removeWatcher(user);
+        pools.put(pool.getId(), state.withoutWatcher(userId));
       }
     }
   }
@@ -236,16 +198,17 @@ public class PoolAlertManager {
       poolWatchers.clear();
       poolWatchers.addAll(securityManager.listUsersByGroupName("PoolWatchers"));
 
-      for (Pool p : pools.values()) {
-        if (user.getGroups() != null && user.getGroups().contains(securityManager.getGroupByName("PoolWatchers"))) {
-          addWatcher(p, userId);
+      boolean poolWatcher = user.getGroups() != null && user.getGroups().contains(securityManager.getGroupByName("PoolWatchers"));
+      for (PoolAlertState state : pools.values()) {
+        if (poolWatcher) {
+          pools.put(state.getPoolId(), state.withWatcher(userId));
         }
         else {
-          if (p.getSecurityProfile() != null && p.getSecurityProfile().getOwner() != null && !p.getSecurityProfile().getOwner().equals(user)) {
-            removeWatcher(p, userId);
+          if (state.getOwnerId() != null && !state.getOwnerId().equals(userId)) {
+            pools.put(state.getPoolId(), state.withoutWatcher(userId));
           }
         }
       }
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.event.manager;
+
+import com.eaglegenomics.simlims.core.User;
+import uk.ac.bbsrc.tgac.miso.core.data.Pool;
+
+import java.util.*;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.event.manager
+ * <p/>
+ * Immutable snapshot of the parts of a {@link Pool} that the {@link PoolAlertManager} needs to detect alertable changes, i.e.
+ * whether it is ready to run and the IDs of its watchers. Changes produce a new snapshot rather than modifying this one.
+ *
+ * @since 0.2.1
+ */
+public final class PoolAlertState {
+  private final long poolId;
+  private final boolean readyToRun;
+  private final Set<Long> watcherIds;
+  private final Long ownerId;
+
+  private PoolAlertState(long poolId, boolean readyToRun, Set<Long> watcherIds, Long ownerId) {
+    this.poolId = poolId;
+    this.readyToRun = readyToRun;
+    this.watcherIds = Collections.unmodifiableSet(watcherIds);
+    this.ownerId = ownerId;
+  }
+
+  public static PoolAlertState of(Pool<?> pool) {
+    Set<Long> watcherIds = new HashSet<Long>();
+    if (pool.getWatchers() != null) {
+      for (User u : pool.getWatchers()) {
+        watcherIds.add(u.getUserId());
+      }
+    }
+    Long ownerId = null;
+    if (pool.getSecurityProfile() != null && pool.getSecurityProfile().getOwner() != null) {
+      ownerId = pool.getSecurityProfile().getOwner().getUserId();
+    }
+    return new PoolAlertState(pool.getId(), pool.getReadyToRun(), watcherIds, ownerId);
+  }
+
+  public long getPoolId() {
+    return poolId;
+  }
+
+  public boolean getReadyToRun() {
+    return readyToRun;
+  }
+
+  public Set<Long> getWatcherIds() {
+    return watcherIds;
+  }
+
+  public Long getOwnerId() {
+    return ownerId;
+  }
+
+  public PoolAlertState withWatcher(Long userId) {
+    if (watcherIds.contains(userId)) return this;
+    Set<Long> w = new HashSet<Long>(watcherIds);
+    w.add(userId);
+    return new PoolAlertState(poolId, readyToRun, w, ownerId);
+  }
+
+  public PoolAlertState withoutWatcher(Long userId) {
+    if (!watcherIds.contains(userId)) return this;
+    Set<Long> w = new HashSet<Long>(watcherIds);
+    w.remove(userId);
+    return new PoolAlertState(poolId, readyToRun, w, ownerId);
+  }
+}
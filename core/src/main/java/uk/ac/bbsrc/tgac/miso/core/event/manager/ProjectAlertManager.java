@@ -25,26 +25,26 @@ package uk.ac.bbsrc.tgac.miso.core.event.manager;
 
 import com.eaglegenomics.simlims.core.User;
 import com.eaglegenomics.simlims.core.manager.SecurityManager;
-import com.googlecode.ehcache.annotations.KeyGenerator;
-import com.googlecode.ehcache.annotations.Property;
-import com.googlecode.ehcache.annotations.TriggersRemove;
 import com.rits.cloning.Cloner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.bbsrc.tgac.miso.core.data.Project;
-import uk.ac.bbsrc.tgac.miso.core.data.impl.ProjectImpl;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.ProjectOverview;
 import uk.ac.bbsrc.tgac.miso.core.event.listener.MisoListener;
+import uk.ac.bbsrc.tgac.miso.core.event.model.ProjectOverviewEvent;
+import uk.ac.bbsrc.tgac.miso.core.event.type.MisoEventType;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * uk.ac.bbsrc.tgac.miso.core.event.manager
  * <p/>
- * Info
+ * Keeps a {@link ProjectAlertState} for each watched project, and fires project overview events to the overview listener when
+ * an updated project's overviews reach a new milestone
  *
  * @author Rob Davey
  * @date 11/11/11
@@ -52,7 +52,7 @@ import java.util.*;
  */
 public class ProjectAlertManager {
   protected static final Logger log = LoggerFactory.getLogger(ProjectAlertManager.class);
-  Map<Long, Project> projects = new HashMap<Long, Project>();
+  Map<Long, ProjectAlertState> projects = new ConcurrentHashMap<Long, ProjectAlertState>();
 
   private RequestManager misoRequestManager;
   private Cloner cloner = new Cloner();
@@ -85,22 +85,6 @@ public class ProjectAlertManager {
     this.projectOverviewListener = projectOverviewListener;
   }
 
-  public void applyListeners(Project project) {
-    project.addListener(getProjectListener());
-  }
-
-  public void removeListeners(Project project) {
-    project.removeListener(getProjectListener());
-  }
-
-  public void applyListeners(ProjectOverview overview) {
-    overview.addListener(getProjectOverviewListener());
-  }
-
-  public void removeListeners(ProjectOverview overview) {
-    overview.removeListener(getProjectOverviewListener());
-  }
-
   public void setSecurityManager(SecurityManager securityManager) {
     this.securityManager = securityManager;
   }
@@ -112,24 +96,15 @@ public class ProjectAlertManager {
   public void push(Project project) {
     if (enabled) {
       if (project != null) {
-        Project clone = cloner.deepClone(project);
-        if (clone != null) {
-          if (projects.containsKey(project.getId())) {
-            if (clone.getProgress() != null) {
-              log.debug("Not replacing Project " + clone.getId() + ": " + clone.getProgress().name());
-            }
+        if (projects.containsKey(project.getId())) {
+          if (project.getProgress() != null) {
+            log.debug("Not replacing Project " + project.getId() + ": " + project.getProgress().name());
           }
-          else {
-            applyListeners(clone);
-
-            for (ProjectOverview po : clone.getOverviews()) {
-              applyListeners(po);
-            }
-
-            projects.put(project.getId(), clone);
-            if (clone.getProgress() != null) {
-              log.debug("Queued Project " + clone.getId() + ": " + clone.getProgress().name());
-            }
+        }
+        else {
+          projects.put(project.getId(), ProjectAlertState.of(project));
+          if (project.getProgress() != null) {
+            log.debug("Queued Project " + project.getId() + ": " + project.getProgress().name());
           }
         }
       }
@@ -142,16 +117,7 @@ public class ProjectAlertManager {
   public void pop(Project project) {
     if (enabled) {
       if (project != null) {
-        Project clone = projects.get(project.getId());
-        if (clone != null) {
-          removeListeners(clone);
-          for (ProjectOverview po : clone.getOverviews()) {
-            removeListeners(po);
-            po = null;
-          }
-
-          clone = null;
-          projects.remove(project.getId());
+        if (projects.remove(project.getId()) != null) {
           log.debug("Dequeued " + project.getId());
         }
       }
@@ -167,10 +133,9 @@ public class ProjectAlertManager {
 
   private void update(Project p) throws IOException {
     if (enabled) {
-      //don't just replace the object - set required fields otherwise we have to reset all the object's listeners
-      Project clone = projects.get(p.getId());
-      if (clone == null) {
-        log.debug("Update: no clone - pushing");
+      ProjectAlertState state = projects.get(p.getId());
+      if (state == null) {
+        log.debug("Update: no state - pushing");
         //new project - add all ProjectWatchers!
         for (User u : securityManager.listUsersByGroupName("ProjectWatchers")) {
           p.addWatcher(u);
@@ -181,54 +146,88 @@ public class ProjectAlertManager {
         push(p);
       }
       else {
-        log.debug("Update: got clone of " + clone.getId());
-        clone.setProgress(cloner.deepClone(p.getProgress()));
+        log.debug("Update: got state of " + state.getProjectId());
+        projects.put(p.getId(), ProjectAlertState.of(p));
 
         for (ProjectOverview po : p.getOverviews()) {
-          ProjectOverview cloneOverview = clone.getOverviewById(po.getOverviewId());
-          if (cloneOverview != null) {
-            cloneOverview.setAllSampleQcPassed(po.getAllSampleQcPassed());
-            cloneOverview.setLibraryPreparationComplete(po.getLibraryPreparationComplete());
-            cloneOverview.setAllLibrariesQcPassed(po.getAllLibrariesQcPassed());
-            cloneOverview.setAllPoolsConstructed(po.getAllPoolsConstructed());
-            cloneOverview.setAllRunsCompleted(po.getAllRunsCompleted());
-            cloneOverview.setPrimaryAnalysisCompleted(po.getPrimaryAnalysisCompleted());
+          ProjectAlertState.OverviewState overviewState = state.getOverview(po.getOverviewId());
+          if (overviewState != null) {
+            //only milestones that have been newly reached raise events
+            int reached = ProjectAlertState.flagsOf(po) & ~overviewState.getFlags();
+            if (reached != 0) {
+              fire(po, overviewState, reached);
+            }
           }
           else {
-            log.debug("Original project has an overview, but it seems it hasn't been cloned.");
+            log.debug("Original project has an overview, but it seems it hasn't been recorded.");
           }
         }
+      }
+    }
+  }
 
-        pop(clone);
-        push(p);
+  /**
+   * Fires an event to the project overview listener for each newly reached milestone. The events are raised against a shallow
+   * copy of the overview carrying the watchers known to this manager, so the overview itself is left untouched.
+   */
+  private void fire(ProjectOverview po, ProjectAlertState.OverviewState overviewState, int reached) throws IOException {
+    if (po.getId() != 0L && getProjectOverviewListener() != null) {
+      ProjectOverview watched = cloner.shallowClone(po);
+      watched.setWatchers(resolveWatchers(overviewState.getWatcherIds()));
+      String alias = po.getProject().getAlias();
+
+      List<ProjectOverviewEvent> events = new ArrayList<ProjectOverviewEvent>();
+      if ((reached & ProjectAlertState.ALL_SAMPLES_QC_PASSED) != 0) {
+        events.add(new ProjectOverviewEvent(watched, MisoEventType.ALL_SAMPLES_QC_PASSED, alias + " : all project samples have passed QC."));
+      }
+      if ((reached & ProjectAlertState.LIBRARY_PREPARATION_COMPLETE) != 0) {
+        events.add(new ProjectOverviewEvent(watched, MisoEventType.LIBRARY_PREPARATION_COMPLETED, alias + " : all libraries have been constructed."));
+      }
+      if ((reached & ProjectAlertState.ALL_LIBRARIES_QC_PASSED) != 0) {
+        events.add(new ProjectOverviewEvent(watched, MisoEventType.ALL_LIBRARIES_QC_PASSED, alias + " : all project libraries have passed QC."));
+      }
+      if ((reached & ProjectAlertState.ALL_POOLS_CONSTRUCTED) != 0) {
+        events.add(new ProjectOverviewEvent(watched, MisoEventType.POOL_CONSTRUCTION_COMPLETE, alias + " : all project samples have now been pooled."));
+      }
+      if ((reached & ProjectAlertState.ALL_RUNS_COMPLETED) != 0) {
+        events.add(new ProjectOverviewEvent(watched, MisoEventType.ALL_RUNS_COMPLETED, alias + " : all project runs have now completed."));
+      }
+      if ((reached & ProjectAlertState.PRIMARY_ANALYSIS_COMPLETED) != 0) {
+        events.add(new ProjectOverviewEvent(watched, MisoEventType.PRIMARY_ANALYSIS_COMPLETED, alias + " : primary analysis has completed."));
+      }
+
+      for (ProjectOverviewEvent e : events) {
+        getProjectOverviewListener().stateChanged(e);
       }
     }
   }
 
-  public void addWatcher(ProjectOverview overview, Long userId) throws IOException {
-    User user = securityManager.getUserById(userId);
-    if (user != null) {
-      for (Project clone : projects.values()) {
-        ProjectOverview cloneOverview = clone.getOverviewById(overview.getOverviewId());
-        if (cloneOverview != null) {
-          log.debug("Added watcher " + userId + " to overview " + overview.getOverviewId());
-          cloneOverview.addWatcher(user);
-          clone.addWatcher(user);
-          break;
-        }
+  private Set<User> resolveWatchers(Set<Long> watcherIds) throws IOException {
+    Set<User> watchers = new HashSet<User>();
+    for (Long userId : watcherIds) {
+      User u = securityManager.getUserById(userId);
+      if (u != null) {
+        watchers.add(u);
       }
     }
+    return watchers;
+  }
+
+  public void addWatcher(ProjectOverview overview, Long userId) throws IOException {
+    setOverviewWatcher(overview, userId, true);
   }
 
   public void removeWatcher(ProjectOverview overview, Long userId) throws IOException {
+    setOverviewWatcher(overview, userId, false);
+  }
+
+  private void setOverviewWatcher(ProjectOverview overview, Long userId, boolean watching) throws IOException {
     User user = securityManager.getUserById(userId);
     if (user != null) {
-      for (Project clone : projects.values()) {
-        ProjectOverview cloneOverview = clone.getOverviewById(overview.getOverviewId());
-        if (cloneOverview != null) {
-          log.debug("Removed watcher " + userId + " from overview " + overview.getOverviewId());
-          cloneOverview.removeWatcher(user);
-          clone.removeWatcher(user);
+      for (ProjectAlertState state : projects.values()) {
+        if (state.getOverview(overview.getOverviewId()) != null) {
+          log.debug((watching ? "Added watcher " : "Removed watcher ") + userId + " for overview " + overview.getOverviewId());
+          projects.put(state.getProjectId(), state.withOverviewWatcher(overview.getOverviewId(), userId, watching));
           break;
         }
       }
@@ -238,27 +237,17 @@ public class ProjectAlertManager {
   public void addWatcher(Project project, Long userId) throws IOException {
     User user = securityManager.getUserById(userId);
     if (user != null) {
-      Project clone = projects.get(project.getId());
+      ProjectAlertState state = projects.get(project.getId());
       log.debug("Added watcher " + userId + " to project " + project.getId());
-      if (clone == null) {
+      if (state == null) {
         project.addWatcher(user);
         for (ProjectOverview po : project.getOverviews()) {
-          ProjectOverview pOverview = project.getOverviewById(po.getOverviewId());
-          if (pOverview != null) {
-            pOverview.addWatcher(user);
-          }
+          po.addWatcher(user);
         }
-
         push(project);
       }
       else {
-        clone.addWatcher(user);
-        for (ProjectOverview po : clone.getOverviews()) {
-          ProjectOverview cloneOverview = clone.getOverviewById(po.getOverviewId());
-          if (cloneOverview != null) {
-            cloneOverview.addWatcher(user);
-          }
-        }
+        projects.put(project.getId(), state.withWatcher(userId));
       }
     }
   }
@@ -266,39 +255,32 @@ public class ProjectAlertManager {
   public void removeWatcher(Project project, Long userId) throws IOException {
     User user = securityManager.getUserById(userId);
     if (user != null) {
-      Project clone = projects.get(project.getId());
-      if (clone == null) {
+      ProjectAlertState state = projects.get(project.getId());
+      if (state == null) {
         project.removeWatcher(user);
         for (ProjectOverview po : project.getOverviews()) {
-          ProjectOverview pOverview = project.getOverviewById(po.getOverviewId());
-          if (pOverview != null) {
-            pOverview.removeWatcher(user);
-          }
+          po.removeWatcher(user);
         }
-
         push(project);
       }
       else {
-        clone.removeWatcher(user);
-        for (ProjectOverview po : clone.getOverviews()) {
-          ProjectOverview cloneOverview = clone.getOverviewById(po.getOverviewId());
-          if (cloneOverview != null) {
-            cloneOverview.removeWatcher(user);
-          }
-        }
+        projects.put(project.getId(), state.withoutWatcher(userId));
       }
     }
   }
 
   public void updateGroupWatcher(Long userId) throws IOException {
     User user = securityManager.getUserById(userId);
-    for (Project p : projects.values()) {
-      if (user.getGroups() != null && user.getGroups().contains(securityManager.getGroupByName("ProjectWatchers"))) {
-        addWatcher(p, userId);
-      }
-      else {
-        if (p.getSecurityProfile() != null && p.getSecurityProfile().getOwner() != null && !p.getSecurityProfile().getOwner().equals(user)) {
-          removeWatcher(p, userId);
+    if (user != null) {
+      boolean projectWatcher = user.getGroups() != null && user.getGroups().contains(securityManager.getGroupByName("ProjectWatchers"));
+      for (ProjectAlertState state : projects.values()) {
+        if (projectWatcher) {
+          projects.put(state.getProjectId(), state.withWatcher(userId));
+        }
+        else {
+          if (state.getOwnerId() != null && !state.getOwnerId().equals(userId)) {
+            projects.put(state.getProjectId(), state.withoutWatcher(userId));
+          }
         }
       }
     }
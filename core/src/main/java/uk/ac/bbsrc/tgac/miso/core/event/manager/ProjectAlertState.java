@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.event.manager;
+
+import com.eaglegenomics.simlims.core.User;
+import uk.ac.bbsrc.tgac.miso.core.data.Project;
+import uk.ac.bbsrc.tgac.miso.core.data.impl.ProjectOverview;
+
+import java.util.*;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.event.manager
+ * <p/>
+ * Immutable snapshot of the parts of a {@link Project} that the {@link ProjectAlertManager} needs to detect alertable changes,
+ * i.e. the completion flags of each of its overviews and the IDs of the project and overview watchers. Changes produce a new
+ * snapshot rather than modifying this one.
+ *
+ * @since 0.2.1
+ */
+public final class ProjectAlertState {
+  public static final int ALL_SAMPLES_QC_PASSED = 1;
+  public static final int LIBRARY_PREPARATION_COMPLETE = 1 << 1;
+  public static final int ALL_LIBRARIES_QC_PASSED = 1 << 2;
+  public static final int ALL_POOLS_CONSTRUCTED = 1 << 3;
+  public static final int ALL_RUNS_COMPLETED = 1 << 4;
+  public static final int PRIMARY_ANALYSIS_COMPLETED = 1 << 5;
+
+  private final long projectId;
+  private final Long ownerId;
+  private final Set<Long> watcherIds;
+  private final Map<Long, OverviewState> overviews;
+
+  private ProjectAlertState(long projectId, Long ownerId, Set<Long> watcherIds, Map<Long, OverviewState> overviews) {
+    this.projectId = projectId;
+    this.ownerId = ownerId;
+    this.watcherIds = Collections.unmodifiableSet(watcherIds);
+    this.overviews = Collections.unmodifiableMap(overviews);
+  }
+
+  public static ProjectAlertState of(Project project) {
+    Map<Long, OverviewState> overviews = new HashMap<Long, OverviewState>();
+    if (project.getOverviews() != null) {
+      for (ProjectOverview po : project.getOverviews()) {
+        overviews.put(po.getOverviewId(), new OverviewState(po.getOverviewId(), flagsOf(po), userIds(po.getWatchers())));
+      }
+    }
+    Long ownerId = null;
+    if (project.getSecurityProfile() != null && project.getSecurityProfile().getOwner() != null) {
+      ownerId = project.getSecurityProfile().getOwner().getUserId();
+    }
+    return new ProjectAlertState(project.getId(), ownerId, userIds(project.getWatchers()), overviews);
+  }
+
+  public static int flagsOf(ProjectOverview po) {
+    int flags = 0;
+    if (po.getAllSampleQcPassed()) flags |= ALL_SAMPLES_QC_PASSED;
+    if (po.getLibraryPreparationComplete()) flags |= LIBRARY_PREPARATION_COMPLETE;
+    if (po.getAllLibrariesQcPassed()) flags |= ALL_LIBRARIES_QC_PASSED;
+    if (po.getAllPoolsConstructed()) flags |= ALL_POOLS_CONSTRUCTED;
+    if (po.getAllRunsCompleted()) flags |= ALL_RUNS_COMPLETED;
+    if (po.getPrimaryAnalysisCompleted()) flags |= PRIMARY_ANALYSIS_COMPLETED;
+    return flags;
+  }
+
+  private static Set<Long> userIds(Collection<User> users) {
+    Set<Long> ids = new HashSet<Long>();
+    if (users != null) {
+      for (User u : users) {
+        ids.add(u.getUserId());
+      }
+    }
+    return ids;
+  }
+
+  public long getProjectId() {
+    return projectId;
+  }
+
+  public Long getOwnerId() {
+    return ownerId;
+  }
+
+  public Set<Long> getWatcherIds() {
+    return watcherIds;
+  }
+
+  public OverviewState getOverview(Long overviewId) {
+    return overviews.get(overviewId);
+  }
+
+  /**
+   * @return a snapshot with the user watching the project and all its overviews
+   */
+  public ProjectAlertState withWatcher(Long userId) {
+    Map<Long, OverviewState> o = new HashMap<Long, OverviewState>();
+    for (OverviewState os : overviews.values()) {
+      o.put(os.getOverviewId(), os.withWatcher(userId, true));
+    }
+    return new ProjectAlertState(projectId, ownerId, changeWatcher(watcherIds, userId, true), o);
+  }
+
+  /**
+   * @return a snapshot with the user no longer watching the project or any of its overviews
+   */
+  public ProjectAlertState withoutWatcher(Long userId) {
+    Map<Long, OverviewState> o = new HashMap<Long, OverviewState>();
+    for (OverviewState os : overviews.values()) {
+      o.put(os.getOverviewId(), os.withWatcher(userId, false));
+    }
+    return new ProjectAlertState(projectId, ownerId, changeWatcher(watcherIds, userId, false), o);
+  }
+
+  /**
+   * @return a snapshot with the user watching or no longer watching both the given overview and the project
+   */
+  public ProjectAlertState withOverviewWatcher(Long overviewId, Long userId, boolean watching) {
+    Map<Long, OverviewState> o = new HashMap<Long, OverviewState>(overviews);
+    OverviewState os = o.get(overviewId);
+    if (os != null) {
+      o.put(overviewId, os.withWatcher(userId, watching));
+    }
+    return new ProjectAlertState(projectId, ownerId, changeWatcher(watcherIds, userId, watching), o);
+  }
+
+  private static Set<Long> changeWatcher(Set<Long> watcherIds, Long userId, boolean watching) {
+    Set<Long> w = new HashSet<Long>(watcherIds);
+    if (watching) {
+      w.add(userId);
+    }
+    else {
+      w.remove(userId);
+    }
+    return w;
+  }
+
+  public static final class OverviewState {
+    private final Long overviewId;
+    private final int flags;
+    private final Set<Long> watcherIds;
+
+    private OverviewState(Long overviewId, int flags, Set<Long> watcherIds) {
+      this.overviewId = overviewId;
+      this.flags = flags;
+      this.watcherIds = Collections.unmodifiableSet(watcherIds);
+    }
+
+    public Long getOverviewId() {
+      return overviewId;
+    }
+
+    public int getFlags() {
+      return flags;
+    }
+
+    public Set<Long> getWatcherIds() {
+      return watcherIds;
+    }
+
+    private OverviewState withWatcher(Long userId, boolean watching) {
+      return new OverviewState(overviewId, flags, changeWatcher(watcherIds, userId, watching));
+    }
+  }
+}
@@ -31,18 +31,23 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.bbsrc.tgac.miso.core.data.Run;
 import uk.ac.bbsrc.tgac.miso.core.data.RunQC;
-import uk.ac.bbsrc.tgac.miso.core.data.impl.RunImpl;
+import uk.ac.bbsrc.tgac.miso.core.data.type.HealthType;
+import uk.ac.bbsrc.tgac.miso.core.event.Event;
 import uk.ac.bbsrc.tgac.miso.core.event.listener.MisoListener;
-import uk.ac.bbsrc.tgac.miso.core.exception.MalformedRunQcException;
+import uk.ac.bbsrc.tgac.miso.core.event.model.RunEvent;
+import uk.ac.bbsrc.tgac.miso.core.event.model.StatusChangedEvent;
+import uk.ac.bbsrc.tgac.miso.core.event.type.MisoEventType;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * uk.ac.bbsrc.tgac.miso.core.event.manager
  * <p/>
- * Info
+ * Keeps a {@link RunAlertState} for each watched run, and fires run events to the run listener when an updated run's health
+ * changes or it gains QCs
  *
  * @author Rob Davey
  * @date 11/11/11
@@ -50,7 +55,7 @@ import java.util.*;
  */
 public class RunAlertManager {
   protected static final Logger log = LoggerFactory.getLogger(RunAlertManager.class);
-  Map<Long, Run> runs = new HashMap<Long, Run>();
+  Map<Long, RunAlertState> runs = new ConcurrentHashMap<Long, RunAlertState>();
 
   private RequestManager misoRequestManager;
   private Cloner cloner = new Cloner();
@@ -69,14 +74,6 @@ public class RunAlertManager {
     this.runListener = runListener;
   }
 
-  public void applyListeners(Run run) {
-    run.addListener(getRunListener());
-  }
-
-  public void removeListeners(Run run) {
-    run.removeListener(getRunListener());
-  }
-
   public void setRequestManager(RequestManager misoRequestManager) {
     this.misoRequestManager = misoRequestManager;
   }
@@ -90,21 +87,27 @@ public class RunAlertManager {
   }
 
   public void push(Run run) {
+    push(run, true);
+  }
+
+  /**
+   * Records the state of a run, unless a state is already held for it
+   *
+   * @param run the run
+   * @param qcsLoaded whether the run's QCs have been loaded. If not, no QC added events are raised on the run's next update.
+   */
+  public void push(Run run, boolean qcsLoaded) {
     if (enabled) {
       if (run != null) {
-        Run clone = cloner.deepClone(run);
-        if (clone != null) {
-          applyListeners(clone);
-          if (runs.containsKey(run.getId())) {
-            if (clone.getStatus() != null) {
-              log.debug("Not replacing Run " + clone.getId() + ": " + clone.getStatus().getHealth().name());
-            }
+        if (runs.containsKey(run.getId())) {
+          if (run.getStatus() != null) {
+            log.debug("Not replacing Run " + run.getId() + ": " + run.getStatus().getHealth().name());
           }
-          else {
-            runs.put(run.getId(), clone);
-            if (clone.getStatus() != null) {
-              log.debug("Queued Run " + clone.getId() + ": " + clone.getStatus().getHealth().name());
-            }
+        }
+        else {
+          runs.put(run.getId(), RunAlertState.of(run, qcsLoaded));
+          if (run.getStatus() != null) {
+            log.debug("Queued Run " + run.getId() + ": " + run.getStatus().getHealth().name());
           }
         }
       }
@@ -117,11 +120,7 @@ public class RunAlertManager {
   public void pop(Run run) {
     if (enabled) {
       if (run != null) {
-        Run clone = runs.get(run.getId());
-        if (clone != null) {
-          removeListeners(clone);
-          clone = null;
-          runs.remove(run.getId());
+        if (runs.remove(run.getId()) != null) {
           log.debug("Dequeued " + run.getId());
         }
       }
@@ -137,9 +136,9 @@ public class RunAlertManager {
 
   private void update(Run r) throws IOException {
     if (enabled) {
-      Run clone = runs.get(r.getId());
-      if (clone == null) {
-        log.debug("Update: no clone - pushing");
+      RunAlertState state = runs.get(r.getId());
+      if (state == null) {
+        log.debug("Update: no state - pushing");
         //new run - add all RunWatchers!
         for (User u : securityManager.listUsersByGroupName("RunWatchers")) {
           r.addWatcher(u);
@@ -147,42 +146,93 @@ public class RunAlertManager {
         push(r);
       }
       else {
-        log.debug("Update: got clone of " + clone.getId());
-        if (r.getStatus() != null) {
-          clone.setStatus(r.getStatus());
+        log.debug("Update: got state of " + state.getRunId());
+        List<MisoEventType> changes = new ArrayList<MisoEventType>();
+
+        //run health changed
+        if (state.getHealth() != null && r.getStatus() != null && !r.getStatus().getHealth().equals(state.getHealth())) {
+          HealthType health = r.getStatus().getHealth();
+          if (health.equals(HealthType.Started)) {
+            changes.add(MisoEventType.RUN_STARTED);
+          }
+          else if (health.equals(HealthType.Completed)) {
+            changes.add(MisoEventType.RUN_COMPLETED);
+          }
+          else if (health.equals(HealthType.Failed)) {
+            changes.add(MisoEventType.RUN_FAILED);
+          }
+          else {
+            changes.add(MisoEventType.STATUS_CHANGED_EVENT);
+          }
         }
 
         //run QC added
-        if (r.getRunQCs().size() > clone.getRunQCs().size()) {
-          Set<RunQC> clonedQCs = new HashSet<RunQC>(clone.getRunQCs());
+        if (state.getQcIds() != null) {
           for (RunQC qc : r.getRunQCs()) {
-            if (!clonedQCs.contains(qc)) {
-              try {
-                clone.addQc(cloner.deepClone(qc));
-              }
-              catch (MalformedRunQcException e) {
-                throw new IOException(e);
-              }
+            if (!state.getQcIds().contains(qc.getId())) {
+              changes.add(MisoEventType.RUN_QC_ADDED);
             }
           }
         }
 
-        pop(clone);
-        push(r);
+        runs.put(r.getId(), RunAlertState.of(r));
+        fire(r, state, changes);
+      }
+    }
+  }
+
+  /**
+   * Fires events about a run to the run listener. The events are raised against a shallow copy of the run carrying the watchers
+   * known to this manager, so the run itself is left untouched.
+   */
+  private void fire(Run r, RunAlertState state, List<MisoEventType> changes) throws IOException {
+    if (r.getId() != 0L && !changes.isEmpty() && getRunListener() != null) {
+      Run watched = cloner.shallowClone(r);
+      watched.setWatchers(resolveWatchers(state.getWatcherIds()));
+      for (MisoEventType type : changes) {
+        Event e;
+        switch (type) {
+          case RUN_STARTED:
+            e = new RunEvent(watched, type, "Run started");
+            break;
+          case RUN_COMPLETED:
+            e = new RunEvent(watched, type, "Run completed");
+            break;
+          case RUN_FAILED:
+            e = new RunEvent(watched, type, "Run failed");
+            break;
+          case RUN_QC_ADDED:
+            e = new RunEvent(watched, type, "Run QC added");
+            break;
+          default:
+            e = new StatusChangedEvent<Run>(watched, watched.getStatus());
+        }
+        getRunListener().stateChanged(e);
+      }
+    }
+  }
+
+  private Set<User> resolveWatchers(Set<Long> watcherIds) throws IOException {
+    Set<User> watchers = new HashSet<User>();
+    for (Long userId : watcherIds) {
+      User u = securityManager.getUserById(userId);
+      if (u != null) {
+        watchers.add(u);
       }
     }
+    return watchers;
   }
 
   public void addWatcher(Run run, Long userId) throws IOException {
     User user = securityManager.getUserById(userId);
     if (user != null) {
-      Run clone = runs.get(run.getId());
-      if (clone == null) {
+      RunAlertState state = runs.get(run.getId());
+      if (state == null) {
         run.addWatcher(user);
         push(run);
       }
       else {
-        clone.addWatcher(user);
+        runs.put(run.getId(), state.withWatcher(userId));
       }
     }
   }
@@ -190,13 +240,13 @@ public class RunAlertManager {
   public void removeWatcher(Run run, Long userId) throws IOException {
     User user = securityManager.getUserById(userId);
     if (user != null) {
-      Run clone = runs.get(run.getId());
-      if (clone == null) {
+      RunAlertState state = runs.get(run.getId());
+      if (state == null) {
         run.removeWatcher(user);
         push(run);
       }
       else {
-        clone.removeWatcher(user);
+        runs.put(run.getId(), state.withoutWatcher(userId));
       }
     }
   }
@@ -204,16 +254,17 @@ public class RunAlertManager {
   public void updateGroupWatcher(Long userId) throws IOException {
     User user = securityManager.getUserById(userId);
     if (user != null) {
-      for (Run r : runs.values()) {
-        if (user.getGroups() != null && user.getGroups().contains(securityManager.getGroupByName("RunWatchers"))) {
-          addWatcher(r, userId);
+      boolean runWatcher = user.getGroups() != null && user.getGroups().contains(securityManager.getGroupByName("RunWatchers"));
+      for (RunAlertState state : runs.values()) {
+        if (runWatcher) {
+          runs.put(state.getRunId(), state.withWatcher(userId));
         }
         else {
-          if (r.getSecurityProfile() != null && r.getSecurityProfile().getOwner() != null && !r.getSecurityProfile().getOwner().equals(user)) {
-            removeWatcher(r, userId);
+          if (state.getOwnerId() != null && !state.getOwnerId().equals(userId)) {
+            runs.put(state.getRunId(), state.withoutWatcher(userId));
           }
         }
       }
     }
   }
-}
\ No newline at end of file
+}
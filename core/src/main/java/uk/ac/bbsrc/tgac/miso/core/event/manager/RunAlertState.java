@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.event.manager;
+
+import com.eaglegenomics.simlims.core.User;
+import uk.ac.bbsrc.tgac.miso.core.data.Run;
+import uk.ac.bbsrc.tgac.miso.core.data.RunQC;
+import uk.ac.bbsrc.tgac.miso.core.data.type.HealthType;
+
+import java.util.*;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.event.manager
+ * <p/>
+ * Immutable snapshot of the parts of a {@link Run} that the {@link RunAlertManager} needs to detect alertable changes, i.e. its
+ * health, the IDs of its QCs and the IDs of its watchers. Changes produce a new snapshot rather than modifying this one, so
+ * snapshots can be read safely while another thread updates the manager.
+ *
+ * @since 0.2.1
+ */
+public final class RunAlertState {
+  private final long runId;
+  private final HealthType health;
+  private final Set<Long> qcIds;
+  private final Set<Long> watcherIds;
+  private final Long ownerId;
+
+  private RunAlertState(long runId, HealthType health, Set<Long> qcIds, Set<Long> watcherIds, Long ownerId) {
+    this.runId = runId;
+    this.health = health;
+    this.qcIds = qcIds != null ? Collections.unmodifiableSet(qcIds) : null;
+    this.watcherIds = Collections.unmodifiableSet(watcherIds);
+    this.ownerId = ownerId;
+  }
+
+  public static RunAlertState of(Run run) {
+    return of(run, true);
+  }
+
+  /**
+   * @param run the run
+   * @param qcsLoaded whether the run's QCs have been loaded, e.g. false for a lazily mapped run
+   * @return the run's state, with no QC IDs if they were not loaded
+   */
+  public static RunAlertState of(Run run, boolean qcsLoaded) {
+    Set<Long> qcIds = null;
+    if (qcsLoaded) {
+      qcIds = new HashSet<Long>();
+      if (run.getRunQCs() != null) {
+        for (RunQC qc : run.getRunQCs()) {
+          qcIds.add(qc.getId());
+        }
+      }
+    }
+    Set<Long> watcherIds = new HashSet<Long>();
+    if (run.getWatchers() != null) {
+      for (User u : run.getWatchers()) {
+        watcherIds.add(u.getUserId());
+      }
+    }
+    Long ownerId = null;
+    if (run.getSecurityProfile() != null && run.getSecurityProfile().getOwner() != null) {
+      ownerId = run.getSecurityProfile().getOwner().getUserId();
+    }
+    return new RunAlertState(run.getId(), run.getStatus() != null ? run.getStatus().getHealth() : null, qcIds, watcherIds, ownerId);
+  }
+
+  public long getRunId() {
+    return runId;
+  }
+
+  public HealthType getHealth() {
+    return health;
+  }
+
+  /**
+   * @return the IDs of the run's QCs, or null if they were not known when this state was recorded
+   */
+  public Set<Long> getQcIds() {
+    return qcIds;
+  }
+
+  public Set<Long> getWatcherIds() {
+    return watcherIds;
+  }
+
+  public Long getOwnerId() {
+    return ownerId;
+  }
+
+  public RunAlertState withWatcher(Long userId) {
+    if (watcherIds.contains(userId)) return this;
+    Set<Long> w = new HashSet<Long>(watcherIds);
+    w.add(userId);
+    return new RunAlertState(runId, health, qcIds, w, ownerId);
+  }
+
+  public RunAlertState withoutWatcher(Long userId) {
+    if (!watcherIds.contains(userId)) return this;
+    Set<Long> w = new HashSet<Long>(watcherIds);
+    w.remove(userId);
+    return new RunAlertState(runId, health, qcIds, w, ownerId);
+  }
+}
@@ -156,8 +156,10 @@ public class BarcodeFactory {
   }
 
   private RenderedImage getImage(Barcodable barcodable, BarcodeGenerator barcodeGenerator, BarcodeDimension dimension) throws IOException {
-    String input = barcodable.getIdentificationBarcode();
+    return getImage(barcodable.getIdentificationBarcode(), barcodeGenerator, dimension);
+  }
 
+  private RenderedImage getImage(String input, BarcodeGenerator barcodeGenerator, BarcodeDimension dimension) throws IOException {
     if (input != null && !"".equals(input)) {
       String enc = new String(Base64.encodeBase64(input.getBytes("UTF-8")));
 
@@ -190,6 +192,10 @@ public class BarcodeFactory {
     return getImage(barcodable, barcodeGenerator, dim);
   }
 
+  public RenderedImage generateBarcode(String identificationBarcode, BarcodeGenerator barcodeGenerator, BarcodeDimension dim) throws IOException {
+    return getImage(identificationBarcode, barcodeGenerator, dim);
+  }
+
   public void generateBarcode(Barcodable barcodable, BarcodeGenerator barcodeGenerator, OutputStream output) throws IOException {
     writeImageToStream(getImage(barcodable, barcodeGenerator, new BarcodeDimension(100, 100)), output);
   }
@@ -200,6 +206,12 @@ public class BarcodeFactory {
     return getImage(barcodable, dmb, new BarcodeDimension(width, width));
   }
 
+  public RenderedImage generateSquareDataMatrix(String identificationBarcode, int width) throws IOException {
+    DataMatrixBean dmb = (DataMatrixBean)DATAMATRIX;
+    dmb.setShape(SymbolShapeHint.FORCE_SQUARE);
+    return getImage(identificationBarcode, dmb, new BarcodeDimension(width, width));
+  }
+
   public void generateSquareDataMatrix(Barcodable barcodable, int width, OutputStream output) throws IOException {
     writeImageToStream(generateSquareDataMatrix(barcodable, width), output);
   }
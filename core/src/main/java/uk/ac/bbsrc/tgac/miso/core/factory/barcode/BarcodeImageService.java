@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.factory.barcode;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.krysalis.barcode4j.BarcodeDimension;
+import org.krysalis.barcode4j.BarcodeGenerator;
+import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.factory.barcode
+ * <p/>
+ * Renders barcode images to PNG bytes and keeps the most recently used ones in memory, keyed by barcode content,
+ * symbology and dimensions, so that pages showing the same barcodes again do not re-render them
+ *
+ * @since 0.2.1
+ */
+public class BarcodeImageService {
+  /**
+   * The symbology used for labels when none is asked for: a square DataMatrix
+   */
+  public static final String SQUARE_DATAMATRIX = "SQUARE_DATAMATRIX";
+  public static final int DEFAULT_MAX_ENTRIES = 2000;
+
+  private final BarcodeFactory barcodeFactory = new BarcodeFactory();
+  private final Map<String, BarcodeImage> cache;
+
+  public BarcodeImageService() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  public BarcodeImageService(final int maxEntries) {
+    barcodeFactory.setPointPixels(1.5f);
+    barcodeFactory.setBitmapResolution(600);
+    cache = new LinkedHashMap<String, BarcodeImage>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, BarcodeImage> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Get the PNG image of a barcode, rendering it only if it is not already cached
+   *
+   * @param identificationBarcode the barcode content
+   * @param symbology the name of a BarcodeFactory generator, or null for a square DataMatrix
+   * @param width the barcode width
+   * @param height the barcode height, ignored for a square DataMatrix
+   * @return BarcodeImage the image, or null if there is no barcode to render
+   * @throws IOException when the image cannot be rendered
+   * @throws IllegalArgumentException when the symbology is not known
+   */
+  public BarcodeImage getImage(String identificationBarcode, String symbology, double width, double height) throws IOException {
+    if (LimsUtils.isStringEmptyOrNull(identificationBarcode)) {
+      return null;
+    }
+    String sym = symbology == null ? SQUARE_DATAMATRIX : symbology.toUpperCase();
+    String key = sym + ":" + width + "x" + height + ":" + identificationBarcode;
+    synchronized (cache) {
+      BarcodeImage cached = cache.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    BarcodeImage image = render(identificationBarcode, sym, width, height);
+    if (image != null) {
+      synchronized (cache) {
+        cache.put(key, image);
+      }
+    }
+    return image;
+  }
+
+  private BarcodeImage render(String identificationBarcode, String symbology, double width, double height) throws IOException {
+    RenderedImage bi;
+    //the generator beans keep state between renders, so only one render can run at a time
+    synchronized (barcodeFactory) {
+      if (SQUARE_DATAMATRIX.equals(symbology)) {
+        bi = barcodeFactory.generateSquareDataMatrix(identificationBarcode, (int) width);
+      }
+      else {
+        BarcodeGenerator bg = BarcodeFactory.lookupGenerator(symbology);
+        if (bg == null) {
+          throw new IllegalArgumentException("'" + symbology + "' is not a valid barcode generator type");
+        }
+        bi = barcodeFactory.generateBarcode(identificationBarcode, bg, new BarcodeDimension(width, height));
+      }
+    }
+    if (bi == null) {
+      return null;
+    }
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    if (!ImageIO.write(bi, "png", png)) {
+      throw new IOException("No PNG writer available to render barcode");
+    }
+    return new BarcodeImage(png.toByteArray());
+  }
+
+  /**
+   * Forget all rendered images
+   */
+  public void clear() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * A rendered PNG barcode image and its entity tag
+   */
+  public static class BarcodeImage {
+    private final byte[] png;
+    private final String eTag;
+
+    BarcodeImage(byte[] png) {
+      this.png = png;
+      this.eTag = "\"" + DigestUtils.md5Hex(png) + "\"";
+    }
+
+    public String getETag() {
+      return eTag;
+    }
+
+    public int getLength() {
+      return png.length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+      out.write(png);
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.logging;
+
+import org.aspectj.lang.Signature;
+import uk.ac.bbsrc.tgac.miso.core.data.Nameable;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.logging
+ * <p/>
+ * A single audited service call. Only the cheap parts of the call - when it happened, who made it, whether it succeeded and
+ * the type and ID of the entity it acted on - are captured on the calling thread. The action name and any failure detail are
+ * rendered when the event is written.
+ * <p/>
+ * Events are stored one per line as tab-separated fields:
+ * <pre>timestamp  outcome  user  action  entityType  entityId  detail</pre>
+ * where timestamp is yyyy-MM-dd'T'HH:mm:ss.SSS, an entityId of "-" means the entity has no ID, and tabs and newlines within
+ * fields are escaped.
+ *
+ * @since 0.2.1
+ */
+public class AuditEvent {
+  public static final String OK = "OK";
+  public static final String FAIL = "FAIL";
+  public static final String AJAX_OK = "AJAX_OK";
+  public static final String AJAX_FAIL = "AJAX_FAIL";
+
+  private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS";
+  private static final String NO_VALUE = "-";
+
+  private final long timestamp;
+  private final String outcome;
+  private final String user;
+  private final String entityType;
+  private final Long entityId;
+
+  private Signature signature;
+  private Object detailSource;
+  private String action;
+  private String detail;
+
+  private AuditEvent(long timestamp, String outcome, String user, String entityType, Long entityId) {
+    this.timestamp = timestamp;
+    this.outcome = outcome;
+    this.user = user;
+    this.entityType = entityType;
+    this.entityId = entityId;
+  }
+
+  /**
+   * Captures an audit event for a call to the given method with the given arguments. The entity is taken from the first
+   * {@link Nameable} argument, falling back to the type of the first argument.
+   *
+   * @param outcome of type String
+   * @param user of type String
+   * @param signature the signature of the advised method
+   * @param args the arguments of the advised call
+   * @param detailSource an exception or request object describing the call further, rendered when the event is written. May be null.
+   * @return AuditEvent
+   */
+  public static AuditEvent capture(String outcome, String user, Signature signature, Object[] args, Object detailSource) {
+    String entityType = null;
+    Long entityId = null;
+    if (args != null) {
+      for (Object arg : args) {
+        if (arg instanceof Nameable) {
+          entityType = arg.getClass().getSimpleName();
+          entityId = ((Nameable) arg).getId();
+          break;
+        }
+      }
+      if (entityType == null && args.length > 0 && args[0] != null) {
+        entityType = args[0].getClass().getSimpleName();
+      }
+    }
+    AuditEvent event = new AuditEvent(System.currentTimeMillis(), outcome, user, entityType, entityId);
+    event.signature = signature;
+    event.detailSource = detailSource;
+    return event;
+  }
+
+  /**
+   * Parses an event from a line written by {@link #toRecord()}
+   *
+   * @param record of type String
+   * @return AuditEvent
+   * @throws IllegalArgumentException when the line is not an audit record
+   */
+  public static AuditEvent parse(String record) throws IllegalArgumentException {
+    String[] fields = record.split("\t", -1);
+    if (fields.length != 7) {
+      throw new IllegalArgumentException("Not an audit record: " + record);
+    }
+    try {
+      AuditEvent event = new AuditEvent(
+          new SimpleDateFormat(DATE_FORMAT).parse(fields[0]).getTime(),
+          fields[1],
+          unescape(fields[2]),
+          unescape(fields[4]),
+          NO_VALUE.equals(fields[5]) ? null : Long.valueOf(fields[5]));
+      event.action = unescape(fields[3]);
+      event.detail = unescape(fields[6]);
+      return event;
+    }
+    catch (java.text.ParseException e) {
+      throw new IllegalArgumentException("Not an audit record: " + record, e);
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Not an audit record: " + record, e);
+    }
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getOutcome() {
+    return outcome;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  public String getEntityType() {
+    return entityType;
+  }
+
+  public Long getEntityId() {
+    return entityId;
+  }
+
+  public String getAction() {
+    if (action == null && signature != null) {
+      action = signature.getDeclaringType().getSimpleName() + "." + signature.getName();
+    }
+    return action;
+  }
+
+  public String getDetail() {
+    if (detail == null && detailSource != null) {
+      if (detailSource instanceof Throwable) {
+        Throwable t = (Throwable) detailSource;
+        detail = t.getClass().getSimpleName() + ": " + t.getMessage();
+      }
+      else {
+        detail = detailSource.toString();
+      }
+      detailSource = null;
+    }
+    return detail;
+  }
+
+  /**
+   * Renders this event as a single line in the audit log format
+   *
+   * @return String
+   */
+  public String toRecord() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(new SimpleDateFormat(DATE_FORMAT).format(new Date(timestamp))).append("\t");
+    sb.append(outcome).append("\t");
+    sb.append(escape(user)).append("\t");
+    sb.append(escape(getAction())).append("\t");
+    sb.append(escape(entityType)).append("\t");
+    sb.append(entityId != null ? String.valueOf(entityId) : NO_VALUE).append("\t");
+    sb.append(escape(getDetail()));
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return toRecord();
+  }
+
+  private static String escape(String s) {
+    if (s == null) {
+      return NO_VALUE;
+    }
+    return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+  }
+
+  private static String unescape(String s) {
+    if (NO_VALUE.equals(s)) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\\' && i + 1 < s.length()) {
+        char n = s.charAt(++i);
+        switch (n) {
+          case 't':
+            sb.append('\t');
+            break;
+          case 'n':
+            sb.append('\n');
+            break;
+          case 'r':
+            sb.append('\r');
+            break;
+          default:
+            sb.append(n);
+        }
+      }
+      else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.logging;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.logging
+ * <p/>
+ * Queries audit log files written by {@link AuditLogWriter}. Lines that are not audit records are skipped.
+ *
+ * @since 0.2.1
+ */
+public class AuditLogReader {
+  /**
+   * Returns the events in the given audit log that match all of the supplied criteria. A null criterion matches anything.
+   *
+   * @param logFile the audit log to read
+   * @param user the user who made the call
+   * @param entityType the simple class name of the entity, e.g. "SampleImpl"
+   * @param entityId the ID of the entity
+   * @return the matching events, in the order they were written
+   * @throws IOException when the log cannot be read
+   */
+  public static List<AuditEvent> query(File logFile, String user, String entityType, Long entityId) throws IOException {
+    List<AuditEvent> events = new ArrayList<AuditEvent>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        AuditEvent event;
+        try {
+          event = AuditEvent.parse(line);
+        }
+        catch (IllegalArgumentException e) {
+          continue;
+        }
+        if ((user == null || user.equals(event.getUser()))
+            && (entityType == null || entityType.equals(event.getEntityType()))
+            && (entityId == null || entityId.equals(event.getEntityId()))) {
+          events.add(event);
+        }
+      }
+    }
+    return events;
+  }
+}
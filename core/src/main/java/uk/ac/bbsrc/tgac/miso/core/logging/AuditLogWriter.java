@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.logging;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.logging
+ * <p/>
+ * Writes audit events to a logger from a single background thread. Events are handed over on a bounded queue, so an audited
+ * call never waits on the log file. When the queue is full, new events are dropped and counted rather than blocking the caller,
+ * and the number dropped is logged once the writer catches up.
+ *
+ * @since 0.2.1
+ */
+public class AuditLogWriter {
+  private final Logger log;
+  private final String name;
+  private final int queueCapacity;
+
+  private BlockingQueue<AuditEvent> queue;
+  private Thread writer;
+  private volatile boolean running = true;
+  private final AtomicLong dropped = new AtomicLong();
+
+  /**
+   * Constructor AuditLogWriter creates a new AuditLogWriter writing to the given logger
+   *
+   * @param log of type Logger
+   * @param queueCapacity the maximum number of events waiting to be written
+   */
+  public AuditLogWriter(Logger log, int queueCapacity) {
+    this.log = log;
+    this.name = log.getName();
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Queues an event to be written. Returns immediately.
+   *
+   * @param event of type AuditEvent
+   * @return true if the event was queued, false if the queue was full or the writer has been stopped
+   */
+  public boolean write(AuditEvent event) {
+    if (!running) {
+      return false;
+    }
+    if (!getQueue().offer(event)) {
+      dropped.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of events dropped because the queue was full
+   *
+   * @return long
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  private synchronized BlockingQueue<AuditEvent> getQueue() {
+    if (queue == null) {
+      queue = new ArrayBlockingQueue<AuditEvent>(queueCapacity);
+      writer = new Thread(new Writer(), "audit-log-" + name);
+      writer.setDaemon(true);
+      writer.start();
+    }
+    return queue;
+  }
+
+  /**
+   * Stops the writer thread once any queued events have been written
+   */
+  public synchronized void destroy() {
+    running = false;
+    if (writer != null) {
+      writer.interrupt();
+      try {
+        writer.join(10000);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void drain() {
+    List<AuditEvent> events = new ArrayList<AuditEvent>();
+    queue.drainTo(events);
+    for (AuditEvent event : events) {
+      writeEvent(event);
+    }
+  }
+
+  private void writeEvent(AuditEvent event) {
+    try {
+      if (AuditEvent.OK.equals(event.getOutcome()) || AuditEvent.AJAX_OK.equals(event.getOutcome())) {
+        log.info(event.toRecord());
+      }
+      else {
+        log.warn(event.toRecord());
+      }
+    }
+    catch (RuntimeException e) {
+      log.error("Cannot write audit event", e);
+    }
+  }
+
+  private class Writer implements Runnable {
+    @Override
+    public void run() {
+      long reported = 0;
+      while (running) {
+        try {
+          writeEvent(queue.take());
+          drain();
+          long d = dropped.get();
+          if (d != reported) {
+            log.warn("Audit log queue full: " + (d - reported) + " event(s) dropped");
+            reported = d;
+          }
+        }
+        catch (InterruptedException e) {
+          break;
+        }
+      }
+      drain();
+    }
+  }
+}
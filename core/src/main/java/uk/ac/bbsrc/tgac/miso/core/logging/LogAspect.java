@@ -29,10 +29,14 @@ import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.Aspect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
  * Defines an aspect whereby the given JoinPoint advice (an execution event, e.g. a DAO save operation) is logged to a particular logger
+ * <p/>
+ * Each event is captured as an {@link AuditEvent} holding the user, outcome and the type and ID of the entity acted on, and handed
+ * to an {@link AuditLogWriter} that writes it from a background thread. Advised calls never render their arguments or wait on the log.
  *
  * @author Rob Davey
  * @since 0.0.2
@@ -43,13 +47,27 @@ public class LogAspect {
   /** Field log  */
   protected Logger log;
 
+  /** Field writer  */
+  protected AuditLogWriter writer;
+
   /**
    * Constructor LogAspect creates a new LogAspect instance with a given Logger name
    *
    * @param logName of type String
    */
   public LogAspect(String logName) {
+    this(logName, 10000);
+  }
+
+  /**
+   * Constructor LogAspect creates a new LogAspect instance with a given Logger name and a limit on the number of events waiting to be written
+   *
+   * @param logName of type String
+   * @param queueCapacity of type int
+   */
+  public LogAspect(String logName, int queueCapacity) {
     this.log = LoggerFactory.getLogger(logName);
+    this.writer = new AuditLogWriter(log, queueCapacity);
   }
 
   /**
@@ -58,17 +76,7 @@ public class LogAspect {
    * @param join of type JoinPoint
    */
   public void logEvent(JoinPoint join) {
-    String name = "SERVICE";
-    if (SecurityContextHolder.getContext().getAuthentication() != null) {
-      name = SecurityContextHolder.getContext().getAuthentication().getName();
-    }
-    StringBuilder sb = new StringBuilder();
-    sb.append("OK [").append(name).append("] ").append(join.toString()).append(" [\n");
-    for (Object o : join.getArgs()) {
-      sb.append("-> ").append(o).append("\n");
-    }
-    sb.append("]\n");
-    log.info(sb.toString());
+    writer.write(AuditEvent.capture(AuditEvent.OK, getUserName("SERVICE"), join.getSignature(), join.getArgs(), null));
   }
 
   /**
@@ -78,11 +86,7 @@ public class LogAspect {
    * @param e of type Exception
    */
   public void logFailedEvent(JoinPoint join, Exception e) {
-    String name = "SERVICE:"+e.getClass().getSimpleName();
-    if (SecurityContextHolder.getContext().getAuthentication() != null) {
-      name = SecurityContextHolder.getContext().getAuthentication().getName();
-    }
-    this.log.warn("FAIL ["+ name +"] "+join.toString()+" [" + join.getArgs()[0] +"] -> "+e.getMessage());
+    writer.write(AuditEvent.capture(AuditEvent.FAIL, getUserName("SERVICE:" + e.getClass().getSimpleName()), join.getSignature(), join.getArgs(), e));
   }
 
   /**
@@ -93,8 +97,8 @@ public class LogAspect {
    */
   @AfterReturning(pointcut="@annotation(LoggedAction)", returning="json")
   public void logAjaxEvent(JoinPoint join, JSONObject json) {
-    System.out.println("logAjaxEvent: " + join.toString());
-    this.log.info("AJAX OK ["+ SecurityContextHolder.getContext().getAuthentication().getName()+"] "+join.toString()+" [" + json.toString() +"]");
+    //the returned object may still be modified by the caller, so only its rendering at this point is kept
+    writer.write(AuditEvent.capture(AuditEvent.AJAX_OK, getUserName("SERVICE"), join.getSignature(), join.getArgs(), json != null ? json.toString() : null));
   }
 
   /**
@@ -105,6 +109,18 @@ public class LogAspect {
    * @param e of type Exception
    */
   public void logFailedAjaxEvent(JoinPoint join, JSONObject json, Exception e) {
-    this.log.warn("AJAX FAIL ["+ SecurityContextHolder.getContext().getAuthentication().getName()+"] "+join.toString()+" [" + json.toString() +"] -> "+e.getMessage());
+    writer.write(AuditEvent.capture(AuditEvent.AJAX_FAIL, getUserName("SERVICE:" + e.getClass().getSimpleName()), join.getSignature(), join.getArgs(), e));
+  }
+
+  /**
+   * Stops the audit writer once any queued events have been written
+   */
+  public void destroy() {
+    writer.destroy();
+  }
+
+  private String getUserName(String defaultName) {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    return auth != null ? auth.getName() : defaultName;
   }
 }
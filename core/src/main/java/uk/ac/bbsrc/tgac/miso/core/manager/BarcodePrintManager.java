@@ -24,24 +24,41 @@
 package uk.ac.bbsrc.tgac.miso.core.manager;
 
 import com.eaglegenomics.simlims.core.User;
+import com.opensymphony.util.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.ac.bbsrc.tgac.miso.core.data.Nameable;
 import uk.ac.bbsrc.tgac.miso.core.data.PrintJob;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.MisoPrintJob;
 import uk.ac.bbsrc.tgac.miso.core.exception.MisoPrintException;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.MisoPrintService;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.PrintContextResolverService;
+import uk.ac.bbsrc.tgac.miso.core.service.printing.context.BatchPrintContext;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.context.PrintContext;
+import uk.ac.bbsrc.tgac.miso.core.service.printing.schema.BarcodableSchema;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * uk.ac.bbsrc.tgac.miso.core.manager
  * <p/>
  * Manages specified MisoPrintServices and allows construction of a print job that will be persisted on print()
+ * <p/>
+ * Batches printed with printBatch() are rendered into a single label script in memory and go through a queue per
+ * printer, so a plate's worth of labels is one spool job rather than one per label
  *
  * @author Rob Davey
  * @date 30-Jun-2011
@@ -50,35 +67,44 @@ import java.util.Queue;
 public class BarcodePrintManager extends AbstractPrintManager<Queue<File>> {
   protected static final Logger log = LoggerFactory.getLogger(BarcodePrintManager.class);
 
+  private final ConcurrentMap<String, ExecutorService> printQueues = new ConcurrentHashMap<String, ExecutorService>();
+  private long shutdownTimeout = 30000;
+
   public BarcodePrintManager(PrintContextResolverService pcrs) {
     setPrintContextResolverService(pcrs);
   }
 
+  /**
+   * Sets how long, in milliseconds, shutdown() waits for queued jobs to be sent. Defaults to 30 seconds.
+   *
+   * @param shutdownTimeout of type long
+   */
+  public void setShutdownTimeout(long shutdownTimeout) {
+    this.shutdownTimeout = shutdownTimeout;
+  }
+
   @Override
   public PrintJob print(Queue<File> barcodesToPrint, String printServiceName, User user) throws MisoPrintException {
     try {
       MisoPrintService mps = getPrintService(printServiceName);
       if (mps != null) {
-        MisoPrintJob job = new MisoPrintJob();
-        job.setPrintDate(new Date());
-        job.setPrintService(mps);
-        job.setPrintUser(user);
-        job.setQueuedElements(barcodesToPrint);
-        job.setStatus("QUEUED");
-        try {
-          long jobId = storePrintJob(job);
-          job.setJobId(jobId);
-        }
-        catch (IOException e) {
-          e.printStackTrace();
-          log.debug("Could not store print job");
-        }
+        MisoPrintJob job = newJob(mps, user, barcodesToPrint);
 
         try {
           boolean jobOK = true;
-          for (File barcodeFile : barcodesToPrint) {
-            if (!mps.print(barcodeFile)) {
-              jobOK = false;
+          if (mps.isEnabled() && mps.getPrintContext() instanceof BatchPrintContext) {
+            //one spool job for the whole queue
+            StringBuilder labels = new StringBuilder();
+            for (File barcodeFile : barcodesToPrint) {
+              labels.append(FileUtils.readFile(barcodeFile));
+            }
+            jobOK = barcodesToPrint.isEmpty() || ((BatchPrintContext) mps.getPrintContext()).printRaw(labels.toString());
+          }
+          else {
+            for (File barcodeFile : barcodesToPrint) {
+              if (!mps.print(barcodeFile)) {
+                jobOK = false;
+              }
             }
           }
 
@@ -106,4 +132,162 @@ public class BarcodePrintManager extends AbstractPrintManager<Queue<File>> {
       throw new MisoPrintException("Cannot retrieve PrintService: " + printServiceName);
     }
   }
+
+  @Override
+  public PrintJob printBatch(Collection<?> printables, String printServiceName, User user) throws MisoPrintException {
+    final MisoPrintService mps;
+    try {
+      mps = getPrintService(printServiceName);
+    }
+    catch (IOException e) {
+      e.printStackTrace();
+      throw new MisoPrintException("Cannot retrieve PrintService: " + printServiceName);
+    }
+    if (mps == null) {
+      throw new MisoPrintException("No such PrintService: " + printServiceName);
+    }
+
+    Class<?> printableClass = mps.getPrintServiceFor();
+    Queue<String> printed = new LinkedList<String>();
+    Callable<Boolean> send;
+    if (mps.getPrintContext() instanceof BatchPrintContext) {
+      BarcodableSchema schema = mps.getBarcodableSchema();
+      if (schema == null) {
+        throw new MisoPrintException("No barcodable schema set for '" + mps.getName() + "' service. Make sure a schema is set in the " +
+                                     "printer administration page");
+      }
+      final StringBuilder labels = new StringBuilder();
+      for (Object printable : printables) {
+        if (printableClass == null || printableClass.isAssignableFrom(printable.getClass())) {
+          labels.append(schema.getRawState(printable));
+          printed.add(describe(printable));
+        }
+      }
+      send = new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          if (!mps.isEnabled()) {
+            throw new IOException("Printer " + mps.getName() + " is not enabled.");
+          }
+          return labels.length() == 0 || ((BatchPrintContext) mps.getPrintContext()).printRaw(labels.toString());
+        }
+      };
+    }
+    else {
+      //labels have to be rendered here rather than on the print queue, as label factories need the caller's security context
+      final Queue<File> labelFiles = new LinkedList<File>();
+      for (Object printable : printables) {
+        File f = (File) mps.getLabelFor(printable);
+        if (f != null) {
+          labelFiles.add(f);
+          printed.add(describe(printable));
+        }
+      }
+      send = new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          boolean ok = true;
+          for (File labelFile : labelFiles) {
+            if (!mps.print(labelFile)) {
+              ok = false;
+            }
+          }
+          return ok;
+        }
+      };
+    }
+
+    final MisoPrintJob job = newJob(mps, user, printed);
+    final Callable<Boolean> print = send;
+    printQueue(mps.getName()).submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        boolean ok = false;
+        try {
+          ok = print.call();
+        }
+        catch (Exception e) {
+          log.error("Could not print barcodes to " + mps.getName(), e);
+        }
+        job.setStatus(ok ? "OK" : "FAIL");
+        try {
+          storePrintJob(job);
+        }
+        catch (IOException e) {
+          log.error("Could not store print job " + job.getJobId(), e);
+        }
+        return ok;
+      }
+    });
+    return job;
+  }
+
+  private MisoPrintJob newJob(MisoPrintService mps, User user, Queue<?> elements) {
+    MisoPrintJob job = new MisoPrintJob();
+    job.setPrintDate(new Date());
+    job.setPrintService(mps);
+    job.setPrintUser(user);
+    job.setQueuedElements(elements);
+    job.setStatus("QUEUED");
+    try {
+      long jobId = storePrintJob(job);
+      job.setJobId(jobId);
+    }
+    catch (IOException e) {
+      e.printStackTrace();
+      log.debug("Could not store print job");
+    }
+    return job;
+  }
+
+  private static String describe(Object printable) {
+    return printable instanceof Nameable ? ((Nameable) printable).getName() : String.valueOf(printable);
+  }
+
+  /**
+   * Each printer gets a single worker, so jobs reach it in the order they were queued
+   */
+  private ExecutorService printQueue(final String printServiceName) {
+    ExecutorService queue = printQueues.get(printServiceName);
+    if (queue == null) {
+      ExecutorService created = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "print-queue-" + printServiceName);
+          t.setDaemon(true);
+          return t;
+        }
+      });
+      queue = printQueues.putIfAbsent(printServiceName, created);
+      if (queue == null) {
+        queue = created;
+      }
+      else {
+        created.shutdown();
+      }
+    }
+    return queue;
+  }
+
+  /**
+   * Stops accepting new batches and waits up to shutdownTimeout milliseconds for queued jobs to be sent. Print queue workers
+   * are daemon threads, so jobs still queued after that are abandoned and stay QUEUED in the print job history.
+   */
+  public void shutdown() {
+    for (ExecutorService queue : printQueues.values()) {
+      queue.shutdown();
+    }
+    long deadline = System.currentTimeMillis() + shutdownTimeout;
+    try {
+      for (Map.Entry<String, ExecutorService> queue : printQueues.entrySet()) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || !queue.getValue().awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+          log.warn("Print queue for " + queue.getKey() + " did not empty before shutdown");
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 }
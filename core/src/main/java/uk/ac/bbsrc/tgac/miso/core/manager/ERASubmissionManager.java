@@ -63,6 +63,7 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manager class that holds state for a submission connection to the EBI SRA submission service, and facilitates the submission process
@@ -104,7 +105,9 @@ public class ERASubmissionManager implements SubmissionManager<Set<Submittable<D
   //private String proxyPass;
   private URL submissionEndPoint;
   private String submissionStoragePath;
-  private Map<Long,UploadReport> uploadReports = new HashMap<Long,UploadReport>();
+  private Map<Long,UploadReport> uploadReports = new ConcurrentHashMap<Long,UploadReport>();
+  private TransferMethod transferMethod;
+  private URI dataUploadEndPoint = URI.create("ftp://localhost");
 
   private DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
 
@@ -498,11 +501,12 @@ public class ERASubmissionManager implements SubmissionManager<Set<Submittable<D
     }
 
     if(dataFiles.size()>0){
-      TransferMethod t = new FTPTransferMethod();
+      TransferMethod t = transferMethod != null ? transferMethod : new FTPTransferMethod();
       EndPoint end = new ERAEndpoint();
-      end.setDestination(URI.create("ftp://localhost"));
+      end.setDestination(dataUploadEndPoint);
 
       try {
+        //returns as soon as the files are queued; the report fills in as the upload proceeds
         UploadReport report=t.uploadSequenceData(dataFiles, end);
         uploadReports.put(s.getId(),report);
 
@@ -528,7 +532,16 @@ public class ERASubmissionManager implements SubmissionManager<Set<Submittable<D
   }
 
   public void setTransferMethod(TransferMethod transferMethod) {
+    this.transferMethod = transferMethod;
+  }
 
+  /**
+   * Sets the server that sequence data files are uploaded to, e.g. ftp://webin.ebi.ac.uk or ftp://localhost:2121
+   *
+   * @param dataUploadEndPoint dataUploadEndPoint.
+   */
+  public void setDataUploadEndPoint(URI dataUploadEndPoint) {
+    this.dataUploadEndPoint = dataUploadEndPoint;
   }
 
  /*
@@ -25,6 +25,7 @@ package uk.ac.bbsrc.tgac.miso.core.manager;
 
 import com.eaglegenomics.simlims.core.Note;
 import com.eaglegenomics.simlims.core.SecurityProfile;
+import com.eaglegenomics.simlims.core.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -205,6 +206,178 @@ public class MisoRequestManager implements RequestManager {
     this.submissionStore = submissionStore;
   }
 
+  /**
+   * Lists up to limit objects in a store with an ID greater than afterId, in ID order. Stores that implement
+   * {@link PageableStore} page and filter by readability when querying, otherwise the page is cut from every object and
+   * callers are left to check each object's security profile.
+   *
+   * @param store the store to list from
+   * @param storeName the name of the store property, for error reporting
+   * @param user the user
+   * @param afterId the last ID of the previous page
+   * @param limit the maximum number of objects to list
+   * @return List<T>
+   * @throws IOException when the store is not available or the objects cannot be retrieved
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends Nameable> List<T> listPageReadableBy(Store<T> store, String storeName, User user, long afterId, int limit) throws IOException {
+    if (store == null) {
+      throw new IOException("No " + storeName + " available. Check that it has been declared in the Spring config.");
+    }
+    if (store instanceof PageableStore) {
+      return ((PageableStore<T>) store).listPageReadableBy(user, afterId, limit);
+    }
+    return pageOf(store.listAll(), afterId, limit);
+  }
+
+  /**
+   * Cuts a page out of an already loaded collection, for stores that cannot page themselves
+   */
+  private static <T extends Nameable> List<T> pageOf(Collection<T> all, long afterId, int limit) {
+    List<T> page = new ArrayList<T>();
+    for (T t : all) {
+      if (t.getId() > afterId) {
+        page.add(t);
+      }
+    }
+    Collections.sort(page, ID_ORDER);
+    return page.size() > limit ? new ArrayList<T>(page.subList(0, limit)) : page;
+  }
+
+  private static final Comparator<Nameable> ID_ORDER = new Comparator<Nameable>() {
+    @Override
+    public int compare(Nameable a, Nameable b) {
+      return a.getId() < b.getId() ? -1 : (a.getId() == b.getId() ? 0 : 1);
+    }
+  };
+
+  /**
+   * Filters an already loaded collection by name prefix and sorts it by ID, for stores that cannot page themselves
+   */
+  private static <T extends Nameable> List<T> matching(Collection<T> all, PageRequest page) {
+    List<T> matches = new ArrayList<T>();
+    String search = page.getSearch() != null ? page.getSearch().toLowerCase() : null;
+    for (T t : all) {
+      if (search == null || (t.getName() != null && t.getName().toLowerCase().startsWith(search))) {
+        matches.add(t);
+      }
+    }
+    Collections.sort(matches, page.isDescending() ? Collections.reverseOrder(ID_ORDER) : ID_ORDER);
+    return matches;
+  }
+
+  private static <T extends Nameable> List<T> pageOf(Collection<T> all, PageRequest page) {
+    List<T> matches = matching(all, page);
+    int from = Math.min(page.getOffset(), matches.size());
+    int to = Math.min(from + page.getLimit(), matches.size());
+    return new ArrayList<T>(matches.subList(from, to));
+  }
+
+  private <T extends Nameable> List<T> listByPageReadableBy(Store<T> store, String storeName, User user, PageRequest page) throws IOException {
+    if (store instanceof PaginatedStore) {
+      return ((PaginatedStore<T>) store).listByPageReadableBy(user, page);
+    }
+    return pageOf(listAllReadableBy(store, storeName, user), page);
+  }
+
+  private <T extends Nameable> long countReadableBy(Store<T> store, String storeName, User user, PageRequest page) throws IOException {
+    if (store instanceof PaginatedStore) {
+      return ((PaginatedStore<T>) store).countReadableBy(user, page);
+    }
+    return matching(listAllReadableBy(store, storeName, user), page).size();
+  }
+
+  /**
+   * Takes the first limit results of a plain search, for stores that keep no search index to rank with
+   */
+  private static <T> List<T> firstOf(Collection<T> all, int limit) {
+    List<T> first = new ArrayList<T>();
+    for (T t : all) {
+      if (first.size() >= limit) {
+        break;
+      }
+      first.add(t);
+    }
+    return first;
+  }
+
+  protected List<Sample> listSamplesPageReadableBy(User user, PageRequest page) throws IOException {
+    return listByPageReadableBy(sampleStore, "sampleStore", user, page);
+  }
+
+  protected long countSamplesReadableBy(User user, PageRequest page) throws IOException {
+    return countReadableBy(sampleStore, "sampleStore", user, page);
+  }
+
+  protected List<Library> listLibrariesPageReadableBy(User user, PageRequest page) throws IOException {
+    return listByPageReadableBy(libraryStore, "libraryStore", user, page);
+  }
+
+  protected long countLibrariesReadableBy(User user, PageRequest page) throws IOException {
+    return countReadableBy(libraryStore, "libraryStore", user, page);
+  }
+
+  protected List<Run> listRunsPageReadableBy(User user, PageRequest page) throws IOException {
+    return listByPageReadableBy(runStore, "runStore", user, page);
+  }
+
+  protected long countRunsReadableBy(User user, PageRequest page) throws IOException {
+    return countReadableBy(runStore, "runStore", user, page);
+  }
+
+  protected List<Pool<? extends Poolable>> listPoolsPageReadableBy(User user, PageRequest page) throws IOException {
+    return listByPageReadableBy(poolStore, "poolStore", user, page);
+  }
+
+  protected long countPoolsReadableBy(User user, PageRequest page) throws IOException {
+    return countReadableBy(poolStore, "poolStore", user, page);
+  }
+
+  protected List<Project> listProjectsReadableByAfter(User user, long afterId, int limit) throws IOException {
+    return listPageReadableBy(projectStore, "projectStore", user, afterId, limit);
+  }
+
+  protected List<Sample> listSamplesReadableByAfter(User user, long afterId, int limit) throws IOException {
+    return listPageReadableBy(sampleStore, "sampleStore", user, afterId, limit);
+  }
+
+  /**
+   * Lists every object in a store that a user can read. Stores that implement {@link SecurableStore} leave out unreadable
+   * objects when querying, otherwise every object is listed and callers are left to check each object's security profile.
+   *
+   * @param store the store to list from
+   * @param storeName the name of the store property, for error reporting
+   * @param user the user
+   * @return Collection<T>
+   * @throws IOException when the store is not available or the objects cannot be retrieved
+   */
+  @SuppressWarnings("unchecked")
+  private <T> Collection<T> listAllReadableBy(Store<T> store, String storeName, User user) throws IOException {
+    if (store == null) {
+      throw new IOException("No " + storeName + " available. Check that it has been declared in the Spring config.");
+    }
+    if (store instanceof SecurableStore) {
+      return ((SecurableStore<T>) store).listAllReadableBy(user);
+    }
+    return store.listAll();
+  }
+
+  protected Collection<Project> listAllProjectsReadableBy(User user) throws IOException {
+    return listAllReadableBy(projectStore, "projectStore", user);
+  }
+
+  protected Collection<Run> listAllRunsReadableBy(User user) throws IOException {
+    return listAllReadableBy(runStore, "runStore", user);
+  }
+
+  protected Collection<Sample> listAllSamplesReadableBy(User user) throws IOException {
+    return listAllReadableBy(sampleStore, "sampleStore", user);
+  }
+
+  protected Collection<Library> listAllLibrariesReadableBy(User user) throws IOException {
+    return listAllReadableBy(libraryStore, "libraryStore", user);
+  }
+
   @Override
   public Collection<Project> listAllProjects() throws IOException {
     if (projectStore != null) {
@@ -215,6 +388,11 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  public List<Project> listProjectsAfter(long afterId, int limit) throws IOException {
+    return pageOf(listAllProjects(), afterId, limit);
+  }
+
   @Override
   public Collection<Project> listAllProjectsWithLimit(long limit) throws IOException {
     if (projectStore != null) {
@@ -265,6 +443,16 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  public List<Run> listRunsPage(PageRequest page) throws IOException {
+    return pageOf(listAllRuns(), page);
+  }
+
+  @Override
+  public long countRuns(PageRequest page) throws IOException {
+    return matching(listAllRuns(), page).size();
+  }
+
   @Override
   public Collection<Run> listAllRunsBySearch(String query) throws IOException {
     if (runStore != null) {
@@ -275,6 +463,20 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Run> searchRuns(String query, int limit) throws IOException {
+    if (runStore != null) {
+      if (runStore instanceof SearchableStore) {
+        return ((SearchableStore<Run>) runStore).searchRanked(query, limit);
+      }
+      return firstOf(runStore.listBySearch(query), limit);
+    }
+    else {
+      throw new IOException("No runStore available. Check that it has been declared in the Spring config.");
+    }
+  }
+
   @Override
   public Collection<Run> listAllRunsByProjectId(long projectId) throws IOException {
     if (runStore != null) {
@@ -373,6 +575,21 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  public List<Sample> listSamplesAfter(long afterId, int limit) throws IOException {
+    return pageOf(listAllSamples(), afterId, limit);
+  }
+
+  @Override
+  public List<Sample> listSamplesPage(PageRequest page) throws IOException {
+    return pageOf(listAllSamples(), page);
+  }
+
+  @Override
+  public long countSamples(PageRequest page) throws IOException {
+    return matching(listAllSamples(), page).size();
+  }
+
   @Override
   public Collection<Sample> listAllSamplesWithLimit(long limit) throws IOException {
     if (sampleStore != null) {
@@ -403,6 +620,20 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Sample> searchSamples(String query, int limit) throws IOException {
+    if (sampleStore != null) {
+      if (sampleStore instanceof SearchableStore) {
+        return ((SearchableStore<Sample>) sampleStore).searchRanked(query, limit);
+      }
+      return firstOf(sampleStore.listBySearch(query), limit);
+    }
+    else {
+      throw new IOException("No sampleStore available. Check that it has been declared in the Spring config.");
+    }
+  }
+
   @Override
   public Collection<Sample> listAllSamplesByProjectId(long projectId) throws IOException {
     if (sampleStore != null) {
@@ -433,6 +664,16 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  public Collection<Sample> listSamplesByAliases(Collection<String> aliases) throws IOException {
+    if (sampleStore != null) {
+      return sampleStore.listByAliases(aliases);
+    }
+    else {
+      throw new IOException("No sampleStore available. Check that it has been declared in the Spring config.");
+    }
+  }
+
   @Override
   public Collection<String> listAllSampleTypes() throws IOException {
     if (sampleStore != null) {
@@ -473,6 +714,16 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  public List<Library> listLibrariesPage(PageRequest page) throws IOException {
+    return pageOf(listAllLibraries(), page);
+  }
+
+  @Override
+  public long countLibraries(PageRequest page) throws IOException {
+    return matching(listAllLibraries(), page).size();
+  }
+
   @Override
   public Collection<Library> listAllLibrariesBySearch(String query) throws IOException {
     if (libraryStore != null) {
@@ -483,6 +734,20 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Library> searchLibraries(String query, int limit) throws IOException {
+    if (libraryStore != null) {
+      if (libraryStore instanceof SearchableStore) {
+        return ((SearchableStore<Library>) libraryStore).searchRanked(query, limit);
+      }
+      return firstOf(libraryStore.listBySearch(query), limit);
+    }
+    else {
+      throw new IOException("No libraryStore available. Check that it has been declared in the Spring config.");
+    }
+  }
+
   @Override
   public Collection<Library> listAllLibrariesByProjectId(long projectId) throws IOException {
     if (libraryStore != null) {
@@ -523,6 +788,16 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  public List<Pool<? extends Poolable>> listPoolsPage(PageRequest page) throws IOException {
+    return pageOf(page.getPlatformType() != null ? listAllPoolsByPlatform(page.getPlatformType()) : listAllPools(), page);
+  }
+
+  @Override
+  public long countPools(PageRequest page) throws IOException {
+    return matching(page.getPlatformType() != null ? listAllPoolsByPlatform(page.getPlatformType()) : listAllPools(), page).size();
+  }
+
   @Override
   public Collection<Pool<? extends Poolable>> listAllPoolsByPlatform(PlatformType platformType) throws IOException {
     if (poolStore != null) {
@@ -563,6 +838,16 @@ public class MisoRequestManager implements RequestManager {
     }
   }
 
+  @Override
+  public List<Pool<? extends Poolable>> searchPools(String query, PlatformType platformType, boolean readyOnly, int limit) throws IOException {
+    if (poolStore != null) {
+      return poolStore.searchRankedByPlatform(query, platformType, readyOnly, limit);
+    }
+    else {
+      throw new IOException("No poolStore available. Check that it has been declared in the Spring config.");
+    }
+  }
+
   @Override
   public Collection<Pool<? extends Poolable>> listPoolsByProjectId(long projectId) throws IOException {
     if (poolStore != null) {
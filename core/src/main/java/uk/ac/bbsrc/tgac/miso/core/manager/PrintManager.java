@@ -68,6 +68,18 @@ public interface PrintManager<T, C> {
 
   public PrintJob print(C content, String printServiceName, User user) throws MisoPrintException;
 
+  /**
+   * Renders the labels for all the given objects with the named service's schema and sends them to the printer as a
+   * single print job. The job is returned as soon as it is queued, and each printer works through its queue in order.
+   *
+   * @param printables the objects to print labels for, e.g. Barcodables
+   * @param printServiceName the name of the MisoPrintService to print to
+   * @param user the user printing
+   * @return PrintJob the queued job
+   * @throws MisoPrintException when the service cannot be resolved or the labels cannot be rendered
+   */
+  public PrintJob printBatch(Collection<?> printables, String printServiceName, User user) throws MisoPrintException;
+
   public Collection<BarcodableSchema> getBarcodableSchemas();
   public BarcodableSchema getBarcodableSchema(String barcodableStateName) throws IOException;
 
@@ -37,6 +37,7 @@ import uk.ac.bbsrc.tgac.miso.core.data.impl.*;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.kit.KitDescriptor;
 import uk.ac.bbsrc.tgac.miso.core.data.type.*;
 import uk.ac.bbsrc.tgac.miso.core.event.Alert;
+import uk.ac.bbsrc.tgac.miso.core.store.PageRequest;
 
 public interface RequestManager {
 
@@ -154,6 +155,11 @@ public interface RequestManager {
   public Collection<Project> listAllProjects() throws IOException;
   public Collection<Project> listAllProjectsWithLimit(long limit) throws IOException;
   public Collection<Project> listAllProjectsBySearch(String query) throws IOException;
+  /**
+   * Obtain the next page of up to limit projects the user has access to, in ascending ID order, starting after the project
+   * with the given ID. Pass 0 to obtain the first page.
+   */
+  public List<Project> listProjectsAfter(long afterId, int limit) throws IOException;
   public Collection<ProjectOverview> listAllOverviewsByProjectId(long projectId) throws IOException;
 
   public Collection<Study> listAllStudies() throws IOException;
@@ -173,6 +179,18 @@ public interface RequestManager {
   public Collection<Run> listAllRuns() throws IOException;
   public Collection<Run> listAllRunsWithLimit(long limit) throws IOException;
   public Collection<Run> listAllRunsBySearch(String query) throws IOException;
+  /**
+   * Search the runs the user has access to by name, alias or description, returning at most limit of the best matches, best first
+   */
+  public List<Run> searchRuns(String query, int limit) throws IOException;
+  /**
+   * Obtain one page of the runs the user has access to, sorted and filtered as described by the given request
+   */
+  public List<Run> listRunsPage(PageRequest page) throws IOException;
+  /**
+   * Count the runs the user has access to that match the search and platform of the given request
+   */
+  public long countRuns(PageRequest page) throws IOException;
   public Collection<Run> listAllRunsByProjectId(long projectId) throws IOException;
   public Collection<Run> listRunsByPoolId(long poolId) throws IOException;
 
@@ -193,9 +211,30 @@ public interface RequestManager {
   public Collection<Sample> listAllSamplesWithLimit(long limit) throws IOException;
   public Collection<Sample> listAllSamplesByReceivedDate(long limit) throws IOException;
   public Collection<Sample> listAllSamplesBySearch(String query) throws IOException;
+  /**
+   * Search the samples the user has access to by name, alias, barcode, description or scientific name, returning at most limit of the best matches, best first
+   */
+  public List<Sample> searchSamples(String query, int limit) throws IOException;
+  /**
+   * Obtain the next page of up to limit samples the user has access to, in ascending ID order, starting after the sample
+   * with the given ID. Pass 0 to obtain the first page.
+   */
+  public List<Sample> listSamplesAfter(long afterId, int limit) throws IOException;
+  /**
+   * Obtain one page of the samples the user has access to, sorted and filtered as described by the given request
+   */
+  public List<Sample> listSamplesPage(PageRequest page) throws IOException;
+  /**
+   * Count the samples the user has access to that match the search and platform of the given request
+   */
+  public long countSamples(PageRequest page) throws IOException;
   public Collection<Sample> listAllSamplesByProjectId(long projectId) throws IOException;
   public Collection<Sample> listAllSamplesByExperimentId(long experimentId) throws IOException;
   public Collection<Sample> listSamplesByAlias(String alias) throws IOException;
+  /**
+   * Get all the samples whose alias is one of those given, in one lookup
+   */
+  public Collection<Sample> listSamplesByAliases(Collection<String> aliases) throws IOException;
 
   public Collection<String> listAllSampleTypes() throws IOException;
   public Collection<SampleQC> listAllSampleQCsBySampleId(long sampleId) throws IOException;
@@ -203,6 +242,18 @@ public interface RequestManager {
   public Collection<Library> listAllLibraries() throws IOException;
   public Collection<Library> listAllLibrariesWithLimit(long limit) throws IOException;
   public Collection<Library> listAllLibrariesBySearch(String query) throws IOException;
+  /**
+   * Search the libraries the user has access to by name, alias, barcode or description, returning at most limit of the best matches, best first
+   */
+  public List<Library> searchLibraries(String query, int limit) throws IOException;
+  /**
+   * Obtain one page of the libraries the user has access to, sorted and filtered as described by the given request
+   */
+  public List<Library> listLibrariesPage(PageRequest page) throws IOException;
+  /**
+   * Count the libraries the user has access to that match the search and platform of the given request
+   */
+  public long countLibraries(PageRequest page) throws IOException;
   public Collection<Library> listAllLibrariesByProjectId(long projectId) throws IOException;
   public Collection<Library> listAllLibrariesBySampleId(long sampleId) throws IOException;
   public Collection<LibraryQC> listAllLibraryQCsByLibraryId(long libraryId) throws IOException;
@@ -242,9 +293,22 @@ public interface RequestManager {
 
   public Collection<Pool<? extends Poolable>> listAllPools() throws IOException;
   public Collection<Pool<? extends Poolable>> listAllPoolsByPlatform(PlatformType platformType) throws IOException;
+  /**
+   * Obtain one page of the pools the user has access to, sorted and filtered as described by the given request
+   */
+  public List<Pool<? extends Poolable>> listPoolsPage(PageRequest page) throws IOException;
+  /**
+   * Count the pools the user has access to that match the search and platform of the given request
+   */
+  public long countPools(PageRequest page) throws IOException;
   public Collection<Pool<? extends Poolable>> listAllPoolsByPlatformAndSearch(PlatformType platformType, String query) throws IOException;
   public Collection<Pool<? extends Poolable>> listReadyPoolsByPlatform(PlatformType platformType) throws IOException;
   public Collection<Pool<? extends Poolable>> listReadyPoolsByPlatformAndSearch(PlatformType platformType, String query) throws IOException;
+  /**
+   * Search the pools of the given platform the user has access to by name, alias or barcode, returning at most limit of
+   * the best matches, best first
+   */
+  public List<Pool<? extends Poolable>> searchPools(String query, PlatformType platformType, boolean readyOnly, int limit) throws IOException;
   public Collection<Pool<? extends Poolable>> listPoolsByProjectId(long projectId) throws IOException;
   public Collection<Pool<? extends Poolable>> listPoolsByLibraryId(long libraryId) throws IOException;
   public Collection<Pool<? extends Poolable>> listPoolsBySampleId(long sampleId) throws IOException;
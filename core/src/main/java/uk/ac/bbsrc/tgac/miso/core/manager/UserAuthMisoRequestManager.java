@@ -33,7 +33,9 @@ import uk.ac.bbsrc.tgac.miso.core.data.*;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.*;
 import uk.ac.bbsrc.tgac.miso.core.data.type.*;
 import uk.ac.bbsrc.tgac.miso.core.event.Alert;
+import uk.ac.bbsrc.tgac.miso.core.security.PrincipalContext;
 import uk.ac.bbsrc.tgac.miso.core.security.SecurableByProfile;
+import uk.ac.bbsrc.tgac.miso.core.store.PageRequest;
 import com.eaglegenomics.simlims.core.manager.SecurityManager;
 
 import java.io.IOException;
@@ -62,21 +64,31 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
   }
 
   private User getCurrentUser() throws IOException {
+    return getPrincipalContext().getUser();
+  }
+
+  /**
+   * Gets the security context for the current user, resolving the user only on the first call within a request
+   */
+  private PrincipalContext getPrincipalContext() throws IOException {
     Authentication auth = securityContextHolderStrategy.getContext().getAuthentication();
-    User user = securityManager.getUserByLoginName(securityContextHolderStrategy.getContext().getAuthentication().getName());
-    if (user == null && auth.isAuthenticated()) {
-      user = new UserImpl();
-      user.setAdmin(true);
-      user.setActive(true);
-      return user;
+    PrincipalContext ctx = PrincipalContext.current(auth.getName());
+    if (ctx == null) {
+      User user = securityManager.getUserByLoginName(auth.getName());
+      if (user == null && auth.isAuthenticated()) {
+        user = new UserImpl();
+        user.setAdmin(true);
+        user.setActive(true);
+      }
+      ctx = PrincipalContext.open(auth.getName(), user);
     }
-    return securityManager.getUserByLoginName(securityContextHolderStrategy.getContext().getAuthentication().getName());
+    return ctx;
   }
 
   private boolean readCheck(SecurableByProfile s) throws IOException {
     if (s != null) {
       try {
-        return s.userCanRead(getCurrentUser());
+        return getPrincipalContext().canRead(s);
       }
       catch (IOException e) {
         e.printStackTrace();
@@ -92,7 +104,7 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
   private boolean writeCheck(SecurableByProfile s) throws IOException {
     if (s != null) {
       try {
-        return s.userCanWrite(getCurrentUser());
+        return getPrincipalContext().canWrite(s);
       }
       catch (IOException e) {
         e.printStackTrace();
@@ -576,22 +588,42 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Project> listAllProjects() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Project> accessibles = new HashSet<Project>();
-    for (Project project : super.listAllProjects()) {
-      if (project.userCanRead(user)) {
+    for (Project project : listAllProjectsReadableBy(principal.getUser())) {
+      if (principal.canRead(project)) {
         accessibles.add(project);
       }
     }
     return accessibles;
   }
 
+  @Override
+  public List<Project> listProjectsAfter(long afterId, int limit) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Project> accessibles = new ArrayList<Project>(limit);
+    long cursor = afterId;
+    while (accessibles.size() < limit) {
+      List<Project> batch = listProjectsReadableByAfter(principal.getUser(), cursor, limit);
+      for (Project project : batch) {
+        if (principal.canRead(project) && accessibles.size() < limit) {
+          accessibles.add(project);
+        }
+        cursor = project.getId();
+      }
+      if (batch.size() < limit) {
+        break;
+      }
+    }
+    return accessibles;
+  }
+
   @Override
   public Collection<Project> listAllProjectsWithLimit(long limit) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Project> accessibles = new HashSet<Project>();
     for (Project project : super.listAllProjectsWithLimit(limit)) {
-      if (project.userCanRead(user)) {
+      if (principal.canRead(project)) {
         accessibles.add(project);
       }
     }
@@ -600,10 +632,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Project> listAllProjectsBySearch(String query) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Project> accessibles = new HashSet<Project>();
     for (Project project : super.listAllProjectsBySearch(query)) {
-      if (project.userCanRead(user)) {
+      if (principal.canRead(project)) {
         accessibles.add(project);
       }
     }
@@ -612,10 +644,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<ProjectOverview> listAllOverviewsByProjectId(long projectId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<ProjectOverview> accessibles = new HashSet<ProjectOverview>();
     for (ProjectOverview projectOverview : super.listAllOverviewsByProjectId(projectId)) {
-      if (projectOverview.getProject().userCanRead(user)) {
+      if (principal.canRead(projectOverview.getProject())) {
         accessibles.add(projectOverview);
       }
     }
@@ -624,13 +656,13 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Run> listAllRuns() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
-    Collection<Run> runs = super.listAllRuns();
+    Collection<Run> runs = listAllRunsReadableBy(principal.getUser());
     if (runs != null) {
-      for (Run run : super.listAllRuns()) {
+      for (Run run : runs) {
         if (run != null) {
-          if (run.userCanRead(user)) {
+          if (principal.canRead(run)) {
             accessibles.add(run);
           }
         }
@@ -647,13 +679,13 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Run> listAllRunsWithLimit(long limit) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
     Collection<Run> runs = super.listAllRunsWithLimit(limit);
     if (runs != null) {
-      for (Run run : super.listAllRunsWithLimit(limit)) {
+      for (Run run : runs) {
         if (run != null) {
-          if (run.userCanRead(user)) {
+          if (principal.canRead(run)) {
             accessibles.add(run);
           }
         }
@@ -668,24 +700,61 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
     return accessibles;
   }
 
+  @Override
+  public List<Run> listRunsPage(PageRequest page) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Run> accessibles = new ArrayList<Run>();
+    for (Run run : listRunsPageReadableBy(principal.getUser(), page)) {
+      if (principal.canRead(run)) {
+        accessibles.add(run);
+      }
+    }
+    return accessibles;
+  }
+
+  @Override
+  public long countRuns(PageRequest page) throws IOException {
+    return countRunsReadableBy(getPrincipalContext().getUser(), page);
+  }
+
   @Override
   public Collection<Run> listAllRunsBySearch(String query) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
     for (Run run : super.listAllRunsBySearch(query)) {
-      if (run.userCanRead(user)) {
+      if (principal.canRead(run)) {
         accessibles.add(run);
       }
     }
     return accessibles;
   }
 
+  @Override
+  public List<Run> searchRuns(String query, int limit) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Run> accessibles = new ArrayList<Run>(limit);
+    int fetch = limit;
+    while (true) {
+      List<Run> ranked = super.searchRuns(query, fetch);
+      accessibles.clear();
+      for (Run run : ranked) {
+        if (principal.canRead(run) && accessibles.size() < limit) {
+          accessibles.add(run);
+        }
+      }
+      if (accessibles.size() >= limit || ranked.size() < fetch) {
+        return accessibles;
+      }
+      fetch *= 2;
+    }
+  }
+
   @Override
   public Collection<Run> listAllRunsByProjectId(long projectId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
     for (Run run : super.listAllRunsByProjectId(projectId)) {
-      if (run.userCanRead(user)) {
+      if (principal.canRead(run)) {
         accessibles.add(run);
       }
     }
@@ -694,10 +763,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Run> listRunsByPoolId(long poolId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
     for (Run run : super.listRunsByPoolId(poolId)) {
-      if (run.userCanRead(user)) {
+      if (principal.canRead(run)) {
         accessibles.add(run);
       }
     }
@@ -706,10 +775,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Run> listRunsBySequencerPartitionContainerId(long containerId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
     for (Run run : super.listRunsBySequencerPartitionContainerId(containerId)) {
-      if (run.userCanRead(user)) {
+      if (principal.canRead(run)) {
         accessibles.add(run);
       }
     }
@@ -718,10 +787,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Run> listAllLS454Runs() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
     for (Run run : super.listAllLS454Runs()) {
-      if (run.userCanRead(user)) {
+      if (principal.canRead(run)) {
         accessibles.add(run);
       }
     }
@@ -730,10 +799,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Run> listAllIlluminaRuns() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
     for (Run run : super.listAllIlluminaRuns()) {
-      if (run.userCanRead(user)) {
+      if (principal.canRead(run)) {
         accessibles.add(run);
       }
     }
@@ -742,10 +811,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Run> listAllSolidRuns() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
     for (Run run : super.listAllSolidRuns()) {
-      if (run.userCanRead(user)) {
+      if (principal.canRead(run)) {
         accessibles.add(run);
       }
     }
@@ -754,10 +823,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<RunQC> listAllRunQCsByRunId(long runId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<RunQC> accessibles = new HashSet<RunQC>();
     for (RunQC runQC : super.listAllRunQCsByRunId(runId)) {
-      if (runQC.userCanRead(user)) {
+      if (principal.canRead(runQC)) {
         accessibles.add(runQC);
       }
     }
@@ -766,10 +835,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<SequencerPartitionContainer<SequencerPoolPartition>> listSequencerPartitionContainersByRunId(long runId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<SequencerPartitionContainer<SequencerPoolPartition>> accessibles = new HashSet<SequencerPartitionContainer<SequencerPoolPartition>>();
     for (SequencerPartitionContainer<SequencerPoolPartition> container : super.listSequencerPartitionContainersByRunId(runId)) {
-      if (container.userCanRead(user)) {
+      if (principal.canRead(container)) {
         accessibles.add(container);
       }
     }
@@ -778,10 +847,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<SequencerPartitionContainer<SequencerPoolPartition>> listSequencerPartitionContainersByBarcode(String barcode) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<SequencerPartitionContainer<SequencerPoolPartition>> accessibles = new HashSet<SequencerPartitionContainer<SequencerPoolPartition>>();
     for (SequencerPartitionContainer<SequencerPoolPartition> container : super.listSequencerPartitionContainersByBarcode(barcode)) {
-      if (container.userCanRead(user)) {
+      if (principal.canRead(container)) {
         accessibles.add(container);
       }
     }
@@ -790,22 +859,59 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Sample> listAllSamples() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Sample> accessibles = new HashSet<Sample>();
-    for (Sample sample : super.listAllSamples()) {
-      if (sample.userCanRead(user)) {
+    for (Sample sample : listAllSamplesReadableBy(principal.getUser())) {
+      if (principal.canRead(sample)) {
         accessibles.add(sample);
       }
     }
     return accessibles;
   }
 
+  @Override
+  public List<Sample> listSamplesAfter(long afterId, int limit) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Sample> accessibles = new ArrayList<Sample>(limit);
+    long cursor = afterId;
+    while (accessibles.size() < limit) {
+      List<Sample> batch = listSamplesReadableByAfter(principal.getUser(), cursor, limit);
+      for (Sample sample : batch) {
+        if (principal.canRead(sample) && accessibles.size() < limit) {
+          accessibles.add(sample);
+        }
+        cursor = sample.getId();
+      }
+      if (batch.size() < limit) {
+        break;
+      }
+    }
+    return accessibles;
+  }
+
+  @Override
+  public List<Sample> listSamplesPage(PageRequest page) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Sample> accessibles = new ArrayList<Sample>();
+    for (Sample sample : listSamplesPageReadableBy(principal.getUser(), page)) {
+      if (principal.canRead(sample)) {
+        accessibles.add(sample);
+      }
+    }
+    return accessibles;
+  }
+
+  @Override
+  public long countSamples(PageRequest page) throws IOException {
+    return countSamplesReadableBy(getPrincipalContext().getUser(), page);
+  }
+
   @Override
   public Collection<Sample> listAllSamplesWithLimit(long limit) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Sample> accessibles = new HashSet<Sample>();
     for (Sample sample : super.listAllSamplesWithLimit(limit)) {
-      if (sample.userCanRead(user)) {
+      if (principal.canRead(sample)) {
         accessibles.add(sample);
       }
     }
@@ -814,11 +920,11 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Sample> listAllSamplesByReceivedDate(long limit) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     List<Sample> samples = new ArrayList<Sample>(super.listAllSamplesByReceivedDate(limit));
 
     for (int i = 0; i < samples.size(); i++) {
-      if (!samples.get(i).userCanRead(user)) {
+      if (!principal.canRead(samples.get(i))) {
         samples.remove(i);
       }
     }
@@ -827,22 +933,42 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Sample> listAllSamplesBySearch(String query) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Sample> accessibles = new HashSet<Sample>();
     for (Sample sample : super.listAllSamplesBySearch(query)) {
-      if (sample.userCanRead(user)) {
+      if (principal.canRead(sample)) {
         accessibles.add(sample);
       }
     }
     return accessibles;
   }
 
+  @Override
+  public List<Sample> searchSamples(String query, int limit) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Sample> accessibles = new ArrayList<Sample>(limit);
+    int fetch = limit;
+    while (true) {
+      List<Sample> ranked = super.searchSamples(query, fetch);
+      accessibles.clear();
+      for (Sample sample : ranked) {
+        if (principal.canRead(sample) && accessibles.size() < limit) {
+          accessibles.add(sample);
+        }
+      }
+      if (accessibles.size() >= limit || ranked.size() < fetch) {
+        return accessibles;
+      }
+      fetch *= 2;
+    }
+  }
+
   @Override
   public Collection<Sample> listAllSamplesByProjectId(long projectId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Sample> accessibles = new HashSet<Sample>();
     for (Sample sample : super.listAllSamplesByProjectId(projectId)) {
-      if (sample.userCanRead(user)) {
+      if (principal.canRead(sample)) {
         accessibles.add(sample);
       }
     }
@@ -851,10 +977,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Sample> listAllSamplesByExperimentId(long experimentId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Sample> accessibles = new HashSet<Sample>();
     for (Sample sample : super.listAllSamplesByExperimentId(experimentId)) {
-      if (sample.userCanRead(user)) {
+      if (principal.canRead(sample)) {
         accessibles.add(sample);
       }
     }
@@ -863,10 +989,22 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Sample> listSamplesByAlias(String alias) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Sample> accessibles = new HashSet<Sample>();
     for (Sample sample : super.listSamplesByAlias(alias)) {
-      if (sample.userCanRead(user)) {
+      if (principal.canRead(sample)) {
+        accessibles.add(sample);
+      }
+    }
+    return accessibles;
+  }
+
+  @Override
+  public Collection<Sample> listSamplesByAliases(Collection<String> aliases) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    Collection<Sample> accessibles = new HashSet<Sample>();
+    for (Sample sample : super.listSamplesByAliases(aliases)) {
+      if (principal.canRead(sample)) {
         accessibles.add(sample);
       }
     }
@@ -875,10 +1013,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<SampleQC> listAllSampleQCsBySampleId(long sampleId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<SampleQC> accessibles = new HashSet<SampleQC>();
     for (SampleQC sampleQc : super.listAllSampleQCsBySampleId(sampleId)) {
-      if (sampleQc.userCanRead(user)) {
+      if (principal.canRead(sampleQc)) {
         accessibles.add(sampleQc);
       }
     }
@@ -887,10 +1025,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Library> listAllLibraries() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Library> accessibles = new HashSet<Library>();
-    for (Library library : super.listAllLibraries()) {
-      if (library.userCanRead(user)) {
+    for (Library library : listAllLibrariesReadableBy(principal.getUser())) {
+      if (principal.canRead(library)) {
         accessibles.add(library);
       }
     }
@@ -899,34 +1037,71 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Library> listAllLibrariesWithLimit(long limit) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Library> accessibles = new HashSet<Library>();
     for (Library library : super.listAllLibrariesWithLimit(limit)) {
-      if (library.userCanRead(user)) {
+      if (principal.canRead(library)) {
         accessibles.add(library);
       }
     }
     return accessibles;
   }
 
+  @Override
+  public List<Library> listLibrariesPage(PageRequest page) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Library> accessibles = new ArrayList<Library>();
+    for (Library library : listLibrariesPageReadableBy(principal.getUser(), page)) {
+      if (principal.canRead(library)) {
+        accessibles.add(library);
+      }
+    }
+    return accessibles;
+  }
+
+  @Override
+  public long countLibraries(PageRequest page) throws IOException {
+    return countLibrariesReadableBy(getPrincipalContext().getUser(), page);
+  }
+
   @Override
   public Collection<Library> listAllLibrariesBySearch(String query) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Library> accessibles = new HashSet<Library>();
     for (Library library : super.listAllLibrariesBySearch(query)) {
-      if (library.userCanRead(user)) {
+      if (principal.canRead(library)) {
         accessibles.add(library);
       }
     }
     return accessibles;
   }
 
+  @Override
+  public List<Library> searchLibraries(String query, int limit) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Library> accessibles = new ArrayList<Library>(limit);
+    int fetch = limit;
+    while (true) {
+      List<Library> ranked = super.searchLibraries(query, fetch);
+      accessibles.clear();
+      for (Library library : ranked) {
+        if (principal.canRead(library) && accessibles.size() < limit) {
+          accessibles.add(library);
+        }
+      }
+      if (accessibles.size() >= limit || ranked.size() < fetch) {
+        return accessibles;
+      }
+      fetch *= 2;
+    }
+  }
+
   @Override
   public Collection<Library> listAllLibrariesByProjectId(long projectId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Library> accessibles = new HashSet<Library>();
     for (Library library : super.listAllLibrariesByProjectId(projectId)) {
-      if (library.userCanRead(user)) {
+      if (principal.canRead(library)) {
         accessibles.add(library);
       }
     }
@@ -935,10 +1110,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Library> listAllLibrariesBySampleId(long sampleId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Library> accessibles = new HashSet<Library>();
     for (Library library : super.listAllLibrariesBySampleId(sampleId)) {
-      if (library.userCanRead(user)) {
+      if (principal.canRead(library)) {
         accessibles.add(library);
       }
     }
@@ -947,10 +1122,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryQC> listAllLibraryQCsByLibraryId(long libraryId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryQC> accessibles = new HashSet<LibraryQC>();
     for (LibraryQC libraryQc : super.listAllLibraryQCsByLibraryId(libraryId)) {
-      if (libraryQc.userCanRead(user)) {
+      if (principal.canRead(libraryQc)) {
         accessibles.add(libraryQc);
       }
     }
@@ -959,10 +1134,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Dilution> listDilutionsBySearch(String query, PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Dilution> accessibles = new HashSet<Dilution>();
     for (Dilution dilution : super.listDilutionsBySearch(query, platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -971,10 +1146,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Dilution> listAllDilutionsByProjectAndPlatform(long projectId, PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Dilution> accessibles = new HashSet<Dilution>();
     for (Dilution dilution : super.listAllDilutionsByProjectAndPlatform(projectId, platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -983,10 +1158,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryDilution> listAllLibraryDilutions() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryDilution> accessibles = new HashSet<LibraryDilution>();
     for (LibraryDilution dilution : super.listAllLibraryDilutions()) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -995,10 +1170,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryDilution> listAllLibraryDilutionsWithLimit(long limit) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryDilution> accessibles = new HashSet<LibraryDilution>();
     for (LibraryDilution dilution : super.listAllLibraryDilutionsWithLimit(limit)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1007,10 +1182,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryDilution> listAllLibraryDilutionsByLibraryId(long libraryId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryDilution> accessibles = new HashSet<LibraryDilution>();
     for (LibraryDilution dilution : super.listAllLibraryDilutionsByLibraryId(libraryId)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1019,10 +1194,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryDilution> listAllLibraryDilutionsByPlatform(PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryDilution> accessibles = new HashSet<LibraryDilution>();
     for (LibraryDilution dilution : super.listAllLibraryDilutionsByPlatform(platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1031,10 +1206,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryDilution> listAllLibraryDilutionsByProjectId(long projectId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryDilution> accessibles = new HashSet<LibraryDilution>();
     for (LibraryDilution dilution : super.listAllLibraryDilutionsByProjectId(projectId)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1043,10 +1218,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryDilution> listAllLibraryDilutionsBySearch(String query, PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryDilution> accessibles = new HashSet<LibraryDilution>();
     for (LibraryDilution dilution : super.listAllLibraryDilutionsBySearch(query, platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1055,10 +1230,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryDilution> listAllLibraryDilutionsBySearchOnly(String query) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryDilution> accessibles = new HashSet<LibraryDilution>();
     for (LibraryDilution dilution : super.listAllLibraryDilutionsBySearchOnly(query)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1067,10 +1242,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryDilution> listAllLibraryDilutionsByProjectAndPlatform(long projectId, PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryDilution> accessibles = new HashSet<LibraryDilution>();
     for (LibraryDilution dilution : super.listAllLibraryDilutionsByProjectAndPlatform(projectId, platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1079,10 +1254,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<LibraryDilution> listAllLibraryDilutionsByPoolAndPlatform(long poolId, PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<LibraryDilution> accessibles = new HashSet<LibraryDilution>();
     for (LibraryDilution dilution : super.listAllLibraryDilutionsByPoolAndPlatform(poolId, platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1091,10 +1266,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<emPCRDilution> listAllEmPcrDilutions() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<emPCRDilution> accessibles = new HashSet<emPCRDilution>();
     for (emPCRDilution dilution : super.listAllEmPcrDilutions()) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1103,10 +1278,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<emPCRDilution> listAllEmPcrDilutionsByEmPcrId(long pcrId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<emPCRDilution> accessibles = new HashSet<emPCRDilution>();
     for (emPCRDilution dilution : super.listAllEmPcrDilutionsByEmPcrId(pcrId)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1115,10 +1290,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<emPCRDilution> listAllEmPcrDilutionsByPlatform(PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<emPCRDilution> accessibles = new HashSet<emPCRDilution>();
     for (emPCRDilution dilution : super.listAllEmPcrDilutionsByPlatform(platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1127,10 +1302,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<emPCRDilution> listAllEmPcrDilutionsByProjectId(long projectId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<emPCRDilution> accessibles = new HashSet<emPCRDilution>();
     for (emPCRDilution dilution : super.listAllEmPcrDilutionsByProjectId(projectId)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1139,10 +1314,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<emPCRDilution> listAllEmPcrDilutionsBySearch(String query, PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<emPCRDilution> accessibles = new HashSet<emPCRDilution>();
     for (emPCRDilution dilution : super.listAllEmPcrDilutionsBySearch(query, platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1151,10 +1326,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<emPCRDilution> listAllEmPcrDilutionsByProjectAndPlatform(long projectId, PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<emPCRDilution> accessibles = new HashSet<emPCRDilution>();
     for (emPCRDilution dilution : super.listAllEmPcrDilutionsByProjectAndPlatform(projectId, platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1163,10 +1338,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<emPCRDilution> listAllEmPcrDilutionsByPoolAndPlatform(long poolId, PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<emPCRDilution> accessibles = new HashSet<emPCRDilution>();
     for (emPCRDilution dilution : super.listAllEmPcrDilutionsByPoolAndPlatform(poolId, platformType)) {
-      if (dilution.userCanRead(user)) {
+      if (principal.canRead(dilution)) {
         accessibles.add(dilution);
       }
     }
@@ -1175,10 +1350,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<emPCR> listAllEmPCRs() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<emPCR> accessibles = new HashSet<emPCR>();
     for (emPCR pcr : super.listAllEmPCRs()) {
-      if (pcr.userCanRead(user)) {
+      if (principal.canRead(pcr)) {
         accessibles.add(pcr);
       }
     }
@@ -1187,10 +1362,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<emPCR> listAllEmPCRsByDilutionId(long dilutionId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<emPCR> accessibles = new HashSet<emPCR>();
     for (emPCR pcr : super.listAllEmPCRsByDilutionId(dilutionId)) {
-      if (pcr.userCanRead(user)) {
+      if (principal.canRead(pcr)) {
         accessibles.add(pcr);
       }
     }
@@ -1199,10 +1374,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Pool<? extends Poolable>> listAllPools() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     ArrayList<Pool<? extends Poolable>> accessibles = new ArrayList<Pool<? extends Poolable>>();
     for (Pool<? extends Poolable> pool : super.listAllPools()) {
-      if (pool.userCanRead(user)) {
+      if (principal.canRead(pool)) {
         accessibles.add(pool);
       }
     }
@@ -1210,12 +1385,29 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
     return accessibles;
   }
 
+  @Override
+  public List<Pool<? extends Poolable>> listPoolsPage(PageRequest page) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Pool<? extends Poolable>> accessibles = new ArrayList<Pool<? extends Poolable>>();
+    for (Pool<? extends Poolable> pool : listPoolsPageReadableBy(principal.getUser(), page)) {
+      if (principal.canRead(pool)) {
+        accessibles.add(pool);
+      }
+    }
+    return accessibles;
+  }
+
+  @Override
+  public long countPools(PageRequest page) throws IOException {
+    return countPoolsReadableBy(getPrincipalContext().getUser(), page);
+  }
+
   @Override
   public Collection<Pool<? extends Poolable>> listAllPoolsByPlatform(PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     ArrayList<Pool<? extends Poolable>> accessibles = new ArrayList<Pool<? extends Poolable>>();
     for (Pool<? extends Poolable> pool : super.listAllPoolsByPlatform(platformType)) {
-      if (pool.userCanRead(user)) {
+      if (principal.canRead(pool)) {
         accessibles.add(pool);
       }
     }
@@ -1225,10 +1417,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Pool<? extends Poolable>> listAllPoolsByPlatformAndSearch(PlatformType platformType, String query) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     ArrayList<Pool<? extends Poolable>> accessibles = new ArrayList<Pool<? extends Poolable>>();
     for (Pool<? extends Poolable> pool : super.listAllPoolsByPlatformAndSearch(platformType, query)) {
-      if (pool.userCanRead(user)) {
+      if (principal.canRead(pool)) {
         accessibles.add(pool);
       }
     }
@@ -1238,10 +1430,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Pool<? extends Poolable>> listReadyPoolsByPlatform(PlatformType platformType) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     ArrayList<Pool<? extends Poolable>> accessibles = new ArrayList<Pool<? extends Poolable>>();
     for (Pool<? extends Poolable> pool : super.listReadyPoolsByPlatform(platformType)) {
-      if (pool.userCanRead(user)) {
+      if (principal.canRead(pool)) {
         accessibles.add(pool);
       }
     }
@@ -1251,10 +1443,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Pool<? extends Poolable>> listReadyPoolsByPlatformAndSearch(PlatformType platformType, String query) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     ArrayList<Pool<? extends Poolable>> accessibles = new ArrayList<Pool<? extends Poolable>>();
     for (Pool<? extends Poolable> pool : super.listReadyPoolsByPlatformAndSearch(platformType, query)) {
-      if (pool.userCanRead(user)) {
+      if (principal.canRead(pool)) {
         accessibles.add(pool);
       }
     }
@@ -1262,12 +1454,32 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
     return accessibles;
   }
 
+  @Override
+  public List<Pool<? extends Poolable>> searchPools(String query, PlatformType platformType, boolean readyOnly, int limit) throws IOException {
+    PrincipalContext principal = getPrincipalContext();
+    List<Pool<? extends Poolable>> accessibles = new ArrayList<Pool<? extends Poolable>>(limit);
+    int fetch = limit;
+    while (true) {
+      List<Pool<? extends Poolable>> ranked = super.searchPools(query, platformType, readyOnly, fetch);
+      accessibles.clear();
+      for (Pool<? extends Poolable> pool : ranked) {
+        if (principal.canRead(pool) && accessibles.size() < limit) {
+          accessibles.add(pool);
+        }
+      }
+      if (accessibles.size() >= limit || ranked.size() < fetch) {
+        return accessibles;
+      }
+      fetch *= 2;
+    }
+  }
+
   @Override
   public List<Pool<? extends Poolable>> listPoolsByLibraryId(long libraryId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     ArrayList<Pool<? extends Poolable>> accessibles = new ArrayList<Pool<? extends Poolable>>();
     for (Pool<? extends Poolable> pool : super.listPoolsByLibraryId(libraryId)) {
-      if (pool.userCanRead(user)) {
+      if (principal.canRead(pool)) {
         accessibles.add(pool);
       }
     }
@@ -1277,10 +1489,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public List<Pool<? extends Poolable>> listPoolsBySampleId(long sampleId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     ArrayList<Pool<? extends Poolable>> accessibles = new ArrayList<Pool<? extends Poolable>>();
     for (Pool<? extends Poolable> pool : super.listPoolsBySampleId(sampleId)) {
-      if (pool.userCanRead(user)) {
+      if (principal.canRead(pool)) {
         accessibles.add(pool);
       }
     }
@@ -1290,10 +1502,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public List<PoolQC> listAllPoolQCsByPoolId(long poolId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     ArrayList<PoolQC> accessibles = new ArrayList<PoolQC>();
     for (PoolQC qc : super.listAllPoolQCsByPoolId(poolId)) {
-      if (qc.userCanRead(user)) {
+      if (principal.canRead(qc)) {
         accessibles.add(qc);
       }
     }
@@ -1303,10 +1515,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Experiment> listAllExperiments() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Experiment> accessibles = new HashSet<Experiment>();
     for (Experiment experiment : super.listAllExperiments()) {
-      if (experiment.userCanRead(user)) {
+      if (principal.canRead(experiment)) {
         accessibles.add(experiment);
       }
     }
@@ -1315,10 +1527,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Experiment> listAllExperimentsWithLimit(long limit) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Experiment> accessibles = new HashSet<Experiment>();
     for (Experiment experiment : super.listAllExperimentsWithLimit(limit)) {
-      if (experiment.userCanRead(user)) {
+      if (principal.canRead(experiment)) {
         accessibles.add(experiment);
       }
     }
@@ -1327,10 +1539,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Experiment> listAllExperimentsBySearch(String query) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Experiment> accessibles = new HashSet<Experiment>();
     for (Experiment experiment : super.listAllExperimentsBySearch(query)) {
-      if (experiment.userCanRead(user)) {
+      if (principal.canRead(experiment)) {
         accessibles.add(experiment);
       }
     }
@@ -1339,10 +1551,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Experiment> listAllExperimentsByStudyId(long studyId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Experiment> accessibles = new HashSet<Experiment>();
     for (Experiment experiment : super.listAllExperimentsByStudyId(studyId)) {
-      if (experiment.userCanRead(user)) {
+      if (principal.canRead(experiment)) {
         accessibles.add(experiment);
       }
     }
@@ -1351,10 +1563,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Study> listAllStudies() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Study> accessibles = new HashSet<Study>();
     for (Study study : super.listAllStudies()) {
-      if (study.userCanRead(user)) {
+      if (principal.canRead(study)) {
         accessibles.add(study);
       }
     }
@@ -1363,10 +1575,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Study> listAllStudiesWithLimit(long limit) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Study> accessibles = new HashSet<Study>();
     for (Study study : super.listAllStudiesWithLimit(limit)) {
-      if (study.userCanRead(user)) {
+      if (principal.canRead(study)) {
         accessibles.add(study);
       }
     }
@@ -1375,10 +1587,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Study> listAllStudiesBySearch(String query) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Study> accessibles = new HashSet<Study>();
     for (Study study : super.listAllStudiesBySearch(query)) {
-      if (study.userCanRead(user)) {
+      if (principal.canRead(study)) {
         accessibles.add(study);
       }
     }
@@ -1387,10 +1599,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Study> listAllStudiesByProjectId(long projectId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Study> accessibles = new HashSet<Study>();
     for (Study study : super.listAllStudiesByProjectId(projectId)) {
-      if (study.userCanRead(user)) {
+      if (principal.canRead(study)) {
         accessibles.add(study);
       }
     }
@@ -1399,10 +1611,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Study> listAllStudiesByLibraryId(long libraryId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Study> accessibles = new HashSet<Study>();
     for (Study study : super.listAllStudiesByLibraryId(libraryId)) {
-      if (study.userCanRead(user)) {
+      if (principal.canRead(study)) {
         accessibles.add(study);
       }
     }
@@ -1411,10 +1623,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<SequencerPoolPartition> listAllSequencerPoolPartitions() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<SequencerPoolPartition> accessibles = new HashSet<SequencerPoolPartition>();
     for (SequencerPoolPartition partition : super.listAllSequencerPoolPartitions()) {
-      if (partition.userCanRead(user)) {
+      if (principal.canRead(partition)) {
         accessibles.add(partition);
       }
     }
@@ -1423,10 +1635,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<? extends SequencerPoolPartition> listPartitionsBySequencerPartitionContainerId(long containerId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<SequencerPoolPartition> accessibles = new HashSet<SequencerPoolPartition>();
     for (SequencerPoolPartition p : super.listPartitionsBySequencerPartitionContainerId(containerId)) {
-      if (p.userCanRead(user)) {
+      if (principal.canRead(p)) {
         accessibles.add(p);
       }
     }
@@ -1435,10 +1647,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<SequencerPartitionContainer<SequencerPoolPartition>> listAllSequencerPartitionContainers() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<SequencerPartitionContainer<SequencerPoolPartition>> accessibles = new HashSet<SequencerPartitionContainer<SequencerPoolPartition>>();
     for (SequencerPartitionContainer<SequencerPoolPartition> container : super.listAllSequencerPartitionContainers()) {
-      if (container.userCanRead(user)) {
+      if (principal.canRead(container)) {
         accessibles.add(container);
       }
     }
@@ -1447,10 +1659,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Submission> listAllSubmissions() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Submission> accessibles = new HashSet<Submission>();
     for (Submission submission : super.listAllSubmissions()) {
-      if (submission.userCanRead(user)) {
+      if (principal.canRead(submission)) {
         accessibles.add(submission);
       }
     }
@@ -1459,10 +1671,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Run> listRunsByExperimentId(Long experimentId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Run> accessibles = new HashSet<Run>();
     for (Run run : super.listRunsByExperimentId(experimentId)) {
-      if (run.userCanRead(user)) {
+      if (principal.canRead(run)) {
         accessibles.add(run);
       }
     }
@@ -1471,10 +1683,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Plate<? extends List<? extends Plateable>, ? extends Plateable>> listAllPlates() throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Plate<? extends List<? extends Plateable>, ? extends Plateable>> accessibles = new HashSet<Plate<? extends List<? extends Plateable>, ? extends Plateable>>();
     for (Plate<? extends List<? extends Plateable>, ? extends Plateable> plate : super.listAllPlates()) {
-      if (plate.userCanRead(user)) {
+      if (principal.canRead(plate)) {
         accessibles.add(plate);
       }
     }
@@ -1483,10 +1695,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Plate<? extends List<? extends Plateable>, ? extends Plateable>> listAllPlatesByProjectId(long projectId) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Plate<? extends List<? extends Plateable>, ? extends Plateable>> accessibles = new HashSet<Plate<? extends List<? extends Plateable>, ? extends Plateable>>();
     for (Plate<? extends List<? extends Plateable>, ? extends Plateable> plate : super.listAllPlatesByProjectId(projectId)) {
-      if (plate.userCanRead(user)) {
+      if (principal.canRead(plate)) {
         accessibles.add(plate);
       }
     }
@@ -1495,10 +1707,10 @@ public class UserAuthMisoRequestManager extends MisoRequestManager {
 
   @Override
   public Collection<Plate<? extends List<? extends Plateable>, ? extends Plateable>> listAllPlatesBySearch(String str) throws IOException {
-    User user = getCurrentUser();
+    PrincipalContext principal = getPrincipalContext();
     Collection<Plate<? extends List<? extends Plateable>, ? extends Plateable>> accessibles = new HashSet<Plate<? extends List<? extends Plateable>, ? extends Plateable>>();
     for (Plate<? extends List<? extends Plateable>, ? extends Plateable> plate : super.listAllPlatesBySearch(str)) {
-      if (plate.userCanRead(user)) {
+      if (principal.canRead(plate)) {
         accessibles.add(plate);
       }
     }
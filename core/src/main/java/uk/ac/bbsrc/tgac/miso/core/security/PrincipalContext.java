@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.security;
+
+import com.eaglegenomics.simlims.core.Securable;
+import com.eaglegenomics.simlims.core.SecurityProfile;
+import com.eaglegenomics.simlims.core.User;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.security
+ * <p/>
+ * Holds the resolved current user for the duration of a request, along with a READ/WRITE permission bitset for each
+ * {@link SecurityProfile} ID that user has been checked against, so repeated security checks neither look the user up again nor
+ * re-evaluate the same profile.
+ * <p/>
+ * A context is bound to the current thread, and should be cleared when the request completes. Calling {@link #invalidate()}
+ * when users, groups or security profiles are saved discards every context resolved before the change.
+ *
+ * @since 0.2.1
+ */
+public final class PrincipalContext {
+  public static final int READ = 1;
+  public static final int WRITE = 1 << 1;
+
+  private static final int MAX_CACHED_PROFILES = 10000;
+
+  private static final AtomicLong generation = new AtomicLong();
+  private static final ThreadLocal<PrincipalContext> current = new ThreadLocal<PrincipalContext>();
+
+  private final String loginName;
+  private final User user;
+  private final long contextGeneration;
+  private final Map<Long, Integer> permissions = new HashMap<Long, Integer>();
+
+  private PrincipalContext(String loginName, User user, long contextGeneration) {
+    this.loginName = loginName;
+    this.user = user;
+    this.contextGeneration = contextGeneration;
+  }
+
+  /**
+   * Gets the context bound to the current thread for the given login name
+   *
+   * @param loginName of type String
+   * @return the context, or null if no context is bound, it is for another user, or it has been invalidated
+   */
+  public static PrincipalContext current(String loginName) {
+    PrincipalContext ctx = current.get();
+    if (ctx != null && ctx.contextGeneration == generation.get() && ctx.loginName.equals(loginName)) {
+      return ctx;
+    }
+    return null;
+  }
+
+  /**
+   * Binds a new context for a resolved user to the current thread
+   *
+   * @param loginName of type String
+   * @param user of type User
+   * @return the new context
+   */
+  public static PrincipalContext open(String loginName, User user) {
+    PrincipalContext ctx = new PrincipalContext(loginName, user, generation.get());
+    current.set(ctx);
+    return ctx;
+  }
+
+  /**
+   * Removes any context bound to the current thread
+   */
+  public static void clear() {
+    current.remove();
+  }
+
+  /**
+   * Discards all contexts, on every thread. Call when a user, group or security profile changes.
+   */
+  public static void invalidate() {
+    generation.incrementAndGet();
+  }
+
+  public User getUser() {
+    return user;
+  }
+
+  public boolean canRead(Securable s) {
+    return (getPermissions(s) & READ) != 0;
+  }
+
+  public boolean canWrite(Securable s) {
+    return (getPermissions(s) & WRITE) != 0;
+  }
+
+  /**
+   * Gets the permissions the user has on a securable object, as a combination of {@link #READ} and {@link #WRITE}. Permissions
+   * are cached by security profile ID for objects with a saved profile.
+   *
+   * @param s of type Securable
+   * @return int
+   */
+  public int getPermissions(Securable s) {
+    Long profileId = null;
+    if (s instanceof SecurableByProfile) {
+      SecurityProfile profile = ((SecurableByProfile) s).getSecurityProfile();
+      if (profile != null && profile.getProfileId() != null && profile.getProfileId().longValue() != SecurityProfile.UNSAVED_ID) {
+        profileId = profile.getProfileId();
+        Integer cached = permissions.get(profileId);
+        if (cached != null) {
+          return cached;
+        }
+      }
+    }
+
+    int bits = 0;
+    if (s.userCanRead(user)) bits |= READ;
+    if (s.userCanWrite(user)) bits |= WRITE;
+
+    if (profileId != null) {
+      if (permissions.size() >= MAX_CACHED_PROFILES) {
+        permissions.clear();
+      }
+      permissions.put(profileId, bits);
+    }
+    return bits;
+  }
+}
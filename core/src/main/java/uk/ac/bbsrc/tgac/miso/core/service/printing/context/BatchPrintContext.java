@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.service.printing.context;
+
+import java.io.IOException;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.service.printing.context
+ * <p/>
+ * A PrintContext that can take the raw label script for many labels at once and submit it to the printer as a single
+ * print job, rather than one job per label file
+ *
+ * @since 0.2.1
+ */
+public interface BatchPrintContext<T> extends PrintContext<T> {
+  /**
+   * Submit the given label script, which may hold any number of concatenated labels, as one print job
+   *
+   * @param labels the raw label script
+   * @return true if the job was accepted by the printer
+   * @throws IOException when the job cannot be sent
+   */
+  boolean printRaw(String labels) throws IOException;
+}
@@ -29,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.bbsrc.tgac.miso.core.data.Barcodable;
 import uk.ac.bbsrc.tgac.miso.core.factory.barcode.BarcodeLabelFactory;
+import uk.ac.bbsrc.tgac.miso.core.service.printing.context.BatchPrintContext;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.context.PrintContext;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.factory.ImageRasterBarcodeLabelFactory;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.strategy.impl.BradySpoolPrintStrategy;
@@ -47,7 +48,7 @@ import java.io.IOException;
  * @since 0.0.3
  */
 @ServiceProvider
-public class BradySpoolPrintContext implements PrintContext<File> {
+public class BradySpoolPrintContext implements PrintContext<File>, BatchPrintContext<File> {
   protected static final Logger log = LoggerFactory.getLogger(BradySpoolPrintContext.class);
   private BradySpoolPrintStrategy ps = new BradySpoolPrintStrategy();
   public String host;
@@ -89,4 +90,9 @@ public class BradySpoolPrintContext implements PrintContext<File> {
     String s = FileUtils.readFile(content);
     return ps.print(s, this);
   }
+
+  @Override
+  public boolean printRaw(String labels) throws IOException {
+    return ps.print(labels, this);
+  }
 }
@@ -23,7 +23,6 @@
 
 package uk.ac.bbsrc.tgac.miso.core.service.printing.factory;
 
-import com.eaglegenomics.simlims.core.User;
 import com.opensymphony.util.FileUtils;
 import net.sourceforge.fluxion.spi.ServiceProvider;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -61,11 +60,12 @@ public class FileGeneratingBarcodeLabelFactory<T> implements BarcodeLabelFactory
   @Override
   public File getLabel(BarcodableSchema<File, T> s,T b) {
     try {
-      User user = securityManager.getUserByLoginName(SecurityContextHolder.getContext().getAuthentication().getName());
+      //the authenticated name is the login name, so there is no need to look the whole user up for every label
+      String loginName = SecurityContextHolder.getContext().getAuthentication().getName();
 
       String labelScript = s.getRawState(b);
 
-      File f = misoFileManager.generateTemporaryFile(user.getLoginName() + "_"+b.getClass().getSimpleName().toLowerCase()+"-", ".printjob");
+      File f = misoFileManager.generateTemporaryFile(loginName + "_"+b.getClass().getSimpleName().toLowerCase()+"-", ".printjob");
       FileUtils.write(f, labelScript);
 
       return f;
@@ -23,18 +23,11 @@
 
 package uk.ac.bbsrc.tgac.miso.core.service.submission;
 
-import org.apache.commons.net.ftp.FTPClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.bbsrc.tgac.miso.core.exception.SubmissionException;
-import uk.ac.bbsrc.tgac.miso.core.util.TransmissionUtils;
 
 import java.io.File;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -45,10 +38,14 @@ import java.util.Set;
  * To change this template use File | Settings | File Templates.
  */
 public class FTPTransferMethod implements TransferMethod {
-  protected static final Logger log = LoggerFactory.getLogger(TransmissionUtils.class);
+  protected static final Logger log = LoggerFactory.getLogger(FTPTransferMethod.class);
 
   private String username;
   private String password;
+  private String remotePath = "anon/";
+  private int connections = FTPUploadEngine.DEFAULT_CONNECTIONS;
+  private int maxAttempts = FTPUploadEngine.DEFAULT_MAX_ATTEMPTS;
+  private long retryDelay = FTPUploadEngine.DEFAULT_RETRY_DELAY;
 
   public FTPTransferMethod() {}
 
@@ -65,45 +62,40 @@ public class FTPTransferMethod implements TransferMethod {
     this.password = password;
   }
 
-  public FTPUploadReport uploadSequenceData(Set<File> dataFiles, EndPoint endpoint) throws SubmissionException {
-    List<FTPUploadJob> FTPUploadList = new ArrayList<FTPUploadJob>();
-    try {
-      for (File f : dataFiles) {
-        FTPClient ftpClient = TransmissionUtils.ftpConnect(endpoint.getDestination().getHost(), username, password);
-
-        FTPUploadJob FTPUploadJob = new FTPUploadJob(f);
-        //Have left this code commented in case I need to use it to help sort out the upload progress indicator problem
-        //Antony 8/05/2012
-        //DateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
-        //get current date time with Date()
-        //Date date = new Date();
-        //System.out.println(dateFormat.format(date));
+  public void setRemotePath(String remotePath) {
+    this.remotePath = remotePath;
+  }
 
-        boolean success = TransmissionUtils.ftpPutListen(ftpClient, "anon/", FTPUploadJob.getFile(), false, false, FTPUploadJob.getListener());
-        if (success) {
-          log.info("FTPTransferMethod: upload of " + f.getName() + " successful.");
-          //date = new Date();
-          // System.out.println(dateFormat.format(date));
-        }
-        else {
-          log.info("FTPTransferMethod: upload of " + f.getName() + " failed.");
-        }
+  public void setConnections(int connections) {
+    this.connections = connections;
+  }
 
-        FTPUploadList.add(FTPUploadJob);
-        //System.out.println("Upload Job created for:" + FTPUploadJob.getFile() + " " + FTPUploadJob.getBytesTransferred() +
-        //" bytes, or " + FTPUploadJob.getPercentageTransferred()+"% transferred...");
-      }
-      //boolean uploadSuccessful=TransmissionUtils.ftpPut(ftpClient, "anon/", fileList, true, false);
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
 
-      FTPUploadReport report = new FTPUploadReport(FTPUploadList);
-      report.setStatus("uploading");
-      report.setMessage("uploading " + FTPUploadList.size() + " files.");
+  public void setRetryDelay(long retryDelay) {
+    this.retryDelay = retryDelay;
+  }
 
-      return (report);
+  /**
+   * Starts uploading the given files to the endpoint's host and returns straight away. Progress, per-file MD5s and
+   * the final outcome are available from the returned report while the upload runs in the background.
+   */
+  public FTPUploadReport uploadSequenceData(Set<File> dataFiles, EndPoint endpoint) throws SubmissionException {
+    for (File f : dataFiles) {
+      if (!f.exists()) {
+        log.debug("The specified datafiles could not be found.");
+        throw new SubmissionException("DataFiles could not be found:" + f.getAbsolutePath());
+      }
     }
-    catch (java.io.FileNotFoundException j) {
-      log.debug("The specified datafiles could not be found.");
-      throw new SubmissionException("DataFiles could not be found:" + j.getMessage());
+
+    try {
+      FTPUploadEngine engine = new FTPUploadEngine(endpoint.getDestination().getHost(), endpoint.getDestination().getPort(), username, password);
+      engine.setConnections(connections);
+      engine.setMaxAttempts(maxAttempts);
+      engine.setRetryDelay(retryDelay);
+      return engine.upload(dataFiles, remotePath);
     }
     catch (Exception e) {
       e.printStackTrace();
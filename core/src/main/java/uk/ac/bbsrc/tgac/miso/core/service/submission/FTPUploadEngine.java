@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.service.submission;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.bbsrc.tgac.miso.core.util.TransmissionUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.service.submission
+ * <p/>
+ * Uploads a set of files to an FTP server over a small pool of persistent connections. Each file is streamed by
+ * one worker, and its MD5 is computed as the bytes go out. The first attempt at a file always overwrites any remote
+ * file of the same name. A transfer that breaks after it has started is retried from the number of bytes the server
+ * already holds (REST + STOR) rather than from the start of the file. A file is only marked complete once the server
+ * reports the full length, where it supports SIZE or LIST.
+ * <p/>
+ * {@link #upload(java.util.Collection, String)} returns as soon as the files are queued; the returned
+ * {@link FTPUploadReport} is updated in place as the workers progress.
+ *
+ * @since 0.2.1
+ */
+public class FTPUploadEngine {
+  protected static final Logger log = LoggerFactory.getLogger(FTPUploadEngine.class);
+
+  public static final int DEFAULT_CONNECTIONS = 4;
+  public static final int DEFAULT_MAX_ATTEMPTS = 5;
+  public static final long DEFAULT_RETRY_DELAY = 5000L;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final String host;
+  private final int port;
+  private final String username;
+  private final String password;
+
+  private int connections = DEFAULT_CONNECTIONS;
+  private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+  private long retryDelay = DEFAULT_RETRY_DELAY;
+
+  /**
+   * Creates an engine for the given server. A port of zero or less uses the FTP default.
+   */
+  public FTPUploadEngine(String host, int port, String username, String password) {
+    this.host = host;
+    this.port = port;
+    this.username = username;
+    this.password = password;
+  }
+
+  public void setConnections(int connections) {
+    this.connections = Math.max(1, connections);
+  }
+
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = Math.max(1, maxAttempts);
+  }
+
+  public void setRetryDelay(long retryDelay) {
+    this.retryDelay = Math.max(0L, retryDelay);
+  }
+
+  /**
+   * Queues the given files for upload into remotePath and returns a report that tracks them. The report status
+   * moves from "uploading" to "complete" once every file is on the server, or to "failed" if any file ran out of
+   * attempts.
+   *
+   * @param files      the local files to send
+   * @param remotePath the remote directory to upload into, created if missing; null for the login directory
+   * @return FTPUploadReport
+   */
+  public FTPUploadReport upload(Collection<File> files, final String remotePath) {
+    List<FTPUploadJob> jobs = new ArrayList<FTPUploadJob>();
+    for (File f : files) {
+      jobs.add(new FTPUploadJob(f));
+    }
+
+    final FTPUploadReport report = new FTPUploadReport(jobs);
+    report.setStatus("uploading");
+    report.setMessage("uploading " + jobs.size() + " files.");
+    if (jobs.isEmpty()) {
+      report.finish();
+      return report;
+    }
+
+    final BlockingQueue<FTPClient> idle = new LinkedBlockingQueue<FTPClient>();
+    final AtomicInteger remaining = new AtomicInteger(jobs.size());
+    ExecutorService workers = Executors.newFixedThreadPool(Math.min(connections, jobs.size()), new UploadThreadFactory(host));
+    for (final FTPUploadJob job : jobs) {
+      workers.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            uploadWithRetries(job, remotePath, idle);
+          }
+          finally {
+            if (remaining.decrementAndGet() == 0) {
+              FTPClient client;
+              while ((client = idle.poll()) != null) {
+                disconnectQuietly(client);
+              }
+              report.finish();
+              log.info("FTPUploadEngine: " + report.getMessage());
+            }
+          }
+        }
+      });
+    }
+    //let the worker threads die once the queue drains
+    workers.shutdown();
+    return report;
+  }
+
+  private void uploadWithRetries(FTPUploadJob job, String remotePath, BlockingQueue<FTPClient> idle) {
+    boolean resume = false;
+    for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+      job.setAttempts(attempt);
+      FTPClient client = null;
+      try {
+        client = borrow(idle, remotePath);
+        job.setStatus(FTPUploadJob.UPLOADING);
+        transfer(client, job, resume);
+        job.setStatus(FTPUploadJob.COMPLETE);
+        idle.offer(client);
+        log.info("FTPUploadEngine: upload of " + job.getFile().getName() + " successful (md5 " + job.getMd5() + ")");
+        return;
+      }
+      catch (IOException e) {
+        //the connection is in an unknown state after a failed transfer, so don't hand it back to the pool
+        disconnectQuietly(client);
+        //a remote file is only resumed once this job has started writing it, never one left by an earlier upload
+        resume = resume || job.getBytesTransferred() > 0;
+        job.setError(e.getMessage());
+        log.warn("FTPUploadEngine: attempt " + attempt + " of " + maxAttempts + " to upload " + job.getFile().getName() + " failed: " + e.getMessage());
+        if (attempt < maxAttempts) {
+          try {
+            Thread.sleep(retryDelay * attempt);
+          }
+          catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            break;
+          }
+        }
+      }
+    }
+    job.setStatus(FTPUploadJob.FAILED);
+    log.error("FTPUploadEngine: upload of " + job.getFile().getName() + " failed: " + job.getError());
+  }
+
+  private FTPClient borrow(BlockingQueue<FTPClient> idle, String remotePath) throws IOException {
+    FTPClient client = idle.poll();
+    if (client != null) {
+      try {
+        if (client.isConnected() && client.sendNoOp()) {
+          return client;
+        }
+      }
+      catch (IOException e) {
+        log.debug("FTPUploadEngine: dropping stale connection to " + host + ": " + e.getMessage());
+      }
+      disconnectQuietly(client);
+    }
+    return connect(remotePath);
+  }
+
+  private FTPClient connect(String remotePath) throws IOException {
+    FTPClient client = port > 0 ? TransmissionUtils.ftpConnect(host, port, username, password) : TransmissionUtils.ftpConnect(host, username, password);
+    if (!FTPReply.isPositiveCompletion(client.getReplyCode())) {
+      disconnectQuietly(client);
+      throw new IOException("FTP login to " + host + " failed: " + client.getReplyString());
+    }
+    if (remotePath != null && !"".equals(remotePath) && !client.changeWorkingDirectory(remotePath)) {
+      //another connection may create the directory first, so only the second change of directory decides
+      client.makeDirectory(remotePath);
+      if (!client.changeWorkingDirectory(remotePath)) {
+        disconnectQuietly(client);
+        throw new IOException("Cannot change to remote directory " + remotePath + ": " + client.getReplyString());
+      }
+    }
+    return client;
+  }
+
+  /**
+   * Sends one file, either from the start or, when resuming, from whatever the server already holds. The part of the
+   * file that is not resent is still read locally so that the MD5 covers the whole file.
+   */
+  private void transfer(FTPClient client, FTPUploadJob job, boolean resume) throws IOException {
+    File file = job.getFile();
+    String name = file.getName();
+    long length = file.length();
+
+    long offset = resume ? remoteSize(client, name) : 0;
+    if (offset < 0 || offset > length) {
+      offset = 0;
+    }
+    job.setResumedFrom(offset);
+
+    MessageDigest md5 = newMd5();
+    byte[] buf = new byte[BUFFER_SIZE];
+    InputStream in = new FileInputStream(file);
+    try {
+      long read = 0;
+      while (read < offset) {
+        int n = in.read(buf, 0, (int) Math.min(buf.length, offset - read));
+        if (n < 0) throw new IOException("Local file " + file + " is shorter than expected");
+        md5.update(buf, 0, n);
+        read += n;
+      }
+      job.transferred(offset, length);
+
+      if (offset < length) {
+        client.setRestartOffset(offset);
+        OutputStream out = client.storeFileStream(name);
+        if (out == null) {
+          throw new IOException("FTP server refused upload of " + name + ": " + client.getReplyString());
+        }
+        long total = offset;
+        try {
+          int n;
+          while ((n = in.read(buf)) != -1) {
+            md5.update(buf, 0, n);
+            out.write(buf, 0, n);
+            total += n;
+            job.transferred(total, length);
+          }
+        }
+        finally {
+          out.close();
+        }
+        if (!client.completePendingCommand()) {
+          throw new IOException("FTP server did not confirm upload of " + name + ": " + client.getReplyString());
+        }
+      }
+    }
+    finally {
+      in.close();
+    }
+
+    long stored = remoteSize(client, name);
+    if (stored >= 0 && stored != length) {
+      throw new IOException("FTP server holds " + stored + " bytes of " + name + " rather than " + length);
+    }
+    job.setMd5(new String(Hex.encodeHex(md5.digest())));
+  }
+
+  /**
+   * The size of a remote file, or -1 if the server cannot say
+   */
+  private long remoteSize(FTPClient client, String name) throws IOException {
+    if (FTPReply.isPositiveCompletion(client.sendCommand("SIZE", name))) {
+      String[] reply = client.getReplyString().trim().split("\\s+");
+      try {
+        return Long.parseLong(reply[reply.length - 1]);
+      }
+      catch (NumberFormatException e) {
+        log.debug("FTPUploadEngine: unparseable SIZE reply: " + client.getReplyString());
+      }
+    }
+    //not every server implements SIZE
+    FTPFile[] remote = client.listFiles(name);
+    if (remote != null && remote.length == 1 && remote[0] != null) {
+      return remote[0].getSize();
+    }
+    return -1;
+  }
+
+  private static MessageDigest newMd5() throws IOException {
+    try {
+      return MessageDigest.getInstance("MD5");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException("MD5 is not available: " + e.getMessage(), e);
+    }
+  }
+
+  private static void disconnectQuietly(FTPClient client) {
+    if (client != null && client.isConnected()) {
+      try {
+        client.logout();
+      }
+      catch (IOException e) {
+        //going away anyway
+      }
+      try {
+        client.disconnect();
+      }
+      catch (IOException e) {
+        //going away anyway
+      }
+    }
+  }
+
+  private static class UploadThreadFactory implements ThreadFactory {
+    private final String host;
+    private final AtomicInteger count = new AtomicInteger();
+
+    UploadThreadFactory(String host) {
+      this.host = host;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "ftp-upload-" + host + "-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
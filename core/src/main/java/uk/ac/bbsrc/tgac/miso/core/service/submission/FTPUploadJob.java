@@ -33,10 +33,20 @@ import java.io.File;
  * To change this template use File | Settings | File Templates.
  */
 public class FTPUploadJob implements UploadJob {
+    public static final String QUEUED = "queued";
+    public static final String UPLOADING = "uploading";
+    public static final String COMPLETE = "complete";
+    public static final String FAILED = "failed";
 
     private File file;
     private UploadListener uploadListener = new UploadListener();
 
+    private volatile String status = QUEUED;
+    private volatile String md5;
+    private volatile String error;
+    private volatile int attempts;
+    private volatile long resumedFrom;
+
 
     public FTPUploadJob(File file) {
         this.file = file;
@@ -59,16 +69,70 @@ public class FTPUploadJob implements UploadJob {
 
     @Override
     public int getPercentageTransferred() {
-        if(file!=null){
-            return 100*(int)(uploadListener.getTotalBT()/uploadListener.getStreamSize());
+        if (COMPLETE.equals(status)) return 100;
+        long size = uploadListener.getStreamSize();
+        if (file != null && size > 0) {
+            return (int) (100 * uploadListener.getTotalBT() / size);
         }
-        else return 0;  //To change body of implemented methods use File | Settings | File Templates.
+        else return 0;
     }
 
     @Override
     public boolean isComplete() {
-        if (getPercentageTransferred()==100) return true;
-        else return false;  //To change body of implemented methods use File | Settings | File Templates.
+        return COMPLETE.equals(status);
+    }
+
+    /**
+     * Records progress against this job, counting bytes the server already held before a resume
+     */
+    public void transferred(long totalBytesTransferred, long streamSize) {
+        uploadListener.bytesTransferred(totalBytesTransferred, 0, streamSize);
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    /**
+     * @return the hex MD5 of the whole file, computed during the upload, or null until the upload completes
+     */
+    public String getMd5() {
+        return md5;
+    }
+
+    public void setMd5(String md5) {
+        this.md5 = md5;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * @return the byte offset the last attempt restarted from, 0 if it started from the beginning
+     */
+    public long getResumedFrom() {
+        return resumedFrom;
+    }
+
+    public void setResumedFrom(long resumedFrom) {
+        this.resumedFrom = resumedFrom;
     }
 
     public UploadListener getListener(){
@@ -41,8 +41,8 @@ public class FTPUploadReport implements UploadReport {
     private List<UploadJob> uploadJobs=new ArrayList<UploadJob>() {
     };
 
-    private String status;
-    private String message;
+    private volatile String status;
+    private volatile String message;
     protected static final Logger log = LoggerFactory.getLogger(FTPUploadReport.class);
     public FTPUploadReport(List<FTPUploadJob> FTPUploadJobs) {
            log.debug("FTPUploadReport has been created for submission:" );
@@ -78,6 +78,57 @@ public class FTPUploadReport implements UploadReport {
 
 
 
+    /**
+     * Settles the overall status once every job has either completed or given up
+     */
+    public void finish() {
+        int complete = 0;
+        for (UploadJob up : uploadJobs) {
+            if (up.isComplete()) complete++;
+        }
+        if (complete == uploadJobs.size()) {
+            setStatus("complete");
+            setMessage("uploaded " + complete + " files.");
+        }
+        else {
+            setStatus("failed");
+            setMessage("uploaded " + complete + " of " + uploadJobs.size() + " files.");
+        }
+    }
+
+    public boolean isComplete() {
+        return "complete".equals(status);
+    }
+
+    public long getBytesTransferred() {
+        long total = 0;
+        for (UploadJob up : uploadJobs) {
+            total += up.getBytesTransferred();
+        }
+        return total;
+    }
+
+    public long getTotalBytes() {
+        long total = 0;
+        for (UploadJob up : uploadJobs) {
+            total += up.getFile().length();
+        }
+        return total;
+    }
+
+    /**
+     * @return the MD5 of each file that has finished uploading, keyed by file name
+     */
+    public Map<String, String> getChecksums() {
+        Map<String, String> checksums = new HashMap<String, String>();
+        for (UploadJob up : uploadJobs) {
+            if (up instanceof FTPUploadJob && ((FTPUploadJob) up).getMd5() != null) {
+                checksums.put(up.getFile().getName(), ((FTPUploadJob) up).getMd5());
+            }
+        }
+        return checksums;
+    }
+
     public Map<String, Object> getUploadReport(){
         Map report= new HashMap<String, Object>();
         for (UploadJob up: uploadJobs){
@@ -34,9 +34,9 @@ import org.apache.commons.net.io.CopyStreamListener;
  * To change this template use File | Settings | File Templates.
  */
 public class UploadListener implements CopyStreamListener {
-    private int calls;
-    private long streamSZ;
-    private long totalBT;
+    private volatile int calls;
+    private volatile long streamSZ;
+    private volatile long totalBT;
     @Override
     public void bytesTransferred(CopyStreamEvent event) {
         bytesTransferred(event.getTotalBytesTransferred(), event.getBytesTransferred(),event.getStreamSize());
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.store;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Defines a contract whereby an implementing store can load many of its objects in one go, rather than one query per
+ * object through {@link Store#get(long)}
+ *
+ * @since 0.2.1
+ */
+public interface BulkStore<T> {
+  /**
+   * Retrieve the persisted objects of a given type T with the given IDs. IDs with no matching object are skipped.
+   *
+   * @param ids of type Collection<Long>
+   * @return Collection<T> in no particular order
+   * @throws IOException when the objects cannot be retrieved
+   */
+  public Collection<T> listByIds(Collection<Long> ids) throws IOException;
+}
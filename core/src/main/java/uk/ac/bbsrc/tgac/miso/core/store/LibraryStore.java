@@ -33,6 +33,7 @@ import uk.ac.bbsrc.tgac.miso.core.service.naming.NamingSchemeAware;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Defines a DAO interface for storing Libraries
@@ -78,6 +79,16 @@ public interface LibraryStore extends Store<Library>, Remover<Library>, NamingSc
    */
   Collection<Library> listBySampleId(long sampleId) throws IOException;
 
+  /**
+   * List all Libraries generated from a set of Samples given their parent Sample IDs, keyed on Sample ID.
+   * Implementations should resolve the whole set in as few queries as possible.
+   *
+   * @param sampleIds of type Collection<Long>
+   * @return Map<Long, Collection<Library>>
+   * @throws IOException when
+   */
+  Map<Long, Collection<Library>> listBySampleIds(Collection<Long> sampleIds) throws IOException;
+
   /**
    * List all Libraries that are related to a Project given a Project ID
    *
@@ -31,7 +31,9 @@ import uk.ac.bbsrc.tgac.miso.core.data.Sample;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.ProjectOverview;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Defines a DAO interface for storing Notes
@@ -67,6 +69,15 @@ public interface NoteStore extends Store<Note> {
    */
   List<Note> listBySample(Long sampleId) throws IOException;
 
+  /**
+   * List all Notes related to a set of Samples given their Sample IDs, keyed on Sample ID
+   *
+   * @param sampleIds of type Collection<Long>
+   * @return Map<Long, List<Note>>
+   * @throws IOException when
+   */
+  Map<Long, List<Note>> listBySampleIds(Collection<Long> sampleIds) throws IOException;
+
   /**
    * List all Notes related to a Library given a Library ID
    *
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.store;
+
+import uk.ac.bbsrc.tgac.miso.core.data.type.PlatformType;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.store
+ * <p/>
+ * Describes a single page of a sorted, optionally filtered, listing, as requested by a paged table in the UI
+ *
+ * @since 0.2.1
+ */
+public class PageRequest {
+  private final int offset;
+  private final int limit;
+  private final String search;
+  private final String sortProperty;
+  private final boolean descending;
+  private final PlatformType platformType;
+
+  /**
+   * @param offset the number of matching objects to skip
+   * @param limit the maximum number of objects in the page
+   * @param search a prefix to match against names, aliases and barcodes, or null to match everything
+   * @param sortProperty the property to sort by, or null to sort by ID. Stores ignore properties they cannot sort on.
+   * @param descending whether to sort in descending order
+   * @param platformType restrict the listing to a platform, for objects that record one, or null for all platforms
+   */
+  public PageRequest(int offset, int limit, String search, String sortProperty, boolean descending, PlatformType platformType) {
+    this.offset = Math.max(0, offset);
+    this.limit = Math.max(1, limit);
+    this.search = (search == null || "".equals(search.trim())) ? null : search.trim();
+    this.sortProperty = sortProperty;
+    this.descending = descending;
+    this.platformType = platformType;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public String getSearch() {
+    return search;
+  }
+
+  public String getSortProperty() {
+    return sortProperty;
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  public PlatformType getPlatformType() {
+    return platformType;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.store;
+
+import com.eaglegenomics.simlims.core.User;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Defines a contract whereby an implementing store is able to list objects a page at a time, using the ID of the last object of
+ * the previous page as a cursor, so that clients walking a large table never need to hold all of it at once
+ *
+ * @since 0.2.1
+ */
+public interface PageableStore<T> {
+  /**
+   * List up to limit persisted objects of a given type T with IDs greater than afterId, in ascending ID order, whose security
+   * profile allows the given user to read them. As with {@link SecurableStore#listAllReadableBy(User)}, callers should still
+   * check each object's security profile.
+   *
+   * @param user of type User
+   * @param afterId the ID of the last object of the previous page, or 0 for the first page
+   * @param limit the maximum number of objects to return
+   * @return List<T>
+   * @throws IOException when the objects cannot be retrieved
+   */
+  public List<T> listPageReadableBy(User user, long afterId, int limit) throws IOException;
+}
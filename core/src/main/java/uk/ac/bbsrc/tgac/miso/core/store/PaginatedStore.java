@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.store;
+
+import com.eaglegenomics.simlims.core.User;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Defines a contract whereby an implementing store is able to sort, filter and page through its objects itself, so that
+ * list pages only ever load the rows they display
+ *
+ * @since 0.2.1
+ */
+public interface PaginatedStore<T> {
+  /**
+   * List the page of persisted objects of a given type T described by the given request, restricted to those whose security
+   * profile allows the given user to read them. As with {@link SecurableStore#listAllReadableBy(User)}, callers should still
+   * check each object's security profile.
+   *
+   * @param user of type User
+   * @param page of type PageRequest
+   * @return List<T>
+   * @throws IOException when the objects cannot be retrieved
+   */
+  public List<T> listByPageReadableBy(User user, PageRequest page) throws IOException;
+
+  /**
+   * Count the persisted objects of a given type T that match the search and platform of the given request, and that the
+   * given user can read. The offset, limit and sort order of the request are ignored.
+   *
+   * @param user of type User
+   * @param page of type PageRequest
+   * @return long
+   * @throws IOException when the objects cannot be counted
+   */
+  public long countReadableBy(User user, PageRequest page) throws IOException;
+}
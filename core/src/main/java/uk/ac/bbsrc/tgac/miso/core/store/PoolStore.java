@@ -117,6 +117,19 @@ public interface PoolStore extends Store<Pool<? extends Poolable>>, Remover<Pool
    */
   List<Pool<? extends Poolable>> listReadyByPlatformAndSearch(PlatformType platformType, String query) throws IOException;
 
+  /**
+   * Search for Pools for a given {@link PlatformType} by name, alias or barcode, as with
+   * {@link SearchableStore#searchRanked(String, int)}
+   *
+   * @param query of type String
+   * @param platformType of type PlatformType
+   * @param readyOnly whether to only return "ready to run" Pools
+   * @param limit the maximum number of Pools to return
+   * @return List<Pool<? extends Poolable> the best matches first
+   * @throws IOException when
+   */
+  List<Pool<? extends Poolable>> searchRankedByPlatform(String query, PlatformType platformType, boolean readyOnly, int limit) throws IOException;
+
   /**
    * Get any Pool related to an Experiment given an Experiment ID
    *
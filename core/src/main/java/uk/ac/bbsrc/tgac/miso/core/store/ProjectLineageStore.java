@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.store;
+
+import com.eaglegenomics.simlims.core.User;
+import uk.ac.bbsrc.tgac.miso.core.data.impl.ProjectLineage;
+
+import java.io.IOException;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.store
+ * <p/>
+ * Builds the lineage of a project - its studies, experiments, samples, libraries, dilutions, pools and runs - as flat
+ * ID/name tuples, without loading the entities themselves. The full lineage is cached per project until evicted, and cut
+ * down to the entities a user can read each time it is asked for.
+ *
+ * @since 0.2.1
+ */
+public interface ProjectLineageStore {
+  /**
+   * Get the lineage of a project, holding only the studies, experiments, samples, libraries, dilutions, pools and runs the
+   * given user can read
+   *
+   * @param projectId of type long
+   * @param user of type User
+   * @return ProjectLineage, or null if there is no such project
+   * @throws IOException
+   */
+  ProjectLineage getLineage(long projectId, User user) throws IOException;
+
+  /**
+   * Discard the cached lineage of a project, e.g. after the project, one of its studies or one of its samples is saved
+   *
+   * @param projectId of type long
+   */
+  void evict(long projectId);
+
+  /**
+   * Discard all cached lineages, e.g. after saving an entity whose project is not known
+   */
+  void evictAll();
+}
@@ -58,6 +58,15 @@ public interface ProjectStore extends Store<Project>, Cascadable, Remover<Projec
    */
   Project getByStudyId(long studyId) throws IOException;
 
+  /**
+   * List all Projects given a set of Project IDs
+   *
+   * @param projectIds of type Collection<Long>
+   * @return Collection<Project>
+   * @throws IOException when
+   */
+  Collection<Project> listByIds(Collection<Long> projectIds) throws IOException;
+
   /**
    * List all Projects that match a search criteria
    *
@@ -28,6 +28,7 @@ import uk.ac.bbsrc.tgac.miso.core.data.type.QcType;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Defines a DAO interface for storing SampleQCs
@@ -57,6 +58,16 @@ public interface SampleQcStore extends Store<SampleQC>, Remover<SampleQC> {
    */
   Collection<SampleQC> listBySampleId(long sampleId) throws IOException;
 
+  /**
+   * List all SampleQCs performed on a set of Samples given their parent Sample IDs, keyed on Sample ID.
+   * Implementations should resolve the whole set in as few queries as possible.
+   *
+   * @param sampleIds of type Collection<Long>
+   * @return Map<Long, Collection<SampleQC>>
+   * @throws IOException when
+   */
+  Map<Long, Collection<SampleQC>> listBySampleIds(Collection<Long> sampleIds) throws IOException;
+
   /**
    * Get the QcType descriptor for a given type ID
    * @param qcTypeId
@@ -95,6 +95,15 @@ public interface SampleStore extends Store<Sample>, Cascadable, Remover<Sample>,
    */
   Collection<Sample> listByAlias(String alias) throws IOException;
 
+  /**
+   * List all Samples whose alias is one of the given aliases, in one lookup
+   *
+   * @param aliases of type Collection<String>
+   * @return Collection<Sample>
+   * @throws IOException when
+   */
+  Collection<Sample> listByAliases(Collection<String> aliases) throws IOException;
+
   /**
    * List all Samples that are part of a Submission given a Submission ID
    *
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.store;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Defines a contract whereby an implementing store keeps a search index over its objects, and can answer free text
+ * searches with a short, ranked list rather than every row that contains the query
+ *
+ * @since 0.2.1
+ */
+public interface SearchableStore<T> {
+  /**
+   * Search for persisted objects of a given type T matching the given query by name, alias, barcode or description. Query
+   * terms match whole words, word prefixes, or, failing those, words one typo away.
+   *
+   * @param query of type String
+   * @param limit the maximum number of objects to return
+   * @return List<T> the best matches first
+   * @throws IOException when the objects cannot be retrieved
+   */
+  public List<T> searchRanked(String query, int limit) throws IOException;
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.store;
+
+import com.eaglegenomics.simlims.core.User;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Defines a contract whereby an implementing store is able to restrict the objects it lists to those a given user can read,
+ * so that objects the user has no access to are never retrieved
+ *
+ * @since 0.2.1
+ */
+public interface SecurableStore<T> {
+  /**
+   * List all persisted objects of a given type T whose security profile allows the given user to read them.
+   * <p/>
+   * Implementations may return objects the user cannot read, but must not leave out any object the user can read, so callers
+   * should still check each object's security profile.
+   *
+   * @param user of type User
+   * @return Collection<T>
+   * @throws IOException when the objects cannot be retrieved
+   */
+  public Collection<T> listAllReadableBy(User user) throws IOException;
+}
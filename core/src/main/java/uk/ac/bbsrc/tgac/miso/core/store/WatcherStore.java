@@ -28,6 +28,7 @@ import uk.ac.bbsrc.tgac.miso.core.data.Watchable;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * uk.ac.bbsrc.tgac.miso.core.store
@@ -49,6 +50,16 @@ public interface WatcherStore {
    */
   Collection<User> getWatchersByEntityName(String entityName) throws IOException;
 
+  /**
+   * Get the Users watching each of a set of entities in one lookup, keyed by entity name. Entities without any
+   * watchers are absent from the returned map.
+   *
+   * @param entityNames of type Collection<String>
+   * @return Map<String, Collection<User>>
+   * @throws IOException
+   */
+  Map<String, Collection<User>> getWatchersByEntityNames(Collection<String> entityNames) throws IOException;
+
   /**
    * Get the list of Users that are in a given watcher group
    *
@@ -58,6 +69,11 @@ public interface WatcherStore {
    */
   Collection<User> getWatchersByWatcherGroup(String groupName) throws IOException;
 
+  /**
+   * Discard any memoised watcher group memberships, e.g. after a user's groups have changed
+   */
+  void clearWatcherGroupCache();
+
   /**
    * Unregister a watched entity / user coupling
    *
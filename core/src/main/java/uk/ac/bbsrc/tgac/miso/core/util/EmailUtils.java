@@ -52,6 +52,21 @@ public class EmailUtils {
    */
   public static void send(String to, String from, String subject, String text, Properties mailProps) throws MessagingException {
     Session mailSession = Session.getDefaultInstance(mailProps);
+    Transport.send(createMessage(mailSession, to, from, subject, text));
+  }
+
+  /**
+   * Create a plain text email to a recipient, ready to be sent on an already connected {@link Transport}
+   *
+   * @param mailSession of type Session
+   * @param to of type String
+   * @param from of type String
+   * @param subject of type String
+   * @param text of type String
+   * @return Message
+   * @throws javax.mail.MessagingException
+   */
+  public static Message createMessage(Session mailSession, String to, String from, String subject, String text) throws MessagingException {
     Message simpleMessage = new MimeMessage(mailSession);
 
     InternetAddress fromAddress = new InternetAddress(from);
@@ -61,7 +76,7 @@ public class EmailUtils {
     simpleMessage.setRecipient(Message.RecipientType.TO, toAddress);
     simpleMessage.setSubject(subject);
     simpleMessage.setText(text);
-
-    Transport.send(simpleMessage);
+    simpleMessage.saveChanges();
+    return simpleMessage;
   }
 }
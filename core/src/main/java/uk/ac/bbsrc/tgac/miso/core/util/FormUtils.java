@@ -51,6 +51,8 @@ import uk.ac.bbsrc.tgac.miso.core.data.impl.*;
 import uk.ac.bbsrc.tgac.miso.core.data.type.*;
 import uk.ac.bbsrc.tgac.miso.core.exception.DeliveryFormException;
 import uk.ac.bbsrc.tgac.miso.core.exception.InputFormException;
+import uk.ac.bbsrc.tgac.miso.core.exception.MalformedLibraryException;
+import uk.ac.bbsrc.tgac.miso.core.exception.MalformedLibraryQcException;
 import uk.ac.bbsrc.tgac.miso.core.factory.DataObjectFactory;
 import uk.ac.bbsrc.tgac.miso.core.factory.TgacDataObjectFactory;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
@@ -3239,125 +3241,92 @@ public class FormUtils {
 
   public static JSONArray preProcessSampleSheetImport(File inPath, User u, RequestManager manager) throws Exception {
     if (inPath.getName().endsWith(".xlsx")) {
-      XSSFWorkbook wb = new XSSFWorkbook(new FileInputStream(inPath));
+      //parse
+      List<XlsxSheetReader.SheetRow> rows = readImportRows(inPath, SAMPLE_SHEET_FIRST_ROW, SAMPLE_SHEET_ALIAS_COLUMN);
+      //resolve
+      ImportErrors errors = new ImportErrors();
+      Map<String, Sample> samples = resolveSamplesByAlias(rows, SAMPLE_SHEET_FIRST_ROW, SAMPLE_SHEET_ALIAS_COLUMN, manager, errors);
+
+      //validate and render
       JSONArray jsonArray = new JSONArray();
-      XSSFSheet sheet = wb.getSheetAt(0);
-      int rows = sheet.getPhysicalNumberOfRows();
-      for (int ri = 5; ri < rows; ri++) {
-        XSSFRow row = sheet.getRow(ri);
-        XSSFCell sampleAliasCell = row.getCell(3);
-        Sample s = null;
-        if (getCellValueAsString(sampleAliasCell) != null) {
-          String salias = getCellValueAsString(sampleAliasCell);
-          Collection<Sample> ss = manager.listSamplesByAlias(salias);
-          if (!ss.isEmpty()) {
-            if (ss.size() == 1) {
-              s = ss.iterator().next();
-              log.info("Got sample: " + s.getAlias());
-            }
-            else {
-              throw new InputFormException("Multiple samples retrieved with this alias: '" + salias + "'. Cannot process.");
-            }
-          }
-          else {
-            throw new InputFormException("No such sample '" + salias + "'in database. Samples need to be created before using the form input functionality");
-          }
-        }
-        else {
-          log.info("Blank sample row found. Ending import.");
-          break;
+      for (XlsxSheetReader.SheetRow row : dataRows(rows, SAMPLE_SHEET_FIRST_ROW)) {
+        String sampleAlias = row.getCell(SAMPLE_SHEET_ALIAS_COLUMN);
+        Sample s = samples.get(sampleAlias);
+        if (s == null) {
+          continue;
         }
 
-        //sample OK - good to go
-        if (s != null) {
-          JSONArray sampleArray = new JSONArray();
-
-          XSSFCell projectNameCell = row.getCell(0);
-          XSSFCell projectAliasCell = row.getCell(1);
-          XSSFCell sampleNameCell = row.getCell(2);
-          XSSFCell wellCell = row.getCell(4);
-          XSSFCell adaptorCell = row.getCell(5);
-          XSSFCell qcPassedCell = row.getCell(13);
-
-          sampleArray.add(getCellValueAsString(projectNameCell));
-          sampleArray.add(getCellValueAsString(projectAliasCell));
-          sampleArray.add(getCellValueAsString(sampleNameCell));
-          sampleArray.add(getCellValueAsString(sampleAliasCell));
-          sampleArray.add(getCellValueAsString(wellCell));
-          if ((getCellValueAsString(adaptorCell)) != null) {
-            sampleArray.add(getCellValueAsString(adaptorCell));
+        JSONArray sampleArray = new JSONArray();
+        String adaptor = row.getCell(5);
+        String qcPassed = row.getCell(13);
+
+        sampleArray.add(row.getCell(0));
+        sampleArray.add(row.getCell(1));
+        sampleArray.add(row.getCell(2));
+        sampleArray.add(sampleAlias);
+        sampleArray.add(row.getCell(4));
+        sampleArray.add(adaptor != null ? adaptor : "");
+
+        String qcResult = null;
+        if ("GENOMIC".equals(s.getSampleType())
+            || "METAGENOMIC".equals(s.getSampleType())) {
+          qcResult = row.getCell(6);
+        }
+        else if ("NON GENOMIC".equals(s.getSampleType())
+                 || "VIRAL RNA".equals(s.getSampleType())
+                 || "TRANSCRIPTOMIC".equals(s.getSampleType())
+                 || "METATRANSCRIPTOMIC".equals(s.getSampleType())) {
+          qcResult = row.getCell(7);
+        }
+        else {
+          if (!"NA".equals(row.getCell(6))) {
+            qcResult = row.getCell(6);
           }
-          else {
-            sampleArray.add("");
-
+          else if (!"NA".equals(row.getCell(7))) {
+            qcResult = row.getCell(7);
           }
+        }
 
-          XSSFCell qcResultCell = null;
-
+        String rin = row.getCell(8);
+        String sample260280 = row.getCell(9);
+        String sample260230 = row.getCell(10);
 
-          if ("GENOMIC".equals(s.getSampleType())
-              || "METAGENOMIC".equals(s.getSampleType())) {
-            qcResultCell = row.getCell(6);
-          }
-          else if ("NON GENOMIC".equals(s.getSampleType())
-                   || "VIRAL RNA".equals(s.getSampleType())
-                   || "TRANSCRIPTOMIC".equals(s.getSampleType())
-                   || "METATRANSCRIPTOMIC".equals(s.getSampleType())) {
-            qcResultCell = row.getCell(7);
+        try {
+          if (qcResult != null && !"NA".equals(qcResult)) {
+            sampleArray.add(Double.valueOf(qcResult));
+            if (qcPassed != null) {
+              if ("Y".equals(qcPassed) || "y".equals(qcPassed)) {
+                sampleArray.add("true");
+              }
+              else if ("N".equals(qcPassed) || "n".equals(qcPassed)) {
+                sampleArray.add("false");
+              }
+            }
           }
           else {
-
-            if (!"NA".equals(getCellValueAsString(row.getCell(6)))) {
-              qcResultCell = row.getCell(6);
-            }
-            else if (!"NA".equals(getCellValueAsString(row.getCell(7)))) {
-              qcResultCell = row.getCell(7);
-            }
+            sampleArray.add("");
+            sampleArray.add("");
           }
 
-
-          XSSFCell rinCell = row.getCell(8);
-          XSSFCell sample260280Cell = row.getCell(9);
-          XSSFCell sample260230Cell = row.getCell(10);
-          Date date = new Date();
-
-          try {
-            if (getCellValueAsString(qcResultCell) != null && !"NA".equals(getCellValueAsString(qcResultCell))) {
-
-              sampleArray.add(Double.valueOf(getCellValueAsString(qcResultCell)));
-              if (getCellValueAsString(qcPassedCell) != null) {
-                if ("Y".equals(getCellValueAsString(qcPassedCell)) || "y".equals(getCellValueAsString(qcPassedCell))) {
-                  sampleArray.add("true");
-                }
-                else if ("N".equals(getCellValueAsString(qcPassedCell)) || "n".equals(getCellValueAsString(qcPassedCell))) {
-                  sampleArray.add("false");
-                }
-
-              }
-            }
-            else {
-              sampleArray.add("");
-              sampleArray.add("");
-            }
-
-            StringBuilder noteSB = new StringBuilder();
-            if (getCellValueAsString(rinCell) != null && !"".equals(getCellValueAsString(rinCell)) && !"NA".equals(getCellValueAsString(rinCell))) {
-              noteSB.append("RIN:" + getCellValueAsString(rinCell) + ";");
-            }
-            if (getCellValueAsString(sample260280Cell) != null && !"".equals(getCellValueAsString(sample260280Cell))) {
-              noteSB.append("260/280:" + getCellValueAsString(sample260280Cell) + ";");
-            }
-            if (getCellValueAsString(sample260230Cell) != null && !"".equals(getCellValueAsString(sample260230Cell))) {
-              noteSB.append("260/230:" + getCellValueAsString(sample260230Cell) + ";");
-            }
-            sampleArray.add(noteSB.toString());
+          StringBuilder noteSB = new StringBuilder();
+          if (rin != null && !"".equals(rin) && !"NA".equals(rin)) {
+            noteSB.append("RIN:" + rin + ";");
           }
-          catch (NumberFormatException nfe) {
-            throw new InputFormException("Supplied Sample QC concentration for sample '" + getCellValueAsString(sampleAliasCell) + "' is invalid", nfe);
+          if (sample260280 != null && !"".equals(sample260280)) {
+            noteSB.append("260/280:" + sample260280 + ";");
+          }
+          if (sample260230 != null && !"".equals(sample260230)) {
+            noteSB.append("260/230:" + sample260230 + ";");
           }
-          jsonArray.add(sampleArray);
+          sampleArray.add(noteSB.toString());
         }
+        catch (NumberFormatException nfe) {
+          errors.add(row, "Supplied Sample QC concentration for sample '" + sampleAlias + "' is invalid");
+          continue;
+        }
+        jsonArray.add(sampleArray);
       }
+      errors.throwIfAny();
       return jsonArray;
     }
     else {
@@ -3367,162 +3336,105 @@ public class FormUtils {
 
   public static JSONArray processSampleSheetImport(File inPath, User u, RequestManager manager) throws Exception {
     if (inPath.getName().endsWith(".xlsx")) {
-      XSSFWorkbook wb = new XSSFWorkbook(new FileInputStream(inPath));
-      JSONArray jsonArray = new JSONArray();
-      XSSFSheet sheet = wb.getSheetAt(0);
-      int rows = sheet.getPhysicalNumberOfRows();
-      for (int ri = 5; ri < rows; ri++) {
-        XSSFRow row = sheet.getRow(ri);
-        XSSFCell sampleAliasCell = row.getCell(3);
-        Sample s = null;
-        if (getCellValueAsString(sampleAliasCell) != null) {
-          String salias = getCellValueAsString(sampleAliasCell);
-          Collection<Sample> ss = manager.listSamplesByAlias(salias);
-          if (!ss.isEmpty()) {
-            if (ss.size() == 1) {
-              s = ss.iterator().next();
-              log.info("Got sample: " + s.getAlias());
-            }
-            else {
-              throw new InputFormException("Multiple samples retrieved with this alias: '" + salias + "'. Cannot process.");
-            }
+      //parse
+      List<XlsxSheetReader.SheetRow> rows = readImportRows(inPath, SAMPLE_SHEET_FIRST_ROW, SAMPLE_SHEET_ALIAS_COLUMN);
+      //resolve
+      ImportErrors errors = new ImportErrors();
+      Map<String, Sample> samples = resolveSamplesByAlias(rows, SAMPLE_SHEET_FIRST_ROW, SAMPLE_SHEET_ALIAS_COLUMN, manager, errors);
+
+      //validate
+      Map<XlsxSheetReader.SheetRow, Double> qcResults = new HashMap<XlsxSheetReader.SheetRow, Double>();
+      for (XlsxSheetReader.SheetRow row : dataRows(rows, SAMPLE_SHEET_FIRST_ROW)) {
+        String qcResult = sampleSheetQcResult(row);
+        if (qcResult != null && !"NA".equals(qcResult)) {
+          try {
+            qcResults.put(row, Double.valueOf(qcResult));
           }
-          else {
-            throw new InputFormException("No such sample '" + salias + "'in database. Samples need to be created before using the form input functionality");
+          catch (NumberFormatException nfe) {
+            errors.add(row, "Supplied Sample QC concentration for sample '" + row.getCell(SAMPLE_SHEET_ALIAS_COLUMN) + "' is invalid");
           }
         }
-        else {
-          log.info("Blank sample row found. Ending import.");
-          break;
-        }
-
-        //sample OK - good to go
-        if (s != null) {
-          JSONObject jsonObject = new JSONObject();
-
-          XSSFCell projectNameCell = row.getCell(0);
-          XSSFCell projectAliasCell = row.getCell(1);
-          XSSFCell sampleNameCell = row.getCell(2);
-          XSSFCell wellCell = row.getCell(4);
-          XSSFCell adaptorCell = row.getCell(5);
-          XSSFCell qcPassedCell = row.getCell(13);
-
-          jsonObject.put("row", ri);
-          jsonObject.put("projectName", getCellValueAsString(projectNameCell));
-          jsonObject.put("projectAlias", getCellValueAsString(projectAliasCell));
-          jsonObject.put("sampleName", getCellValueAsString(sampleNameCell));
-          jsonObject.put("sampleAlias", getCellValueAsString(sampleAliasCell));
-          jsonObject.put("well", getCellValueAsString(wellCell));
-          if ((getCellValueAsString(adaptorCell)) != null) {
-            jsonObject.put("adaptor", getCellValueAsString(adaptorCell));
-          }
-          else {
-            jsonObject.put("adaptor", "");
-
-          }
+      }
+      errors.throwIfAny();
 
-          jsonArray.add(jsonObject);
-          XSSFCell qcResultCell = null;
-          if (!"NA".equals(getCellValueAsString(row.getCell(6)))) {
-            qcResultCell = row.getCell(6);
-          }
-          else if (!"NA".equals(getCellValueAsString(row.getCell(7)))) {
-            qcResultCell = row.getCell(7);
-          }
-          XSSFCell rinCell = row.getCell(8);
-          XSSFCell sample260280Cell = row.getCell(9);
-          XSSFCell sample260230Cell = row.getCell(10);
+      //write - each sample is saved once, however many of its QC, pass flag and note cells were filled in
+      ImportLookups lookups = new ImportLookups(manager);
+      JSONArray jsonArray = new JSONArray();
+      for (XlsxSheetReader.SheetRow row : dataRows(rows, SAMPLE_SHEET_FIRST_ROW)) {
+        String sampleAlias = row.getCell(SAMPLE_SHEET_ALIAS_COLUMN);
+        Sample s = samples.get(sampleAlias);
+        String well = row.getCell(4);
+        String adaptor = row.getCell(5);
+        String qcPassed = row.getCell(13);
+
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("row", row.getRowIndex());
+        jsonObject.put("projectName", row.getCell(0));
+        jsonObject.put("projectAlias", row.getCell(1));
+        jsonObject.put("sampleName", row.getCell(2));
+        jsonObject.put("sampleAlias", sampleAlias);
+        jsonObject.put("well", well);
+        jsonObject.put("adaptor", adaptor != null ? adaptor : "");
+        jsonArray.add(jsonObject);
+
+        try {
           Date date = new Date();
+          boolean changed = false;
 
-          try {
-            if (getCellValueAsString(qcResultCell) != null && !"NA".equals(getCellValueAsString(qcResultCell))) {
-
-              SampleQC sqc = new SampleQCImpl();
-              sqc.setSample(s);
-              sqc.setResults(Double.valueOf(getCellValueAsString(qcResultCell)));
-              sqc.setQcCreator(u.getLoginName());
-              sqc.setQcDate(date);
-              if (manager.getSampleQcTypeByName("Picogreen") != null) {
-                sqc.setQcType(manager.getSampleQcTypeByName("Picogreen"));
-              }
-              else {
-                sqc.setQcType(manager.getSampleQcTypeByName("QuBit"));
-              }
-              if (!s.getSampleQCs().contains(sqc)) {
-                s.addQc(sqc);
-                manager.saveSampleQC(sqc);
-                manager.saveSample(s);
-                log.info("Added sample QC: " + sqc.toString());
-              }
-              if (getCellValueAsString(qcPassedCell) != null) {
-                if ("Y".equals(getCellValueAsString(qcPassedCell)) || "y".equals(getCellValueAsString(qcPassedCell))) {
-                  s.setQcPassed(true);
-                  manager.saveSample(s);
-                  log.info("Marked sample QC Passed as True");
-                }
-                else if ("N".equals(getCellValueAsString(qcPassedCell)) || "n".equals(getCellValueAsString(qcPassedCell))) {
-                  s.setQcPassed(false);
-                  manager.saveSample(s);
-                  log.info("Marked sample QC Passed as False");
-                }
-
-              }
-            }
-            if (getCellValueAsString(wellCell) != null && !"".equals(getCellValueAsString(wellCell)) && !"NA".equals(getCellValueAsString(wellCell))) {
-              Note note = new Note();
-              note.setCreationDate(date);
-              note.setOwner(u);
-              note.setText("Well: " + getCellValueAsString(wellCell));
-              if (!s.getNotes().contains(note)) {
-                s.addNote(note);
-                manager.saveSampleNote(s, note);
-                manager.saveSample(s);
-                log.info("Added sample Note for Well: " + note.toString());
-              }
-            }
-            if (getCellValueAsString(rinCell) != null && !"".equals(getCellValueAsString(rinCell)) && !"NA".equals(getCellValueAsString(rinCell))) {
-              Note note = new Note();
-              note.setCreationDate(date);
-              note.setOwner(u);
-              note.setText("RIN: " + getCellValueAsString(rinCell));
-              if (!s.getNotes().contains(note)) {
-                s.addNote(note);
-                manager.saveSampleNote(s, note);
-                manager.saveSample(s);
-                log.info("Added sample Note for RIN: " + note.toString());
-              }
+          Double qcResult = qcResults.get(row);
+          if (qcResult != null) {
+            SampleQC sqc = new SampleQCImpl();
+            sqc.setSample(s);
+            sqc.setResults(qcResult);
+            sqc.setQcCreator(u.getLoginName());
+            sqc.setQcDate(date);
+            sqc.setQcType(lookups.getSampleQcType());
+            if (!s.getSampleQCs().contains(sqc)) {
+              s.addQc(sqc);
+              manager.saveSampleQC(sqc);
+              changed = true;
+              log.info("Added sample QC: " + sqc.toString());
             }
-            if (getCellValueAsString(sample260280Cell) != null && !"".equals(getCellValueAsString(sample260280Cell))) {
-              Note note = new Note();
-              note.setCreationDate(date);
-              note.setOwner(u);
-              note.setText("260/280: " + getCellValueAsString(sample260280Cell));
-              if (!s.getNotes().contains(note)) {
-                s.addNote(note);
-                manager.saveSampleNote(s, note);
-                manager.saveSample(s);
-                log.info("Added sample Note for 260/280: " + note.toString());
+            if (qcPassed != null) {
+              if ("Y".equals(qcPassed) || "y".equals(qcPassed)) {
+                s.setQcPassed(true);
+                changed = true;
+                log.info("Marked sample QC Passed as True");
               }
-            }
-            if (getCellValueAsString(sample260230Cell) != null && !"".equals(getCellValueAsString(sample260230Cell))) {
-              Note note = new Note();
-              note.setCreationDate(date);
-              note.setOwner(u);
-              note.setText("260/230: " + getCellValueAsString(sample260230Cell));
-              if (!s.getNotes().contains(note)) {
-                s.addNote(note);
-                manager.saveSampleNote(s, note);
-                manager.saveSample(s);
-                log.info("Added sample Note for 260/230: " + note.toString());
+              else if ("N".equals(qcPassed) || "n".equals(qcPassed)) {
+                s.setQcPassed(false);
+                changed = true;
+                log.info("Marked sample QC Passed as False");
               }
             }
+          }
 
+          String rin = row.getCell(8);
+          String sample260280 = row.getCell(9);
+          String sample260230 = row.getCell(10);
+          if (well != null && !"".equals(well) && !"NA".equals(well)) {
+            changed |= addSampleNote(s, "Well: " + well, date, u, manager);
           }
-          catch (NumberFormatException nfe) {
-            throw new InputFormException("Supplied Sample QC concentration for sample '" + getCellValueAsString(sampleAliasCell) + "' is invalid", nfe);
+          if (rin != null && !"".equals(rin) && !"NA".equals(rin)) {
+            changed |= addSampleNote(s, "RIN: " + rin, date, u, manager);
+          }
+          if (sample260280 != null && !"".equals(sample260280)) {
+            changed |= addSampleNote(s, "260/280: " + sample260280, date, u, manager);
+          }
+          if (sample260230 != null && !"".equals(sample260230)) {
+            changed |= addSampleNote(s, "260/230: " + sample260230, date, u, manager);
+          }
+
+          if (changed) {
+            manager.saveSample(s);
           }
         }
+        catch (Exception e) {
+          log.error("Cannot import sample sheet row " + (row.getRowIndex() + 1), e);
+          errors.add(row, "Cannot save sample '" + sampleAlias + "': " + e.getMessage());
+        }
       }
+      errors.throwIfAny();
       return jsonArray;
     }
     else {
@@ -3532,133 +3444,88 @@ public class FormUtils {
 
   public static JSONObject preProcessLibraryPoolSheetImport(File inPath, User u, RequestManager manager) throws Exception {
     if (inPath.getName().endsWith(".xlsx")) {
+      //parse
+      List<XlsxSheetReader.SheetRow> rows = readImportRows(inPath, LIBRARY_POOL_SHEET_FIRST_ROW, LIBRARY_POOL_SHEET_ALIAS_COLUMN);
+      XlsxSheetReader.SheetRow glrow = headerRow(rows, 1);
+
       JSONObject jsonObject = new JSONObject();
       JSONArray sampleArray = new JSONArray();
-      XSSFWorkbook wb = new XSSFWorkbook(new FileInputStream(inPath));
-      XSSFSheet sheet = wb.getSheetAt(0);
-
-      XSSFRow glrow = sheet.getRow(1);
 
       //process global headers
-      XSSFCell pairedCell = glrow.getCell(0);
-      jsonObject.put("paired", getCellValueAsString(pairedCell));
-
-      XSSFCell platformCell = glrow.getCell(1);
-      if (getCellValueAsString(platformCell) != null) {
-        jsonObject.put("platform", getCellValueAsString(platformCell));
+      String platform = glrow.getCell(1);
+      jsonObject.put("paired", glrow.getCell(0));
+      if (platform != null) {
+        jsonObject.put("platform", platform);
       }
       else {
-        throw new InputFormException("Cannot resolve Platform type from: '" + getCellValueAsString(platformCell) + "'");
+        throw new InputFormException("Cannot resolve Platform type from: '" + platform + "'");
       }
 
-      XSSFCell typeCell = glrow.getCell(2);
-      if (getCellValueAsString(typeCell) != null) {
-        String[] split = getCellValueAsString(typeCell).split("-");
+      String libraryType = glrow.getCell(2);
+      if (libraryType != null) {
+        String[] split = libraryType.split("-");
         String plat = split[0];
         String type = split[1];
-        if (getCellValueAsString(platformCell).equals(plat)) {
+        if (platform.equals(plat)) {
           jsonObject.put("type", type);
         }
         else {
-          throw new InputFormException("Selected library type '" + getCellValueAsString(typeCell) + "' doesn't match platform type: '" + getCellValueAsString(platformCell) + "'");
+          throw new InputFormException("Selected library type '" + libraryType + "' doesn't match platform type: '" + platform + "'");
         }
       }
       else {
-        throw new InputFormException("Cannot resolve Library type from: '" + getCellValueAsString(typeCell) + "'");
+        throw new InputFormException("Cannot resolve Library type from: '" + libraryType + "'");
       }
 
-      XSSFCell selectionCell = glrow.getCell(3);
-      if (getCellValueAsString(selectionCell) != null) {
-        jsonObject.put("selection", getCellValueAsString(selectionCell));
+      String selection = glrow.getCell(3);
+      if (selection != null) {
+        jsonObject.put("selection", selection);
       }
       else {
-        throw new InputFormException("Cannot resolve Library Selection type from: '" + getCellValueAsString(selectionCell) + "'");
+        throw new InputFormException("Cannot resolve Library Selection type from: '" + selection + "'");
       }
 
-      XSSFCell strategyCell = glrow.getCell(4);
-      if (getCellValueAsString(strategyCell) != null) {
-        jsonObject.put("strategy", getCellValueAsString(strategyCell));
+      String strategy = glrow.getCell(4);
+      if (strategy != null) {
+        jsonObject.put("strategy", strategy);
       }
       else {
-        throw new InputFormException("Cannot resolve Library Strategy type from: '" + getCellValueAsString(strategyCell) + "'");
+        throw new InputFormException("Cannot resolve Library Strategy type from: '" + strategy + "'");
       }
 
-      int rows = sheet.getPhysicalNumberOfRows();
-      for (int ri = 6; ri < rows; ri++) {
+      //resolve
+      ImportErrors errors = new ImportErrors();
+      Map<String, Sample> samples = resolveSamplesByAlias(rows, LIBRARY_POOL_SHEET_FIRST_ROW, LIBRARY_POOL_SHEET_ALIAS_COLUMN, manager, errors);
+
+      //validate and render
+      for (XlsxSheetReader.SheetRow row : dataRows(rows, LIBRARY_POOL_SHEET_FIRST_ROW)) {
         JSONArray rowsJSONArray = new JSONArray();
-        XSSFRow row = sheet.getRow(ri);
-        XSSFCell sampleNameCell = row.getCell(2);
-        XSSFCell sampleAliasCell = row.getCell(3);
-        Sample s = null;
-        if (getCellValueAsString(sampleAliasCell) != null) {
-          String salias = getCellValueAsString(sampleAliasCell);
-          Collection<Sample> ss = manager.listSamplesByAlias(salias);
-          if (!ss.isEmpty()) {
-            if (ss.size() == 1) {
-              s = ss.iterator().next();
-              log.info("Got sample: " + s.getAlias());
-            }
-            else {
-              throw new InputFormException("Multiple samples retrieved with this alias: '" + salias + "'. Cannot process.");
-            }
-          }
-          else {
-            throw new InputFormException("No such sample '" + salias + "'in database. Samples need to be created before using the form input functionality");
-          }
-        }
-        else {
-          log.info("Blank sample row found. Ending import.");
-          break;
-        }
+        String sampleAlias = row.getCell(LIBRARY_POOL_SHEET_ALIAS_COLUMN);
+        Sample s = samples.get(sampleAlias);
 
         //sample OK - good to go
         if (s != null) {
-          XSSFCell barcodeKitCell = row.getCell(9);
-          XSSFCell barcodeTagsCell = row.getCell(10);
-          XSSFCell libraryQubitCell = row.getCell(6);
-          XSSFCell libraryQcInsertSizeCell = row.getCell(7);
-          XSSFCell libraryQcMolarityCell = row.getCell(8);
-          XSSFCell qcPassedCell = row.getCell(11);
-          XSSFCell libraryDescriptionCell = row.getCell(12);
-          XSSFCell wellCell = row.getCell(4);
-          XSSFCell dilutionMolarityCell = row.getCell(16);
-          XSSFCell poolNameCell = row.getCell(21);
-          XSSFCell poolConvertedMolarityCell = row.getCell(20);
-
-
-          rowsJSONArray.add(getCellValueAsString(sampleNameCell));
-          rowsJSONArray.add(getCellValueAsString(sampleAliasCell));
-          rowsJSONArray.add(getCellValueAsString(wellCell).replaceAll("\\s",""));
-
-          XSSFCell proceedKeyCell = row.getCell(22);
-
-          String proceedKey = "A";
-
-          if (getCellValueAsString(proceedKeyCell) != null) {
-            String proceedKeyString = getCellValueAsString(proceedKeyCell).toUpperCase().replaceAll("\\s","");
-            if ("L".equals(proceedKeyString)) {
-              proceedKey = "L";
-            }
-            else if ("U".equals(proceedKeyString)) {
-              proceedKey = "U";
-            }
-            else if ("P".equals(proceedKeyString)) {
-              proceedKey = "P";
-            }
-          }
+          String well = row.getCell(4) != null ? row.getCell(4) : "";
+          String proceedKey = libraryPoolProceedKey(row);
+          boolean library = "A".equals(proceedKey) || "L".equals(proceedKey) || "U".equals(proceedKey);
+          boolean pool = "A".equals(proceedKey) || "P".equals(proceedKey);
+
+          rowsJSONArray.add(row.getCell(2));
+          rowsJSONArray.add(sampleAlias);
+          rowsJSONArray.add(well.replaceAll("\\s", ""));
 
           String libAlias = "";
-          Matcher mat = samplePattern.matcher(getCellValueAsString(sampleAliasCell));
+          Matcher mat = samplePattern.matcher(sampleAlias);
           if (mat.matches()) {
-            String platePos = getCellValueAsString(wellCell);
-            libAlias = mat.group(1) + "_" + "L" + mat.group(2) + "-" + platePos.toUpperCase() + "_" + mat.group(3);
+            libAlias = mat.group(1) + "_" + "L" + mat.group(2) + "-" + well.toUpperCase() + "_" + mat.group(3);
           }
           rowsJSONArray.add(libAlias);
 
-          if ("A".equals(proceedKey) || "L".equals(proceedKey) || "U".equals(proceedKey)) {
+          if (library) {
             String libDesc = s.getDescription();
-            if (getCellValueAsString(libraryDescriptionCell) != null && !"".equals(getCellValueAsString(libraryDescriptionCell))) {
-              libDesc = getCellValueAsString(libraryDescriptionCell);
+            String libraryDescription = row.getCell(12);
+            if (libraryDescription != null && !"".equals(libraryDescription)) {
+              libDesc = libraryDescription;
             }
             rowsJSONArray.add(libDesc);
           }
@@ -3666,33 +3533,16 @@ public class FormUtils {
             rowsJSONArray.add("");
           }
 
-          if (getCellValueAsString(libraryQubitCell) != null && ("A".equals(proceedKey) || "L".equals(proceedKey) || "U".equals(proceedKey))) {
-            rowsJSONArray.add(getCellValueAsString(libraryQubitCell));
-          }
-          else {
-            rowsJSONArray.add("");
-          }
-
-          if (getCellValueAsString(libraryQcInsertSizeCell) != null && ("A".equals(proceedKey) || "L".equals(proceedKey) || "U".equals(proceedKey))) {
-            rowsJSONArray.add(getCellValueAsString(libraryQcInsertSizeCell));
-          }
-          else {
-            rowsJSONArray.add("");
-          }
-
-          if (getCellValueAsString(libraryQcMolarityCell) != null && ("A".equals(proceedKey) || "L".equals(proceedKey) || "U".equals(proceedKey))) {
-            rowsJSONArray.add(getCellValueAsString(libraryQcMolarityCell));
-          }
-          else {
-            rowsJSONArray.add("");
-          }
+          rowsJSONArray.add(library && row.getCell(6) != null ? row.getCell(6) : "");
+          rowsJSONArray.add(library && row.getCell(7) != null ? row.getCell(7) : "");
+          rowsJSONArray.add(library && row.getCell(8) != null ? row.getCell(8) : "");
 
-
-          if (getCellValueAsString(qcPassedCell) != null && ("A".equals(proceedKey) || "L".equals(proceedKey) || "U".equals(proceedKey))) {
-            if ("Y".equals(getCellValueAsString(qcPassedCell)) || "y".equals(getCellValueAsString(qcPassedCell))) {
+          String qcPassed = row.getCell(11);
+          if (qcPassed != null && library) {
+            if ("Y".equals(qcPassed) || "y".equals(qcPassed)) {
               rowsJSONArray.add("true");
             }
-            else if ("N".equals(getCellValueAsString(qcPassedCell)) || "n".equals(getCellValueAsString(qcPassedCell))) {
+            else if ("N".equals(qcPassed) || "n".equals(qcPassed)) {
               rowsJSONArray.add("false");
             }
           }
@@ -3700,40 +3550,11 @@ public class FormUtils {
             rowsJSONArray.add("");
           }
 
-          if (getCellValueAsString(barcodeKitCell) != null && ("A".equals(proceedKey) || "L".equals(proceedKey) || "U".equals(proceedKey))) {
-            rowsJSONArray.add(getCellValueAsString(barcodeKitCell));
-          }
-          else {
-            rowsJSONArray.add("");
-          }
-
-          if (getCellValueAsString(barcodeTagsCell) != null && ("A".equals(proceedKey) || "L".equals(proceedKey) || "U".equals(proceedKey))) {
-            rowsJSONArray.add(getCellValueAsString(barcodeTagsCell));
-          }
-          else {
-            rowsJSONArray.add("");
-          }
-
-          if (getCellValueAsString(dilutionMolarityCell) != null && ("A".equals(proceedKey) || "P".equals(proceedKey))) {
-            rowsJSONArray.add(getCellValueAsString(dilutionMolarityCell));
-          }
-          else {
-            rowsJSONArray.add("");
-          }
-
-          if (getCellValueAsString(poolNameCell) != null && ("A".equals(proceedKey) || "P".equals(proceedKey))) {
-            rowsJSONArray.add(getCellValueAsString(poolNameCell));
-          }
-          else {
-            rowsJSONArray.add("");
-          }
-
-          if (getCellValueAsString(poolConvertedMolarityCell) != null && ("A".equals(proceedKey) || "P".equals(proceedKey))) {
-            rowsJSONArray.add(getCellValueAsString(poolConvertedMolarityCell));
-          }
-          else {
-            rowsJSONArray.add("");
-          }
+          rowsJSONArray.add(library && row.getCell(9) != null ? row.getCell(9) : "");
+          rowsJSONArray.add(library && row.getCell(10) != null ? row.getCell(10) : "");
+          rowsJSONArray.add(pool && row.getCell(16) != null ? row.getCell(16) : "");
+          rowsJSONArray.add(pool && row.getCell(21) != null ? row.getCell(21) : "");
+          rowsJSONArray.add(pool && row.getCell(20) != null ? row.getCell(20) : "");
 
           rowsJSONArray.add(proceedKey);
           if ("A".equals(proceedKey)) {
@@ -3751,6 +3572,7 @@ public class FormUtils {
         }
         sampleArray.add(rowsJSONArray);
       }
+      errors.throwIfAny();
       jsonObject.put("rows", sampleArray);
       return jsonObject;
     }
@@ -3761,119 +3583,34 @@ public class FormUtils {
 
   public static String processLibraryPoolSheetImport(File inPath, User u, RequestManager manager) throws Exception {
     if (inPath.getName().endsWith(".xlsx")) {
-      XSSFWorkbook wb = new XSSFWorkbook(new FileInputStream(inPath));
-      XSSFSheet sheet = wb.getSheetAt(0);
-
-      XSSFRow glrow = sheet.getRow(1);
-
-      //process global headers
-      XSSFCell pairedCell = glrow.getCell(0);
-      boolean paired = Boolean.parseBoolean(getCellValueAsString(pairedCell));
-      log.info("Got paired: " + paired);
-
-      XSSFCell platformCell = glrow.getCell(1);
-      PlatformType pt = null;
-      if (getCellValueAsString(platformCell) != null) {
-        pt = PlatformType.get(getCellValueAsString(platformCell));
-      }
-      if (pt == null) {
-        throw new InputFormException("Cannot resolve Platform type from: '" + getCellValueAsString(platformCell) + "'");
-      }
-      else {
-        log.info("Got platform type: " + pt.getKey());
-      }
-
-      XSSFCell typeCell = glrow.getCell(2);
-      LibraryType lt = null;
-      if (getCellValueAsString(typeCell) != null) {
-        String[] split = getCellValueAsString(typeCell).split("-");
-        String plat = split[0];
-        String type = split[1];
-        if (getCellValueAsString(platformCell).equals(plat)) {
-          lt = manager.getLibraryTypeByDescriptionAndPlatform(type, pt);
-        }
-        else {
-          throw new InputFormException("Selected library type '" + getCellValueAsString(typeCell) + "' doesn't match platform type: '" + getCellValueAsString(platformCell) + "'");
-        }
-      }
-      if (lt == null) {
-        throw new InputFormException("Cannot resolve Library type from: '" + getCellValueAsString(typeCell) + "'");
-      }
-      else {
-        log.info("Got library type: " + lt.getDescription());
-      }
-
-      XSSFCell selectionCell = glrow.getCell(3);
-      LibrarySelectionType ls = null;
-      if (getCellValueAsString(selectionCell) != null) {
-        ls = manager.getLibrarySelectionTypeByName(getCellValueAsString(selectionCell));
-      }
-      if (ls == null) {
-        throw new InputFormException("Cannot resolve Library Selection type from: '" + getCellValueAsString(selectionCell) + "'");
-      }
-      else {
-        log.info("Got library selection type: " + ls.getName());
-      }
-
-      XSSFCell strategyCell = glrow.getCell(4);
-      LibraryStrategyType lst = null;
-      if (getCellValueAsString(strategyCell) != null) {
-        lst = manager.getLibraryStrategyTypeByName(getCellValueAsString(strategyCell));
-      }
-      if (lst == null) {
-        throw new InputFormException("Cannot resolve Library Strategy type from: '" + getCellValueAsString(strategyCell) + "'");
-      }
-      else {
-        log.info("Got library strategy type: " + lst.getName());
-      }
-
-      Map<String, Pool> pools = new HashMap<String, Pool>();
-      int rows = sheet.getPhysicalNumberOfRows();
-      for (int ri = 6; ri < rows; ri++) {
-        XSSFRow row = sheet.getRow(ri);
-        XSSFCell sampleAliasCell = row.getCell(3);
-        Sample s = null;
-        if (getCellValueAsString(sampleAliasCell) != null) {
-          String salias = getCellValueAsString(sampleAliasCell);
-          Collection<Sample> ss = manager.listSamplesByAlias(salias);
-          if (!ss.isEmpty()) {
-            if (ss.size() == 1) {
-              s = ss.iterator().next();
-              log.info("Got sample: " + s.getAlias());
-            }
-            else {
-              throw new InputFormException("Multiple samples retrieved with this alias: '" + salias + "'. Cannot process.");
-            }
-          }
-          else {
-            throw new InputFormException("No such sample '" + salias + "'in database. Samples need to be created before using the form input functionality");
-          }
-        }
-        else {
-          log.info("Blank sample row found. Ending import.");
-          break;
+      //parse
+      List<XlsxSheetReader.SheetRow> rows = readImportRows(inPath, LIBRARY_POOL_SHEET_FIRST_ROW, LIBRARY_POOL_SHEET_ALIAS_COLUMN);
+      LibraryImportHeader header = LibraryImportHeader.read(headerRow(rows, 1), manager);
+
+      //resolve
+      ImportErrors errors = new ImportErrors();
+      Map<String, Sample> samples = resolveSamplesByAlias(rows, LIBRARY_POOL_SHEET_FIRST_ROW, LIBRARY_POOL_SHEET_ALIAS_COLUMN, manager, errors);
+      ImportLookups lookups = new ImportLookups(manager);
+
+      //validate - build every library, dilution and pool in memory before anything is written
+      List<ImportedLibrary> imported = new ArrayList<ImportedLibrary>();
+      Map<String, Pool> pools = new LinkedHashMap<String, Pool>();
+      for (XlsxSheetReader.SheetRow row : dataRows(rows, LIBRARY_POOL_SHEET_FIRST_ROW)) {
+        Sample s = samples.get(row.getCell(LIBRARY_POOL_SHEET_ALIAS_COLUMN));
+        if (s == null) {
+          continue;
         }
 
-        //sample OK - good to go
-        if (s != null) {
-
-          XSSFCell barcodeKitCell = row.getCell(9);
-          XSSFCell barcodeTagsCell = row.getCell(10);
-          XSSFCell libraryQubitCell = row.getCell(6);
-          XSSFCell libraryQcInsertSizeCell = row.getCell(7);
-          XSSFCell libraryQcMolarityCell = row.getCell(8);
-          XSSFCell qcPassedCell = row.getCell(11);
-          XSSFCell libraryDescriptionCell = row.getCell(12);
-          XSSFCell wellCell = row.getCell(4);
-          XSSFCell dilutionMolarityCell = row.getCell(16);
-          XSSFCell poolNumberCell = row.getCell(21);
-          XSSFCell poolConvertedMolarityCell = row.getCell(20);
-
-          String platePos = getCellValueAsString(wellCell);
-          LibraryDilution ldi = new LibraryDilution();
+        try {
+          String barcodeKit = row.getCell(9);
+          String barcodeTags = row.getCell(10);
+          String platePos = row.getCell(4);
+          String dilutionMolarity = row.getCell(16);
+          String poolNum = row.getCell(21);
+          String poolConvertedMolarity = row.getCell(20);
 
-          Date date = new Date();
-          if (getCellValueAsString(barcodeKitCell) != null && getCellValueAsString(barcodeTagsCell) != null) {
+          ImportedLibrary il = new ImportedLibrary(row);
+          if (barcodeKit != null && barcodeTags != null) {
             //create library
             Library library = new LibraryImpl();
             library.setSample(s);
@@ -3881,225 +3618,123 @@ public class FormUtils {
             Matcher mat = samplePattern.matcher(s.getAlias());
             if (mat.matches()) {
               String libAlias = mat.group(1) + "_" + "L" + mat.group(2) + "-" + platePos + "_" + mat.group(3);
-              //String libAlias = libraryNamingScheme.generateNameFor("alias", library);
-              //library.setAlias(libAlias);
+              String libraryDescription = row.getCell(12);
 
               library.setAlias(libAlias);
               library.setSecurityProfile(s.getSecurityProfile());
-              if (getCellValueAsString(libraryDescriptionCell) != null && "".equals(getCellValueAsString(libraryDescriptionCell))) {
-                library.setDescription(getCellValueAsString(libraryDescriptionCell));
+              if (libraryDescription != null && !"".equals(libraryDescription)) {
+                library.setDescription(libraryDescription);
               }
               else {
                 library.setDescription(s.getDescription());
               }
               library.setCreationDate(new Date());
-              library.setPlatformName(pt.name());
-              library.setLibraryType(lt);
-              library.setLibrarySelectionType(ls);
-              library.setLibraryStrategyType(lst);
-              library.setPaired(paired);
+              library.setPlatformName(header.platformType.name());
+              library.setLibraryType(header.libraryType);
+              library.setLibrarySelectionType(header.selectionType);
+              library.setLibraryStrategyType(header.strategyType);
+              library.setPaired(header.paired);
+
+              String qcPassed = row.getCell(11);
+              if (row.getCell(8) != null) {
+                il.libraryQcs.add(newLibraryQc(library, row.getCell(8), row.getCell(7), lookups.getLibraryQcType("Bioanalyzer"), qcPassed, u));
+              }
+              if (row.getCell(6) != null) {
+                il.libraryQcs.add(newLibraryQc(library, row.getCell(6), row.getCell(7), lookups.getLibraryQcType("Qubit"), qcPassed, u));
+              }
 
-              if (getCellValueAsString(libraryQcMolarityCell) != null) {
-                int insertSize = 0;
-                try {
-                  String bp = getCellValueAsString(libraryQcInsertSizeCell);
-                  Matcher m = digitPattern.matcher(bp);
-                  if (m.matches()) {
-                    insertSize = Integer.valueOf(m.group(1));
-                  }
-                  else {
-                    throw new InputFormException("Supplied Library insert size for library '" + libAlias + "' (" + s.getAlias() + ") is invalid");
-                  }
-                }
-                catch (NumberFormatException nfe) {
-                  throw new InputFormException("Supplied Library insert size for library '" + libAlias + "' (" + s.getAlias() + ") is invalid", nfe);
-                }
+              library.setTagBarcodes(resolveTagBarcodes(barcodeKit, barcodeTags, s, lookups));
 
+              if (dilutionMolarity != null) {
                 try {
-                  LibraryQC lqc = new LibraryQCImpl();
-                  lqc.setLibrary(library);
-                  lqc.setInsertSize(insertSize);
-                  lqc.setResults(Double.valueOf(getCellValueAsString(libraryQcMolarityCell)));
-                  lqc.setQcCreator(u.getLoginName());
-                  lqc.setQcDate(new Date());
-                  lqc.setQcType(manager.getLibraryQcTypeByName("Bioanalyzer"));
-                  if (!library.getLibraryQCs().contains(lqc)) {
-                    library.addQc(lqc);
-                    manager.saveLibraryQC(lqc);
-                    log.info("Added library QC: " + lqc.toString());
-                  }
-
-                  if (insertSize == 0 && lqc.getResults() == 0) {
-                    library.setQcPassed(false);
-                  }
-                  else {
-                    if (getCellValueAsString(qcPassedCell) != null) {
-                      if ("Y".equals(getCellValueAsString(qcPassedCell)) || "y".equals(getCellValueAsString(qcPassedCell))) {
-                        library.setQcPassed(true);
-                        log.info("Marked library QC Passed as True");
-                      }
-                      else if ("N".equals(getCellValueAsString(qcPassedCell)) || "n".equals(getCellValueAsString(qcPassedCell))) {
-                        library.setQcPassed(false);
-                        log.info("Marked library QC Passed as False");
-                      }
-                    }
-                  }
-                }
-                catch (NumberFormatException nfe) {
-                  throw new InputFormException("Supplied Library QC concentration for library '" + libAlias + "' (" + s.getAlias() + ") is invalid", nfe);
-                }
-              }
-
-
-              if (getCellValueAsString(libraryQubitCell) != null) {
-                int insertSize = 0;
-                try {
-                  String bp = getCellValueAsString(libraryQcInsertSizeCell);
-                  Matcher m = digitPattern.matcher(bp);
-                  if (m.matches()) {
-                    insertSize = Integer.valueOf(m.group(1));
-                  }
-                  else {
-                    throw new InputFormException("Supplied Library insert size for library '" + libAlias + "' (" + s.getAlias() + ") is invalid");
-                  }
-                }
-                catch (NumberFormatException nfe) {
-                  throw new InputFormException("Supplied Library insert size for library '" + libAlias + "' (" + s.getAlias() + ") is invalid", nfe);
-                }
-
-                try {
-                  LibraryQC lqc = new LibraryQCImpl();
-                  lqc.setLibrary(library);
-                  lqc.setInsertSize(insertSize);
-                  lqc.setResults(Double.valueOf(getCellValueAsString(libraryQubitCell)));
-                  lqc.setQcCreator(u.getLoginName());
-                  lqc.setQcDate(new Date());
-                  lqc.setQcType(manager.getLibraryQcTypeByName("Qubit"));
-                  if (!library.getLibraryQCs().contains(lqc)) {
-                    library.addQc(lqc);
-                    manager.saveLibraryQC(lqc);
-                    log.info("Added library QC: " + lqc.toString());
-                  }
-
-                  if (insertSize == 0 && lqc.getResults() == 0) {
-                    library.setQcPassed(false);
-                  }
-                  else {
-                    if (getCellValueAsString(qcPassedCell) != null) {
-                      if ("Y".equals(getCellValueAsString(qcPassedCell)) || "y".equals(getCellValueAsString(qcPassedCell))) {
-                        library.setQcPassed(true);
-                        log.info("Marked library QC Passed as True");
-                      }
-                      else if ("N".equals(getCellValueAsString(qcPassedCell)) || "n".equals(getCellValueAsString(qcPassedCell))) {
-                        library.setQcPassed(false);
-                        log.info("Marked library QC Passed as False");
-                      }
-                    }
-                  }
-                }
-                catch (NumberFormatException nfe) {
-                  throw new InputFormException("Supplied Library QC concentration for library '" + libAlias + "' (" + s.getAlias() + ") is invalid", nfe);
-                }
-              }
-
-              if (getCellValueAsString(barcodeKitCell) != null) {
-                Collection<TagBarcode> bcs = manager.listAllTagBarcodesByStrategyName(getCellValueAsString(barcodeKitCell));
-                if (!bcs.isEmpty()) {
-                  String tags = getCellValueAsString(barcodeTagsCell);
-                  if (!"".equals(tags)) {
-                    HashMap<Integer, TagBarcode> tbs = new HashMap<Integer, TagBarcode>();
-                    if (tags.contains("-")) {
-                      String[] splits = tags.split("-");
-                      int count = 1;
-                      for (String tag : splits) {
-                        for (TagBarcode tb : bcs) {
-                          if (tb.getName().equals(tag)) {
-                            //set tag barcodes
-                            tbs.put(count, tb);
-                            count++;
-                          }
-                        }
-                      }
-                    }
-                    else {
-                      for (TagBarcode tb : bcs) {
-                        if (tb.getName().equals(tags) || tb.getSequence().equals(tags)) {
-                          //set tag barcode
-                          tbs.put(1, tb);
-                          log.info("Got tag barcode: " + tb.getName());
-                          break;
-                        }
-                      }
-                    }
-
-                    library.setTagBarcodes(tbs);
-                  }
-                  else {
-                    throw new InputFormException("Barcode Kit specified but no tag barcodes entered for: '" + s.getAlias() + "'.");
-                  }
-                }
-                else {
-                  throw new InputFormException("No tag barcodes associated with the kit definition '" + getCellValueAsString(barcodeKitCell) + "' for sample: '" + s.getAlias() + "'.");
-                }
-              }
-
-              if (getCellValueAsString(dilutionMolarityCell) != null) {
-                try {
+                  LibraryDilution ldi = new LibraryDilution();
                   ldi.setLibrary(library);
                   ldi.setSecurityProfile(library.getSecurityProfile());
-                  ldi.setConcentration(Double.valueOf(getCellValueAsString(dilutionMolarityCell)));
+                  ldi.setConcentration(Double.valueOf(dilutionMolarity));
                   ldi.setCreationDate(new Date());
                   ldi.setDilutionCreator(u.getLoginName());
                   if (!library.getLibraryDilutions().contains(ldi)) {
                     library.addDilution(ldi);
-                    log.info("Added library dilution: " + ldi.toString());
                   }
-                  manager.saveLibraryDilution(ldi);
+                  il.dilution = ldi;
                 }
                 catch (NumberFormatException nfe) {
                   throw new InputFormException("Supplied LibraryDilution concentration for library '" + libAlias + "' (" + s.getAlias() + ") is invalid", nfe);
                 }
               }
-
-              log.info("Added library: " + library.toString());
-              manager.saveLibrary(library);
+              il.library = library;
             }
             else {
               log.error("Cannot generate library alias from specified parent sample alias. Does it match the required schema?");
             }
           }
 
-          if (getCellValueAsString(poolNumberCell) != null) {
-            String poolNum = getCellValueAsString(poolNumberCell);
-            Pool pool = new PoolImpl();
-            if (!pools.containsKey(poolNum)) {
+          if (poolNum != null) {
+            Pool pool = pools.get(poolNum);
+            if (pool == null) {
+              pool = new PoolImpl();
               pool.setAlias("pool" + poolNum);
-              pool.setPlatformType(pt);
+              pool.setPlatformType(header.platformType);
               pool.setReadyToRun(true);
               pool.setCreationDate(new Date());
-              if (getCellValueAsString(poolConvertedMolarityCell) != null) {
-                pool.setConcentration(poolConvertedMolarityCell.getNumericCellValue());
+              try {
+                pool.setConcentration(poolConvertedMolarity != null ? Double.valueOf(poolConvertedMolarity) : 0.0);
               }
-              else {
-                pool.setConcentration(0.0);
+              catch (NumberFormatException nfe) {
+                throw new InputFormException("Supplied pool concentration for pool '" + poolNum + "' is invalid", nfe);
               }
               pools.put(poolNum, pool);
-              log.info("Added pool: " + poolNum);
-              if (ldi != null) {
-                pool.addPoolableElement(ldi);
-              }
-              manager.savePool(pool);
             }
-            else {
-              pool = pools.get(poolNum);
-              if (ldi != null) {
-                pool.addPoolableElement(ldi);
-                manager.savePool(pool);
-              }
+            il.pool = pool;
+          }
+          imported.add(il);
+        }
+        catch (InputFormException e) {
+          errors.add(row, e.getMessage());
+        }
+      }
+      errors.throwIfAny();
+
+      //write - libraries with their QCs and dilutions, then each pool once with all of its dilutions
+      Set<Pool> failedPools = new HashSet<Pool>();
+      for (ImportedLibrary il : imported) {
+        try {
+          if (il.library != null) {
+            manager.saveLibrary(il.library);
+            saveLibraryQcs(il, manager);
+            if (il.dilution != null) {
+              manager.saveLibraryDilution(il.dilution);
             }
+            log.info("Added library: " + il.library.toString());
+          }
+          if (il.pool != null && il.dilution != null) {
+            il.pool.addPoolableElement(il.dilution);
+          }
+        }
+        catch (Exception e) {
+          log.error("Cannot import library pool sheet row " + (il.row.getRowIndex() + 1), e);
+          errors.add(il.row, "Cannot save library for sample '" + il.row.getCell(LIBRARY_POOL_SHEET_ALIAS_COLUMN) + "': " + e.getMessage());
+          if (il.pool != null) {
+            failedPools.add(il.pool);
           }
         }
       }
+
+      for (Map.Entry<String, Pool> entry : pools.entrySet()) {
+        if (failedPools.contains(entry.getValue())) {
+          log.warn("Not saving pool " + entry.getKey() + " as some of its libraries could not be saved");
+          continue;
+        }
+        try {
+          manager.savePool(entry.getValue());
+          log.info("Added pool: " + entry.getKey());
+        }
+        catch (Exception e) {
+          log.error("Cannot save pool " + entry.getKey(), e);
+          errors.add("Cannot save pool '" + entry.getKey() + "': " + e.getMessage());
+        }
+      }
+      errors.throwIfAny();
       return "ok";
     }
     else {
@@ -4108,98 +3743,38 @@ public class FormUtils {
   }
 
   //private static Map<String, Pool<Plate<LinkedList<Library>, Library>>> process384PlateInputXLSX(XSSFWorkbook wb, User u, RequestManager manager, MisoNamingScheme<Library> libraryNamingScheme) throws Exception {
-  private static Map<String, PlatePool> process384PlateInputXLSX(XSSFWorkbook wb, User u, RequestManager manager, MisoNamingScheme<Library> libraryNamingScheme) throws Exception {
+  private static Map<String, PlatePool> process384PlateInputXLSX(File inPath, User u, RequestManager manager, MisoNamingScheme<Library> libraryNamingScheme) throws Exception {
     ((RequestManagerAwareNamingScheme) libraryNamingScheme).setRequestManager(manager);
 
-    List<Sample> samples = new ArrayList<Sample>();
-    XSSFSheet sheet = wb.getSheetAt(0);
-    int rows = sheet.getPhysicalNumberOfRows();
-
-    XSSFRow glrow = sheet.getRow(1);
+    //parse
+    List<XlsxSheetReader.SheetRow> rows = readImportRows(inPath, PLATE_SHEET_FIRST_ROW, PLATE_SHEET_ALIAS_COLUMN);
+    XlsxSheetReader.SheetRow glrow = headerRow(rows, 1);
 
     //process global headers
-    XSSFCell pairedCell = glrow.getCell(0);
-    boolean paired = Boolean.parseBoolean(pairedCell.getStringCellValue());
-    log.info("Got paired: " + paired);
-
-    XSSFCell platformCell = glrow.getCell(1);
-    PlatformType pt = null;
-    if (getCellValueAsString(platformCell) != null) {
-      pt = PlatformType.get(getCellValueAsString(platformCell));
-    }
-    if (pt == null) {
-      throw new InputFormException("Cannot resolve Platform type from: '" + getCellValueAsString(platformCell) + "'");
-    }
-    else {
-      log.info("Got platform type: " + pt.getKey());
-    }
-
-    XSSFCell typeCell = glrow.getCell(2);
-    LibraryType lt = null;
-    if (getCellValueAsString(typeCell) != null) {
-      String[] split = getCellValueAsString(typeCell).split("-");
-      String plat = split[0];
-      String type = split[1];
-      if (getCellValueAsString(platformCell).equals(plat)) {
-        lt = manager.getLibraryTypeByDescriptionAndPlatform(type, pt);
-      }
-      else {
-        throw new InputFormException("Selected library type '" + getCellValueAsString(typeCell) + "' doesn't match platform type: '" + getCellValueAsString(platformCell) + "'");
-      }
-    }
-    if (lt == null) {
-      throw new InputFormException("Cannot resolve Library type from: '" + getCellValueAsString(typeCell) + "'");
-    }
-    else {
-      log.info("Got library type: " + lt.getDescription());
-    }
+    LibraryImportHeader header = LibraryImportHeader.read(glrow, manager);
 
-    XSSFCell selectionCell = glrow.getCell(3);
-    LibrarySelectionType ls = null;
-    if (getCellValueAsString(selectionCell) != null) {
-      ls = manager.getLibrarySelectionTypeByName(getCellValueAsString(selectionCell));
-    }
-    if (ls == null) {
-      throw new InputFormException("Cannot resolve Library Selection type from: '" + getCellValueAsString(selectionCell) + "'");
-    }
-    else {
-      log.info("Got library selection type: " + ls.getName());
-    }
-
-    XSSFCell strategyCell = glrow.getCell(4);
-    LibraryStrategyType lst = null;
-    if (getCellValueAsString(strategyCell) != null) {
-      lst = manager.getLibraryStrategyTypeByName(getCellValueAsString(strategyCell));
-    }
-    if (lst == null) {
-      throw new InputFormException("Cannot resolve Library Strategy type from: '" + getCellValueAsString(strategyCell) + "'");
-    }
-    else {
-      log.info("Got library strategy type: " + lst.getName());
-    }
-
-    XSSFCell plateBarcodeCell = glrow.getCell(5);
-    String plateBarcode = null;
-    if (getCellValueAsString(plateBarcodeCell) != null) {
-      plateBarcode = getCellValueAsString(plateBarcodeCell);
-    }
+    String plateBarcode = glrow.getCell(5);
     if (plateBarcode == null) {
-      throw new InputFormException("Cannot resolve plate barcode from: '" + getCellValueAsString(plateBarcodeCell) + "'");
+      throw new InputFormException("Cannot resolve plate barcode from: '" + plateBarcode + "'");
     }
     else {
       log.info("Got plate barcode: " + plateBarcode);
     }
 
-    //process entries
+    //resolve
+    ImportErrors errors = new ImportErrors();
+    Map<String, Sample> samples = resolveSamplesByAlias(rows, PLATE_SHEET_FIRST_ROW, PLATE_SHEET_ALIAS_COLUMN, manager, errors);
+    ImportLookups lookups = new ImportLookups(manager);
+
+    //validate - build the plate, its libraries and pools in memory before anything is written
     Simple384WellPlate libraryPlate = null;
     //Map<String, Pool<Plate<LinkedList<Library>, Library>>> pools = new HashMap<String, Pool<Plate<LinkedList<Library>, Library>>>();
-    Map<String, PlatePool> pools = new HashMap<String, PlatePool>();
-    for (int ri = 4; ri < rows; ri++) {
-      XSSFRow row = sheet.getRow(ri);
-
+    Map<String, PlatePool> pools = new LinkedHashMap<String, PlatePool>();
+    Set<String> platedPools = new LinkedHashSet<String>();
+    List<ImportedLibrary> imported = new ArrayList<ImportedLibrary>();
+    for (XlsxSheetReader.SheetRow row : dataRows(rows, PLATE_SHEET_FIRST_ROW)) {
       // Ax - plate position
-      XSSFCell platePosCell = row.getCell(0);
-      String platePos = getCellValueAsString(platePosCell);
+      String platePos = row.getCell(0);
       if (platePos != null && libraryPlate == null) {
         //plated libraries - process as plate
         libraryPlate = new Simple384WellPlate();
@@ -4207,245 +3782,88 @@ public class FormUtils {
         libraryPlate.setCreationDate(new Date());
       }
 
-      //cell defs
-      XSSFCell sampleAliasCell = row.getCell(2);
-
-      Sample s = null;
-      if (getCellValueAsString(sampleAliasCell) != null) {
-        String salias = getCellValueAsString(sampleAliasCell);
-        Collection<Sample> ss = manager.listSamplesByAlias(salias);
-        if (!ss.isEmpty()) {
-          if (ss.size() == 1) {
-            s = ss.iterator().next();
-            log.info("Got sample: " + s.getAlias());
-          }
-          else {
-            throw new InputFormException("Multiple samples retrieved with this alias: '" + salias + "'. Cannot process.");
-          }
-        }
-        else {
-          throw new InputFormException("No such sample '" + salias + "'in database. Samples need to be created before using the form input functionality");
-        }
-      }
-      else {
-        log.info("Blank sample row found. Ending import.");
-        break;
+      String sampleAlias = row.getCell(PLATE_SHEET_ALIAS_COLUMN);
+      Sample s = samples.get(sampleAlias);
+      if (s == null) {
+        continue;
       }
 
-      //sample OK - good to go
-      if (s != null) {
-        XSSFCell entityIDCell = row.getCell(2);
-        XSSFCell poolNumberCell = row.getCell(3);
-        XSSFCell sampleQcCell = row.getCell(4);
-        //XSSFCell sampleAmountCell = row.getCell(5);
-        //XSSFCell sampleWaterAmountCell = row.getCell(6);
-        XSSFCell libraryDescriptionCell = row.getCell(7);
-        XSSFCell barcodeKitCell = row.getCell(8);
-        XSSFCell barcodeTagsCell = row.getCell(9);
-        XSSFCell libraryQcCell = row.getCell(10);
-        XSSFCell libraryQcInsertSizeCell = row.getCell(11);
-        XSSFCell libraryQcMolarityCell = row.getCell(12);
-        XSSFCell libraryQcPassFailCell = row.getCell(13);
-        //XSSFCell libraryAmountCell = row.getCell(14);
-        //XSSFCell libraryWaterAmountCell = row.getCell(15);
-        //XSSFCell dilutionQcCell = row.getCell(16);
-        XSSFCell dilutionMolarityCell = row.getCell(17);
-        //XSSFCell dilutionAmountCell = row.getCell(18);
-        //XSSFCell dilutionWaterAmountCell = row.getCell(19);
-        XSSFCell poolQcCell = row.getCell(20);
-        //XSSFCell poolAverageInsertSizeCell = row.getCell(21);
-        XSSFCell poolConvertedMolarityCell = row.getCell(22);
+      try {
+        String entityID = row.getCell(2);
+        String poolNum = row.getCell(3);
+        String sampleQc = row.getCell(4);
+        String barcodeKit = row.getCell(8);
+        String barcodeTags = row.getCell(9);
+        String poolConvertedMolarity = row.getCell(22);
+
+        ImportedLibrary il = new ImportedLibrary(row);
+        il.sample = s;
 
         //add pool, if any
-        if (getCellValueAsString(poolNumberCell) != null) {
-          String poolNum = getCellValueAsString(poolNumberCell);
-          if (!pools.containsKey(poolNum)) {
-            PlatePool pool = new PlatePool();
-            pool.setAlias(poolNum);
-            pool.setPlatformType(pt);
-            pool.setReadyToRun(true);
-            pool.setCreationDate(new Date());
-            if (getCellValueAsString(poolConvertedMolarityCell) != null) {
-              pool.setConcentration(poolConvertedMolarityCell.getNumericCellValue());
-            }
-            else {
-              pool.setConcentration(0.0);
-            }
-            pools.put(poolNum, pool);
-            log.info("Added pool: " + poolNum);
-            manager.savePool(pool);
+        if (poolNum != null && !pools.containsKey(poolNum)) {
+          PlatePool pool = new PlatePool();
+          pool.setAlias(poolNum);
+          pool.setPlatformType(header.platformType);
+          pool.setReadyToRun(true);
+          pool.setCreationDate(new Date());
+          try {
+            pool.setConcentration(poolConvertedMolarity != null ? Double.valueOf(poolConvertedMolarity) : 0.0);
+          }
+          catch (NumberFormatException nfe) {
+            throw new InputFormException("Supplied pool concentration for pool '" + poolNum + "' is invalid", nfe);
           }
+          pools.put(poolNum, pool);
         }
 
         //process sample QC
-        if (getCellValueAsString(sampleQcCell) != null) {
+        if (sampleQc != null) {
           try {
             SampleQC sqc = new SampleQCImpl();
             sqc.setSample(s);
-            sqc.setResults(Double.valueOf(getCellValueAsString(sampleQcCell)));
+            sqc.setResults(Double.valueOf(sampleQc));
             sqc.setQcCreator(u.getLoginName());
             sqc.setQcDate(new Date());
-            if (manager.getSampleQcTypeByName("Picogreen") != null) {
-              sqc.setQcType(manager.getSampleQcTypeByName("Picogreen"));
-            }
-            else {
-              sqc.setQcType(manager.getSampleQcTypeByName("QuBit"));
-            }
+            sqc.setQcType(lookups.getSampleQcType());
             if (!s.getSampleQCs().contains(sqc)) {
-              s.addQc(sqc);
-              manager.saveSampleQC(sqc);
-              manager.saveSample(s);
-              log.info("Added sample QC: " + sqc.toString());
+              il.sampleQc = sqc;
             }
           }
           catch (NumberFormatException nfe) {
-            throw new InputFormException("Supplied Sample QC concentration for sample '" + getCellValueAsString(sampleAliasCell) + "' is invalid", nfe);
+            throw new InputFormException("Supplied Sample QC concentration for sample '" + sampleAlias + "' is invalid", nfe);
           }
         }
 
-        //if (getCellValueAsString(libraryQcCell) != null) {
-
-        if (getCellValueAsString(barcodeKitCell) != null && getCellValueAsString(barcodeTagsCell) != null) {
+        if (barcodeKit != null && barcodeTags != null) {
           //create library
           Library library = new LibraryImpl();
           library.setSample(s);
 
           Matcher mat = samplePattern.matcher(s.getAlias());
           if (mat.matches()) {
-            String libAlias = plateBarcode + "_" + "L" + mat.group(2) + "-" + platePos + "_" + getCellValueAsString(entityIDCell);
-            //String libAlias = libraryNamingScheme.generateNameFor("alias", library);
-            //library.setAlias(libAlias);
+            String libAlias = plateBarcode + "_" + "L" + mat.group(2) + "-" + platePos + "_" + entityID;
 
             library.setAlias(libAlias);
             library.setSecurityProfile(s.getSecurityProfile());
             library.setDescription(s.getDescription());
             library.setCreationDate(new Date());
-            library.setPlatformName(pt.name());
-            library.setLibraryType(lt);
-            library.setLibrarySelectionType(ls);
-            library.setLibraryStrategyType(lst);
-            library.setPaired(paired);
-
-            if (getCellValueAsString(libraryQcMolarityCell) != null) {
-              int insertSize = 0;
-              try {
-                String bp = getCellValueAsString(libraryQcInsertSizeCell);
-                Matcher m = digitPattern.matcher(bp);
-                if (m.matches()) {
-                  insertSize = Integer.valueOf(m.group(1));
-                }
-                else {
-                  throw new InputFormException("Supplied Library insert size for library '" + libAlias + "' (" + s.getAlias() + ") is invalid");
-                }
-              }
-              catch (NumberFormatException nfe) {
-                throw new InputFormException("Supplied Library insert size for library '" + libAlias + "' (" + s.getAlias() + ") is invalid", nfe);
-              }
-
-              try {
-                LibraryQC lqc = new LibraryQCImpl();
-                lqc.setLibrary(library);
-                lqc.setInsertSize(insertSize);
-                lqc.setResults(Double.valueOf(getCellValueAsString(libraryQcMolarityCell)));
-                lqc.setQcCreator(u.getLoginName());
-                lqc.setQcDate(new Date());
-                lqc.setQcType(manager.getLibraryQcTypeByName("Bioanalyzer"));
-                if (!library.getLibraryQCs().contains(lqc)) {
-                  library.addQc(lqc);
-                  manager.saveLibraryQC(lqc);
-                  log.info("Added library QC: " + lqc.toString());
-                }
-
-                if (insertSize == 0 && lqc.getResults() == 0) {
-                  library.setQcPassed(false);
-                }
-                else {
-                  //TODO check libraryQcPassFailCell?
-                  library.setQcPassed(true);
-                }
-              }
-              catch (NumberFormatException nfe) {
-                throw new InputFormException("Supplied Library QC concentration for library '" + libAlias + "' (" + s.getAlias() + ") is invalid", nfe);
-              }
+            library.setPlatformName(header.platformType.name());
+            library.setLibraryType(header.libraryType);
+            library.setLibrarySelectionType(header.selectionType);
+            library.setLibraryStrategyType(header.strategyType);
+            library.setPaired(header.paired);
+
+            if (row.getCell(12) != null) {
+              //TODO check libraryQcPassFailCell?
+              il.libraryQcs.add(newLibraryQc(library, row.getCell(12), row.getCell(11), lookups.getLibraryQcType("Bioanalyzer"), "Y", u));
             }
 
-            if (getCellValueAsString(barcodeKitCell) != null) {
-              Collection<TagBarcode> bcs = manager.listAllTagBarcodesByStrategyName(getCellValueAsString(barcodeKitCell));
-              if (!bcs.isEmpty()) {
-                String tags = getCellValueAsString(barcodeTagsCell);
-                if (!"".equals(tags)) {
-                  HashMap<Integer, TagBarcode> tbs = new HashMap<Integer, TagBarcode>();
-                  if (tags.contains("-")) {
-                    String[] splits = tags.split("-");
-                    int count = 1;
-                    for (String tag : splits) {
-                      for (TagBarcode tb : bcs) {
-                        if (tb.getName().equals(tag)) {
-                          //set tag barcodes
-                          tbs.put(count, tb);
-                          count++;
-                        }
-                      }
-                    }
-                  }
-                  else {
-                    for (TagBarcode tb : bcs) {
-                      if (tb.getName().equals(tags) || tb.getSequence().equals(tags)) {
-                        //set tag barcode
-                        tbs.put(1, tb);
-                        log.info("Got tag barcode: " + tb.getName());
-                        break;
-                      }
-                    }
-                  }
+            library.setTagBarcodes(resolveTagBarcodes(barcodeKit, barcodeTags, s, lookups));
 
-                  library.setTagBarcodes(tbs);
-                }
-                else {
-                  throw new InputFormException("Barcode Kit specified but no tag barcodes entered for: '" + s.getAlias() + "'.");
-                }
-              }
-              else {
-                throw new InputFormException("No tag barcodes associated with the kit definition '" + getCellValueAsString(barcodeKitCell) + "' for sample: '" + s.getAlias() + "'.");
-              }
-            }
-
-            /*
-            if (getCellValueAsString(dilutionMolarityCell) != null) {
-              try {
-                LibraryDilution ldi = new LibraryDilution();
-                ldi.setLibrary(library);
-                ldi.setSecurityProfile(library.getSecurityProfile());
-                ldi.setConcentration(Double.valueOf(getCellValueAsString(dilutionMolarityCell)));
-                ldi.setCreationDate(new Date());
-                ldi.setDilutionCreator(u.getLoginName());
-                if (!library.getLibraryDilutions().contains(ldi)) {
-                  library.addDilution(ldi);
-                  log.info("Added library dilution: " + ldi.toString());
-                }
-
-                if (getCellValueAsString(poolNumberCell) != null) {
-                  String poolNum = String.valueOf(new Double(getCellValueAsString(poolNumberCell)).intValue());
-                  Pool<Plate<LinkedList<Library>, Library>> p = pools.get(poolNum);
-                  if (p != null) {
-                    p.addPoolableElement(ldi);
-                    log.info("Added library dilution to pool: " + p.toString());
-                  }
-                }
-              }
-              catch (NumberFormatException nfe) {
-                throw new InputFormException("Supplied LibraryDilution concentration for library '"+libAlias+"' ("+s.getAlias()+") is invalid", nfe);
-              }
-            }
-            */
-
-            if (getCellValueAsString(poolConvertedMolarityCell) != null) {
-              String poolNum = getCellValueAsString(poolNumberCell);
+            if (poolConvertedMolarity != null) {
               Pool<Plate<LinkedList<Library>, Library>> p = pools.get(poolNum);
               if (p != null) {
-                log.debug("Retrieved pool " + poolNum);
                 try {
-                  p.setConcentration(Double.valueOf(getCellValueAsString(poolConvertedMolarityCell)));
+                  p.setConcentration(Double.valueOf(poolConvertedMolarity));
                 }
                 catch (NumberFormatException nfe) {
                   throw new InputFormException("Supplied pool concentration for pool '" + poolNum + "' is invalid", nfe);
@@ -4453,38 +3871,436 @@ public class FormUtils {
               }
             }
 
-            log.info("Added library: " + library.toString());
-            manager.saveLibrary(library);
-
-            if (getCellValueAsString(platePosCell) != null && libraryPlate != null) {
-              //libraryPlate.setElement(getCellValueAsString(platePosCell), library);
+            if (platePos != null && libraryPlate != null) {
               libraryPlate.addElement(library);
-              log.info("Added library " + library.getAlias() + " to " + getCellValueAsString(platePosCell));
+              log.info("Added library " + library.getAlias() + " to " + platePos);
             }
 
-            samples.add(s);
-
-            Pool<Plate<LinkedList<Library>, Library>> p = pools.get(getCellValueAsString(poolNumberCell));
-            if (p != null && !p.getPoolableElements().contains(libraryPlate)) {
-              p.addPoolableElement(libraryPlate);
-              log.info("Added plate to pool: " + p.toString());
+            //the plate is only attached to its pools once they have been saved
+            if (libraryPlate != null && pools.containsKey(poolNum)) {
+              platedPools.add(poolNum);
             }
+            il.library = library;
           }
           else {
             log.error("Cannot generate library alias from specified parent sample alias. Does it match the required schema?");
           }
         }
+        imported.add(il);
+      }
+      catch (InputFormException e) {
+        errors.add(row, e.getMessage());
+      }
+    }
+    errors.throwIfAny();
+
+    //write - the plate is not persisted by the import, so pools are saved before it is attached to them, otherwise each
+    //pool would be saved with an element for the unsaved plate
+    for (Map.Entry<String, PlatePool> entry : pools.entrySet()) {
+      manager.savePool(entry.getValue());
+      log.info("Added pool: " + entry.getKey());
+    }
+    for (String poolNum : platedPools) {
+      PlatePool p = pools.get(poolNum);
+      p.addPoolableElement(libraryPlate);
+      log.info("Added plate to pool: " + p.toString());
+    }
+
+    for (ImportedLibrary il : imported) {
+      try {
+        if (il.sampleQc != null && !il.sample.getSampleQCs().contains(il.sampleQc)) {
+          il.sample.addQc(il.sampleQc);
+          manager.saveSampleQC(il.sampleQc);
+          manager.saveSample(il.sample);
+          log.info("Added sample QC: " + il.sampleQc.toString());
+        }
+        if (il.library != null) {
+          manager.saveLibrary(il.library);
+          saveLibraryQcs(il, manager);
+          log.info("Added library: " + il.library.toString());
+        }
+      }
+      catch (Exception e) {
+        log.error("Cannot import plate sheet row " + (il.row.getRowIndex() + 1), e);
+        errors.add(il.row, "Cannot save library for sample '" + il.sample.getAlias() + "': " + e.getMessage());
       }
     }
+    errors.throwIfAny();
     log.info("Done");
     return pools;
   }
 
+  private static final int SAMPLE_SHEET_FIRST_ROW = 5;
+  private static final int SAMPLE_SHEET_ALIAS_COLUMN = 3;
+  private static final int LIBRARY_POOL_SHEET_FIRST_ROW = 6;
+  private static final int LIBRARY_POOL_SHEET_ALIAS_COLUMN = 3;
+  private static final int PLATE_SHEET_FIRST_ROW = 4;
+  private static final int PLATE_SHEET_ALIAS_COLUMN = 2;
+
+  /**
+   * Streams the header rows and the data rows of an import sheet. Reading stops at the first data row with a blank
+   * sample alias, so nothing past the end of the entries is ever parsed.
+   */
+  private static List<XlsxSheetReader.SheetRow> readImportRows(File inPath, final int firstDataRow, final int aliasColumn) throws IOException {
+    final List<XlsxSheetReader.SheetRow> rows = new ArrayList<XlsxSheetReader.SheetRow>();
+    XlsxSheetReader.read(inPath, new XlsxSheetReader.RowHandler() {
+      @Override
+      public boolean handleRow(XlsxSheetReader.SheetRow row) {
+        if (row.getRowIndex() >= firstDataRow && row.getCell(aliasColumn) == null) {
+          log.info("Blank sample row found. Ending import.");
+          return false;
+        }
+        rows.add(row);
+        return true;
+      }
+    });
+    return rows;
+  }
+
+  private static XlsxSheetReader.SheetRow headerRow(List<XlsxSheetReader.SheetRow> rows, int index) throws InputFormException {
+    if (rows.size() <= index) {
+      throw new InputFormException("Spreadsheet has no global header row");
+    }
+    return rows.get(index);
+  }
+
+  private static List<XlsxSheetReader.SheetRow> dataRows(List<XlsxSheetReader.SheetRow> rows, int firstDataRow) {
+    return rows.size() > firstDataRow ? rows.subList(firstDataRow, rows.size()) : Collections.<XlsxSheetReader.SheetRow>emptyList();
+  }
+
+  /**
+   * Looks up the samples named by every data row in one query, reporting rows whose alias matches no sample or more
+   * than one. Aliases are matched case-insensitively, as the database does.
+   */
+  private static Map<String, Sample> resolveSamplesByAlias(List<XlsxSheetReader.SheetRow> rows, int firstDataRow, int aliasColumn, RequestManager manager, ImportErrors errors) throws IOException {
+    Set<String> aliases = new LinkedHashSet<String>();
+    for (XlsxSheetReader.SheetRow row : dataRows(rows, firstDataRow)) {
+      aliases.add(row.getCell(aliasColumn));
+    }
+
+    Map<String, List<Sample>> byAlias = new HashMap<String, List<Sample>>();
+    if (!aliases.isEmpty()) {
+      for (Sample s : manager.listSamplesByAliases(aliases)) {
+        String key = s.getAlias().toLowerCase();
+        if (!byAlias.containsKey(key)) {
+          byAlias.put(key, new ArrayList<Sample>());
+        }
+        byAlias.get(key).add(s);
+      }
+    }
+
+    Map<String, Sample> samples = new HashMap<String, Sample>();
+    for (XlsxSheetReader.SheetRow row : dataRows(rows, firstDataRow)) {
+      String salias = row.getCell(aliasColumn);
+      List<Sample> ss = byAlias.get(salias.toLowerCase());
+      if (ss == null || ss.isEmpty()) {
+        errors.add(row, "No such sample '" + salias + "' in database. Samples need to be created before using the form input functionality");
+      }
+      else if (ss.size() > 1) {
+        errors.add(row, "Multiple samples retrieved with this alias: '" + salias + "'. Cannot process.");
+      }
+      else {
+        samples.put(salias, ss.get(0));
+      }
+    }
+    return samples;
+  }
+
+  private static String sampleSheetQcResult(XlsxSheetReader.SheetRow row) {
+    if (!"NA".equals(row.getCell(6))) {
+      return row.getCell(6);
+    }
+    else if (!"NA".equals(row.getCell(7))) {
+      return row.getCell(7);
+    }
+    return null;
+  }
+
+  private static String libraryPoolProceedKey(XlsxSheetReader.SheetRow row) {
+    String proceedKey = "A";
+    if (row.getCell(22) != null) {
+      String proceedKeyString = row.getCell(22).toUpperCase().replaceAll("\\s", "");
+      if ("L".equals(proceedKeyString) || "U".equals(proceedKeyString) || "P".equals(proceedKeyString)) {
+        proceedKey = proceedKeyString;
+      }
+    }
+    return proceedKey;
+  }
+
+  private static boolean addSampleNote(Sample s, String text, Date date, User u, RequestManager manager) throws IOException {
+    Note note = new Note();
+    note.setCreationDate(date);
+    note.setOwner(u);
+    note.setText(text);
+    if (!s.getNotes().contains(note)) {
+      s.addNote(note);
+      manager.saveSampleNote(s, note);
+      log.info("Added sample Note: " + note.toString());
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Saves the QCs built for an imported library, which must itself have been saved already, and only then adds them to
+   * the library once each has its own id
+   */
+  private static void saveLibraryQcs(ImportedLibrary il, RequestManager manager) throws IOException, MalformedLibraryQcException {
+    for (LibraryQC lqc : il.libraryQcs) {
+      manager.saveLibraryQC(lqc);
+      il.library.addQc(lqc);
+      log.info("Added library QC: " + lqc.toString());
+    }
+  }
+
+  /**
+   * Builds an unsaved QC for the given library and applies its pass/fail state to the library. The QC is not added to
+   * the library here: unsaved QCs all share the same id, so the library's QC set would only ever keep one of them.
+   */
+  private static LibraryQC newLibraryQc(Library library, String molarity, String insertSizeValue, QcType qcType, String qcPassed, User u) throws InputFormException {
+    int insertSize = 0;
+    try {
+      Matcher m = digitPattern.matcher(insertSizeValue != null ? insertSizeValue : "");
+      if (m.matches()) {
+        insertSize = Integer.valueOf(m.group(1));
+      }
+      else {
+        throw new InputFormException("Supplied Library insert size for library '" + library.getAlias() + "' (" + library.getSample().getAlias() + ") is invalid");
+      }
+    }
+    catch (NumberFormatException nfe) {
+      throw new InputFormException("Supplied Library insert size for library '" + library.getAlias() + "' (" + library.getSample().getAlias() + ") is invalid", nfe);
+    }
+
+    try {
+      LibraryQC lqc = new LibraryQCImpl();
+      lqc.setLibrary(library);
+      lqc.setInsertSize(insertSize);
+      lqc.setResults(Double.valueOf(molarity));
+      lqc.setQcCreator(u.getLoginName());
+      lqc.setQcDate(new Date());
+      lqc.setQcType(qcType);
+
+      if (insertSize == 0 && lqc.getResults() == 0) {
+        library.setQcPassed(false);
+      }
+      else if (qcPassed != null) {
+        if ("Y".equals(qcPassed) || "y".equals(qcPassed)) {
+          library.setQcPassed(true);
+        }
+        else if ("N".equals(qcPassed) || "n".equals(qcPassed)) {
+          library.setQcPassed(false);
+        }
+      }
+      return lqc;
+    }
+    catch (NumberFormatException nfe) {
+      throw new InputFormException("Supplied Library QC concentration for library '" + library.getAlias() + "' (" + library.getSample().getAlias() + ") is invalid", nfe);
+    }
+    catch (MalformedLibraryException e) {
+      throw new InputFormException("Cannot add QC to library '" + library.getAlias() + "': " + e.getMessage(), e);
+    }
+  }
+
+  private static HashMap<Integer, TagBarcode> resolveTagBarcodes(String barcodeKit, String tags, Sample s, ImportLookups lookups) throws InputFormException {
+    Collection<TagBarcode> bcs = lookups.getTagBarcodes(barcodeKit);
+    if (bcs.isEmpty()) {
+      throw new InputFormException("No tag barcodes associated with the kit definition '" + barcodeKit + "' for sample: '" + s.getAlias() + "'.");
+    }
+    if ("".equals(tags)) {
+      throw new InputFormException("Barcode Kit specified but no tag barcodes entered for: '" + s.getAlias() + "'.");
+    }
+
+    HashMap<Integer, TagBarcode> tbs = new HashMap<Integer, TagBarcode>();
+    if (tags.contains("-")) {
+      int count = 1;
+      for (String tag : tags.split("-")) {
+        for (TagBarcode tb : bcs) {
+          if (tb.getName().equals(tag)) {
+            //set tag barcodes
+            tbs.put(count, tb);
+            count++;
+          }
+        }
+      }
+    }
+    else {
+      for (TagBarcode tb : bcs) {
+        if (tb.getName().equals(tags) || tb.getSequence().equals(tags)) {
+          //set tag barcode
+          tbs.put(1, tb);
+          log.info("Got tag barcode: " + tb.getName());
+          break;
+        }
+      }
+    }
+    return tbs;
+  }
+
+  /**
+   * The global header row shared by the library/pool and plate sheets
+   */
+  private static class LibraryImportHeader {
+    private boolean paired;
+    private PlatformType platformType;
+    private LibraryType libraryType;
+    private LibrarySelectionType selectionType;
+    private LibraryStrategyType strategyType;
+
+    static LibraryImportHeader read(XlsxSheetReader.SheetRow glrow, RequestManager manager) throws Exception {
+      LibraryImportHeader header = new LibraryImportHeader();
+      String paired = glrow.getCell(0);
+      header.paired = Boolean.parseBoolean(paired);
+      log.info("Got paired: " + header.paired);
+
+      String platform = glrow.getCell(1);
+      if (platform != null) {
+        header.platformType = PlatformType.get(platform);
+      }
+      if (header.platformType == null) {
+        throw new InputFormException("Cannot resolve Platform type from: '" + platform + "'");
+      }
+      else {
+        log.info("Got platform type: " + header.platformType.getKey());
+      }
+
+      String type = glrow.getCell(2);
+      if (type != null) {
+        String[] split = type.split("-");
+        if (platform.equals(split[0])) {
+          header.libraryType = manager.getLibraryTypeByDescriptionAndPlatform(split[1], header.platformType);
+        }
+        else {
+          throw new InputFormException("Selected library type '" + type + "' doesn't match platform type: '" + platform + "'");
+        }
+      }
+      if (header.libraryType == null) {
+        throw new InputFormException("Cannot resolve Library type from: '" + type + "'");
+      }
+      else {
+        log.info("Got library type: " + header.libraryType.getDescription());
+      }
+
+      String selection = glrow.getCell(3);
+      if (selection != null) {
+        header.selectionType = manager.getLibrarySelectionTypeByName(selection);
+      }
+      if (header.selectionType == null) {
+        throw new InputFormException("Cannot resolve Library Selection type from: '" + selection + "'");
+      }
+      else {
+        log.info("Got library selection type: " + header.selectionType.getName());
+      }
+
+      String strategy = glrow.getCell(4);
+      if (strategy != null) {
+        header.strategyType = manager.getLibraryStrategyTypeByName(strategy);
+      }
+      if (header.strategyType == null) {
+        throw new InputFormException("Cannot resolve Library Strategy type from: '" + strategy + "'");
+      }
+      else {
+        log.info("Got library strategy type: " + header.strategyType.getName());
+      }
+      return header;
+    }
+  }
+
+  /**
+   * Memoises the QC type and tag barcode lookups made for each row of an import
+   */
+  private static class ImportLookups {
+    private final RequestManager manager;
+    private QcType sampleQcType;
+    private final Map<String, QcType> libraryQcTypes = new HashMap<String, QcType>();
+    private final Map<String, Collection<TagBarcode>> tagBarcodes = new HashMap<String, Collection<TagBarcode>>();
+
+    ImportLookups(RequestManager manager) {
+      this.manager = manager;
+    }
+
+    QcType getSampleQcType() throws InputFormException {
+      if (sampleQcType == null) {
+        try {
+          sampleQcType = manager.getSampleQcTypeByName("Picogreen");
+          if (sampleQcType == null) {
+            sampleQcType = manager.getSampleQcTypeByName("QuBit");
+          }
+        }
+        catch (IOException e) {
+          throw new InputFormException("Cannot retrieve sample QC type: " + e.getMessage(), e);
+        }
+      }
+      return sampleQcType;
+    }
+
+    QcType getLibraryQcType(String name) throws InputFormException {
+      if (!libraryQcTypes.containsKey(name)) {
+        try {
+          libraryQcTypes.put(name, manager.getLibraryQcTypeByName(name));
+        }
+        catch (IOException e) {
+          throw new InputFormException("Cannot retrieve library QC type '" + name + "': " + e.getMessage(), e);
+        }
+      }
+      return libraryQcTypes.get(name);
+    }
+
+    Collection<TagBarcode> getTagBarcodes(String strategyName) throws InputFormException {
+      if (!tagBarcodes.containsKey(strategyName)) {
+        try {
+          tagBarcodes.put(strategyName, manager.listAllTagBarcodesByStrategyName(strategyName));
+        }
+        catch (IOException e) {
+          throw new InputFormException("Cannot retrieve tag barcodes for kit '" + strategyName + "': " + e.getMessage(), e);
+        }
+      }
+      return tagBarcodes.get(strategyName);
+    }
+  }
+
+  /**
+   * The entities built from one import row, held until the whole sheet has validated
+   */
+  private static class ImportedLibrary {
+    private final XlsxSheetReader.SheetRow row;
+    private Sample sample;
+    private SampleQC sampleQc;
+    private Library library;
+    private final List<LibraryQC> libraryQcs = new ArrayList<LibraryQC>();
+    private LibraryDilution dilution;
+    private Pool pool;
+
+    ImportedLibrary(XlsxSheetReader.SheetRow row) {
+      this.row = row;
+    }
+  }
+
+  /**
+   * Collects the problems found with an import, by spreadsheet row, so they can all be reported together
+   */
+  private static class ImportErrors {
+    private final List<String> errors = new ArrayList<String>();
+
+    void add(XlsxSheetReader.SheetRow row, String message) {
+      errors.add("Row " + (row.getRowIndex() + 1) + ": " + message);
+    }
+
+    void add(String message) {
+      errors.add(message);
+    }
+
+    void throwIfAny() throws InputFormException {
+      if (!errors.isEmpty()) {
+        throw new InputFormException("Cannot import spreadsheet - " + errors.size() + " problem(s) found:\n" + LimsUtils.join(errors, "\n"));
+      }
+    }
+  }
+
   //public static Map<String, Pool<Plate<LinkedList<Library>, Library>>> importPlateInputSpreadsheet(File inPath, User u, RequestManager manager, MisoNamingScheme<Library> libraryNamingScheme) throws Exception {
   public static Map<String, PlatePool> importPlateInputSpreadsheet(File inPath, User u, RequestManager manager, MisoNamingScheme<Library> libraryNamingScheme) throws Exception {
     if (inPath.getName().endsWith(".xlsx")) {
-      XSSFWorkbook wb = new XSSFWorkbook(new FileInputStream(inPath));
-      return process384PlateInputXLSX(wb, u, manager, libraryNamingScheme);
+      return process384PlateInputXLSX(inPath, u, manager, libraryNamingScheme);
     }
     else if (inPath.getName().endsWith(".ods")) {
       OdfSpreadsheetDocument oDoc = (OdfSpreadsheetDocument) OdfDocument.loadDocument(inPath);
@@ -646,47 +646,60 @@ public class LimsUtils {
     return m;
   }
 
-  public static Matcher tailGrep(File f, Pattern p, int lines) throws IOException, FileNotFoundException {
-    // Open the file and then get a channel from the stream
-    FileInputStream fis = new FileInputStream(f);
-    FileChannel fc = fis.getChannel();
-    try {
-      // Get the file's size and then map it into memory
-      int sz = (int) fc.size();
-      MappedByteBuffer bb = fc.map(FileChannel.MapMode.READ_ONLY, 0, sz);
-
-      long cnt = 0;
-      long i = 0;
-      for (i = sz - 1; i >= 0; i--) {
-        if (bb.get((int) i) == '\n') {
-          cnt++;
-          if (cnt == lines + 1)
-            break;
-        }
-      }
+  private static final int TAIL_BLOCK_SIZE = 8192;
+  private static final Charset TAIL_CHARSET = Charset.forName("UTF-8");
 
-      int offset = (int) i + 1;
+  /**
+   * Greps the last lines of a file for a pattern, returning a Matcher for the first matching line found, or null if there is no match.
+   * Only the tail of the file is read, so this is cheap however large the file is.
+   *
+   * @param f the file to grep
+   * @param p the pattern to find
+   * @param lines the number of lines at the end of the file to search
+   * @return the Matcher for the first matching line, or null
+   * @throws IOException
+   */
+  public static Matcher tailGrep(File f, Pattern p, int lines) throws IOException, FileNotFoundException {
+    String tail = tail(f, lines);
+    if (tail.isEmpty()) return null;
+    return grep(CharBuffer.wrap(tail), p);
+  }
 
-      if (offset >= bb.limit()) throw new NoSuchElementException();
-      ByteArrayOutputStream sb = new ByteArrayOutputStream();
-      while (offset < bb.limit()) {
-        for (; offset < bb.limit(); offset++) {
-          sb.write(bb.get(offset));
+  /**
+   * Reads the last lines of a file by seeking backwards from the end of the file in fixed-size blocks until enough line breaks have been
+   * seen, rather than mapping or reading the whole file
+   *
+   * @param f the file to read
+   * @param lines the number of lines to read
+   * @return the last lines of the file, including line terminators
+   * @throws IOException
+   */
+  public static String tail(File f, int lines) throws IOException, FileNotFoundException {
+    try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+      long end = raf.length();
+      long start = end;
+      int newlines = 0;
+      byte[] block = new byte[TAIL_BLOCK_SIZE];
+      search:
+      while (start > 0) {
+        int len = (int) Math.min(TAIL_BLOCK_SIZE, start);
+        long blockStart = start - len;
+        raf.seek(blockStart);
+        raf.readFully(block, 0, len);
+        for (int i = len - 1; i >= 0; i--) {
+          // the line break ending the line before the tail marks where the tail begins
+          if (block[i] == '\n' && ++newlines == lines + 1) {
+            start = blockStart + i + 1;
+            break search;
+          }
         }
+        start = blockStart;
       }
 
-      // Decode the file into a char buffer
-      CharBuffer cb = CharBuffer.wrap(sb.toString());
-
-      // Perform the search
-      return grep(cb, p);
-    }
-    catch (IOException e) {
-      throw e;
-    }
-    finally {
-      // Close the channel and the stream
-      safeClose(fc);
+      byte[] tail = new byte[(int) (end - start)];
+      raf.seek(start);
+      raf.readFully(tail);
+      return new String(tail, TAIL_CHARSET);
     }
   }
 
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.util;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.util
+ * <p/>
+ * Reads the first sheet of an XLSX workbook row by row with a SAX parser, rather than building the whole workbook in
+ * memory as XSSFWorkbook does. Cell values are rendered as strings in the same way as FormUtils has always read them
+ * from an XSSFCell, i.e. numbers as doubles ("12.0"), formulae as their cached value and blank cells as null.
+ *
+ * @since 0.2.1
+ */
+public class XlsxSheetReader {
+  /**
+   * Receives each row of a sheet in order. Returning false stops the read.
+   */
+  public interface RowHandler {
+    boolean handleRow(SheetRow row) throws IOException;
+  }
+
+  /**
+   * The string values of a single sheet row, indexed by zero-based column
+   */
+  public static class SheetRow {
+    private final int rowIndex;
+    private final List<String> cells = new ArrayList<String>();
+
+    public SheetRow(int rowIndex) {
+      this.rowIndex = rowIndex;
+    }
+
+    /**
+     * @return the zero-based index of this row in the sheet
+     */
+    public int getRowIndex() {
+      return rowIndex;
+    }
+
+    /**
+     * @param column zero-based column index
+     * @return the cell value, or null if the cell is blank or absent
+     */
+    public String getCell(int column) {
+      return column < cells.size() ? cells.get(column) : null;
+    }
+
+    void setCell(int column, String value) {
+      while (cells.size() <= column) {
+        cells.add(null);
+      }
+      cells.set(column, value);
+    }
+  }
+
+  /**
+   * Streams every row of the first sheet of the given workbook to the handler. Rows that are absent from the sheet
+   * are passed on as empty rows, so that row indices are contiguous.
+   *
+   * @param file the XLSX workbook
+   * @param handler the row handler
+   * @throws IOException when the workbook cannot be read or the handler fails
+   */
+  public static void read(File file, RowHandler handler) throws IOException {
+    OPCPackage pkg = null;
+    try {
+      pkg = OPCPackage.open(file.getAbsolutePath(), PackageAccess.READ);
+      XSSFReader reader = new XSSFReader(pkg);
+      Iterator<InputStream> sheets = reader.getSheetsData();
+      if (!sheets.hasNext()) {
+        throw new IOException("Workbook " + file.getName() + " contains no sheets");
+      }
+
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      //sheets are user uploads, so never resolve doctypes or external entities
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+      factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+      XMLReader parser = factory.newSAXParser().getXMLReader();
+      SheetHandler sheetHandler = new SheetHandler(reader.getSharedStringsTable(), handler);
+      parser.setContentHandler(sheetHandler);
+
+      InputStream sheet = sheets.next();
+      try {
+        parser.parse(new InputSource(sheet));
+      }
+      catch (StopReadingException e) {
+        //handler asked to stop - nothing more to read
+      }
+      finally {
+        sheet.close();
+      }
+    }
+    catch (IOException e) {
+      throw e;
+    }
+    catch (SAXException e) {
+      if (e.getException() instanceof IOException) {
+        throw (IOException) e.getException();
+      }
+      throw new IOException("Cannot parse workbook " + file.getName() + ": " + e.getMessage(), e);
+    }
+    catch (Exception e) {
+      throw new IOException("Cannot open workbook " + file.getName() + ": " + e.getMessage(), e);
+    }
+    finally {
+      if (pkg != null) {
+        pkg.revert();
+      }
+    }
+  }
+
+  /**
+   * Reads the rows of the first sheet of the given workbook, from the first row up to and including maxRowIndex
+   *
+   * @param file the XLSX workbook
+   * @param maxRowIndex the zero-based index of the last row to read
+   * @return the rows read
+   * @throws IOException when the workbook cannot be read
+   */
+  public static List<SheetRow> readRows(File file, final int maxRowIndex) throws IOException {
+    final List<SheetRow> rows = new ArrayList<SheetRow>();
+    read(file, new RowHandler() {
+      @Override
+      public boolean handleRow(SheetRow row) {
+        rows.add(row);
+        return row.getRowIndex() < maxRowIndex;
+      }
+    });
+    return rows;
+  }
+
+  static int columnIndex(String cellReference) {
+    int column = 0;
+    for (int i = 0; i < cellReference.length(); i++) {
+      char c = cellReference.charAt(i);
+      if (c < 'A' || c > 'Z') {
+        break;
+      }
+      column = column * 26 + (c - 'A' + 1);
+    }
+    return column - 1;
+  }
+
+  private static class StopReadingException extends SAXException {
+    StopReadingException() {
+      super("Stopped");
+    }
+  }
+
+  private static class SheetHandler extends DefaultHandler {
+    private final SharedStringsTable sharedStrings;
+    private final RowHandler handler;
+    private final StringBuilder text = new StringBuilder();
+
+    private SheetRow row;
+    private int nextRowIndex = 0;
+    private int column;
+    private String cellType;
+    private boolean formula;
+    private String value;
+    private boolean inValue;
+
+    SheetHandler(SharedStringsTable sharedStrings, RowHandler handler) {
+      this.sharedStrings = sharedStrings;
+      this.handler = handler;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+      if ("row".equals(localName)) {
+        String r = attributes.getValue("r");
+        int index = r != null ? Integer.parseInt(r) - 1 : nextRowIndex;
+        while (nextRowIndex < index) {
+          emit(new SheetRow(nextRowIndex));
+        }
+        row = new SheetRow(index);
+      }
+      else if ("c".equals(localName)) {
+        String r = attributes.getValue("r");
+        column = r != null ? columnIndex(r) : column + 1;
+        cellType = attributes.getValue("t");
+        formula = false;
+        value = null;
+      }
+      else if ("f".equals(localName)) {
+        formula = true;
+      }
+      else if ("v".equals(localName) || ("t".equals(localName) && "inlineStr".equals(cellType))) {
+        inValue = true;
+        text.setLength(0);
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (inValue) {
+        text.append(ch, start, length);
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      if ("v".equals(localName) || ("t".equals(localName) && inValue)) {
+        inValue = false;
+        value = value == null ? text.toString() : value + text.toString();
+      }
+      else if ("c".equals(localName)) {
+        if (row != null) {
+          row.setCell(column, render());
+        }
+      }
+      else if ("row".equals(localName)) {
+        if (row != null) {
+          emit(row);
+          row = null;
+        }
+      }
+    }
+
+    private String render() {
+      if (value == null) {
+        return null;
+      }
+      if ("s".equals(cellType)) {
+        return new XSSFRichTextString(sharedStrings.getEntryAt(Integer.parseInt(value))).toString();
+      }
+      if ("inlineStr".equals(cellType) || "e".equals(cellType) || "str".equals(cellType) || formula) {
+        return value;
+      }
+      if ("b".equals(cellType)) {
+        return String.valueOf("1".equals(value));
+      }
+      try {
+        return String.valueOf(Double.parseDouble(value));
+      }
+      catch (NumberFormatException e) {
+        return value;
+      }
+    }
+
+    private void emit(SheetRow r) throws SAXException {
+      nextRowIndex = r.getRowIndex() + 1;
+      boolean more;
+      try {
+        more = handler.handleRow(r);
+      }
+      catch (IOException e) {
+        throw new SAXException(e);
+      }
+      if (!more) {
+        throw new StopReadingException();
+      }
+    }
+  }
+}
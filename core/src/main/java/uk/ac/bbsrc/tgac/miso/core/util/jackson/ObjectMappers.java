@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.util.jackson;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import uk.ac.bbsrc.tgac.miso.core.data.Library;
+import uk.ac.bbsrc.tgac.miso.core.data.Sample;
+import uk.ac.bbsrc.tgac.miso.core.data.SequencerPartitionContainer;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.util.jackson
+ * <p/>
+ * Shared, preconfigured ObjectMappers. An ObjectMapper caches the serializers it builds for each type, so constructing one
+ * per request throws that work away every time. Once configured, a mapper is safe to share between threads, so these must
+ * not be reconfigured after class initialisation.
+ *
+ * @since 0.2.1
+ */
+public final class ObjectMappers {
+  /**
+   * A mapper with no mixins
+   */
+  public static final ObjectMapper DEFAULT = new ObjectMapper();
+
+  /**
+   * A mapper for object graphs containing Libraries, e.g. Projects, that would otherwise recurse through Library -> Sample
+   */
+  public static final ObjectMapper LIBRARY_SAFE = new ObjectMapper();
+
+  /**
+   * A mapper for object graphs containing Samples, e.g. Libraries, that would otherwise recurse through Sample -> Library
+   */
+  public static final ObjectMapper SAMPLE_SAFE = new ObjectMapper();
+
+  /**
+   * A mapper for object graphs containing SequencerPartitionContainers, e.g. Runs
+   */
+  public static final ObjectMapper CONTAINER_SAFE = new ObjectMapper();
+
+  static {
+    LIBRARY_SAFE.getSerializationConfig().addMixInAnnotations(Library.class, LibraryRecursionAvoidanceMixin.class);
+    SAMPLE_SAFE.getSerializationConfig().addMixInAnnotations(Sample.class, SampleRecursionAvoidanceMixin.class);
+    CONTAINER_SAFE.getSerializationConfig().addMixInAnnotations(SequencerPartitionContainer.class, ContainerRecursionAvoidanceMixin.class);
+  }
+
+  private ObjectMappers() {
+  }
+}
@@ -42,7 +42,11 @@ import org.junit.runners.Suite;
   EraSubmissionTests.class,
   FormUtilsTests.class,
   PlateTests.class,
-  RunTests.class
+  RunTests.class,
+  FTPUploadEngineTests.class,
+  AuditLogTests.class,
+  ProjectLineageTests.class,
+  EmailAlerterServiceTests.class
 })
 
 public class AllTestsSuite {
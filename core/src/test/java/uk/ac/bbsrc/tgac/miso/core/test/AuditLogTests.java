@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.test;
+
+import junit.framework.TestCase;
+import org.aspectj.lang.Signature;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.bbsrc.tgac.miso.core.data.Nameable;
+import uk.ac.bbsrc.tgac.miso.core.logging.AuditEvent;
+import uk.ac.bbsrc.tgac.miso.core.logging.AuditLogReader;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.test
+ * <p/>
+ * Tests writing, parsing and querying audit log records
+ *
+ * @since 0.2.1
+ */
+public class AuditLogTests {
+  private File logFile;
+
+  @Before
+  public void setUp() throws IOException {
+    logFile = File.createTempFile("test-audit", ".log");
+  }
+
+  @After
+  public void tearDown() {
+    logFile.delete();
+  }
+
+  @Test
+  public void testRecordRoundTrip() {
+    String detail = "line one\nline two\r\n\tindented C:\\miso\\ and a trailing \\";
+    AuditEvent event = AuditEvent.capture(AuditEvent.FAIL, "user\twith\\tab", new MockSignature("saveSample"), new Object[]{new MockEntity(42L)}, detail);
+
+    String record = event.toRecord();
+    TestCase.assertEquals(-1, record.indexOf('\n'));
+    TestCase.assertEquals(-1, record.indexOf('\r'));
+    TestCase.assertEquals(7, record.split("\t", -1).length);
+
+    AuditEvent parsed = AuditEvent.parse(record);
+    TestCase.assertEquals(event.getTimestamp(), parsed.getTimestamp());
+    TestCase.assertEquals(AuditEvent.FAIL, parsed.getOutcome());
+    TestCase.assertEquals("user\twith\\tab", parsed.getUser());
+    TestCase.assertEquals("RequestManager.saveSample", parsed.getAction());
+    TestCase.assertEquals("MockEntity", parsed.getEntityType());
+    TestCase.assertEquals(Long.valueOf(42L), parsed.getEntityId());
+    TestCase.assertEquals(detail, parsed.getDetail());
+    TestCase.assertEquals(record, parsed.toRecord());
+  }
+
+  @Test
+  public void testRecordRoundTripWithoutEntity() {
+    AuditEvent event = AuditEvent.capture(AuditEvent.OK, "admin", new MockSignature("listAllSamples"), new Object[0], null);
+
+    AuditEvent parsed = AuditEvent.parse(event.toRecord());
+    TestCase.assertEquals("admin", parsed.getUser());
+    TestCase.assertNull(parsed.getEntityType());
+    TestCase.assertNull(parsed.getEntityId());
+    TestCase.assertNull(parsed.getDetail());
+  }
+
+  @Test
+  public void testParseRejectsOtherLines() {
+    try {
+      AuditEvent.parse("2012-01-01 INFO something else entirely");
+      TestCase.fail("Expected a non-record line to be rejected");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testQuery() throws IOException {
+    Writer out = new FileWriter(logFile);
+    try {
+      out.write(AuditEvent.capture(AuditEvent.OK, "alice", new MockSignature("saveSample"), new Object[]{new MockEntity(1L)}, null).toRecord() + "\n");
+      out.write("not an audit record\n");
+      out.write(AuditEvent.capture(AuditEvent.OK, "bob", new MockSignature("saveSample"), new Object[]{new MockEntity(1L)}, null).toRecord() + "\n");
+      out.write(AuditEvent.capture(AuditEvent.FAIL, "alice", new MockSignature("saveSample"), new Object[]{new MockEntity(2L)}, "multi\nline").toRecord() + "\n");
+      out.write(AuditEvent.capture(AuditEvent.OK, "alice", new MockSignature("listAllSamples"), new Object[]{"query"}, null).toRecord() + "\n");
+    }
+    finally {
+      out.close();
+    }
+
+    TestCase.assertEquals(4, AuditLogReader.query(logFile, null, null, null).size());
+    TestCase.assertEquals(3, AuditLogReader.query(logFile, "alice", null, null).size());
+    TestCase.assertEquals(2, AuditLogReader.query(logFile, null, "MockEntity", 1L).size());
+    TestCase.assertEquals(1, AuditLogReader.query(logFile, null, "String", null).size());
+
+    List<AuditEvent> events = AuditLogReader.query(logFile, "alice", "MockEntity", 2L);
+    TestCase.assertEquals(1, events.size());
+    TestCase.assertEquals(AuditEvent.FAIL, events.get(0).getOutcome());
+    TestCase.assertEquals("multi\nline", events.get(0).getDetail());
+
+    TestCase.assertTrue(AuditLogReader.query(logFile, "carol", null, null).isEmpty());
+  }
+
+  private static class MockEntity implements Nameable {
+    private final long id;
+
+    MockEntity(long id) {
+      this.id = id;
+    }
+
+    @Override
+    public String getName() {
+      return "ENT" + id;
+    }
+
+    @Override
+    public long getId() {
+      return id;
+    }
+  }
+
+  private static class MockSignature implements Signature {
+    private final String name;
+
+    MockSignature(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toShortString() {
+      return name;
+    }
+
+    @Override
+    public String toLongString() {
+      return name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public int getModifiers() {
+      return 0;
+    }
+
+    @Override
+    public Class getDeclaringType() {
+      return RequestManager.class;
+    }
+
+    @Override
+    public String getDeclaringTypeName() {
+      return RequestManager.class.getName();
+    }
+  }
+
+  private interface RequestManager {
+  }
+}
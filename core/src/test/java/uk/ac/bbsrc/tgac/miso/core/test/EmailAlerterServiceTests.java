@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.test;
+
+import com.eaglegenomics.simlims.core.User;
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.bbsrc.tgac.miso.core.data.impl.UserImpl;
+import uk.ac.bbsrc.tgac.miso.core.event.Alert;
+import uk.ac.bbsrc.tgac.miso.core.event.alerter.EmailAlerterService;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.test
+ * <p/>
+ * Tests EmailAlerterService delivery against a mock SMTP transport that always fails for one recipient
+ *
+ * @since 0.2.1
+ */
+public class EmailAlerterServiceTests {
+  private static final String FAILING_RECIPIENT = "fail@miso.test";
+  private static final String WORKING_RECIPIENT = "ok@miso.test";
+
+  private EmailAlerterService alerter;
+
+  @Before
+  public void setUp() {
+    MockTransport.reset();
+    Properties props = new Properties();
+    props.setProperty("mail.smtp.host", "localhost");
+    //the mock transport is registered as a provider in META-INF/javamail.providers
+    props.setProperty("mail.smtp.class", MockTransport.class.getName());
+    alerter = new EmailAlerterService();
+    alerter.setMailProps(props);
+    alerter.setDigestWindow(10);
+    alerter.setRetryDelay(1);
+    alerter.setMaxRetries(10);
+  }
+
+  @After
+  public void tearDown() {
+    alerter.destroy();
+  }
+
+  @Test
+  public void testDispatcherSurvivesRepeatedFailures() throws Exception {
+    alerter.raiseAlert(alert(FAILING_RECIPIENT, "Failing alert"));
+
+    // the first failure queues a retry, and every retry after that fails again
+    waitFor(3);
+    TestCase.assertTrue(MockTransport.failures.get() >= 3);
+
+    alerter.raiseAlert(alert(WORKING_RECIPIENT, "Later alert"));
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!MockTransport.delivered.contains("MISO ALERT: Later alert") && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    TestCase.assertTrue("Alert raised after repeated failures was not delivered", MockTransport.delivered.contains("MISO ALERT: Later alert"));
+  }
+
+  @Test
+  public void testFailedDigestIsDroppedAfterMaxRetries() throws Exception {
+    alerter.setMaxRetries(2);
+    alerter.raiseAlert(alert(FAILING_RECIPIENT, "Failing alert"));
+
+    waitFor(3);
+    Thread.sleep(200);
+    TestCase.assertEquals(3, MockTransport.failures.get());
+  }
+
+  private void waitFor(int failures) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (MockTransport.failures.get() < failures && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private Alert alert(String email, String title) {
+    User u = new UserImpl();
+    u.setEmail(email);
+    u.setFullName("Mock User");
+    Alert a = new MockAlert(u);
+    a.setAlertTitle(title);
+    return a;
+  }
+
+  /**
+   * An SMTP transport that accepts every connection, fails every message to {@link #FAILING_RECIPIENT} and records the
+   * subjects of all others
+   */
+  public static class MockTransport extends Transport {
+    static final AtomicInteger failures = new AtomicInteger();
+    static final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+
+    public MockTransport(Session session, URLName urlname) {
+      super(session, urlname);
+    }
+
+    static void reset() {
+      failures.set(0);
+      delivered.clear();
+    }
+
+    @Override
+    protected boolean protocolConnect(String host, int port, String user, String password) throws MessagingException {
+      return true;
+    }
+
+    @Override
+    public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+      if (FAILING_RECIPIENT.equals(addresses[0].toString())) {
+        failures.incrementAndGet();
+        throw new MessagingException("Mock SMTP failure");
+      }
+      delivered.add(message.getSubject());
+    }
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.test;
+
+import junit.framework.TestCase;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.FtpletResult;
+import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.bbsrc.tgac.miso.core.service.submission.FTPUploadEngine;
+import uk.ac.bbsrc.tgac.miso.core.service.submission.FTPUploadJob;
+import uk.ac.bbsrc.tgac.miso.core.service.submission.FTPUploadReport;
+import uk.ac.bbsrc.tgac.miso.core.service.submission.UploadJob;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.test
+ * <p/>
+ * Tests FTPUploadEngine against an embedded Apache FtpServer
+ *
+ * @since 0.2.1
+ */
+public class FTPUploadEngineTests {
+  private static final String USER = "miso";
+  private static final String PASSWORD = "miso";
+  private static final int FILE_SIZE = 300 * 1024;
+
+  private File home;
+  private File local;
+  private FtpServer server;
+  private int port;
+  private final TruncatingFtplet truncator = new TruncatingFtplet();
+
+  @Before
+  public void setUp() throws Exception {
+    home = createTempDir("ftp-home");
+    local = createTempDir("ftp-local");
+
+    FtpServerFactory serverFactory = new FtpServerFactory();
+    ListenerFactory listenerFactory = new ListenerFactory();
+    listenerFactory.setPort(0);
+    serverFactory.addListener("default", listenerFactory.createListener());
+
+    UserManager users = new PropertiesUserManagerFactory().createUserManager();
+    BaseUser user = new BaseUser();
+    user.setName(USER);
+    user.setPassword(PASSWORD);
+    user.setHomeDirectory(home.getAbsolutePath());
+    user.setAuthorities(Collections.<Authority>singletonList(new WritePermission()));
+    users.save(user);
+    serverFactory.setUserManager(users);
+
+    Map<String, org.apache.ftpserver.ftplet.Ftplet> ftplets = new HashMap<String, org.apache.ftpserver.ftplet.Ftplet>();
+    ftplets.put("truncator", truncator);
+    serverFactory.setFtplets(ftplets);
+
+    server = serverFactory.createServer();
+    server.start();
+    port = serverFactory.getListener("default").getPort();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop();
+    delete(home);
+    delete(local);
+  }
+
+  @Test
+  public void testUploadCompletes() throws Exception {
+    File a = createLocalFile("a.dat", 1);
+    File b = createLocalFile("b.dat", 2);
+
+    FTPUploadReport report = newEngine(3).upload(Arrays.asList(a, b), "submission");
+    awaitFinish(report);
+
+    TestCase.assertEquals("complete", report.getStatus());
+    assertSameContent(a, new File(home, "submission/a.dat"));
+    assertSameContent(b, new File(home, "submission/b.dat"));
+    TestCase.assertEquals(md5(a), report.getChecksums().get("a.dat"));
+    TestCase.assertEquals(md5(b), report.getChecksums().get("b.dat"));
+    for (UploadJob job : report.getUploadJobs()) {
+      TestCase.assertEquals(1, ((FTPUploadJob) job).getAttempts());
+      TestCase.assertEquals(0L, ((FTPUploadJob) job).getResumedFrom());
+    }
+  }
+
+  @Test
+  public void testFirstAttemptOverwritesExistingRemoteFile() throws Exception {
+    File a = createLocalFile("a.dat", 3);
+    //a stale remote file of the same name must not be taken as a partial upload
+    writeRandom(new File(home, "a.dat"), FILE_SIZE / 2, 4);
+
+    FTPUploadReport report = newEngine(3).upload(Collections.singletonList(a), null);
+    awaitFinish(report);
+
+    FTPUploadJob job = (FTPUploadJob) report.getUploadJobs().get(0);
+    TestCase.assertEquals("complete", report.getStatus());
+    TestCase.assertEquals(0L, job.getResumedFrom());
+    assertSameContent(a, new File(home, "a.dat"));
+    TestCase.assertEquals(md5(a), job.getMd5());
+  }
+
+  @Test
+  public void testRetryResumesFromRemoteSize() throws Exception {
+    File a = createLocalFile("a.dat", 5);
+    truncator.truncations.set(1);
+
+    FTPUploadReport report = newEngine(3).upload(Collections.singletonList(a), null);
+    awaitFinish(report);
+
+    FTPUploadJob job = (FTPUploadJob) report.getUploadJobs().get(0);
+    TestCase.assertEquals("complete", report.getStatus());
+    TestCase.assertEquals(2, job.getAttempts());
+    TestCase.assertEquals((long) FILE_SIZE / 2, job.getResumedFrom());
+    assertSameContent(a, new File(home, "a.dat"));
+    TestCase.assertEquals(md5(a), job.getMd5());
+  }
+
+  @Test
+  public void testFailsWhenAttemptsRunOut() throws Exception {
+    File a = createLocalFile("a.dat", 6);
+    truncator.truncations.set(Integer.MAX_VALUE);
+
+    FTPUploadReport report = newEngine(2).upload(Collections.singletonList(a), null);
+    awaitFinish(report);
+
+    FTPUploadJob job = (FTPUploadJob) report.getUploadJobs().get(0);
+    TestCase.assertEquals("failed", report.getStatus());
+    TestCase.assertEquals(FTPUploadJob.FAILED, job.getStatus());
+    TestCase.assertEquals(2, job.getAttempts());
+    TestCase.assertNull(job.getMd5());
+  }
+
+  private FTPUploadEngine newEngine(int maxAttempts) {
+    FTPUploadEngine engine = new FTPUploadEngine("localhost", port, USER, PASSWORD);
+    engine.setConnections(2);
+    engine.setMaxAttempts(maxAttempts);
+    engine.setRetryDelay(0);
+    return engine;
+  }
+
+  private static void awaitFinish(FTPUploadReport report) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 30000;
+    while ("uploading".equals(report.getStatus()) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    TestCase.assertFalse("Upload did not finish", "uploading".equals(report.getStatus()));
+  }
+
+  private File createLocalFile(String name, long seed) throws IOException {
+    File f = new File(local, name);
+    writeRandom(f, FILE_SIZE, seed);
+    return f;
+  }
+
+  private static void writeRandom(File f, int size, long seed) throws IOException {
+    byte[] bytes = new byte[size];
+    new Random(seed).nextBytes(bytes);
+    FileOutputStream out = new FileOutputStream(f);
+    try {
+      out.write(bytes);
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  private static void assertSameContent(File expected, File actual) throws Exception {
+    TestCase.assertTrue(actual + " was not uploaded", actual.exists());
+    TestCase.assertEquals(expected.length(), actual.length());
+    TestCase.assertEquals(md5(expected), md5(actual));
+  }
+
+  private static String md5(File f) throws Exception {
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    RandomAccessFile in = new RandomAccessFile(f, "r");
+    try {
+      byte[] bytes = new byte[(int) in.length()];
+      in.readFully(bytes);
+      md5.update(bytes);
+    }
+    finally {
+      in.close();
+    }
+    StringBuilder sb = new StringBuilder();
+    for (byte b : md5.digest()) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+  private static File createTempDir(String prefix) throws IOException {
+    File dir = File.createTempFile(prefix, "");
+    if (!dir.delete() || !dir.mkdir()) {
+      throw new IOException("Cannot create temporary directory " + dir);
+    }
+    return dir;
+  }
+
+  private static void delete(File f) {
+    File[] children = f.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    f.delete();
+  }
+
+  /**
+   * Cuts stored files in half after the server has acknowledged them, as a dropped connection would, until it runs
+   * out of truncations
+   */
+  private class TruncatingFtplet extends DefaultFtplet {
+    private final AtomicInteger truncations = new AtomicInteger();
+
+    @Override
+    public FtpletResult onUploadEnd(FtpSession session, FtpRequest request) throws FtpException, IOException {
+      if (truncations.getAndDecrement() > 0) {
+        String dir = session.getFileSystemView().getWorkingDirectory().getAbsolutePath();
+        File stored = new File(home, dir + "/" + request.getArgument());
+        RandomAccessFile raf = new RandomAccessFile(stored, "rw");
+        try {
+          raf.setLength(FILE_SIZE / 2);
+        }
+        finally {
+          raf.close();
+        }
+      }
+      return FtpletResult.DEFAULT;
+    }
+  }
+}
@@ -25,22 +25,33 @@ package uk.ac.bbsrc.tgac.miso.core.test;
 
 import com.eaglegenomics.simlims.core.User;
 import junit.framework.TestCase;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Test;
 import org.odftoolkit.odfdom.doc.OdfTextDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.ac.bbsrc.tgac.miso.core.data.Library;
+import uk.ac.bbsrc.tgac.miso.core.data.LibraryQC;
 import uk.ac.bbsrc.tgac.miso.core.data.Sample;
+import uk.ac.bbsrc.tgac.miso.core.data.impl.PlatePool;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.UserImpl;
 import uk.ac.bbsrc.tgac.miso.core.factory.DataObjectFactory;
 import uk.ac.bbsrc.tgac.miso.core.factory.TgacDataObjectFactory;
 import uk.ac.bbsrc.tgac.miso.core.service.naming.DefaultLibraryNamingScheme;
 import uk.ac.bbsrc.tgac.miso.core.util.FormUtils;
 import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
+import uk.ac.bbsrc.tgac.miso.core.util.XlsxSheetReader;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 /**
  * uk.ac.bbsrc.tgac.miso.core.test
@@ -57,12 +68,16 @@ public class FormUtilsTests {
   private static File testSampleDeliveryFile;
   private static File testSampleBulkInputOdsFile;
   private static File testSampleBulkInputXlsFile;
+  private static File testLibraryPoolXlsFile;
+  private static File testPlateXlsFile;
 
   static {
     try {
       testSampleDeliveryFile = File.createTempFile("test-sampleDeliveryForm", ".odt");
       testSampleBulkInputOdsFile = File.createTempFile("test-sampleBulkInputOds", ".ods");
       testSampleBulkInputXlsFile = File.createTempFile("test-sampleBulkInputXls", ".xlsx");
+      testLibraryPoolXlsFile = File.createTempFile("test-libraryPoolXls", ".xlsx");
+      testPlateXlsFile = File.createTempFile("test-plateXls", ".xlsx");
     }
     catch (IOException e) {
       e.printStackTrace();
@@ -153,6 +168,188 @@ public class FormUtilsTests {
     }
   }
 
+  @Test
+  public void testStreamBulkInputXLS() {
+    try {
+      InputStream in = FormUtilsTests.class.getClassLoader().getResourceAsStream("test-bulk_input.xlsx");
+      LimsUtils.writeFile(in, testSampleBulkInputXlsFile);
+      List<XlsxSheetReader.SheetRow> rows = XlsxSheetReader.readRows(testSampleBulkInputXlsFile, 4);
+      TestCase.assertEquals(5, rows.size());
+      TestCase.assertEquals("Illumina", rows.get(1).getCell(1));
+      TestCase.assertEquals("MS_S1_MockSample", rows.get(4).getCell(2));
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+      TestCase.fail();
+    }
+    finally {
+      testSampleBulkInputXlsFile.delete();
+    }
+  }
+
+  @Test
+  public void testStreamRejectsDoctype() throws IOException {
+    File doctypeXlsFile = File.createTempFile("test-doctype", ".xlsx");
+    try {
+      XSSFWorkbook wb = new XSSFWorkbook();
+      wb.createSheet().createRow(0).createCell(0).setCellValue("header");
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      wb.write(bytes);
+
+      //copy the workbook, swapping in a sheet that declares an external entity
+      ZipInputStream zin = new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+      ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(doctypeXlsFile));
+      try {
+        ZipEntry entry;
+        while ((entry = zin.getNextEntry()) != null) {
+          zout.putNextEntry(new ZipEntry(entry.getName()));
+          if ("xl/worksheets/sheet1.xml".equals(entry.getName())) {
+            zout.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                        "<!DOCTYPE worksheet [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>" +
+                        "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">" +
+                        "<sheetData><row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>&xxe;</t></is></c></row></sheetData>" +
+                        "</worksheet>").getBytes("UTF-8"));
+          }
+          else {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = zin.read(buf)) != -1) {
+              zout.write(buf, 0, n);
+            }
+          }
+          zout.closeEntry();
+        }
+      }
+      finally {
+        zin.close();
+        zout.close();
+      }
+
+      try {
+        XlsxSheetReader.readRows(doctypeXlsFile, 0);
+        TestCase.fail("Expected a sheet with a DOCTYPE to be rejected");
+      }
+      catch (IOException e) {
+        // expected
+      }
+    }
+    finally {
+      doctypeXlsFile.delete();
+    }
+  }
+
+  @Test
+  public void testImportLibraryWithBothQcs() {
+    try {
+      XSSFWorkbook wb = new XSSFWorkbook();
+      XSSFSheet sheet = wb.createSheet();
+      for (int i = 0; i < 6; i++) {
+        sheet.createRow(i).createCell(0).setCellValue("header");
+      }
+      XSSFRow glrow = sheet.createRow(1);
+      glrow.createCell(0).setCellValue("true");
+      glrow.createCell(1).setCellValue("Illumina");
+      glrow.createCell(2).setCellValue("Illumina-Paired End");
+      glrow.createCell(3).setCellValue("PCR");
+      glrow.createCell(4).setCellValue("WGS");
+
+      XSSFRow row = sheet.createRow(6);
+      row.createCell(3).setCellValue("RD_S1_MockSample");
+      row.createCell(4).setCellValue("A01");
+      row.createCell(6).setCellValue(2.5);
+      row.createCell(7).setCellValue(350);
+      row.createCell(8).setCellValue(12.0);
+      row.createCell(9).setCellValue("TruSeq Single Index");
+      row.createCell(10).setCellValue("Index 1");
+      row.createCell(11).setCellValue("Y");
+
+      OutputStream out = new FileOutputStream(testLibraryPoolXlsFile);
+      try {
+        wb.write(out);
+      }
+      finally {
+        out.close();
+      }
+
+      User u = new UserImpl();
+      u.setLoginName("testLibraryImportUser");
+      MockFormTestRequestManager manager = new MockFormTestRequestManager();
+      TestCase.assertEquals("ok", FormUtils.processLibraryPoolSheetImport(testLibraryPoolXlsFile, u, manager));
+
+      TestCase.assertEquals(1, manager.getSavedLibraries().size());
+      TestCase.assertEquals(2, manager.getSavedLibraryQcs().size());
+      Library library = manager.getSavedLibraries().get(0);
+      TestCase.assertEquals(2, library.getLibraryQCs().size());
+      for (LibraryQC lqc : library.getLibraryQCs()) {
+        TestCase.assertEquals(350, lqc.getInsertSize().intValue());
+      }
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+      TestCase.fail();
+    }
+    finally {
+      testLibraryPoolXlsFile.delete();
+    }
+  }
+
+  @Test
+  public void testImportPlateDoesNotSaveUnsavedPlate() {
+    try {
+      XSSFWorkbook wb = new XSSFWorkbook();
+      XSSFSheet sheet = wb.createSheet();
+      for (int i = 0; i < 4; i++) {
+        sheet.createRow(i).createCell(0).setCellValue("header");
+      }
+      XSSFRow glrow = sheet.createRow(1);
+      glrow.createCell(0).setCellValue("true");
+      glrow.createCell(1).setCellValue("Illumina");
+      glrow.createCell(2).setCellValue("Illumina-Paired End");
+      glrow.createCell(3).setCellValue("PCR");
+      glrow.createCell(4).setCellValue("WGS");
+      glrow.createCell(5).setCellValue("PLATE01");
+
+      String[] positions = {"A01", "A02"};
+      for (int i = 0; i < positions.length; i++) {
+        XSSFRow row = sheet.createRow(4 + i);
+        row.createCell(0).setCellValue(positions[i]);
+        row.createCell(2).setCellValue("RD_S" + (i + 1) + "_MockSample");
+        row.createCell(3).setCellValue("P1");
+        row.createCell(8).setCellValue("TruSeq Single Index");
+        row.createCell(9).setCellValue("Index 1");
+        row.createCell(11).setCellValue(350);
+        row.createCell(12).setCellValue(12.0);
+        row.createCell(22).setCellValue(4.0);
+      }
+
+      OutputStream out = new FileOutputStream(testPlateXlsFile);
+      try {
+        wb.write(out);
+      }
+      finally {
+        out.close();
+      }
+
+      User u = new UserImpl();
+      u.setLoginName("testPlateImportUser");
+      MockFormTestRequestManager manager = new MockFormTestRequestManager();
+      Map<String, PlatePool> pools = FormUtils.importPlateInputSpreadsheet(testPlateXlsFile, u, manager, new DefaultLibraryNamingScheme());
+
+      TestCase.assertEquals(1, manager.getSavedPools().size());
+      TestCase.assertEquals(2, manager.getSavedLibraries().size());
+      TestCase.assertFalse("A pool was saved with an element for the unsaved plate", manager.getSavedPoolElementIds().contains(0L));
+      //the plate is still attached to the returned pool for the upload response
+      TestCase.assertEquals(1, pools.get("P1").getPoolableElements().size());
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+      TestCase.fail();
+    }
+    finally {
+      testPlateXlsFile.delete();
+    }
+  }
+
   private List<Sample> generateSamples() {
     List<Sample> samples = new ArrayList<Sample>();
     DataObjectFactory dataObjectFactory = new TgacDataObjectFactory();
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Mock request manager for form tests
@@ -23,6 +24,54 @@ import java.util.Date;
  * @since 0.1.8
  */
 public class MockFormTestRequestManager extends MisoRequestManager {
+  private final List<Library> savedLibraries = new ArrayList<Library>();
+  private final List<LibraryQC> savedLibraryQcs = new ArrayList<LibraryQC>();
+  private final List<Pool> savedPools = new ArrayList<Pool>();
+  private final List<Long> savedPoolElementIds = new ArrayList<Long>();
+
+  public List<Library> getSavedLibraries() {
+    return savedLibraries;
+  }
+
+  public List<LibraryQC> getSavedLibraryQcs() {
+    return savedLibraryQcs;
+  }
+
+  public List<Pool> getSavedPools() {
+    return savedPools;
+  }
+
+  /**
+   * @return the IDs of the elements each pool held at the moment it was saved
+   */
+  public List<Long> getSavedPoolElementIds() {
+    return savedPoolElementIds;
+  }
+
+  @Override
+  public long saveLibrary(Library library) throws IOException {
+    savedLibraries.add(library);
+    library.setId(savedLibraries.size());
+    return library.getId();
+  }
+
+  @Override
+  public long saveLibraryQC(LibraryQC libraryQc) throws IOException {
+    savedLibraryQcs.add(libraryQc);
+    libraryQc.setId(savedLibraryQcs.size());
+    return libraryQc.getId();
+  }
+
+  @Override
+  public long savePool(Pool pool) throws IOException {
+    savedPools.add(pool);
+    for (Object element : pool.getPoolableElements()) {
+      savedPoolElementIds.add(((Poolable) element).getId());
+    }
+    pool.setId(savedPools.size());
+    return pool.getId();
+  }
+
   @Override
   public LibraryType getLibraryTypeByDescriptionAndPlatform(String description, PlatformType platformType) {
     LibraryType lt = new LibraryType();
@@ -75,6 +124,19 @@ public class MockFormTestRequestManager extends MisoRequestManager {
     return new ArrayList<Sample>(){{add(s);}};
   }
 
+  @Override
+  public Collection<Sample> listSamplesByAliases(Collection<String> aliases) {
+    List<Sample> samples = new ArrayList<Sample>();
+    long id = 1L;
+    for (String alias : aliases) {
+      Sample s = listSamplesByAlias(alias).iterator().next();
+      s.setId(id++);
+      s.setAlias(alias);
+      samples.add(s);
+    }
+    return samples;
+  }
+
   @Override
   public QcType getSampleQcTypeByName(String name) {
     QcType qt = new QcType();
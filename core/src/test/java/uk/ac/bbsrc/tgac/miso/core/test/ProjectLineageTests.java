@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.core.test;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import uk.ac.bbsrc.tgac.miso.core.data.impl.ProjectLineage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.core.test
+ * <p/>
+ * Tests cutting a project lineage down to the security profiles a user can read
+ *
+ * @since 0.2.1
+ */
+public class ProjectLineageTests {
+  private static final long OPEN = 1L;
+  private static final long PRIVATE = 2L;
+
+  @Test
+  public void testReadableByKeepsOnlyReadableNodes() {
+    ProjectLineage readable = buildLineage().readableBy(new HashSet<Long>(Collections.singletonList(OPEN)));
+
+    TestCase.assertEquals(Arrays.asList(10L), ids(readable.getStudies()));
+    TestCase.assertEquals(Arrays.asList(20L), ids(readable.getExperiments()));
+    TestCase.assertEquals(Arrays.asList(30L), ids(readable.getSamples()));
+    TestCase.assertEquals(Arrays.asList(40L, 41L), ids(readable.getLibraries()));
+    TestCase.assertEquals(Arrays.asList(50L), ids(readable.getDilutions()));
+    TestCase.assertEquals(Arrays.asList(60L), ids(readable.getPools()));
+    TestCase.assertEquals(Arrays.asList(70L), ids(readable.getRuns()));
+
+    TestCase.assertEquals(Arrays.asList(20L), ProjectLineage.childIds(readable.getStudyExperiments(), 10L));
+    TestCase.assertEquals(Arrays.asList(40L), ProjectLineage.childIds(readable.getSampleLibraries(), 30L));
+    TestCase.assertEquals(Arrays.asList(50L), ProjectLineage.childIds(readable.getLibraryDilutions(), 40L));
+    TestCase.assertEquals(Arrays.asList(60L), ProjectLineage.childIds(readable.getDilutionPools(), 50L));
+    TestCase.assertEquals(Arrays.asList(70L), ProjectLineage.childIds(readable.getPoolRuns(), 60L));
+  }
+
+  @Test
+  public void testReadableByDropsChildrenOfHiddenNodes() {
+    ProjectLineage readable = buildLineage().readableBy(new HashSet<Long>(Collections.singletonList(OPEN)));
+
+    // the private sample's open library stays in the list, but nothing links to it any more
+    TestCase.assertTrue(ProjectLineage.childIds(readable.getSampleLibraries(), 31L).isEmpty());
+    TestCase.assertEquals(1, readable.getSampleLibraries().size());
+    TestCase.assertTrue(ProjectLineage.childIds(readable.getStudyExperiments(), 11L).isEmpty());
+  }
+
+  @Test
+  public void testReadableByLeavesCachedLineageUntouched() {
+    ProjectLineage lineage = buildLineage();
+    lineage.readableBy(Collections.<Long>emptySet());
+
+    TestCase.assertEquals(2, lineage.getStudies().size());
+    TestCase.assertEquals(2, lineage.getSamples().size());
+    TestCase.assertEquals(2, lineage.getRuns().size());
+    TestCase.assertEquals(2, lineage.getSampleLibraries().size());
+  }
+
+  @Test
+  public void testReadableByWithAllProfiles() {
+    ProjectLineage readable = buildLineage().readableBy(new HashSet<Long>(Arrays.asList(OPEN, PRIVATE)));
+
+    TestCase.assertEquals(2, readable.getSamples().size());
+    TestCase.assertEquals(2, readable.getSampleLibraries().size());
+    TestCase.assertEquals(2, readable.getRuns().size());
+  }
+
+  private ProjectLineage buildLineage() {
+    ProjectLineage lineage = new ProjectLineage(1L, "PRO1", "MockProject");
+    lineage.addStudy(new ProjectLineage.Node(10L, "STU10", "open study", false, OPEN));
+    lineage.addStudy(new ProjectLineage.Node(11L, "STU11", "private study", false, PRIVATE));
+    lineage.addExperiment(10L, new ProjectLineage.Node(20L, "EXP20", "open experiment", false, OPEN));
+    lineage.addExperiment(11L, new ProjectLineage.Node(21L, "EXP21", "private experiment", false, PRIVATE));
+
+    lineage.addSample(new ProjectLineage.Node(30L, "SAM30", "open sample", true, OPEN));
+    lineage.addSample(new ProjectLineage.Node(31L, "SAM31", "private sample", true, PRIVATE));
+    lineage.addLibrary(30L, new ProjectLineage.Node(40L, "LIB40", "open library", true, OPEN));
+    lineage.addLibrary(31L, new ProjectLineage.Node(41L, "LIB41", "open library of a private sample", true, OPEN));
+    lineage.addDilution(40L, new ProjectLineage.Node(50L, "LDI50", null, false, OPEN));
+    lineage.addDilution(41L, new ProjectLineage.Node(51L, "LDI51", null, false, PRIVATE));
+
+    lineage.addPool(new ProjectLineage.Node(60L, "IPO60", "open pool", false, OPEN));
+    lineage.addPool(new ProjectLineage.Node(61L, "IPO61", "private pool", false, PRIVATE));
+    lineage.addDilutionPool(50L, 60L);
+    lineage.addDilutionPool(51L, 61L);
+    lineage.addRun(new ProjectLineage.Node(70L, "RUN70", "open run", true, OPEN));
+    lineage.addRun(new ProjectLineage.Node(71L, "RUN71", "private run", true, PRIVATE));
+    lineage.addPoolRun(60L, 70L);
+    lineage.addPoolRun(61L, 71L);
+    return lineage;
+  }
+
+  private static List<Long> ids(List<ProjectLineage.Node> nodes) {
+    Long[] ids = new Long[nodes.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = nodes.get(i).getId();
+    }
+    return Arrays.asList(ids);
+  }
+}
@@ -27,6 +27,7 @@ import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationClient;
 import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationException;
 import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationUtils;
 
@@ -46,6 +47,10 @@ public class AnalysisQueryService {
 
   private String analysisServerHost;
   private int analysisServerPort;
+  private int analysisServerFramedPort;
+  private int maxConnections = 4;
+  private long requestTimeout = 30000L;
+  private IntegrationClient client;
 
   public void setAnalysisServerHost(String analysisServerHost) {
     this.analysisServerHost = analysisServerHost;
@@ -55,6 +60,50 @@ public class AnalysisQueryService {
     this.analysisServerPort = analysisServerPort;
   }
 
+  /**
+   * Sets the port on which the analysis server accepts persistent, length-framed connections. When set, queries are
+   * sent over a pool of reused connections instead of a new socket per query.
+   *
+   * @param analysisServerFramedPort the framed port, or 0 to use the line-based port
+   */
+  public void setAnalysisServerFramedPort(int analysisServerFramedPort) {
+    this.analysisServerFramedPort = analysisServerFramedPort;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public void setRequestTimeout(long requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+
+  /**
+   * Closes any pooled connections to the analysis server
+   */
+  public synchronized void destroy() {
+    if (client != null) {
+      client.close();
+      client = null;
+    }
+  }
+
+  private String send(String query) throws IntegrationException {
+    if (analysisServerFramedPort > 0) {
+      return getClient().send(query);
+    }
+    return IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), query);
+  }
+
+  private synchronized IntegrationClient getClient() {
+    if (client == null) {
+      client = new IntegrationClient(analysisServerHost, analysisServerFramedPort);
+      client.setMaxConnections(maxConnections);
+      client.setRequestTimeout(requestTimeout);
+    }
+    return client;
+  }
+
   public JSONArray getTask(String taskId) throws IntegrationException {
     JSONObject q1 = new JSONObject();
     q1.put("query", "getTask");
@@ -63,7 +112,7 @@ public class AnalysisQueryService {
     q1.put("params", params);
     String query = q1.toString();
 
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), query);
+    String response = send(query);
     if (!"".equals(response)) {
       JSONArray r = JSONArray.fromObject(response);
       if (!r.isEmpty()) {
@@ -84,7 +133,7 @@ public class AnalysisQueryService {
     q1.put("query", "getTasks");
     String query = q1.toString();
 
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), query);
+    String response = send(query);
     if (!"".equals(response)) {
       JSONArray r = JSONArray.fromObject(response);
       if (!r.isEmpty()) {
@@ -105,7 +154,7 @@ public class AnalysisQueryService {
     q1.put("query", "getPendingTasks");
     String query = q1.toString();
 
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), query);
+    String response = send(query);
     if (!"".equals(response)) {
       JSONArray r = JSONArray.fromObject(response);
       if (!r.isEmpty()) {
@@ -133,7 +182,7 @@ public class AnalysisQueryService {
     q1.put("query", "getPendingTasks");
     String query = q1.toString();
 
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), query);
+    String response = send(query);
     if (!"".equals(response)) {
       JSONArray r = JSONArray.fromObject(response);
       if (!r.isEmpty()) {
@@ -161,7 +210,7 @@ public class AnalysisQueryService {
     q1.put("query", "getRunningTasks");
     String query = q1.toString();
 
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), query);
+    String response = send(query);
     if (!"".equals(response)) {
       JSONArray r = JSONArray.fromObject(response);
       if (!r.isEmpty()) {
@@ -182,7 +231,7 @@ public class AnalysisQueryService {
     q1.put("query", "getCompletedTasks");
     String query = q1.toString();
 
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), query);
+    String response = send(query);
     if (!"".equals(response)) {
       JSONArray r = JSONArray.fromObject(response);
       if (!r.isEmpty()) {
@@ -206,7 +255,7 @@ public class AnalysisQueryService {
     q1.put("params", params);
     String query = q1.toString();
 
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), query);
+    String response = send(query);
     if (!"".equals(response)) {
       JSONObject r = JSONObject.fromObject(response);
       if (!r.isEmpty()) {
@@ -227,7 +276,7 @@ public class AnalysisQueryService {
     q1.put("query", "getPipelines");
     String query = q1.toString();
 
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), query);
+    String response = send(query);
     if (!"".equals(response)) {
       JSONArray r = JSONArray.fromObject(response);
       if (!r.isEmpty()) {
@@ -260,7 +309,7 @@ public class AnalysisQueryService {
 
     task.put("submit", j);
 
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(analysisServerHost, analysisServerPort), task.toString());
+    String response = send(task.toString());
     if (!"".equals(response)) {
       JSONObject r = JSONObject.fromObject(response);
       if (r.has("error")) {
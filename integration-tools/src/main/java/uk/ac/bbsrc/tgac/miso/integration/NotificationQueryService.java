@@ -4,6 +4,7 @@ import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationClient;
 import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationException;
 import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationUtils;
 
@@ -19,6 +20,10 @@ public class NotificationQueryService {
 
   private String notificationServerHost;
   private int notificationServerPort;
+  private int notificationServerFramedPort;
+  private int maxConnections = 4;
+  private long requestTimeout = 30000L;
+  private IntegrationClient client;
 
   public void setNotificationServerHost(String notificationServerHost) {
     this.notificationServerHost = notificationServerHost;
@@ -28,6 +33,50 @@ public class NotificationQueryService {
     this.notificationServerPort = notificationServerPort;
   }
 
+  /**
+   * Sets the port on which the notification server accepts persistent, length-framed connections. When set, queries are
+   * sent over a pool of reused connections instead of a new socket per query.
+   *
+   * @param notificationServerFramedPort the framed port, or 0 to use the line-based port
+   */
+  public void setNotificationServerFramedPort(int notificationServerFramedPort) {
+    this.notificationServerFramedPort = notificationServerFramedPort;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public void setRequestTimeout(long requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+
+  /**
+   * Closes any pooled connections to the notification server
+   */
+  public synchronized void destroy() {
+    if (client != null) {
+      client.close();
+      client = null;
+    }
+  }
+
+  private String send(String query) throws IntegrationException {
+    if (notificationServerFramedPort > 0) {
+      return getClient().send(query);
+    }
+    return IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(notificationServerHost, notificationServerPort), query);
+  }
+
+  private synchronized IntegrationClient getClient() {
+    if (client == null) {
+      client = new IntegrationClient(notificationServerHost, notificationServerFramedPort);
+      client.setMaxConnections(maxConnections);
+      client.setRequestTimeout(requestTimeout);
+    }
+    return client;
+  }
+
   public JSONObject getRunProgress(String runAlias, String platformType) throws IntegrationException {
     JSONObject q = new JSONObject();
     q.put("query", "queryRunProgress");
@@ -54,7 +103,7 @@ public class NotificationQueryService {
   }
 
   private JSONObject doQuery(String query) throws IntegrationException {
-    String response = IntegrationUtils.sendMessage(IntegrationUtils.prepareSocket(notificationServerHost, notificationServerPort), query);
+    String response = send(query);
     if (!"".equals(response)) {
       JSONObject r = JSONObject.fromObject(response);
       if (!r.isEmpty()) {
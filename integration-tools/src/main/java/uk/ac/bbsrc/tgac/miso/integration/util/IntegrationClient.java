@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.integration.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.integration.util
+ * <p/>
+ * A client for the notification and analysis servers that keeps a small pool of persistent connections open rather
+ * than opening a socket per query. Each message is framed by a 4-byte big-endian length header, matching Spring
+ * Integration's ByteArrayLengthHeaderSerializer on the server side.
+ * <p/>
+ * Requests are pipelined: concurrent callers write onto a shared connection without waiting for earlier replies, and
+ * a reader thread per connection hands replies back in request order, which is the order the servers answer them in.
+ * A new connection is only opened when every open connection already has a request in flight.
+ *
+ * @since 0.2.1
+ */
+public class IntegrationClient {
+  protected static final Logger log = LoggerFactory.getLogger(IntegrationClient.class);
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final String host;
+  private final int port;
+
+  private int maxConnections = 4;
+  private int connectTimeout = 5000;
+  private long requestTimeout = 30000L;
+  private long idleTimeout = 60000L;
+  private int maxMessageSize = 64 * 1024 * 1024;
+
+  private final List<Connection> connections = new ArrayList<>();
+  private final AtomicInteger connectionCount = new AtomicInteger();
+
+  public IntegrationClient(String host, int port) {
+    this.host = host;
+    this.port = port;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = Math.max(1, maxConnections);
+  }
+
+  public void setConnectTimeout(int connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  /**
+   * @param requestTimeout how long to wait for a reply before giving up on a request, in milliseconds
+   */
+  public void setRequestTimeout(long requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+
+  /**
+   * @param idleTimeout how long an unused connection is kept open, in milliseconds. This should be shorter than any
+   *                    idle timeout the server applies.
+   */
+  public void setIdleTimeout(long idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  public void setMaxMessageSize(int maxMessageSize) {
+    this.maxMessageSize = maxMessageSize;
+  }
+
+  /**
+   * Sends a query and waits for its reply
+   *
+   * @param query of type String
+   * @return the reply, with characters that are not valid in XML removed
+   * @throws IntegrationException when the query can't be sent, the connection fails, or the reply times out
+   */
+  public String send(String query) throws IntegrationException {
+    PendingReply reply;
+    try {
+      reply = acquire().submit(query);
+    }
+    catch (IOException e) {
+      //nothing reached the server, so it's safe to try once more on a fresh connection
+      log.debug("Retrying query to " + host + ":" + port + " after write failure: " + e.getMessage());
+      try {
+        reply = acquire().submit(query);
+      }
+      catch (IOException e2) {
+        throw new IntegrationException("Cannot send query to " + host + ":" + port + ". Cause: " + e2.getMessage());
+      }
+    }
+    return IntegrationUtils.cleanResponse(reply.await(requestTimeout));
+  }
+
+  /**
+   * Closes all open connections. Requests still waiting for a reply fail.
+   */
+  public void close() {
+    List<Connection> open;
+    synchronized (connections) {
+      open = new ArrayList<>(connections);
+      connections.clear();
+    }
+    for (Connection c : open) {
+      c.close(new IOException("Client closed"));
+    }
+  }
+
+  private Connection acquire() throws IntegrationException {
+    synchronized (connections) {
+      long now = System.currentTimeMillis();
+      Connection best = null;
+      for (Iterator<Connection> it = connections.iterator(); it.hasNext();) {
+        Connection c = it.next();
+        if (c.isClosed()) {
+          it.remove();
+        }
+        else if (c.inFlight() == 0 && now - c.lastUsed > idleTimeout) {
+          it.remove();
+          c.close(null);
+        }
+        else if (best == null || c.inFlight() < best.inFlight()) {
+          best = c;
+        }
+      }
+
+      if (best == null || (best.inFlight() > 0 && connections.size() < maxConnections)) {
+        try {
+          Connection c = new Connection(connect());
+          connections.add(c);
+          return c;
+        }
+        catch (IOException e) {
+          if (best == null) {
+            throw new IntegrationException("Cannot connect to " + host + ":" + port + ". Cause: " + e.getMessage());
+          }
+          log.warn("Cannot open another connection to " + host + ":" + port + ", pipelining instead: " + e.getMessage());
+        }
+      }
+      return best;
+    }
+  }
+
+  private Socket connect() throws IOException {
+    Socket socket = new Socket();
+    socket.setTcpNoDelay(true);
+    socket.setKeepAlive(true);
+    socket.connect(new InetSocketAddress(host, port), connectTimeout);
+    //the reader wakes up this often to check whether the oldest outstanding request has timed out
+    socket.setSoTimeout((int) Math.max(1000L, Math.min(requestTimeout, Integer.MAX_VALUE)));
+    return socket;
+  }
+
+  private class Connection implements Runnable {
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    //guarded by this
+    private final LinkedList<PendingReply> pending = new LinkedList<>();
+    private volatile boolean closed;
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      Thread reader = new Thread(this, "integration-client-" + host + ":" + port + "-" + connectionCount.incrementAndGet());
+      reader.setDaemon(true);
+      reader.start();
+    }
+
+    PendingReply submit(String query) throws IOException {
+      byte[] payload = query.getBytes(UTF8);
+      PendingReply reply = new PendingReply();
+      //enqueue and write under the same lock so the queue order is the order on the wire
+      synchronized (this) {
+        if (closed) {
+          throw new IOException("Connection closed");
+        }
+        pending.add(reply);
+        try {
+          out.writeInt(payload.length);
+          out.write(payload);
+          out.flush();
+        }
+        catch (IOException e) {
+          pending.remove(reply);
+          close(e);
+          throw e;
+        }
+      }
+      lastUsed = System.currentTimeMillis();
+      return reply;
+    }
+
+    synchronized int inFlight() {
+      return pending.size();
+    }
+
+    boolean isClosed() {
+      return closed;
+    }
+
+    @Override
+    public void run() {
+      byte[] buf = new byte[8192];
+      while (!closed) {
+        try {
+          //a timeout is only harmless while waiting for the first byte of a frame
+          int first = in.read();
+          if (first < 0) {
+            throw new EOFException();
+          }
+          String response;
+          try {
+            int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+            if (length < 0 || length > maxMessageSize) {
+              throw new IOException("Reply of " + length + " bytes exceeds the maximum message size of " + maxMessageSize);
+            }
+            if (length > buf.length) {
+              buf = new byte[length];
+            }
+            in.readFully(buf, 0, length);
+            response = new String(buf, 0, length, UTF8);
+          }
+          catch (SocketTimeoutException e) {
+            //the rest of the frame is lost, so nothing further on this connection can be matched to a request
+            throw new IOException("Timed out part way through a reply from " + host + ":" + port);
+          }
+
+          PendingReply reply;
+          synchronized (this) {
+            reply = pending.poll();
+          }
+          if (reply != null) {
+            reply.complete(response);
+          }
+          else {
+            log.warn("Discarding unsolicited reply from " + host + ":" + port);
+          }
+          lastUsed = System.currentTimeMillis();
+        }
+        catch (SocketTimeoutException e) {
+          //nothing of the next frame has been read yet, so the connection is still usable
+          PendingReply oldest;
+          synchronized (this) {
+            oldest = pending.peek();
+          }
+          if (oldest != null && System.currentTimeMillis() - oldest.sent > requestTimeout) {
+            close(new IOException("No reply from " + host + ":" + port + " within " + requestTimeout + "ms"));
+          }
+        }
+        catch (EOFException e) {
+          close(new IOException("Connection closed by " + host + ":" + port));
+        }
+        catch (IOException e) {
+          close(e);
+        }
+      }
+    }
+
+    void close(IOException cause) {
+      List<PendingReply> failed;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        failed = new ArrayList<>(pending);
+        pending.clear();
+      }
+      try {
+        socket.close();
+      }
+      catch (IOException e) {
+        log.debug("Error closing connection to " + host + ":" + port + ": " + e.getMessage());
+      }
+      for (PendingReply reply : failed) {
+        reply.fail(cause != null ? cause : new IOException("Connection closed"));
+      }
+    }
+  }
+
+  private static class PendingReply {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final long sent = System.currentTimeMillis();
+    private volatile String response;
+    private volatile IOException error;
+
+    void complete(String response) {
+      this.response = response;
+      latch.countDown();
+    }
+
+    void fail(IOException error) {
+      this.error = error;
+      latch.countDown();
+    }
+
+    String await(long timeout) throws IntegrationException {
+      try {
+        if (!latch.await(timeout, TimeUnit.MILLISECONDS)) {
+          throw new IntegrationException("Timed out after " + timeout + "ms waiting for a reply");
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IntegrationException("Interrupted whilst waiting for a reply");
+      }
+      if (error != null) {
+        throw new IntegrationException(error.getMessage());
+      }
+      return response;
+    }
+  }
+}
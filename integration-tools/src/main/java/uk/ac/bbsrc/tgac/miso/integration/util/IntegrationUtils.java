@@ -87,24 +87,7 @@ public class IntegrationUtils {
       wr.close();
       rd.close();
 
-      String dirty = sb.toString();
-      StringBuilder response = new StringBuilder();
-      int codePoint;
-      int i=0;
-      while(i<dirty.length()) {
-          codePoint = dirty.codePointAt(i);
-          if ((codePoint == 0x9) ||
-              (codePoint == 0xA) ||
-              (codePoint == 0xD) ||
-              ((codePoint >= 0x20) && (codePoint <= 0xD7FF)) ||
-              ((codePoint >= 0xE000) && (codePoint <= 0xFFFD)) ||
-              ((codePoint >= 0x10000) && (codePoint <= 0x10FFFF))) {
-              response.append(Character.toChars(codePoint));
-          }
-          i+= Character.charCount(codePoint);
-      }
-
-      return response.toString().replace("\\\n", "").replace("\\\t", "");
+      return cleanResponse(sb.toString());
     }
     catch (UnknownHostException e) {
       System.err.println("Cannot resolve host: " + socket.getInetAddress());
@@ -128,6 +111,40 @@ public class IntegrationUtils {
     }
   }
 
+  /**
+   * Strips line breaks, escaped tabs and any characters that are not valid in XML from a server reply. Replies that
+   * need no cleaning, which is nearly all of them, are returned as is.
+   *
+   * @param dirty of type String
+   * @return String
+   */
+  public static String cleanResponse(String dirty) {
+    StringBuilder response = null;
+    int i = 0;
+    while (i < dirty.length()) {
+      int codePoint = dirty.codePointAt(i);
+      int charCount = Character.charCount(codePoint);
+      boolean keep = (codePoint == 0x9) ||
+                     ((codePoint >= 0x20) && (codePoint <= 0xD7FF)) ||
+                     ((codePoint >= 0xE000) && (codePoint <= 0xFFFD)) ||
+                     ((codePoint >= 0x10000) && (codePoint <= 0x10FFFF));
+      if (!keep && response == null) {
+        response = new StringBuilder(dirty.length());
+        response.append(dirty, 0, i);
+      }
+      else if (keep && response != null) {
+        response.append(dirty, i, i + charCount);
+      }
+      i += charCount;
+    }
+
+    String clean = response == null ? dirty : response.toString();
+    if (clean.indexOf('\\') >= 0) {
+      clean = clean.replace("\\\t", "");
+    }
+    return clean;
+  }
+
   public static byte[] compress(byte[] content) throws IOException {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     Base64OutputStream b64os = new Base64OutputStream(baos);
@@ -39,6 +39,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
   //JargonTests.class
+  IntegrationClientTests.class
 })
 
 public class AllTestsSuite {
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.integration.test;
+
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationClient;
+import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.integration.test
+ * <p/>
+ * Tests IntegrationClient against a local length-framed server
+ *
+ * @since 0.2.1
+ */
+public class IntegrationClientTests {
+  private FramedServer server;
+  private IntegrationClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FramedServer();
+    client = new IntegrationClient("localhost", server.getPort());
+    client.setRequestTimeout(1000);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void testPipelinedRepliesReachTheirCallers() throws Exception {
+    client.setMaxConnections(2);
+    ExecutorService callers = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> replies = new ArrayList<Future<String>>();
+      for (int i = 0; i < 200; i++) {
+        final String query = "query" + i;
+        replies.add(callers.submit(new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            return client.send(query);
+          }
+        }));
+      }
+      for (int i = 0; i < replies.size(); i++) {
+        TestCase.assertEquals("reply:query" + i, replies.get(i).get(10, TimeUnit.SECONDS));
+      }
+    }
+    finally {
+      callers.shutdownNow();
+    }
+    TestCase.assertTrue(server.accepted.get() <= 2);
+  }
+
+  @Test
+  public void testIdleConnectionIsReused() throws Exception {
+    TestCase.assertEquals("reply:a", client.send("a"));
+    //the reader times out twice with no frame started, which must not close the connection
+    Thread.sleep(2500);
+    TestCase.assertEquals("reply:b", client.send("b"));
+    TestCase.assertEquals(1, server.accepted.get());
+  }
+
+  @Test
+  public void testPartialFrameClosesConnection() throws Exception {
+    client.setMaxConnections(1);
+    server.partialReplyTo = "stall";
+    try {
+      client.send("stall");
+      TestCase.fail("Expected the stalled reply to fail");
+    }
+    catch (IntegrationException e) {
+      //expected
+    }
+    //the client must give up on the connection rather than read the rest of the frame as a new reply
+    TestCase.assertTrue(server.clientClosed.await(5, TimeUnit.SECONDS));
+    TestCase.assertEquals("reply:next", client.send("next"));
+    TestCase.assertEquals(2, server.accepted.get());
+  }
+
+  @Test
+  public void testOversizedReplyFails() throws Exception {
+    client.setMaxMessageSize(8);
+    try {
+      client.send("a query with a long reply");
+      TestCase.fail("Expected an oversized reply to fail");
+    }
+    catch (IntegrationException e) {
+      TestCase.assertTrue(e.getMessage(), e.getMessage().contains("maximum message size"));
+    }
+  }
+
+  @Test
+  public void testServerCloseFailsPendingRequest() throws Exception {
+    server.closeOn = "close";
+    try {
+      client.send("close");
+      TestCase.fail("Expected the request to fail when the server closes the connection");
+    }
+    catch (IntegrationException e) {
+      TestCase.assertTrue(e.getMessage(), e.getMessage().contains("Connection closed"));
+    }
+    TestCase.assertEquals("reply:after", client.send("after"));
+  }
+
+  /**
+   * Answers each 4-byte length framed query with "reply:" and the query, in order
+   */
+  private static class FramedServer implements Runnable {
+    private final ServerSocket serverSocket = new ServerSocket(0);
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final CountDownLatch clientClosed = new CountDownLatch(1);
+    private volatile String partialReplyTo;
+    private volatile String closeOn;
+
+    FramedServer() throws IOException {
+      Thread t = new Thread(this, "framed-test-server");
+      t.setDaemon(true);
+      t.start();
+    }
+
+    int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void run() {
+      while (!serverSocket.isClosed()) {
+        try {
+          final Socket socket = serverSocket.accept();
+          accepted.incrementAndGet();
+          Thread handler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+              handle(socket);
+            }
+          }, "framed-test-connection");
+          handler.setDaemon(true);
+          handler.start();
+        }
+        catch (IOException e) {
+          //closed
+        }
+      }
+    }
+
+    private void handle(Socket socket) {
+      try {
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        while (true) {
+          byte[] query = new byte[in.readInt()];
+          in.readFully(query);
+          String q = new String(query, "UTF-8");
+          if (q.equals(closeOn)) {
+            socket.close();
+            return;
+          }
+          byte[] reply = ("reply:" + q).getBytes("UTF-8");
+          out.writeInt(reply.length);
+          if (q.equals(partialReplyTo)) {
+            //send part of the frame, then hold the rest back until the client hangs up
+            out.write(reply, 0, 3);
+            out.flush();
+            if (in.read() < 0) {
+              clientClosed.countDown();
+            }
+            return;
+          }
+          out.write(reply);
+          out.flush();
+        }
+      }
+      catch (IOException e) {
+        //client went away
+      }
+      finally {
+        try {
+          socket.close();
+        }
+        catch (IOException e) {
+          //going away anyway
+        }
+      }
+    }
+
+    void close() throws IOException {
+      serverSocket.close();
+    }
+  }
+}
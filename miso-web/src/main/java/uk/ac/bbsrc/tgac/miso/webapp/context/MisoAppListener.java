@@ -68,6 +68,7 @@ import uk.ac.bbsrc.tgac.miso.core.store.RunQcStore;
 import uk.ac.bbsrc.tgac.miso.core.store.RunStore;
 import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
 import uk.ac.bbsrc.tgac.miso.runstats.client.manager.RunStatsManager;
+import uk.ac.bbsrc.tgac.miso.runstats.client.manager.RunStatsUpdateAspect;
 import uk.ac.bbsrc.tgac.miso.webapp.util.MisoPropertyExporter;
 import uk.ac.bbsrc.tgac.miso.webapp.util.MisoWebUtils;
 
@@ -343,6 +344,7 @@ public class MisoAppListener implements ServletContextListener {
 
         RunStatsManager rsm = new RunStatsManager(template);
         context.getBeanFactory().registerSingleton("runStatsManager", rsm);
+        ((RunStatsUpdateAspect) context.getBean("runStatsUpdateAspectBean")).setRunStatsManager(rsm);
       }
       catch (NamingException e) {
         log.error("Cannot initiate statsdb connection: " + e.getMessage());
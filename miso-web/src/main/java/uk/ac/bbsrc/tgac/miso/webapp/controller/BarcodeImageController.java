@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.webapp.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import uk.ac.bbsrc.tgac.miso.core.data.Barcodable;
+import uk.ac.bbsrc.tgac.miso.core.factory.barcode.BarcodeImageService;
+import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.webapp.controller
+ * <p/>
+ * Streams barcode images for MISO objects straight to the response as PNGs, from the {@link BarcodeImageService}
+ * cache. Responses carry an ETag, so browsers revalidate rather than download images they already have.
+ *
+ * @since 0.2.1
+ */
+@Controller
+@RequestMapping("/barcode")
+public class BarcodeImageController {
+  protected static final Logger log = LoggerFactory.getLogger(BarcodeImageController.class);
+
+  private static final int MAX_AGE_SECONDS = 300;
+  private static final double MIN_DIMENSION = 1;
+  private static final double MAX_DIMENSION = 2000;
+  private static final double DEFAULT_DIMENSION = 400;
+
+  @Autowired
+  private RequestManager requestManager;
+
+  @Autowired
+  private BarcodeImageService barcodeImageService;
+
+  public void setRequestManager(RequestManager requestManager) {
+    this.requestManager = requestManager;
+  }
+
+  public void setBarcodeImageService(BarcodeImageService barcodeImageService) {
+    this.barcodeImageService = barcodeImageService;
+  }
+
+  @RequestMapping(value = "/{type}/{id}", method = RequestMethod.GET)
+  public void getBarcodeImage(@PathVariable String type,
+                              @PathVariable Long id,
+                              @RequestParam(value = "generator", required = false) String generator,
+                              @RequestParam(value = "width", required = false, defaultValue = "400") Double width,
+                              @RequestParam(value = "height", required = false, defaultValue = "400") Double height,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+    Barcodable barcodable;
+    try {
+      barcodable = lookupBarcodable(type, id);
+    }
+    catch (IOException e) {
+      log.debug("Cannot retrieve " + type + " " + id + " for barcode", e);
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    if (barcodable == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+
+    BarcodeImageService.BarcodeImage image;
+    try {
+      image = barcodeImageService.getImage(barcodable.getIdentificationBarcode(), generator, clampDimension(width), clampDimension(height));
+    }
+    catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+    if (image == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, type + " " + id + " has no parseable barcode");
+      return;
+    }
+
+    response.setHeader("ETag", image.getETag());
+    response.setHeader("Cache-Control", "private, max-age=" + MAX_AGE_SECONDS);
+    if (image.getETag().equals(request.getHeader("If-None-Match"))) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+    response.setContentType("image/png");
+    response.setContentLength(image.getLength());
+    image.writeTo(response.getOutputStream());
+  }
+
+  /**
+   * Rounds a requested image size and keeps it between 1 and 2000 pixels, so that a request can neither allocate a huge image
+   * nor fill the image cache with entries that differ only by size
+   */
+  private static double clampDimension(Double value) {
+    if (value == null || value.isNaN()) {
+      return DEFAULT_DIMENSION;
+    }
+    return Math.max(MIN_DIMENSION, Math.min(MAX_DIMENSION, Math.rint(value)));
+  }
+
+  private Barcodable lookupBarcodable(String type, long id) throws IOException {
+    if ("sample".equals(type)) {
+      return requestManager.getSampleById(id);
+    }
+    else if ("library".equals(type)) {
+      return requestManager.getLibraryById(id);
+    }
+    else if ("dilution".equals(type)) {
+      return requestManager.getLibraryDilutionById(id);
+    }
+    else if ("empcrdilution".equals(type)) {
+      return requestManager.getEmPcrDilutionById(id);
+    }
+    else if ("pool".equals(type)) {
+      return requestManager.getPoolById(id);
+    }
+    else if ("plate".equals(type)) {
+      return requestManager.getPlateById(id);
+    }
+    return null;
+  }
+}
@@ -26,6 +26,7 @@ package uk.ac.bbsrc.tgac.miso.webapp.controller;
 import com.eaglegenomics.simlims.core.User;
 import com.eaglegenomics.simlims.core.manager.SecurityManager;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import uk.ac.bbsrc.tgac.miso.core.data.Sample;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
@@ -37,7 +38,10 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.ModelAndView;
 import uk.ac.bbsrc.tgac.miso.core.util.AliasComparator;
+import uk.ac.bbsrc.tgac.miso.core.util.jackson.ObjectMappers;
+import uk.ac.bbsrc.tgac.miso.webapp.util.JsonPageWriter;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -55,6 +59,7 @@ import java.util.List;
 @Controller
 public class ListSamplesController {
   protected static final Logger log = LoggerFactory.getLogger(ListSamplesController.class);
+  private static final JsonPageWriter PAGE_WRITER = new JsonPageWriter(ObjectMappers.DEFAULT);
 
   @Autowired
   private SecurityManager securityManager;
@@ -77,6 +82,18 @@ public class ListSamplesController {
     return requestManager.listAllSamples();
   }
 
+  /**
+   * Streams a page of samples, ordered by ID. Pass the returned "next" value as "after" to get the following page.
+   */
+  @RequestMapping(value = "/samples/rest/page", method = RequestMethod.GET)
+  public void jsonRestPage(@RequestParam(value = "after", required = false, defaultValue = "0") long after,
+                           @RequestParam(value = "limit", required = false) Integer limit,
+                           @RequestParam(value = "fields", required = false) String fields,
+                           HttpServletResponse response) throws IOException {
+    int pageSize = JsonPageWriter.clampLimit(limit);
+    PAGE_WRITER.write(response, requestManager.listSamplesAfter(after, pageSize), pageSize, JsonPageWriter.parseFields(fields));
+  }
+
   @RequestMapping("/samples")
   public ModelAndView listSamples() throws Exception {
     return new ModelAndView("/pages/listSamples.jsp");
@@ -23,21 +23,29 @@
 
 package uk.ac.bbsrc.tgac.miso.webapp.controller.d3graph;
 
+import com.eaglegenomics.simlims.core.User;
+import com.eaglegenomics.simlims.core.manager.SecurityManager;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import net.sourceforge.fluxion.ajax.util.JSONUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import uk.ac.bbsrc.tgac.miso.core.data.*;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.LibraryDilution;
+import uk.ac.bbsrc.tgac.miso.core.data.impl.ProjectLineage;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
+import uk.ac.bbsrc.tgac.miso.core.store.ProjectLineageStore;
 import uk.ac.bbsrc.tgac.miso.webapp.controller.EditProjectController;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Created by IntelliJ IDEA.
@@ -56,62 +64,75 @@ public class ProjectD3GraphController {
   @Autowired
   private RequestManager requestManager;
 
+  @Autowired
+  private ProjectLineageStore projectLineageStore;
+
+  @Autowired
+  private SecurityManager securityManager;
+
   @RequestMapping(value = "{projectId}", method = RequestMethod.GET)
   public
   @ResponseBody
   JSONObject d3graphRest(@PathVariable Long projectId) throws IOException {
+    try {
+      return projectGraph(projectId, getCurrentUser());
+    }
+    catch (IOException
+            e) {
+      log.debug("Failed", e);
+      return JSONUtils.SimpleJSONError("Failed: " + e.getMessage());
+    }
+  }
 
+  private JSONObject projectGraph(Long projectId, User user) throws IOException {
     try {
+      //load the project through the request manager so project read permissions are still checked
       Project p = requestManager.getProjectById(projectId);
+      //the lineage only holds the studies, samples, runs etc. this user can read
+      ProjectLineage lineage = projectLineageStore.getLineage(p.getProjectId(), user);
+      if (lineage == null) {
+        throw new IOException("No lineage found for project " + projectId);
+      }
+
       JSONObject projectJSON = new JSONObject();
       projectJSON.put("name", p.getName());
       projectJSON.put("show", "PROJECT");
       projectJSON.put("description", p.getAlias());
       JSONArray projectChildrenArray = new JSONArray();
-      Collection<Sample> samples = requestManager.listAllSamplesByProjectId(p.getProjectId());
-      Collection<Run> runs = requestManager.listAllRunsByProjectId(p.getProjectId());
-      Collection<Study> studies = requestManager.listAllStudiesByProjectId(p.getProjectId());
 
       JSONObject runJSON = new JSONObject();
       JSONArray runsArray = new JSONArray();
 
-
       runJSON.put("name", "Runs");
       runJSON.put("description", "");
-      for (Run run : runs) {
-        if (run.getStatus() != null
-            && run.getStatus().getHealth() != null
-            && run.getStatus().getHealth().getKey().equals("Completed")) {
-          runsArray.add(JSONObject.fromObject("{'name': '" + run.getName() + "','description':'" + run.getAlias() + "','color': '1'}"));
-        }
-        else {
-          runsArray.add(JSONObject.fromObject("{'name': '" + run.getName() + "','description':'" + run.getAlias() + "','color': '0'}"));
-        }
+      for (ProjectLineage.Node run : lineage.getRuns()) {
+        runsArray.add(leaf(run, run.isFlagged() ? "1" : "0"));
       }
       runJSON.put("children", runsArray);
       if (runsArray.size() > 0) {
         projectChildrenArray.add(runJSON);
       }
 
+      Map<Long, ProjectLineage.Node> experiments = byId(lineage.getExperiments());
+
       JSONObject studyJSON = new JSONObject();
       JSONArray studiesArray = new JSONArray();
 
       studyJSON.put("name", "Studies");
       studyJSON.put("description", "");
-      for (Study study : studies) {
-
+      for (ProjectLineage.Node study : lineage.getStudies()) {
         JSONObject substudyJSON = new JSONObject();
         JSONArray substudiesArray = new JSONArray();
         substudyJSON.put("name", study.getName());
         substudyJSON.put("description", study.getAlias());
-        Collection<Experiment> experiments = requestManager.listAllExperimentsByStudyId(study.getId());
-        if (experiments.size() > 0) {
+        List<Long> experimentIds = ProjectLineage.childIds(lineage.getStudyExperiments(), study.getId());
+        if (experimentIds.size() > 0) {
           JSONObject experimentJSON = new JSONObject();
           JSONArray experimentsArray = new JSONArray();
           experimentJSON.put("name", "experiment");
           experimentJSON.put("description", "");
-          for (Experiment e : experiments) {
-            experimentsArray.add(JSONObject.fromObject("{'name': '" + e.getName() + "','description':'" + e.getAlias() + "','color': '2'}"));
+          for (Long experimentId : experimentIds) {
+            experimentsArray.add(leaf(experiments.get(experimentId), "2"));
           }
           experimentJSON.put("children", experimentsArray);
           substudiesArray.add(experimentJSON);
@@ -127,49 +148,24 @@ public class ProjectD3GraphController {
         projectChildrenArray.add(studyJSON);
       }
 
+      Map<Long, ProjectLineage.Node> libraries = byId(lineage.getLibraries());
+
       JSONObject sampleJSON = new JSONObject();
       JSONArray samplesArray = new JSONArray();
 
       sampleJSON.put("name", "Samples");
       sampleJSON.put("description", "");
-      for (Sample sample : samples) {
-        Collection<Library> libraries = requestManager.listAllLibrariesBySampleId(sample.getId());
-        if (libraries.size() == 0) {
-
-          String sampleQC = "0";
-          if (sample.getQcPassed() != null) {
-            if (sample.getQcPassed()) {
-              sampleQC = "1";
-            }
-          }
-          samplesArray.add(JSONObject.fromObject("{'name': '" + sample.getName() + "','description':'" + sample.getAlias() + "','color': '" + sampleQC + "'}"));
+      for (ProjectLineage.Node sample : lineage.getSamples()) {
+        List<Long> libraryIds = ProjectLineage.childIds(lineage.getSampleLibraries(), sample.getId());
+        if (libraryIds.size() == 0) {
+          samplesArray.add(leaf(sample, sample.isFlagged() ? "1" : "0"));
         }
         else {
-          JSONObject libraryJSON = new JSONObject();
           JSONArray librariesArray = new JSONArray();
-
-          libraryJSON.put("name", "Libraries");
-
-          for (Library library : libraries) {
-//              Collection<LibraryDilution> lds = requestManager.listAllLibraryDilutionsByLibraryId(library.getLibraryId());
-//              if (lds.size() > 0) {
-//                JSONObject dilutionsJSON = new JSONObject();
-//                for (LibraryDilution ld : lds) {
-//                  dilutionsJSON.put(ld.getName(), "2");
-//                }
-//                librariesJSON.put(library.getName(), dilutionsJSON);
-//              }
-//              else {
-            if (library.getLibraryQCs().size() > 0) {
-              librariesArray.add(JSONObject.fromObject("{'name': '" + library.getName() + "','description':'" + library.getAlias() + "','color': '1'}"));
-            }
-            else {
-              librariesArray.add(JSONObject.fromObject("{'name': '" + library.getName() + "','description':'" + library.getAlias() + "','color': '0'}"));
-            }
-//              }
+          for (Long libraryId : libraryIds) {
+            ProjectLineage.Node library = libraries.get(libraryId);
+            librariesArray.add(leaf(library, library.isFlagged() ? "1" : "0"));
           }
-          libraryJSON.put("children", librariesArray);
-
 
           JSONObject subsampleJSON = new JSONObject();
           subsampleJSON.put("name", sample.getName());
@@ -193,6 +189,30 @@ public class ProjectD3GraphController {
     }
   }
 
+  private User getCurrentUser() throws IOException {
+    User user = securityManager.getUserByLoginName(SecurityContextHolder.getContext().getAuthentication().getName());
+    if (user == null) {
+      throw new IOException("Cannot resolve the current user");
+    }
+    return user;
+  }
+
+  private static JSONObject leaf(ProjectLineage.Node node, String color) {
+    JSONObject leaf = new JSONObject();
+    leaf.put("name", node.getName());
+    leaf.put("description", node.getAlias());
+    leaf.put("color", color);
+    return leaf;
+  }
+
+  private static Map<Long, ProjectLineage.Node> byId(Collection<ProjectLineage.Node> nodes) {
+    Map<Long, ProjectLineage.Node> byId = new HashMap<Long, ProjectLineage.Node>();
+    for (ProjectLineage.Node node : nodes) {
+      byId.put(node.getId(), node);
+    }
+    return byId;
+  }
+
   @RequestMapping(method = RequestMethod.GET)
   public
   @ResponseBody
@@ -200,12 +220,13 @@ public class ProjectD3GraphController {
     try {
       //User user = securityManager.getUserByLoginName(SecurityContextHolder.getContext().getAuthentication().getName());
       Collection<Project> projects = requestManager.listAllProjects();
+      User user = getCurrentUser();
 
       JSONObject miso = new JSONObject();
       JSONArray projectsArray = new JSONArray();
       for (Project p : projects) {
 
-        JSONObject projectJSON = d3graphRest(p.getProjectId());
+        JSONObject projectJSON = projectGraph(p.getProjectId(), user);
         JSONArray projectChildrenArray = (JSONArray) projectJSON.get("children");
         if (projectChildrenArray.size() > 0) {
           projectsArray.add(projectJSON);
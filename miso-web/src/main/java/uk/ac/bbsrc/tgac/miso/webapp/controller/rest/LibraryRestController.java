@@ -23,7 +23,6 @@
 
 package uk.ac.bbsrc.tgac.miso.webapp.controller.rest;
 
-import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,7 +30,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import uk.ac.bbsrc.tgac.miso.core.data.Sample;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
-import uk.ac.bbsrc.tgac.miso.core.util.jackson.SampleRecursionAvoidanceMixin;
+import uk.ac.bbsrc.tgac.miso.core.util.jackson.ObjectMappers;
 
 import java.io.IOException;
 
@@ -59,8 +58,6 @@ public class LibraryRestController {
 
   @RequestMapping(value = "{libraryId}", method = RequestMethod.GET)
   public @ResponseBody String jsonRest(@PathVariable Long libraryId) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    mapper.getSerializationConfig().addMixInAnnotations(Sample.class, SampleRecursionAvoidanceMixin.class);
-    return mapper.writeValueAsString(requestManager.getLibraryById(libraryId));
+    return ObjectMappers.SAMPLE_SAFE.writeValueAsString(requestManager.getLibraryById(libraryId));
   }
 }
@@ -24,7 +24,6 @@
 package uk.ac.bbsrc.tgac.miso.webapp.controller.rest;
 
 import com.eaglegenomics.simlims.core.Note;
-import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,10 +36,14 @@ import uk.ac.bbsrc.tgac.miso.core.exception.MalformedLibraryException;
 import uk.ac.bbsrc.tgac.miso.core.exception.MalformedLibraryQcException;
 import uk.ac.bbsrc.tgac.miso.core.exception.MalformedSampleQcException;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
-import uk.ac.bbsrc.tgac.miso.core.util.jackson.LibraryRecursionAvoidanceMixin;
+import uk.ac.bbsrc.tgac.miso.core.util.jackson.ObjectMappers;
+import uk.ac.bbsrc.tgac.miso.webapp.util.JsonPageWriter;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 /**
  * uk.ac.bbsrc.tgac.miso.webapp.controller.rest
@@ -56,6 +59,7 @@ import java.util.Collection;
 @SessionAttributes("project")
 public class ProjectRestController {
   protected static final Logger log = LoggerFactory.getLogger(ProjectRestController.class);
+  private static final JsonPageWriter PAGE_WRITER = new JsonPageWriter(ObjectMappers.LIBRARY_SAFE);
 
   @Autowired
   private RequestManager requestManager;
@@ -92,9 +96,7 @@ public class ProjectRestController {
       }
     }
 
-    ObjectMapper mapper = new ObjectMapper();
-    mapper.getSerializationConfig().addMixInAnnotations(Library.class, LibraryRecursionAvoidanceMixin.class);
-    return mapper.writeValueAsString(project);
+    return ObjectMappers.LIBRARY_SAFE.writeValueAsString(project);
   }
 
   @RequestMapping(value = "{projectId}/libraries", method = RequestMethod.GET)
@@ -120,9 +122,7 @@ public class ProjectRestController {
       }
     }
 
-    ObjectMapper mapper = new ObjectMapper();
-    mapper.getSerializationConfig().addMixInAnnotations(Library.class, LibraryRecursionAvoidanceMixin.class);
-    return mapper.writeValueAsString(lp);
+    return ObjectMappers.LIBRARY_SAFE.writeValueAsString(lp);
   }
 
   @RequestMapping(method = RequestMethod.GET)
@@ -135,8 +135,29 @@ public class ProjectRestController {
       p.setStudies(requestManager.listAllStudiesByProjectId(p.getProjectId()));
     }
 
-    ObjectMapper mapper = new ObjectMapper();
-    mapper.getSerializationConfig().addMixInAnnotations(Library.class, LibraryRecursionAvoidanceMixin.class);
-    return mapper.writeValueAsString(lp);
+    return ObjectMappers.LIBRARY_SAFE.writeValueAsString(lp);
+  }
+
+  /**
+   * Streams a page of projects, ordered by ID. Pass the returned "next" value as "after" to get the following page. Samples
+   * and studies are only looked up if they are asked for in "fields", or if no fields are given.
+   */
+  @RequestMapping(value = "page", method = RequestMethod.GET)
+  public void jsonRestPage(@RequestParam(value = "after", required = false, defaultValue = "0") long after,
+                           @RequestParam(value = "limit", required = false) Integer limit,
+                           @RequestParam(value = "fields", required = false) String fields,
+                           HttpServletResponse response) throws IOException {
+    int pageSize = JsonPageWriter.clampLimit(limit);
+    Set<String> projection = JsonPageWriter.parseFields(fields);
+    List<Project> lp = requestManager.listProjectsAfter(after, pageSize);
+    for (Project p : lp) {
+      if (JsonPageWriter.wants(projection, "samples")) {
+        p.setSamples(requestManager.listAllSamplesByProjectId(p.getProjectId()));
+      }
+      if (JsonPageWriter.wants(projection, "studies")) {
+        p.setStudies(requestManager.listAllStudiesByProjectId(p.getProjectId()));
+      }
+    }
+    PAGE_WRITER.write(response, lp, pageSize, projection);
   }
 }
@@ -26,7 +26,6 @@ package uk.ac.bbsrc.tgac.miso.webapp.controller.rest;
 import com.eaglegenomics.simlims.core.User;
 import com.eaglegenomics.simlims.core.manager.SecurityManager;
 import net.sourceforge.fluxion.ajax.util.JSONUtils;
-import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,7 +36,7 @@ import uk.ac.bbsrc.tgac.miso.core.data.*;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.RunImpl;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
 import uk.ac.bbsrc.tgac.miso.core.util.RunProcessingUtils;
-import uk.ac.bbsrc.tgac.miso.core.util.jackson.ContainerRecursionAvoidanceMixin;
+import uk.ac.bbsrc.tgac.miso.core.util.jackson.ObjectMappers;
 
 import java.io.IOException;
 import java.util.Collection;
@@ -71,9 +70,7 @@ public class RunRestController {
 
   @RequestMapping(value = "{runId}", method = RequestMethod.GET)
   public @ResponseBody String jsonRest(@PathVariable Long runId) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    mapper.getSerializationConfig().addMixInAnnotations(SequencerPartitionContainer.class, ContainerRecursionAvoidanceMixin.class);
-    return mapper.writeValueAsString(requestManager.getRunById(runId));
+    return ObjectMappers.CONTAINER_SAFE.writeValueAsString(requestManager.getRunById(runId));
   }
 
   @RequestMapping(value = "{runAlias}/samplesheet", method = RequestMethod.GET)
@@ -93,8 +90,6 @@ public class RunRestController {
   public @ResponseBody
   String jsonRest() throws IOException {
     Collection<Run> lr = requestManager.listAllRuns();
-    ObjectMapper mapper = new ObjectMapper();
-    mapper.getSerializationConfig().addMixInAnnotations(SequencerPartitionContainer.class, ContainerRecursionAvoidanceMixin.class);
-    return mapper.writeValueAsString(lr);
+    return ObjectMappers.CONTAINER_SAFE.writeValueAsString(lr);
   }
 }
\ No newline at end of file
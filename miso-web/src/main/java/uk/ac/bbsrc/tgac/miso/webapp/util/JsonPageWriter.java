@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.webapp.util;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import uk.ac.bbsrc.tgac.miso.core.data.Nameable;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.webapp.util
+ * <p/>
+ * Streams a page of objects straight to the response as {"items":[...],"next":cursor}, rather than building the whole
+ * document as a String first. The next cursor is the ID of the last item when the page is full, and null when there are no
+ * more pages. If a set of fields is given, only those top-level properties of each item are written.
+ *
+ * @since 0.2.1
+ */
+public class JsonPageWriter {
+  public static final int DEFAULT_LIMIT = 100;
+  public static final int MAX_LIMIT = 1000;
+
+  private final ObjectMapper mapper;
+
+  public JsonPageWriter(ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /**
+   * Clamps a requested page size to between 1 and {@link #MAX_LIMIT}
+   */
+  public static int clampLimit(Integer limit) {
+    if (limit == null) {
+      return DEFAULT_LIMIT;
+    }
+    return Math.max(1, Math.min(MAX_LIMIT, limit));
+  }
+
+  /**
+   * Parses a comma-separated list of field names
+   *
+   * @return the field names, or null if all fields should be written
+   */
+  public static Set<String> parseFields(String fields) {
+    if (fields == null || "".equals(fields.trim())) {
+      return null;
+    }
+    Set<String> parsed = new LinkedHashSet<String>();
+    for (String field : fields.split(",")) {
+      if (!"".equals(field.trim())) {
+        parsed.add(field.trim());
+      }
+    }
+    return parsed.isEmpty() ? null : parsed;
+  }
+
+  public static boolean wants(Set<String> fields, String field) {
+    return fields == null || fields.contains(field);
+  }
+
+  public void write(HttpServletResponse response, List<? extends Nameable> page, int limit, Set<String> fields) throws IOException {
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    JsonGenerator gen = mapper.getJsonFactory().createJsonGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+    try {
+      gen.writeStartObject();
+      gen.writeArrayFieldStart("items");
+      for (Nameable item : page) {
+        if (fields == null) {
+          mapper.writeValue(gen, item);
+        }
+        else {
+          writeProjected(gen, item, fields);
+        }
+      }
+      gen.writeEndArray();
+      if (page.size() >= limit && !page.isEmpty()) {
+        gen.writeNumberField("next", page.get(page.size() - 1).getId());
+      }
+      else {
+        gen.writeNullField("next");
+      }
+      gen.writeEndObject();
+    }
+    finally {
+      gen.close();
+    }
+  }
+
+  private void writeProjected(JsonGenerator gen, Object item, Collection<String> fields) throws IOException {
+    JsonNode node = mapper.valueToTree(item);
+    gen.writeStartObject();
+    for (String field : fields) {
+      JsonNode value = node.get(field);
+      if (value != null) {
+        gen.writeFieldName(field);
+        mapper.writeTree(gen, value);
+      }
+    }
+    gen.writeEndObject();
+  }
+}
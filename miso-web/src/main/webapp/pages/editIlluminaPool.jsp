@@ -75,7 +75,7 @@
               'url': ajaxurl
             },
             {'doOnSuccess': function (json) {
-              jQuery('#idBarcode').html("<img style='height:30px; border:0;' src='<c:url value='/temp/'/>" + json.img + "'/>");
+              jQuery('#idBarcode').html("<img style='height:30px; border:0;' src='" + json.img + "'/>");
             }
             });
         });
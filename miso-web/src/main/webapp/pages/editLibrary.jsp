@@ -164,7 +164,7 @@
               'url': ajaxurl
             },
             {'doOnSuccess': function (json) {
-              jQuery('#idBarcode').html("<img style='height:30px; border:0;' src='<c:url value='/temp/'/>" + json.img + "'/>");
+              jQuery('#idBarcode').html("<img style='height:30px; border:0;' src='" + json.img + "'/>");
             }
             });
         });
@@ -646,7 +646,7 @@
                           },
                           {'doOnSuccess': function (json) {
                             jQuery('#dil${dil.id}IdBarcode').html(
-                              "<img style='border:0;' src='<c:url value='/temp/'/>" + json.img + "'/><br/>"
+                              "<img style='border:0;' src='" + json.img + "'/><br/>"
                             );
                           }
                           });
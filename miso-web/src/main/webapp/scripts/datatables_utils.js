@@ -113,7 +113,19 @@ DatatableUtils = {
       }
     }
     return aReturn;
+  },
+
+  /**
+   * Builds an fnServerData function for a server-side processing table, which forwards the table's paging, sorting and
+   * search parameters to the given Fluxion helper service method, along with any extra parameters
+   */
+  fluxionServerData: function (service, method, params) {
+    return function (sSource, aoData, fnCallback) {
+      var data = jQuery.extend({'url': ajaxurl}, params);
+      for (var i = 0; i < aoData.length; i++) {
+        data[aoData[i].name] = aoData[i].value;
+      }
+      Fluxion.doAjax(service, method, data, {'doOnSuccess': fnCallback});
+    };
   }
 };
-
-
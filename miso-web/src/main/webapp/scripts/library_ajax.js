@@ -810,53 +810,24 @@ Library.ui = {
   },
 
   createListingLibrariesTable: function () {
-    jQuery('#listingLibrariesTable').html("<img src='../styles/images/ajax-loader.gif'/>");
-    jQuery.fn.dataTableExt.oSort['no-lib-asc'] = function (x, y) {
-      var a = parseInt(x.replace(/^LIB/i, ""));
-      var b = parseInt(y.replace(/^LIB/i, ""));
-      return ((a < b) ? -1 : ((a > b) ? 1 : 0));
-    };
-    jQuery.fn.dataTableExt.oSort['no-lib-desc'] = function (x, y) {
-      var a = parseInt(x.replace(/^LIB/i, ""));
-      var b = parseInt(y.replace(/^LIB/i, ""));
-      return ((a < b) ? 1 : ((a > b) ? -1 : 0));
-    };
-    jQuery.fn.dataTableExt.oSort['no-sam-asc'] = function (x, y) {
-      var a = parseInt(x.replace(/^SAM/i, ""));
-      var b = parseInt(y.replace(/^SAM/i, ""));
-      return ((a < b) ? -1 : ((a > b) ? 1 : 0));
-    };
-    jQuery.fn.dataTableExt.oSort['no-sam-desc'] = function (x, y) {
-      var a = parseInt(x.replace(/^SAM/i, ""));
-      var b = parseInt(y.replace(/^SAM/i, ""));
-      return ((a < b) ? 1 : ((a > b) ? -1 : 0));
-    };
-    Fluxion.doAjax(
-      'libraryControllerHelperService',
-      'listLibrariesDataTable',
-      {
-        'url': ajaxurl
-      },
-      {'doOnSuccess': function (json) {
-        jQuery('#listingLibrariesTable').html('');
-        jQuery('#listingLibrariesTable').dataTable({
-          "aaData": json.array,
-          "aoColumns": [
-            { "sTitle": "Library Name", "sType": "no-lib"},
-            { "sTitle": "Alias"},
-            { "sTitle": "Type"},
-            { "sTitle": "Sample Name", "sType": "no-sam"},
-            { "sTitle": "QC Passed"},
-            { "sTitle": "Edit"}
-          ],
-          "bJQueryUI": true,
-          "iDisplayLength": 25,
-          "aaSorting": [
-            [0, "desc"]
-          ]
-        });
-      }
-      }
-    );
+    jQuery('#listingLibrariesTable').html('');
+    jQuery('#listingLibrariesTable').dataTable({
+      "bServerSide": true,
+      "bProcessing": true,
+      "fnServerData": DatatableUtils.fluxionServerData('libraryControllerHelperService', 'listLibrariesDataTable', {}),
+      "aoColumns": [
+        { "sTitle": "Library Name"},
+        { "sTitle": "Alias"},
+        { "sTitle": "Type", "bSortable": false},
+        { "sTitle": "Sample Name", "bSortable": false},
+        { "sTitle": "QC Passed"},
+        { "sTitle": "Edit", "bSortable": false}
+      ],
+      "bJQueryUI": true,
+      "iDisplayLength": 25,
+      "aaSorting": [
+        [0, "desc"]
+      ]
+    });
   }
 };
\ No newline at end of file
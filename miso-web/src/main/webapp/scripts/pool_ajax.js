@@ -317,86 +317,66 @@ Pool.ui = {
 
   createListingPoolsTable : function(platform) {
     var table = 'listing'+platform+'PoolsTable';
-    jQuery('#'+table).html("<img src='../styles/images/ajax-loader.gif'/>");
-    jQuery.fn.dataTableExt.oSort['no-po-asc'] = function(x, y) {
-      var a = parseInt(x.replace(/^.*PO/i, ""));
-      var b = parseInt(y.replace(/^.*PO/i, ""));
-      return ((a < b) ? -1 : ((a > b) ? 1 : 0));
-    };
-    jQuery.fn.dataTableExt.oSort['no-po-desc'] = function(x, y) {
-      var a = parseInt(x.replace(/^.*PO/i, ""));
-      var b = parseInt(y.replace(/^.*PO/i, ""));
-      return ((a < b) ? 1 : ((a > b) ? -1 : 0));
-    };
-    Fluxion.doAjax(
-      'poolControllerHelperService',
-      'listPoolsDataTable',
-      {
-        'url':ajaxurl,
-        'platform':platform
-      },
-      {'doOnSuccess': function(json) {
-        jQuery('#'+table).html('');
-        jQuery('#'+table).dataTable({
-          "aaData": json.pools,
-          "aoColumns": [
-            { "sTitle": "Name", "sType":"no-po"},
-            { "sTitle": "Alias"},
-            { "sTitle": "Date Created"},
-            { "sTitle": "Information"},
-            { "sTitle": "Average Insert Size"},
-            { "sTitle": "Concentration"},
-            { "sTitle": "Edit"}
-          ],
-          "bJQueryUI": true,
-          "iDisplayLength":  25,
-          "aaSorting":[
-            [0,"desc"]
-          ] ,
-          "fnRowCallback": function(nRow, aData, iDisplayIndex, iDisplayIndexFull) {
-            Fluxion.doAjax(
-              'poolControllerHelperService',
-              'checkInfoByPoolId',
-              {
-                'poolId':aData[3],
-                'url':ajaxurl
-              },
-              {'doOnSuccess': function(json) {
-                jQuery('td:eq(3)', nRow).html(json.response);
-              }
-              }
-            );
-
-            Fluxion.doAjax(
-              'poolControllerHelperService',
-              'checkAverageInsertSizeByPoolId',
-              {
-                'poolId':aData[4],
-                'url':ajaxurl
-              },
-              {'doOnSuccess': function(json) {
-                jQuery('td:eq(4)', nRow).html(json.response);
-              }
-              }
-            );
-
-            Fluxion.doAjax(
-              'poolControllerHelperService',
-              'checkConcentrationByPoolId',
-              {
-                'poolId':aData[5],
-                'url':ajaxurl
-              },
-              {'doOnSuccess': function(json) {
-                jQuery('td:eq(5)', nRow).html(json.response);
-              }
-              }
-            );
+    jQuery('#'+table).html('');
+    jQuery('#'+table).dataTable({
+      "bServerSide": true,
+      "bProcessing": true,
+      "fnServerData": DatatableUtils.fluxionServerData('poolControllerHelperService', 'listPoolsDataTable', {'platform':platform}),
+      "aoColumns": [
+        { "sTitle": "Name"},
+        { "sTitle": "Alias"},
+        { "sTitle": "Date Created"},
+        { "sTitle": "Information", "bSortable": false},
+        { "sTitle": "Average Insert Size", "bSortable": false},
+        { "sTitle": "Concentration", "bSortable": false},
+        { "sTitle": "Edit", "bSortable": false}
+      ],
+      "bJQueryUI": true,
+      "iDisplayLength":  25,
+      "aaSorting":[
+        [0,"desc"]
+      ] ,
+      "fnRowCallback": function(nRow, aData, iDisplayIndex, iDisplayIndexFull) {
+        Fluxion.doAjax(
+          'poolControllerHelperService',
+          'checkInfoByPoolId',
+          {
+            'poolId':aData[3],
+            'url':ajaxurl
+          },
+          {'doOnSuccess': function(json) {
+            jQuery('td:eq(3)', nRow).html(json.response);
           }
-        });
-        }
+          }
+        );
+
+        Fluxion.doAjax(
+          'poolControllerHelperService',
+          'checkAverageInsertSizeByPoolId',
+          {
+            'poolId':aData[4],
+            'url':ajaxurl
+          },
+          {'doOnSuccess': function(json) {
+            jQuery('td:eq(4)', nRow).html(json.response);
+          }
+          }
+        );
+
+        Fluxion.doAjax(
+          'poolControllerHelperService',
+          'checkConcentrationByPoolId',
+          {
+            'poolId':aData[5],
+            'url':ajaxurl
+          },
+          {'doOnSuccess': function(json) {
+            jQuery('td:eq(5)', nRow).html(json.response);
+          }
+          }
+        );
       }
-    );
+    });
   },
 
   getPoolableElementInfo : function(poolId, elementId) {
@@ -192,43 +192,25 @@ Run.ui = {
   },
 
   createListingRunsTable: function () {
-    jQuery('#listingRunsTable').html("<img src='../styles/images/ajax-loader.gif'/>");
-    jQuery.fn.dataTableExt.oSort['no-run-asc'] = function (x, y) {
-      var a = parseInt(x.replace(/^RUN/i, ""));
-      var b = parseInt(y.replace(/^RUN/i, ""));
-      return ((a < b) ? -1 : ((a > b) ? 1 : 0));
-    };
-    jQuery.fn.dataTableExt.oSort['no-run-desc'] = function (x, y) {
-      var a = parseInt(x.replace(/^RUN/i, ""));
-      var b = parseInt(y.replace(/^RUN/i, ""));
-      return ((a < b) ? 1 : ((a > b) ? -1 : 0));
-    };
-    Fluxion.doAjax(
-      'runControllerHelperService',
-      'listRunsDataTable',
-      {
-        'url': ajaxurl
-      },
-      {'doOnSuccess': function (json) {
-        jQuery('#listingRunsTable').html('');
-        jQuery('#listingRunsTable').dataTable({
-          "aaData": json.runsArray,
-          "aoColumns": [
-            { "sTitle": "Run Name", "sType": "no-run"},
-            { "sTitle": "Alias"},
-            { "sTitle": "Status"},
-            { "sTitle": "Start Date"},
-            { "sTitle": "End Date"},
-            { "sTitle": "Type"},
-            { "sTitle": "Edit"}
-          ],
-          "bJQueryUI": true,
-          "iDisplayLength": 25,
-          "aaSorting": [
-            [0, "desc"]
-          ]
-        });
-      }
+    jQuery('#listingRunsTable').html('');
+    jQuery('#listingRunsTable').dataTable({
+      "bServerSide": true,
+      "bProcessing": true,
+      "fnServerData": DatatableUtils.fluxionServerData('runControllerHelperService', 'listRunsDataTable', {}),
+      "aoColumns": [
+        { "sTitle": "Run Name"},
+        { "sTitle": "Alias"},
+        { "sTitle": "Status", "bSortable": false},
+        { "sTitle": "Start Date", "bSortable": false},
+        { "sTitle": "End Date", "bSortable": false},
+        { "sTitle": "Type"},
+        { "sTitle": "Edit", "bSortable": false}
+      ],
+      "bJQueryUI": true,
+      "iDisplayLength": 25,
+      "aaSorting": [
+        [0, "desc"]
+      ]
     });
   },
 
@@ -596,46 +596,27 @@ Sample.ui = {
   },
 
   createListingSamplesTable: function () {
-    jQuery('#listingSamplesTable').html("<img src='../styles/images/ajax-loader.gif'/>");
-    jQuery.fn.dataTableExt.oSort['no-sam-asc'] = function (x, y) {
-      var a = parseInt(x.replace(/^SAM/i, ""));
-      var b = parseInt(y.replace(/^SAM/i, ""));
-      return ((a < b) ? -1 : ((a > b) ? 1 : 0));
-    };
-    jQuery.fn.dataTableExt.oSort['no-sam-desc'] = function (x, y) {
-      var a = parseInt(x.replace(/^SAM/i, ""));
-      var b = parseInt(y.replace(/^SAM/i, ""));
-      return ((a < b) ? 1 : ((a > b) ? -1 : 0));
-    };
-    Fluxion.doAjax(
-      'sampleControllerHelperService',
-      'listSamplesDataTable',
-      {
-        'url': ajaxurl
-      },
-      {'doOnSuccess': function (json) {
-        jQuery('#listingSamplesTable').html('');
-        jQuery('#listingSamplesTable').dataTable({
-          "aaData": json.array,
-          "aoColumns": [
-            { "sTitle": "Sample Name", "sType": "no-sam"},
-            { "sTitle": "Alias"},
-            { "sTitle": "Type"},
-            { "sTitle": "QC Passed"},
-            { "sTitle": "QC Result"},
-            { "sTitle": "Edit"}
-          ],
-          "bJQueryUI": true,
-          "iDisplayLength": 25,
-          "sDom": '<l<"#toolbar">f>r<t<"fg-toolbar ui-widget-header ui-corner-bl ui-corner-br ui-helper-clearfix"ip>',
-          "aaSorting": [
-            [0, "desc"]
-          ]
-        });
-        jQuery("#toolbar").parent().addClass("fg-toolbar ui-toolbar ui-widget-header ui-corner-tl ui-corner-tr ui-helper-clearfix");
-        jQuery("#toolbar").append("<button style=\"margin-left:5px;\" onclick=\"window.location.href='/miso/sample/new';\" class=\"fg-button ui-state-default ui-corner-all\">Add Sample</button>");
-      }
-      }
-    );
+    jQuery('#listingSamplesTable').html('');
+    jQuery('#listingSamplesTable').dataTable({
+      "bServerSide": true,
+      "bProcessing": true,
+      "fnServerData": DatatableUtils.fluxionServerData('sampleControllerHelperService', 'listSamplesDataTable', {}),
+      "aoColumns": [
+        { "sTitle": "Sample Name"},
+        { "sTitle": "Alias"},
+        { "sTitle": "Type"},
+        { "sTitle": "QC Passed"},
+        { "sTitle": "QC Result", "bSortable": false},
+        { "sTitle": "Edit", "bSortable": false}
+      ],
+      "bJQueryUI": true,
+      "iDisplayLength": 25,
+      "sDom": '<l<"#toolbar">f>r<t<"fg-toolbar ui-widget-header ui-corner-bl ui-corner-br ui-helper-clearfix"ip>',
+      "aaSorting": [
+        [0, "desc"]
+      ]
+    });
+    jQuery("#toolbar").parent().addClass("fg-toolbar ui-toolbar ui-widget-header ui-corner-tl ui-corner-tr ui-helper-clearfix");
+    jQuery("#toolbar").append("<button style=\"margin-left:5px;\" onclick=\"window.location.href='/miso/sample/new';\" class=\"fg-button ui-state-default ui-corner-all\">Add Sample</button>");
   }
 };
\ No newline at end of file
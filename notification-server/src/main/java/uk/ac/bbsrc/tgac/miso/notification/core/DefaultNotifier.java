@@ -48,8 +48,11 @@ import uk.ac.bbsrc.tgac.miso.core.data.type.PlatformType;
 import uk.ac.bbsrc.tgac.miso.core.service.integration.ws.pacbio.PacBioServiceWrapper;
 import uk.ac.bbsrc.tgac.miso.core.service.integration.ws.solid.SolidServiceWrapper;
 import uk.ac.bbsrc.tgac.miso.notification.manager.NotificationRequestManager;
+import uk.ac.bbsrc.tgac.miso.notification.service.IlluminaTransformer;
 import uk.ac.bbsrc.tgac.miso.notification.util.NotificationMessageEnricher;
 import uk.ac.bbsrc.tgac.miso.notification.util.NotificationUtils;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateAware;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateStore;
 import uk.ac.bbsrc.tgac.miso.tools.run.MultiFileQueueMessageSource;
 import uk.ac.bbsrc.tgac.miso.tools.run.RunFolderScanner;
 
@@ -121,6 +124,25 @@ public class DefaultNotifier {
             }
           }
 
+          if (props.containsKey("scanState.dir") && context.containsBean(platformType + "Transformer")) {
+            Object transformer = context.getBean(platformType + "Transformer");
+            if (transformer instanceof ScanStateAware) {
+              File stateFile = new File(props.getProperty("scanState.dir"), platformType + ".scanstate");
+              log.debug("Loading " + platformType + " scan state from " + stateFile.getAbsolutePath());
+              ((ScanStateAware) transformer).setScanStateStore(new ScanStateStore(stateFile));
+            }
+          }
+
+          if (platformType.equals("illumina")) {
+            IlluminaTransformer it = (IlluminaTransformer) context.getBean("illuminaTransformer");
+            if (props.containsKey("illumina.scanThreads")) {
+              it.setScanThreads(Integer.parseInt(props.getProperty("illumina.scanThreads")));
+            }
+            if (props.containsKey("illumina.maxCachedRuns")) {
+              it.setMaxCachedRuns(Integer.parseInt(props.getProperty("illumina.maxCachedRuns")));
+            }
+          }
+
           if (platformType.equals("pacbio")) {
             for (String key : props.stringPropertyNames()) {
               if (key.startsWith("pacbio.ws.url.")) {
@@ -279,6 +301,12 @@ public class DefaultNotifier {
         NotificationRequestManager nrm = (NotificationRequestManager)context.getBean("notificationRequestManager");
         nrm.setApplicationContext(context);
         nrm.setDataPaths(allDataPaths);
+        if (props.containsKey("request.maxResultAge")) {
+          nrm.setMaxResultAge(Long.parseLong(props.getProperty("request.maxResultAge")));
+        }
+        if (props.containsKey("request.minWalkInterval")) {
+          nrm.setMinWalkInterval(Long.parseLong(props.getProperty("request.minWalkInterval")));
+        }
       }
     }
     catch (FileNotFoundException e) {
@@ -48,10 +48,13 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * uk.ac.bbsrc.tgac.miso.notification.manager
@@ -66,9 +69,24 @@ public class NotificationRequestManager {
   protected static final Logger log = LoggerFactory.getLogger(NotificationRequestManager.class);
   private ObjectMapper mapper = new ObjectMapper();
 
+  private static final int MAX_CACHED_RESULTS = 1000;
+
   private ClassPathXmlApplicationContext context;
   private Map<String, Set<File>> dataPaths;
 
+  //platform:path -> parsed run folder or InterOp result, reused until the run folder changes or maxResultAge passes
+  private final Map<String, CachedResult<?>> resultCache = Collections.synchronizedMap(new LinkedHashMap<String, CachedResult<?>>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedResult<?>> eldest) {
+      return size() > MAX_CACHED_RESULTS;
+    }
+  });
+  //platform -> time of the last full walk of that platform's data paths made on behalf of a query
+  private final Map<String, Long> lastWalks = new ConcurrentHashMap<>();
+
+  private long maxResultAge = 60000L;
+  private long minWalkInterval = 30000L;
+
   public NotificationRequestManager() {
   }
 
@@ -85,11 +103,32 @@ public class NotificationRequestManager {
     this.dataPaths = dataPaths;
   }
 
+  /**
+   * Sets how long a parsed run folder is reused for, even if none of the files checked for changes have been modified.
+   * Parsers also read files deeper in the run folder than the change check looks, so this bounds how stale an answer
+   * can get.
+   *
+   * @param maxResultAge the maximum age of a cached result, in milliseconds
+   */
+  public void setMaxResultAge(long maxResultAge) {
+    this.maxResultAge = maxResultAge;
+  }
+
+  /**
+   * Sets the minimum time between walks of a platform's data paths when a queried run is not in the scanner's index,
+   * so that repeated queries for unknown runs don't keep walking the (possibly remote) filesystem.
+   *
+   * @param minWalkInterval the minimum interval between walks, in milliseconds
+   */
+  public void setMinWalkInterval(long minWalkInterval) {
+    this.minWalkInterval = minWalkInterval;
+  }
+
   public String queryRunProgress(JSONObject request) throws IllegalStateException, IllegalArgumentException {
     File folder = lookupRunAliasPath(request);
     if (folder != null) {
       String platformType = request.getString("platform").toLowerCase();
-      Map<String, String> status = parseRunFolder(platformType, folder);
+      Map<String, String> status = parseRunFolderCached(platformType, folder);
       if (status.isEmpty()) {
         return "{'response':'No runs found with alias "+request.getString("run")+"'}";
       }
@@ -114,7 +153,7 @@ public class NotificationRequestManager {
     File folder = lookupRunAliasPath(request);
     if (folder != null) {
       String platformType = request.getString("platform").toLowerCase();
-      Map<String, String> status = parseRunFolder(platformType, folder);
+      Map<String, String> status = parseRunFolderCached(platformType, folder);
       for (String s : status.keySet()) {
         if (!"".equals(status.get(s))) {
           log.debug("queryRunStatus: " + status.get(s));
@@ -136,7 +175,7 @@ public class NotificationRequestManager {
     File folder = lookupRunAliasPath(request);
     if (folder != null) {
       String platformType = request.getString("platform").toLowerCase();
-      Map<String, String> status = parseRunFolder(platformType, folder);
+      Map<String, String> status = parseRunFolderCached(platformType, folder);
       for (String s : status.keySet()) {
         if (!"".equals(status.get(s))) {
           log.debug("queryRunInfo: " + status.get(s));
@@ -158,7 +197,7 @@ public class NotificationRequestManager {
     File folder = lookupRunAliasPath(request);
     if (folder != null) {
       String platformType = request.getString("platform").toLowerCase();
-      Map<String, String> status = parseRunFolder(platformType, folder);
+      Map<String, String> status = parseRunFolderCached(platformType, folder);
       for (String s : status.keySet()) {
         if (!"".equals(status.get(s))) {
           log.debug("queryRunParameters: " + status.get(s));
@@ -179,7 +218,7 @@ public class NotificationRequestManager {
   public String queryInterOpMetrics(JSONObject request) throws IllegalStateException, IllegalArgumentException {
     File folder = lookupRunAliasPath(request);
     if (folder != null) {
-      JSONArray runs = parseIlluminaInterOpFolder(folder);
+      JSONArray runs = parseIlluminaInterOpFolderCached(folder);
       if (!runs.isEmpty()) {
         JSONObject run = runs.getJSONObject(0);
         if (run.has("error")) {
@@ -205,6 +244,20 @@ public class NotificationRequestManager {
         if (!"".equals(runAlias) && runAlias != null) {
           RunFolderScanner rfs = (RunFolderScanner) context.getBean(platformType + "StatusRecursiveScanner");
           if (rfs != null) {
+            File indexed = rfs.getIndexedRunFolder(runAlias);
+            if (indexed != null) {
+              return indexed;
+            }
+
+            //not seen by a poll yet, so fall back to walking the data paths, but not on every request
+            long now = System.currentTimeMillis();
+            Long lastWalk = lastWalks.get(platformType);
+            if (lastWalk != null && now - lastWalk < minWalkInterval) {
+              log.debug("Run " + runAlias + " not indexed and " + platformType + " data paths walked " + (now - lastWalk) + "ms ago");
+              return null;
+            }
+            lastWalks.put(platformType, now);
+
             for (File dataPath : dataPaths.get(platformType)) {
               for (File runFolder : rfs.listFiles(dataPath)) {
                 if (runAlias.equals(runFolder.getName())) {
@@ -222,6 +275,62 @@ public class NotificationRequestManager {
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private Map<String, String> parseRunFolderCached(String platformType, File path) throws IllegalStateException, IllegalArgumentException {
+    String key = platformType + ":" + path.getAbsolutePath();
+    long stamp = folderStamp(path, false);
+    //entries under a platform:path key only ever hold run folder results
+    CachedResult<Map<String, String>> cached = (CachedResult<Map<String, String>>) resultCache.get(key);
+    if (cached != null && cached.isFresh(stamp, maxResultAge)) {
+      log.debug("Using cached " + platformType + " result for " + path.getName());
+      return cached.value;
+    }
+    Map<String, String> result = parseRunFolder(platformType, path);
+    resultCache.put(key, new CachedResult<>(result, stamp));
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private JSONArray parseIlluminaInterOpFolderCached(File path) throws IllegalStateException {
+    String key = "interop:" + path.getAbsolutePath();
+    long stamp = folderStamp(path, true);
+    //entries under an interop:path key only ever hold InterOp results
+    CachedResult<JSONArray> cached = (CachedResult<JSONArray>) resultCache.get(key);
+    if (cached != null && cached.isFresh(stamp, maxResultAge)) {
+      log.debug("Using cached InterOp result for " + path.getName());
+      return cached.value;
+    }
+    JSONArray result = parseIlluminaInterOpFolder(path);
+    resultCache.put(key, new CachedResult<>(result, stamp));
+    return result;
+  }
+
+  /**
+   * Combines the modification times and sizes of a run folder and its immediate children (and of its InterOp folder
+   * if asked) into one value, which changes whenever status files are written or new ones appear.
+   */
+  private static long folderStamp(File path, boolean interOp) {
+    long stamp = path.lastModified();
+    stamp = childStamp(stamp, path);
+    if (interOp) {
+      stamp = childStamp(stamp, new File(path, "InterOp"));
+    }
+    return stamp;
+  }
+
+  private static long childStamp(long stamp, File dir) {
+    File[] children = dir.listFiles();
+    if (children != null) {
+      stamp = 31 * stamp + children.length;
+      for (File child : children) {
+        stamp = 31 * stamp + child.lastModified();
+        stamp = 31 * stamp + child.length();
+      }
+    }
+    return stamp;
+  }
+
+  @SuppressWarnings("unchecked")
   private Map<String, String> parseRunFolder(String platformType, File path) throws IllegalStateException, IllegalArgumentException {
     if (context != null && dataPaths != null) {
       if (!"".equals(platformType) && platformType != null) {
@@ -255,6 +364,19 @@ public class NotificationRequestManager {
       throw new IllegalStateException("ApplicationContext and/or datapaths not set. Cannot action requests on notification system.");
     }
   }
-}
 
+  private static class CachedResult<T> {
+    private final T value;
+    private final long stamp;
+    private final long created = System.currentTimeMillis();
+
+    CachedResult(T value, long stamp) {
+      this.value = value;
+      this.stamp = stamp;
+    }
 
+    boolean isFresh(long currentStamp, long maxAge) {
+      return stamp == currentStamp && System.currentTimeMillis() - created < maxAge;
+    }
+  }
+}
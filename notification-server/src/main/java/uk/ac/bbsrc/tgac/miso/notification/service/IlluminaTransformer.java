@@ -31,15 +31,28 @@ import java.io.IOException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
 
 import net.sf.json.JSONArray;
@@ -57,14 +70,13 @@ import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobParameter;
 import org.springframework.integration.Message;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import uk.ac.bbsrc.tgac.miso.core.util.SubmissionUtils;
 import uk.ac.bbsrc.tgac.miso.notification.util.NotificationUtils;
 import uk.ac.bbsrc.tgac.miso.notification.util.PossiblyGzippedFileUtils;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateAware;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateStore;
+import uk.ac.bbsrc.tgac.miso.notification.util.XmlFields;
 import uk.ac.bbsrc.tgac.miso.tools.run.util.FileSetTransformer;
 
 /**
@@ -76,7 +88,7 @@ import uk.ac.bbsrc.tgac.miso.tools.run.util.FileSetTransformer;
  * @date 10-Dec-2010
  * @since 0.1.6
  */
-public class IlluminaTransformer implements FileSetTransformer<String, String, File> {
+public class IlluminaTransformer implements FileSetTransformer<String, String, File>, ScanStateAware {
   protected static final Logger log = LoggerFactory.getLogger(IlluminaTransformer.class);
   
   public static final String JSON_RUN_NAME = "runName";
@@ -101,7 +113,38 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
   private final String runInfoPath = "/RunInfo.xml";
   private final String runParametersPath = "/runParameters.xml";
 
-  private final Map<String, String> finishedCache = new HashMap<>();
+  private static final String[] STATUS_FIELDS = {
+      "RunName", "NumberOfReads", "NumCycles", "NumberCycles", "ImgCycle", "ScoreCycle", "CallCycle"
+  };
+  private static final String[] RUN_INFO_FIELDS = {"Instrument", "FlowcellId", "Flowcell", "FlowcellLayout", "Read"};
+  private static final String[] RUN_PARAMS_FIELDS = {"ScannerID", "Barcode"};
+
+  private static final String[] FINGERPRINT_PATHS = {
+      "/Data/Status.xml", "/Data/reports/Status.xml", "/RunInfo.xml", "/runParameters.xml", "/Logs/CycleTimes.txt",
+      "/Data/RTALogs/Log.txt", "/Data/Log.txt", "/Events.log", "/RTAComplete.txt", "/Run.completed"
+  };
+
+  private static final String[] FINGERPRINT_DIRS = {"", "/Logs", "/Data", "/Data/RTALogs", "/Data/reports"};
+
+  private static final FilenameFilter RTA_LOG_FILTER = new FilenameFilter() {
+    @Override
+    public boolean accept(File dir, String name) {
+      return (name.endsWith("Log_00.txt") || name.endsWith("Log_00.txt.gz") || name.equals("Log.txt") || name.equals("Log.txt.gz"));
+    }
+  };
+
+  private volatile int scanThreads = 1;
+  private volatile int maxCachedRuns = 5000;
+  private ExecutorService scanPool;
+  private ScanStateStore scanStateStore;
+
+  private final Map<String, String> finishedCache = Collections.synchronizedMap(new BoundedRunCache<String>());
+
+  /**
+   * The last scan result for each unfinished run directory, keyed on the absolute path of the run directory, along with
+   * the fingerprint of the files it was built from
+   */
+  private final Map<String, ScannedRun> scanCache = Collections.synchronizedMap(new BoundedRunCache<ScannedRun>());
 
   private final Pattern runCompleteLogPattern = Pattern.compile(
       "(\\d{1,2}\\/\\d{1,2}\\/\\d{4},\\d{2}:\\d{2}:\\d{2})\\.\\d{3},\\d+,\\d+,\\d+,Proce[s||e]sing\\s+completed\\.\\s+Run\\s+has\\s+finished\\."
@@ -111,7 +154,91 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
       "(\\d{1,2}\\/\\d{1,2}\\/\\d{4},\\d{2}:\\d{2}:\\d{2})\\.\\d{3},\\d+,\\d+,\\d+,.*"
   );
 
-  private final DateFormat logDateFormat = new SimpleDateFormat("MM'/'dd'/'yyyy','HH:mm:ss");
+  private static final String LOG_DATE_FORMAT = "MM'/'dd'/'yyyy','HH:mm:ss";
+
+  /**
+   * Sets the number of run directories scanned concurrently. A value of 1 (the default) scans each directory in turn on
+   * the calling thread.
+   *
+   * @param scanThreads the number of worker threads
+   */
+  public synchronized void setScanThreads(int scanThreads) {
+    if (scanThreads < 1) {
+      throw new IllegalArgumentException("Scan thread count must be at least 1");
+    }
+    this.scanThreads = scanThreads;
+    if (scanPool != null) {
+      scanPool.shutdown();
+      scanPool = null;
+    }
+  }
+
+  public int getScanThreads() {
+    return scanThreads;
+  }
+
+  /**
+   * Sets the maximum number of completed, and separately in-progress, runs to hold in memory. The least recently
+   * scanned runs are evicted first, and will simply be re-read from disk if they are seen again.
+   *
+   * @param maxCachedRuns the maximum number of runs held by each cache
+   */
+  public void setMaxCachedRuns(int maxCachedRuns) {
+    this.maxCachedRuns = maxCachedRuns;
+  }
+
+  @Override
+  public void setScanStateStore(ScanStateStore scanStateStore) {
+    this.scanStateStore = scanStateStore;
+  }
+
+  /**
+   * Gets the cached JSON for a completed run, falling back to the persistent scan state if the run has not been seen
+   * since the server started
+   *
+   * @param runName the run name
+   * @return the run JSON, or null if the run is not known to be complete
+   */
+  private String getFinishedRun(String runName) {
+    String cached = finishedCache.get(runName);
+    if (cached == null && scanStateStore != null) {
+      cached = scanStateStore.getRun(runName, STATUS_COMPLETE);
+      if (cached != null) {
+        finishedCache.put(runName, cached);
+      }
+    }
+    return cached;
+  }
+
+  private void cacheFinishedRun(String runName, String run) {
+    finishedCache.put(runName, run);
+    if (scanStateStore != null) {
+      scanStateStore.put(runName, STATUS_COMPLETE, run);
+    }
+  }
+
+  public synchronized void destroy() {
+    if (scanPool != null) {
+      scanPool.shutdownNow();
+      scanPool = null;
+    }
+  }
+
+  private synchronized ExecutorService getScanPool() {
+    if (scanPool == null) {
+      scanPool = Executors.newFixedThreadPool(scanThreads, new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "illumina-scanner-" + threadCount.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return scanPool;
+  }
 
   public Map<String, String> transform(Message<Set<File>> message) {
     return transform(message.getPayload());
@@ -121,8 +248,6 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
   public Map<String, String> transform(Set<File> files) {
     log.info("Processing " + files.size() + " Illumina run directories...");
 
-    int count = 0;
-
     //TODO modify this to use a JSONObject instead of a Map
     Map<String, JSONArray> map = new HashMap<>();
 
@@ -131,152 +256,305 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
     map.put(STATUS_UNKNOWN, new JSONArray());
     map.put(STATUS_FAILED, new JSONArray());
 
+    List<ScanTask> tasks = new ArrayList<>();
+    int count = 0;
     for (File rootFile : files) {
       count++;
-      String countStr = "[#" + count + "/" + files.size() + "] ";
-      if (rootFile.isDirectory()) {
-        if (rootFile.canRead()) {
-          JSONObject run = new JSONObject();
+      tasks.add(new ScanTask(rootFile, "[#" + count + "/" + files.size() + "] "));
+    }
 
-          try {
-            String runName = rootFile.getName();
-            log.debug(countStr + "Processing run " + runName);
+    if (getScanThreads() > 1 && tasks.size() > 1) {
+      List<Future<ScannedRun>> results = new ArrayList<>();
+      ExecutorService pool = getScanPool();
+      for (ScanTask task : tasks) {
+        results.add(pool.submit(task));
+      }
+      for (Future<ScannedRun> result : results) {
+        try {
+          addScannedRun(map, result.get());
+        }
+        catch (InterruptedException e) {
+          log.error("Interrupted whilst waiting for run directory scans to finish");
+          Thread.currentThread().interrupt();
+          break;
+        }
+        catch (ExecutionException e) {
+          log.error("Error scanning run directory: " + e.getCause().getMessage());
+          e.getCause().printStackTrace();
+        }
+      }
+    }
+    else {
+      for (ScanTask task : tasks) {
+        addScannedRun(map, task.call());
+      }
+    }
 
-            if (!finishedCache.keySet().contains(runName)) {
-              int numReads = 0;
-              
-              run.put(JSON_RUN_NAME, runName);
-              run.put(JSON_FULL_PATH, rootFile.getCanonicalPath()); //follow symlinks!
-              
-              // Get xml files
-              Document statusDoc = null;
-              if (PossiblyGzippedFileUtils.checkExists(rootFile, oldStatusPath)) {
-                statusDoc = PossiblyGzippedFileUtils.getXmlDocument(rootFile, oldStatusPath);
-                if (statusDoc == null) {
-                  run.put(JSON_STATUS, "<error><RunName>" + runName + "</RunName><ErrorMessage>Cannot read status file</ErrorMessage></error>");
-                }
+    HashMap<String, String> smap = new HashMap<>();
+    for (String key : map.keySet()) {
+      smap.put(key, map.get(key).toString());
+
+      if (STATUS_COMPLETE.equals(key)) {
+        for (JSONObject run : (Iterable<JSONObject>)map.get(key)) {
+          if (getFinishedRun(run.getString("runName")) == null) {
+            log.info("Caching completed run " + run.getString("runName"));
+            cacheFinishedRun(run.getString("runName"), run.toString());
+          }
+        }
+      }
+    }
+
+    return smap;
+  }
+
+  private void addScannedRun(Map<String, JSONArray> map, ScannedRun scanned) {
+    if (scanned != null) {
+      map.get(scanned.status).add(scanned.run);
+    }
+  }
+
+  /**
+   * Scans a single run directory, returning null if it cannot be read. Completed runs are served from the finished
+   * cache, and unfinished runs whose files have not changed since the last scan are served from the scan cache.
+   *
+   * @param rootFile run directory
+   * @param countStr progress prefix for log messages
+   * @return the status and JSON representation of the run
+   */
+  private ScannedRun scanRun(File rootFile, String countStr) {
+    if (rootFile.isDirectory()) {
+      if (rootFile.canRead()) {
+        JSONObject run = new JSONObject();
+
+        try {
+          String runName = rootFile.getName();
+          log.debug(countStr + "Processing run " + runName);
+
+          String cached = getFinishedRun(runName);
+          if (cached == null) {
+            String scanKey = rootFile.getAbsolutePath();
+            RunFingerprint fingerprint = RunFingerprint.of(rootFile);
+            ScannedRun previous = scanCache.get(scanKey);
+            if (previous != null && previous.fingerprint.equals(fingerprint)) {
+              log.debug(countStr + "Run " + runName + " unchanged since last scan");
+              return previous;
+            }
+
+            int numReads = 0;
+            
+            run.put(JSON_RUN_NAME, runName);
+            run.put(JSON_FULL_PATH, rootFile.getCanonicalPath()); //follow symlinks!
+            
+            // Get xml files
+            XmlFields statusDoc = null;
+            if (PossiblyGzippedFileUtils.checkExists(rootFile, oldStatusPath)) {
+              statusDoc = PossiblyGzippedFileUtils.getXmlFields(rootFile, oldStatusPath, true, STATUS_FIELDS);
+              if (statusDoc == null) {
+                run.put(JSON_STATUS, "<error><RunName>" + runName + "</RunName><ErrorMessage>Cannot read status file</ErrorMessage></error>");
               }
-              else if (PossiblyGzippedFileUtils.checkExists(rootFile, newStatusPath)) {
-                statusDoc = PossiblyGzippedFileUtils.getXmlDocument(rootFile, newStatusPath);
-                if (statusDoc == null) {
-                  run.put(JSON_STATUS, "<error><RunName>" + runName + "</RunName><ErrorMessage>Cannot read status file</ErrorMessage></error>");
-                }
+            }
+            else if (PossiblyGzippedFileUtils.checkExists(rootFile, newStatusPath)) {
+              statusDoc = PossiblyGzippedFileUtils.getXmlFields(rootFile, newStatusPath, true, STATUS_FIELDS);
+              if (statusDoc == null) {
+                run.put(JSON_STATUS, "<error><RunName>" + runName + "</RunName><ErrorMessage>Cannot read status file</ErrorMessage></error>");
               }
-              Document runInfoDoc = PossiblyGzippedFileUtils.getXmlDocument(rootFile, runInfoPath);
-              Document runParamDoc = PossiblyGzippedFileUtils.getXmlDocument(rootFile, runParametersPath);
-              
-              // Get main stuff from Status.xml
-              if (statusDoc != null) {
-                run.put(JSON_STATUS, SubmissionUtils.transform(statusDoc));
-                if (statusDoc.getElementsByTagName("RunName").getLength() > 0) {
-                  runName = statusDoc.getElementsByTagName("RunName").item(0).getTextContent();
-                  run.put(JSON_RUN_NAME, runName);
-                }
-                
-                if (statusDoc.getElementsByTagName("NumberOfReads").getLength() != 0) {
-                  numReads = new Integer(statusDoc.getElementsByTagName("NumberOfReads").item(0).getTextContent());
-                }
+            }
+            XmlFields runInfoDoc = PossiblyGzippedFileUtils.getXmlFields(rootFile, runInfoPath, true, RUN_INFO_FIELDS);
+            XmlFields runParamDoc = PossiblyGzippedFileUtils.getXmlFields(rootFile, runParametersPath, true, RUN_PARAMS_FIELDS);
+            
+            // Get main stuff from Status.xml
+            if (statusDoc != null) {
+              run.put(JSON_STATUS, statusDoc.getXml());
+              if (statusDoc.has("RunName")) {
+                runName = statusDoc.getText("RunName");
+                run.put(JSON_RUN_NAME, runName);
               }
               
-              // Get main stuff from RunInfo.xml
-              if (runInfoDoc != null) {
-                run.put(JSON_RUN_INFO, SubmissionUtils.transform(runInfoDoc));
-                checkRunInfo(runInfoDoc, run);
-                if (numReads == 0) {
-                  numReads = runInfoDoc.getElementsByTagName("Read").getLength();
-                }
+              if (statusDoc.has("NumberOfReads")) {
+                numReads = new Integer(statusDoc.getText("NumberOfReads"));
               }
-              
-              // Get main stuff from runParams.xml
-              if (runParamDoc != null) {
-                run.put(JSON_RUN_PARAMS, SubmissionUtils.transform(runParamDoc));
-                checkRunParams(runParamDoc, run);
+            }
+            
+            // Get main stuff from RunInfo.xml
+            if (runInfoDoc != null) {
+              run.put(JSON_RUN_INFO, runInfoDoc.getXml());
+              checkRunInfo(runInfoDoc, run);
+              if (numReads == 0) {
+                numReads = runInfoDoc.count("Read");
               }
-              
-              boolean lastCycleComplete = checkCycles(rootFile, run, statusDoc, runInfoDoc);
-              checkDates(rootFile, run);
-              String status = checkRunStatus(run, rootFile, numReads, lastCycleComplete);
-              map.get(status).add(run);
+            }
+            
+            // Get main stuff from runParams.xml
+            if (runParamDoc != null) {
+              run.put(JSON_RUN_PARAMS, runParamDoc.getXml());
+              checkRunParams(runParamDoc, run);
+            }
+            
+            boolean lastCycleComplete = checkCycles(rootFile, run, statusDoc, runInfoDoc);
+            checkDates(rootFile, run);
+            String status = checkRunStatus(run, rootFile, numReads, lastCycleComplete);
+
+            ScannedRun scanned = new ScannedRun(status, run, fingerprint);
+            if (STATUS_COMPLETE.equals(status)) {
+              //the finished cache takes over once a run is complete
+              scanCache.remove(scanKey);
             }
             else {
-              log.info("Run already scanned. Getting cached version " + runName);
-
-              //if a completed run has been moved (e.g. archived), update the new path
-              JSONObject json = JSONObject.fromObject(finishedCache.get(runName));
-              if (json.has("fullPath") && !rootFile.getCanonicalPath().equals(json.getString("fullPath"))) {
-                log.info("Cached path changed. Updating " + runName);
-                json.put("fullPath", rootFile.getCanonicalPath());
-                finishedCache.put(runName, json.toString());
-              }
-              map.get(STATUS_COMPLETE).add(finishedCache.get(runName));
+              scanCache.put(scanKey, scanned);
             }
+            return scanned;
           }
-          catch (ParserConfigurationException e) {
-            log.error("Error configuring parser: " + e.getMessage());
-            e.printStackTrace();
-          }
-          catch (TransformerException e) {
-            log.error("Error transforming XML: " + e.getMessage());
-            e.printStackTrace();
-          }
-          catch (IOException e) {
-            log.error("Error with file IO: " + e.getMessage());
-            e.printStackTrace();
+          else {
+            log.info("Run already scanned. Getting cached version " + runName);
+
+            //if a completed run has been moved (e.g. archived), update the new path
+            JSONObject json = JSONObject.fromObject(cached);
+            if (json.has("fullPath") && !rootFile.getCanonicalPath().equals(json.getString("fullPath"))) {
+              log.info("Cached path changed. Updating " + runName);
+              json.put("fullPath", rootFile.getCanonicalPath());
+              cached = json.toString();
+              cacheFinishedRun(runName, cached);
+            }
+            return new ScannedRun(STATUS_COMPLETE, cached, null);
           }
         }
-        else {
-          log.error(rootFile.getName() + " :: Permission denied");
+        catch (XMLStreamException e) {
+          log.error("Error parsing XML: " + e.getMessage());
+          e.printStackTrace();
+        }
+        catch (IOException e) {
+          log.error("Error with file IO: " + e.getMessage());
+          e.printStackTrace();
         }
       }
+      else {
+        log.error(rootFile.getName() + " :: Permission denied");
+      }
     }
+    return null;
+  }
 
-    HashMap<String, String> smap = new HashMap<>();
-    for (String key : map.keySet()) {
-      smap.put(key, map.get(key).toString());
+  private class ScanTask implements Callable<ScannedRun> {
+    private final File rootFile;
+    private final String countStr;
 
-      if (STATUS_COMPLETE.equals(key)) {
-        for (JSONObject run : (Iterable<JSONObject>)map.get(key)) {
-          if (!finishedCache.keySet().contains(run.getString("runName"))) {
-            log.info("Caching completed run " + run.getString("runName"));
-            finishedCache.put(run.getString("runName"), run.toString());
-          }
-        }
+    ScanTask(File rootFile, String countStr) {
+      this.rootFile = rootFile;
+      this.countStr = countStr;
+    }
+
+    @Override
+    public ScannedRun call() {
+      return scanRun(rootFile, countStr);
+    }
+  }
+
+  /**
+   * The status and JSON representation of a scanned run. The run is either a JSONObject, or the JSON string held by
+   * the finished cache.
+   */
+  private static class ScannedRun {
+    private final String status;
+    private final Object run;
+    private final RunFingerprint fingerprint;
+
+    ScannedRun(String status, Object run, RunFingerprint fingerprint) {
+      this.status = status;
+      this.run = run;
+      this.fingerprint = fingerprint;
+    }
+  }
+
+  /**
+   * The modification times and sizes of the files in a run directory that are used to determine its status. If none
+   * of these have changed, neither will the result of parsing them. Directory modification times catch files such as
+   * Basecalling_Netcopy_complete*.txt and per-cycle logs being created.
+   */
+  static class RunFingerprint {
+    private final long[] stamps;
+
+    private RunFingerprint(long[] stamps) {
+      this.stamps = stamps;
+    }
+
+    static RunFingerprint of(File rootFile) {
+      File[] rtaLogs = new File(rootFile, "/Data/RTALogs/").listFiles(RTA_LOG_FILTER);
+      if (rtaLogs != null) {
+        Arrays.sort(rtaLogs);
+      }
+      int rtaLogCount = rtaLogs == null ? 0 : rtaLogs.length;
+
+      long[] stamps = new long[FINGERPRINT_DIRS.length + 4 * FINGERPRINT_PATHS.length + 2 * rtaLogCount + 1];
+      int i = 0;
+      for (String dir : FINGERPRINT_DIRS) {
+        stamps[i++] = new File(rootFile, dir).lastModified();
+      }
+      for (String path : FINGERPRINT_PATHS) {
+        File f = new File(rootFile, path);
+        stamps[i++] = f.lastModified();
+        stamps[i++] = f.length();
+        File gz = new File(rootFile, path + ".gz");
+        stamps[i++] = gz.lastModified();
+        stamps[i++] = gz.length();
+      }
+      for (int j = 0; j < rtaLogCount; j++) {
+        stamps[i++] = rtaLogs[j].lastModified();
+        stamps[i++] = rtaLogs[j].length();
       }
+      stamps[i] = rtaLogCount;
+      return new RunFingerprint(stamps);
     }
 
-    return smap;
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof RunFingerprint && Arrays.equals(stamps, ((RunFingerprint) obj).stamps);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(stamps);
+    }
   }
-  
+
+  /**
+   * An access-ordered map that evicts the least recently used run once it holds more than maxCachedRuns entries
+   */
+  private class BoundedRunCache<V> extends LinkedHashMap<String, V> {
+    BoundedRunCache() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+      return size() > maxCachedRuns;
+    }
+  }
+
   /**
    * Reads a RunInfo document, looks for sequencer name, container ID, and lane count, and adds to the run any of these that are 
    * not already included
    * 
-   * @param runInfoDoc the RunInfo.xml Document
+   * @param runInfoDoc fields extracted from RunInfo.xml
    * @param run JSON representation of the sequencer run
    * @throws TransformerException
    * @throws IOException
    * @throws ParserConfigurationException
    */
-  private void checkRunInfo(Document runInfoDoc, JSONObject run) {
-    if (!run.has(JSON_SEQUENCER_NAME) && runInfoDoc.getElementsByTagName("Instrument").getLength() != 0) {
-      run.put(JSON_SEQUENCER_NAME, runInfoDoc.getElementsByTagName("Instrument").item(0).getTextContent());
+  private void checkRunInfo(XmlFields runInfoDoc, JSONObject run) {
+    if (!run.has(JSON_SEQUENCER_NAME) && runInfoDoc.has("Instrument")) {
+      run.put(JSON_SEQUENCER_NAME, runInfoDoc.getText("Instrument"));
     }
 
-    if (runInfoDoc.getElementsByTagName("FlowcellId").getLength() != 0) {
-      run.put(JSON_CONTAINER_ID, runInfoDoc.getElementsByTagName("FlowcellId").item(0).getTextContent());
+    if (runInfoDoc.has("FlowcellId")) {
+      run.put(JSON_CONTAINER_ID, runInfoDoc.getText("FlowcellId"));
     }
-    else if (runInfoDoc.getElementsByTagName("Flowcell").getLength() != 0) {
-      run.put(JSON_CONTAINER_ID, runInfoDoc.getElementsByTagName("Flowcell").item(0).getTextContent());
+    else if (runInfoDoc.has("Flowcell")) {
+      run.put(JSON_CONTAINER_ID, runInfoDoc.getText("Flowcell"));
     }
 
-    if (runInfoDoc.getElementsByTagName("FlowcellLayout").getLength() != 0) {
-      NamedNodeMap n = runInfoDoc.getElementsByTagName("FlowcellLayout").item(0).getAttributes();
-      if (n.getLength() != 0) {
-        Node attr = n.getNamedItem("LaneCount");
-        if (attr != null) {
-          run.put(JSON_LANE_COUNT, attr.getTextContent());
-        }
-      }
+    String laneCount = runInfoDoc.getAttribute("FlowcellLayout", "LaneCount");
+    if (laneCount != null) {
+      run.put(JSON_LANE_COUNT, laneCount);
     }
   }
   
@@ -284,20 +562,20 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
    * Reads the runParameters.xml document, looks for the sequencer name and container ID, and adds to the run any of these that are not 
    * already included
    * 
-   * @param runParamDoc the runParameters.xml Document
+   * @param runParamDoc fields extracted from runParameters.xml
    * @param run JSON representation of the sequencer run
    * @return true if runParameters.xml is missing, but runParameters.xml* is found, which indicates run failure; false otherwise
    * @throws TransformerException
    * @throws IOException
    * @throws ParserConfigurationException
    */
-  private void checkRunParams(Document runParamDoc, JSONObject run) {
-    if (!run.has(JSON_SEQUENCER_NAME) && runParamDoc.getElementsByTagName("ScannerID").getLength() != 0) {
-      run.put(JSON_SEQUENCER_NAME, runParamDoc.getElementsByTagName("ScannerID").item(0).getTextContent());
+  private void checkRunParams(XmlFields runParamDoc, JSONObject run) {
+    if (!run.has(JSON_SEQUENCER_NAME) && runParamDoc.has("ScannerID")) {
+      run.put(JSON_SEQUENCER_NAME, runParamDoc.getText("ScannerID"));
     }
 
-    if (!run.has(JSON_CONTAINER_ID) && runParamDoc.getElementsByTagName("Barcode").getLength() != 0) {
-      run.put(JSON_CONTAINER_ID, runParamDoc.getElementsByTagName("Barcode").item(0).getTextContent());
+    if (!run.has(JSON_CONTAINER_ID) && runParamDoc.has("Barcode")) {
+      run.put(JSON_CONTAINER_ID, runParamDoc.getText("Barcode"));
     }
   }
   
@@ -322,43 +600,40 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
    * 
    * @param rootFile run directory
    * @param run JSON representation of the sequencer run
-   * @param statusDoc Status.xml Document (may be null)
-   * @param runInfoDoc RunInfo.xml Document (may be null)
+   * @param statusDoc fields extracted from Status.xml (may be null)
+   * @param runInfoDoc fields extracted from RunInfo.xml (may be null)
    * @return true if the method finds evidence of the final cycle completing; false otherwise
    * @throws FileNotFoundException
    * @throws IOException
    */
-  private boolean checkCycles(File rootFile, JSONObject run, Document statusDoc, Document runInfoDoc) throws FileNotFoundException, IOException {
+  private boolean checkCycles(File rootFile, JSONObject run, XmlFields statusDoc, XmlFields runInfoDoc) throws FileNotFoundException, IOException {
     String runName = run.getString(JSON_RUN_NAME);
     int numCycles = 0;
     
     if (statusDoc != null) {
-      if (statusDoc.getElementsByTagName("NumCycles").getLength() != 0) {
-        numCycles = new Integer(statusDoc.getElementsByTagName("NumCycles").item(0).getTextContent());
+      if (statusDoc.has("NumCycles")) {
+        numCycles = new Integer(statusDoc.getText("NumCycles"));
       }
-      else if (statusDoc.getElementsByTagName("NumberCycles").getLength() != 0) {
-        numCycles = new Integer(statusDoc.getElementsByTagName("NumberCycles").item(0).getTextContent());
+      else if (statusDoc.has("NumberCycles")) {
+        numCycles = new Integer(statusDoc.getText("NumberCycles"));
       }
       if (numCycles > 0) {
         run.put(JSON_NUM_CYCLES, numCycles);
-        if (statusDoc.getElementsByTagName("ImgCycle").getLength() != 0
-            && statusDoc.getElementsByTagName("ScoreCycle").getLength() != 0
-            && statusDoc.getElementsByTagName("CallCycle").getLength() != 0) {
-          int imgCycle = new Integer(statusDoc.getElementsByTagName("ImgCycle").item(0).getTextContent());
-          int scoreCycle = new Integer(statusDoc.getElementsByTagName("ScoreCycle").item(0).getTextContent());
-          int callCycle = new Integer(statusDoc.getElementsByTagName("CallCycle").item(0).getTextContent());
+        if (statusDoc.has("ImgCycle") && statusDoc.has("ScoreCycle") && statusDoc.has("CallCycle")) {
+          int imgCycle = new Integer(statusDoc.getText("ImgCycle"));
+          int scoreCycle = new Integer(statusDoc.getText("ScoreCycle"));
+          int callCycle = new Integer(statusDoc.getText("CallCycle"));
           return numCycles == imgCycle && numCycles == scoreCycle && numCycles == callCycle;
         }
       }
     }
     
     if (numCycles == 0 && runInfoDoc != null) {
-      NodeList nl = runInfoDoc.getElementsByTagName("Read");
-      if (nl.getLength() > 0) {
-        for (int i = 0; i < nl.getLength(); i++) {
-          Element e = (Element) nl.item(i);
-          if (!"".equals(e.getAttributeNS(null, "NumCycles"))) {
-            numCycles += Integer.parseInt(e.getAttributeNS(null, "NumCycles"));
+      if (runInfoDoc.has("Read")) {
+        for (Map<String, String> read : runInfoDoc.getAllAttributes("Read")) {
+          String readCycles = read.get("NumCycles");
+          if (readCycles != null && !"".equals(readCycles)) {
+            numCycles += Integer.parseInt(readCycles);
           }
         }
         run.put(JSON_NUM_CYCLES, numCycles);
@@ -492,6 +767,7 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
         else { // check if this time is newer
           log.debug(runName + " :: Checking " + cycleDateStr + " vs. " + completed);
           try {
+            DateFormat logDateFormat = new SimpleDateFormat(LOG_DATE_FORMAT);
             Date cycleDate = logDateFormat.parse(cycleDateStr);
             Date cDate = logDateFormat.parse(completed);
 
@@ -558,12 +834,7 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
     if (rtaLogDir.exists()) {
       Pattern p = Pattern.compile(".*(Application\\s{1}exited\\s{1}before\\s{1}completion).*");
 
-      for (File f : rtaLogDir.listFiles(new FilenameFilter() {
-        @Override
-        public boolean accept(File dir, String name) {
-          return (name.endsWith("Log_00.txt") || name.endsWith("Log_00.txt.gz") || name.equals("Log.txt") || name.equals("Log.txt.gz"));
-        }
-      })) {
+      for (File f : rtaLogDir.listFiles(RTA_LOG_FILTER)) {
         Matcher m = PossiblyGzippedFileUtils.tailGrep(f, p, 5);
         if (m != null && m.groupCount() > 0) {
           failed = true;
@@ -674,7 +945,8 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
         if (rootFile.canRead()) {
           try {
             String runName = rootFile.getName();
-            if (!finishedCache.keySet().contains(runName)) {
+            String cached = getFinishedRun(runName);
+            if (cached == null) {
               //parse interop if completed cache doesn't hold this run
               JSONObject metrix = parseInterOp(rootFile);
               if (metrix != null) {
@@ -687,13 +959,13 @@ public class IlluminaTransformer implements FileSetTransformer<String, String, F
               map.add(run);
             }
             else {
-              JSONObject cachedRun = JSONObject.fromObject(finishedCache.get(runName));
+              JSONObject cachedRun = JSONObject.fromObject(cached);
               if (!cachedRun.has("metrix")) {
                 JSONObject metrix = parseInterOp(rootFile);
                 if (metrix != null) {
                   run.put("metrix", metrix);
                   cachedRun.put("metrix", metrix);
-                  finishedCache.put(runName, cachedRun.toString());
+                  cacheFinishedRun(runName, cachedRun.toString());
                 }
                 else {
                   run.put("error", "Cannot provide metrics - parsing failed.");
@@ -32,6 +32,8 @@ import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
 import uk.ac.bbsrc.tgac.miso.core.util.SubmissionUtils;
 import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationUtils;
 import uk.ac.bbsrc.tgac.miso.tools.run.RunFolderConstants;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateAware;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateStore;
 import uk.ac.bbsrc.tgac.miso.tools.run.util.FileSetTransformer;
 
 import javax.xml.transform.TransformerException;
@@ -51,9 +53,16 @@ import java.util.regex.Pattern;
  * @date 16/12/11
  * @since 0.1.4
  */
-public class LS454Transformer implements FileSetTransformer<String, String, File> {
+public class LS454Transformer implements FileSetTransformer<String, String, File>, ScanStateAware {
   protected static final Logger log = LoggerFactory.getLogger(LS454Transformer.class);
 
+  private ScanStateStore scanStateStore;
+
+  @Override
+  public void setScanStateStore(ScanStateStore scanStateStore) {
+    this.scanStateStore = scanStateStore;
+  }
+
   private final Pattern runCompleteLogPattern = Pattern.compile(
       "\\[([A-z]{3} [A-z]{3} \\d{2} \\d{2}:\\d{2}:\\d{2} \\d{4})\\].*Job complete.*"
   );
@@ -74,6 +83,13 @@ public class LS454Transformer implements FileSetTransformer<String, String, File
 
     for (File rootFile : files) {
       if (rootFile.isDirectory()) {
+        String cachedRun = scanStateStore != null ? scanStateStore.getRun(rootFile.getName(), "Completed") : null;
+        if (cachedRun != null) {
+          log.debug(rootFile.getName() + " :: Completed (from scan state)");
+          map.get("Completed").add(JSONObject.fromObject(cachedRun));
+          continue;
+        }
+
         if (rootFile.canRead()) {
           JSONObject run = new JSONObject();
           run.put("status", "");
@@ -173,6 +189,12 @@ public class LS454Transformer implements FileSetTransformer<String, String, File
       }
     }
 
+    if (scanStateStore != null) {
+      for (JSONObject run : (Iterable<JSONObject>) map.get("Completed")) {
+        scanStateStore.put(run.getString("runName"), "Completed", run.toString());
+      }
+    }
+
     HashMap<String, String> smap = new HashMap<String, String>();
     for (String key : map.keySet()) {
       smap.put(key, map.get(key).toString());
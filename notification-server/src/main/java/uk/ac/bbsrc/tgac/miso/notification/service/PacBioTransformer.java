@@ -58,6 +58,8 @@ import uk.ac.bbsrc.tgac.miso.core.service.integration.ws.pacbio.PacBioServiceWra
 import uk.ac.bbsrc.tgac.miso.core.util.SubmissionUtils;
 import uk.ac.bbsrc.tgac.miso.integration.context.ApplicationContextProvider;
 import uk.ac.bbsrc.tgac.miso.integration.util.IntegrationUtils;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateAware;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateStore;
 import uk.ac.bbsrc.tgac.miso.tools.run.util.FileSetTransformer;
 
 /**
@@ -69,9 +71,16 @@ import uk.ac.bbsrc.tgac.miso.tools.run.util.FileSetTransformer;
  * @date 10/04/12
  * @since 0.1.6
  */
-public class PacBioTransformer implements FileSetTransformer<String, String, File> {
+public class PacBioTransformer implements FileSetTransformer<String, String, File>, ScanStateAware {
   protected static final Logger log = LoggerFactory.getLogger(PacBioTransformer.class);
 
+  private ScanStateStore scanStateStore;
+
+  @Override
+  public void setScanStateStore(ScanStateStore scanStateStore) {
+    this.scanStateStore = scanStateStore;
+  }
+
   private final Pattern cellDirPattern = Pattern.compile(
           "[A-Z]{1}[0-9]{2}_[0-9]{1}"
   );
@@ -189,6 +198,13 @@ public class PacBioTransformer implements FileSetTransformer<String, String, Fil
 
     for (File rootFile : files) {
       if (rootFile.isDirectory()) {
+        String cachedRun = scanStateStore != null ? scanStateStore.getRun(rootFile.getName(), "Completed") : null;
+        if (cachedRun != null) {
+          log.debug(rootFile.getName() + " :: Completed (from scan state)");
+          map.get("Completed").add(JSONObject.fromObject(cachedRun));
+          continue;
+        }
+
         if (rootFile.canRead()) {
           JSONObject run = new JSONObject();
           String runName = rootFile.getName();
@@ -303,6 +319,12 @@ public class PacBioTransformer implements FileSetTransformer<String, String, Fil
       }
     }
 
+    if (scanStateStore != null) {
+      for (JSONObject run : (Iterable<JSONObject>) map.get("Completed")) {
+        scanStateStore.put(run.getString("runName"), "Completed", run.toString());
+      }
+    }
+
     HashMap<String, String> smap = new HashMap<String, String>();
     for (String key : map.keySet()) {
       smap.put(key, map.get(key).toString());
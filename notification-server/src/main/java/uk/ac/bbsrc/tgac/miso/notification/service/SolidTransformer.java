@@ -35,6 +35,8 @@ import uk.ac.bbsrc.tgac.miso.core.service.integration.ws.solid.SolidServiceWrapp
 import uk.ac.bbsrc.tgac.miso.core.util.SubmissionUtils;
 import uk.ac.bbsrc.tgac.miso.core.util.UnicodeReader;
 import uk.ac.bbsrc.tgac.miso.integration.context.ApplicationContextProvider;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateAware;
+import uk.ac.bbsrc.tgac.miso.notification.util.ScanStateStore;
 import uk.ac.bbsrc.tgac.miso.tools.run.util.FileSetTransformer;
 
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -56,9 +58,16 @@ import java.util.regex.Pattern;
  * @date 08-Aug-2011
  * @since 0.0.3
  */
-public class SolidTransformer implements FileSetTransformer<String, String, File> {
+public class SolidTransformer implements FileSetTransformer<String, String, File>, ScanStateAware {
   protected static final Logger log = LoggerFactory.getLogger(SolidTransformer.class);
 
+  private ScanStateStore scanStateStore;
+
+  @Override
+  public void setScanStateStore(ScanStateStore scanStateStore) {
+    this.scanStateStore = scanStateStore;
+  }
+
   public Map<String, String> transform(Message<Set<File>> message) {
     return transform(message.getPayload());
   }
@@ -73,6 +82,13 @@ public class SolidTransformer implements FileSetTransformer<String, String, File
 
     for (File rootFile : files) {
       if (rootFile.isDirectory()) {
+        String cachedRun = scanStateStore != null ? scanStateStore.getRun(rootFile.getName(), "Completed") : null;
+        if (cachedRun != null) {
+          log.debug(rootFile.getName() + " :: Completed (from scan state)");
+          map.get("Completed").add(JSONObject.fromObject(cachedRun));
+          continue;
+        }
+
         JSONObject run = new JSONObject();
         String runName = rootFile.getName();
 
@@ -220,6 +236,12 @@ public class SolidTransformer implements FileSetTransformer<String, String, File
       }
     }
 
+    if (scanStateStore != null) {
+      for (JSONObject run : (Iterable<JSONObject>) map.get("Completed")) {
+        scanStateStore.put(run.getString("runName"), "Completed", run.toString());
+      }
+    }
+
     HashMap<String, String> smap = new HashMap<String, String>();
     for (String key : map.keySet()) {
       smap.put(key, map.get(key).toString());
@@ -1,6 +1,8 @@
 package uk.ac.bbsrc.tgac.miso.notification.util;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -8,12 +10,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.TransformerException;
 
 import org.w3c.dom.Document;
@@ -24,6 +37,24 @@ import uk.ac.bbsrc.tgac.miso.core.util.SubmissionUtils;
 public class PossiblyGzippedFileUtils {
   
   private static final String GZIP_EXTENSION = ".gz";
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  private static final int MIN_CACHED_TAIL_LINES = 50;
+  private static final int MAX_CACHED_TAILS = 1000;
+  
+  private static final Map<String, GzippedTail> gzippedTailCache = new LinkedHashMap<String, GzippedTail>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, GzippedTail> eldest) {
+      return size() > MAX_CACHED_TAILS;
+    }
+  };
+  
+  private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+  static {
+    // Sequencer XML never needs external entities, and resolving them would be a needless (and unsafe) network/disk hit
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
   
   /**
    * Creates a File representing a gzipped version of the file with the name specified. The extension ".gz" is appended to the provided 
@@ -127,6 +158,129 @@ public class PossiblyGzippedFileUtils {
     }
   }
   
+  /**
+   * Checks whether an XML file, or a gzipped file of the same name suffixed with ".gz" exists and is readable, and if so, pulls the 
+   * text and attributes of the named elements from it in a single streaming pass. This avoids building and re-serializing a DOM when 
+   * only a handful of values are needed
+   * 
+   * @param rootFile the file's parent directory
+   * @param path file path relative to rootFile
+   * @param keepXml if true, the full text of the file is also returned, for forwarding as-is
+   * @param elements names of the elements to extract
+   * @return the extracted fields if the file is readable; null otherwise
+   * @throws IOException
+   * @throws XMLStreamException if the file is not well-formed XML
+   */
+  public static XmlFields getXmlFields(File rootFile, String path, boolean keepXml, String... elements) throws IOException, XMLStreamException {
+    File file = new File(rootFile, path);
+    if (!file.exists()) {
+      // Raw file doesn't exist. Check for Gzipped
+      file = getGzippedFile(rootFile, path);
+      if (!file.exists()) return null;
+    }
+    if (!file.canRead()) return null;
+    return getXmlFields(file, keepXml, elements);
+  }
+  
+  /**
+   * Pulls the text and attributes of the named elements from a raw or gzipped XML file in a single streaming pass. This method only 
+   * checks the file it is given. To also check for an alternate raw/gzipped XML file, see the 
+   * {@link #getXmlFields(File, String, boolean, String...)} method
+   * 
+   * @param file the file to read
+   * @param keepXml if true, the full text of the file is also returned, for forwarding as-is
+   * @param elements names of the elements to extract
+   * @return the extracted fields
+   * @throws IOException
+   * @throws XMLStreamException if the file is not well-formed XML
+   */
+  public static XmlFields getXmlFields(File file, boolean keepXml, String... elements) throws IOException, XMLStreamException {
+    try (InputStream fis = new FileInputStream(file);
+        InputStream is = isGzipped(file) ? new GZIPInputStream(fis) : fis) {
+      if (!keepXml) return extractXmlFields(is, elements);
+      
+      // The text is needed as well, so decompress once and parse from memory
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        bytes.write(buffer, 0, read);
+      }
+      byte[] content = bytes.toByteArray();
+      XmlFields fields = extractXmlFields(new ByteArrayInputStream(content), elements);
+      fields.setXml(decodeXml(content, fields.getEncoding()));
+      return fields;
+    }
+  }
+  
+  private static XmlFields extractXmlFields(InputStream is, String... elements) throws XMLStreamException {
+    Set<String> wanted = new HashSet<>(Arrays.asList(elements));
+    XmlFields fields = new XmlFields();
+    XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(is);
+    try {
+      fields.setEncoding(reader.getEncoding() != null ? reader.getEncoding() : reader.getCharacterEncodingScheme());
+      // Elements of interest may be nested in one another, so track the text of each open one
+      String[] openNames = new String[16];
+      int[] openIndices = new int[16];
+      StringBuilder[] openText = new StringBuilder[16];
+      int open = 0;
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          if (wanted.contains(reader.getLocalName())) {
+            if (open == openNames.length) {
+              openNames = Arrays.copyOf(openNames, open * 2);
+              openIndices = Arrays.copyOf(openIndices, open * 2);
+              openText = Arrays.copyOf(openText, open * 2);
+            }
+            Map<String, String> attrs = new HashMap<>();
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+              attrs.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+            openNames[open] = reader.getLocalName();
+            openIndices[open] = fields.startElement(reader.getLocalName(), attrs);
+            openText[open] = new StringBuilder();
+            open++;
+          }
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          for (int i = 0; i < open; i++) {
+            openText[i].append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          }
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          if (open > 0 && openNames[open - 1].equals(reader.getLocalName())) {
+            open--;
+            fields.setText(openNames[open], openIndices[open], openText[open].toString());
+            openText[open] = null;
+          }
+          break;
+        default:
+          break;
+        }
+      }
+    }
+    finally {
+      reader.close();
+    }
+    return fields;
+  }
+  
+  private static String decodeXml(byte[] content, String encoding) {
+    Charset charset = UTF8;
+    if (encoding != null && Charset.isSupported(encoding)) {
+      charset = Charset.forName(encoding);
+    }
+    String xml = new String(content, charset);
+    // drop any byte order mark, which would otherwise end up at the start of the forwarded text
+    if (!xml.isEmpty() && xml.charAt(0) == '\uFEFF') {
+      xml = xml.substring(1);
+    }
+    return xml;
+  }
+  
   /**
    * Greps the tail of a raw or gzipped text file, attempting to match a pattern. This method only checks the file it is given. To also 
    * check for an alternate raw/gzipped file, see the {@link #tailGrep(File, String, Pattern, int)} method
@@ -165,45 +319,85 @@ public class PossiblyGzippedFileUtils {
   }
   
   private static Matcher tailGrepGzipped(File file, Pattern pattern, int lines) throws FileNotFoundException, IOException {
-    try (InputStream is = new FileInputStream(file);
-        InputStream gis = new GZIPInputStream(is);
-        Reader r = new InputStreamReader(gis);
-        BufferedReader br = new BufferedReader(r)) {
-      String[] lineText = new String[lines];
-      
-      // Find only the last lines
-      int i = 0;
-      boolean done = false;
-      while (!done) {
-        String text = br.readLine();
-        if (text == null) done = true;
-        else {
-          lineText[i] = text;
-          i++;
-          if (i == lineText.length) i = 0;
-        }
-      }
-      
-      // Look for the first instance of the pattern in these lines
-      int start = i;
-      done = false;
-      Matcher m = null;
-      while (!done) {
-        if (lineText[i] != null) { // may be less lines in file than requested
-          if (m == null)
-            m = pattern.matcher(lineText[i]);
-          else
-            m.reset(lineText[i]);
-          if (m.find()) {
-            return m;
-          }
-        }
-        i++;
-        if (i == lineText.length) i = 0;
-        if (i == start) done = true;
+    String[] lineText = getGzippedTail(file, lines);
+    
+    // Look for the first instance of the pattern in these lines
+    Matcher m = null;
+    for (int i = Math.max(0, lineText.length - lines); i < lineText.length; i++) {
+      if (m == null)
+        m = pattern.matcher(lineText[i]);
+      else
+        m.reset(lineText[i]);
+      if (m.find()) {
+        return m;
       }
     }
     return null;
   }
-
+  
+  /**
+   * Gets the last lines of a gzipped file. A gzip stream can't be read backwards, so the whole file has to be decompressed to find its 
+   * tail. Gzipped logs are normally archived and no longer written to, so the tail is cached against the file's size and modification 
+   * time, and at least {@link #MIN_CACHED_TAIL_LINES} lines are kept so that later greps of the same file with different patterns or 
+   * line counts can be served from the cache too
+   * 
+   * @param file the gzipped file to read
+   * @param lines the number of lines required
+   * @return up to the requested number of lines (fewer if the file is shorter), oldest first
+   * @throws IOException
+   */
+  private static String[] getGzippedTail(File file, int lines) throws IOException {
+    String key = file.getAbsolutePath();
+    long length = file.length();
+    long modified = file.lastModified();
+    GzippedTail cached;
+    synchronized (gzippedTailCache) {
+      cached = gzippedTailCache.get(key);
+    }
+    if (cached != null && cached.length == length && cached.modified == modified
+        && (cached.lines.length >= lines || cached.complete)) {
+      return cached.lines;
+    }
+    
+    int keep = Math.max(lines, MIN_CACHED_TAIL_LINES);
+    String[] ring = new String[keep];
+    int count = 0;
+    try (InputStream is = new FileInputStream(file);
+        InputStream gis = new GZIPInputStream(is, 65536);
+        Reader r = new InputStreamReader(gis, UTF8);
+        BufferedReader br = new BufferedReader(r, 65536)) {
+      String text;
+      while ((text = br.readLine()) != null) {
+        ring[count % keep] = text;
+        count++;
+      }
+    }
+    
+    // unroll the ring buffer, oldest line first
+    String[] tail = new String[Math.min(count, keep)];
+    for (int i = 0; i < tail.length; i++) {
+      tail[i] = ring[(count - tail.length + i) % keep];
+    }
+    
+    synchronized (gzippedTailCache) {
+      gzippedTailCache.put(key, new GzippedTail(length, modified, tail, count <= keep));
+    }
+    return tail;
+  }
+  
+  private static class GzippedTail {
+    private final long length;
+    private final long modified;
+    private final String[] lines;
+    // true if the whole file fits in the cached lines, so any number of lines can be served
+    private final boolean complete;
+    
+    GzippedTail(long length, long modified, String[] lines, boolean complete) {
+      this.length = length;
+      this.modified = modified;
+      this.lines = lines;
+      this.complete = complete;
+    }
+  }
+  
 }
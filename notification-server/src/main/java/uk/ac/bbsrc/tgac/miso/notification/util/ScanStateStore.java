@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.notification.util;
+
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.notification.util
+ * <p/>
+ * Persists the last-seen state of each scanned run directory to an append-only log, so that a restarted notification
+ * server can pick up where it left off instead of re-parsing every historical run. Each line of the log is a JSON
+ * record holding the run name, its status, when it was last seen, and the JSON snapshot that was sent to MISO. Later
+ * records supersede earlier ones, and the log is compacted once superseded records outnumber live ones.
+ *
+ * @since 0.2.1
+ */
+public class ScanStateStore {
+  protected static final Logger log = LoggerFactory.getLogger(ScanStateStore.class);
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int MIN_COMPACTION_RECORDS = 100;
+
+  private static final String KEY_RUN_NAME = "runName";
+  private static final String KEY_STATUS = "status";
+  private static final String KEY_LAST_SEEN = "lastSeen";
+  private static final String KEY_RUN = "run";
+
+  private final File logFile;
+  private final Map<String, ScanState> states = new HashMap<>();
+  private Writer writer;
+  private int records = 0;
+
+  public ScanStateStore(File logFile) throws IOException {
+    this.logFile = logFile;
+    load();
+    if (records > 2 * states.size() + MIN_COMPACTION_RECORDS) {
+      compact();
+    }
+    else {
+      openWriter(true);
+    }
+  }
+
+  private void load() throws IOException {
+    if (!logFile.exists()) {
+      return;
+    }
+    truncatePartialRecord();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), UTF8))) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        try {
+          JSONObject record = JSONObject.fromObject(line);
+          String runName = record.getString(KEY_RUN_NAME);
+          if (record.has(KEY_STATUS)) {
+            states.put(runName, new ScanState(record.getString(KEY_STATUS), record.getLong(KEY_LAST_SEEN), record.getString(KEY_RUN)));
+          }
+          else {
+            states.remove(runName);
+          }
+          records++;
+        }
+        catch (JSONException e) {
+          //most likely a partially written final record from an unclean shutdown
+          log.warn("Skipping unreadable scan state record at " + logFile.getName() + ":" + lineNumber);
+        }
+      }
+    }
+    log.info("Loaded scan state for " + states.size() + " runs from " + logFile.getAbsolutePath());
+  }
+
+  /**
+   * Cuts a partially written final record from an unclean shutdown off the end of the log, so that the next record is
+   * appended on a line of its own
+   */
+  private void truncatePartialRecord() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+      long length = raf.length();
+      long end = length;
+      byte[] buf = new byte[4096];
+      while (end > 0) {
+        int n = (int) Math.min(buf.length, end);
+        raf.seek(end - n);
+        raf.readFully(buf, 0, n);
+        for (int i = n - 1; i >= 0; i--) {
+          if (buf[i] == '\n') {
+            long keep = end - n + i + 1;
+            if (keep < length) {
+              log.warn("Discarding " + (length - keep) + " bytes of partially written scan state from " + logFile.getName());
+              raf.setLength(keep);
+            }
+            return;
+          }
+        }
+        end -= n;
+      }
+      if (length > 0) {
+        log.warn("Discarding " + length + " bytes of partially written scan state from " + logFile.getName());
+        raf.setLength(0);
+      }
+    }
+  }
+
+  private void openWriter(boolean append) throws IOException {
+    if (logFile.getParentFile() != null && !logFile.getParentFile().exists() && !logFile.getParentFile().mkdirs()) {
+      throw new IOException("Cannot create scan state directory " + logFile.getParentFile().getAbsolutePath());
+    }
+    writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, append), UTF8));
+  }
+
+  /**
+   * Gets the last recorded state of a run
+   *
+   * @param runName the run name
+   * @return the ScanState, or null if the run has not been recorded
+   */
+  public synchronized ScanState get(String runName) {
+    return states.get(runName);
+  }
+
+  /**
+   * Gets the JSON snapshot of a run, if it was last recorded with the given status
+   *
+   * @param runName the run name
+   * @param status the expected status
+   * @return the JSON snapshot, or null if the run is not recorded or has a different status
+   */
+  public synchronized String getRun(String runName, String status) {
+    ScanState state = states.get(runName);
+    return state != null && state.getStatus().equals(status) ? state.getRun() : null;
+  }
+
+  public synchronized int size() {
+    return states.size();
+  }
+
+  /**
+   * Records the state of a run. Nothing is written if the status and snapshot are unchanged.
+   *
+   * @param runName the run name
+   * @param status the run status
+   * @param run the JSON snapshot of the run
+   */
+  public synchronized void put(String runName, String status, String run) {
+    ScanState previous = states.get(runName);
+    if (previous != null && previous.getStatus().equals(status) && previous.getRun().equals(run)) {
+      return;
+    }
+    ScanState state = new ScanState(status, System.currentTimeMillis(), run);
+    states.put(runName, state);
+
+    JSONObject record = new JSONObject();
+    record.put(KEY_RUN_NAME, runName);
+    record.put(KEY_STATUS, status);
+    record.put(KEY_LAST_SEEN, state.getLastSeen());
+    record.put(KEY_RUN, run);
+    append(record);
+  }
+
+  /**
+   * Forgets a run, e.g. once its directory has been deleted
+   *
+   * @param runName the run name
+   */
+  public synchronized void remove(String runName) {
+    if (states.remove(runName) != null) {
+      JSONObject record = new JSONObject();
+      record.put(KEY_RUN_NAME, runName);
+      append(record);
+    }
+  }
+
+  private void append(JSONObject record) {
+    try {
+      if (writer == null) {
+        openWriter(true);
+      }
+      writer.write(record.toString());
+      writer.write('\n');
+      writer.flush();
+      records++;
+      if (records > 2 * states.size() + MIN_COMPACTION_RECORDS) {
+        compact();
+      }
+    }
+    catch (IOException e) {
+      //the in-memory state is still correct, so carry on scanning and let the next write try again
+      log.error("Cannot write scan state to " + logFile.getAbsolutePath() + ": " + e.getMessage());
+      e.printStackTrace();
+      closeQuietly();
+    }
+  }
+
+  /**
+   * Rewrites the log so that it holds only the latest record for each run. The new log is written alongside the old one
+   * and atomically moved over it, so a crash at any point leaves either the old or the new log in place.
+   *
+   * @throws IOException when the compacted log cannot be written
+   */
+  public synchronized void compact() throws IOException {
+    closeQuietly();
+    File tmp = new File(logFile.getAbsolutePath() + ".tmp");
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), UTF8))) {
+      for (Map.Entry<String, ScanState> entry : states.entrySet()) {
+        JSONObject record = new JSONObject();
+        record.put(KEY_RUN_NAME, entry.getKey());
+        record.put(KEY_STATUS, entry.getValue().getStatus());
+        record.put(KEY_LAST_SEEN, entry.getValue().getLastSeen());
+        record.put(KEY_RUN, entry.getValue().getRun());
+        out.write(record.toString());
+        out.write('\n');
+      }
+    }
+    Files.move(tmp.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    records = states.size();
+    openWriter(true);
+    log.debug("Compacted scan state log to " + records + " records");
+  }
+
+  public synchronized void close() {
+    closeQuietly();
+  }
+
+  private void closeQuietly() {
+    if (writer != null) {
+      try {
+        writer.close();
+      }
+      catch (IOException e) {
+        log.warn("Error closing scan state log: " + e.getMessage());
+      }
+      writer = null;
+    }
+  }
+
+  public static class ScanState {
+    private final String status;
+    private final long lastSeen;
+    private final String run;
+
+    public ScanState(String status, long lastSeen, String run) {
+      this.status = status;
+      this.lastSeen = lastSeen;
+      this.run = run;
+    }
+
+    public String getStatus() {
+      return status;
+    }
+
+    public long getLastSeen() {
+      return lastSeen;
+    }
+
+    public String getRun() {
+      return run;
+    }
+  }
+}
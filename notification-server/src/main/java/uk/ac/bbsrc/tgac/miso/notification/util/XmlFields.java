@@ -0,0 +1,104 @@
+package uk.ac.bbsrc.tgac.miso.notification.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of selected elements pulled from an XML file in a single streaming pass. For each requested element name, the text 
+ * content and attributes of every occurrence are kept, in document order. Elements are matched on local name, ignoring namespaces, 
+ * in the same way as Document.getElementsByTagName would match them in an un-namespaced DOM
+ */
+public class XmlFields {
+  
+  private final Map<String, List<String>> text = new HashMap<>();
+  private final Map<String, List<Map<String, String>>> attributes = new HashMap<>();
+  private String xml;
+  private String encoding;
+  
+  /**
+   * Records the start of an element, so that occurrences are kept in document order even when they are nested
+   * 
+   * @return the index of this occurrence, to pass to {@link #setText(String, int, String)} once the element ends
+   */
+  int startElement(String element, Map<String, String> elementAttributes) {
+    List<String> texts = text.get(element);
+    if (texts == null) {
+      texts = new ArrayList<>();
+      text.put(element, texts);
+      attributes.put(element, new ArrayList<Map<String, String>>());
+    }
+    texts.add("");
+    attributes.get(element).add(elementAttributes);
+    return texts.size() - 1;
+  }
+  
+  void setText(String element, int index, String textContent) {
+    text.get(element).set(index, textContent);
+  }
+  
+  void setXml(String xml) {
+    this.xml = xml;
+  }
+  
+  String getEncoding() {
+    return encoding;
+  }
+  
+  void setEncoding(String encoding) {
+    this.encoding = encoding;
+  }
+  
+  /**
+   * @param element the element name
+   * @return the number of occurrences of the element
+   */
+  public int count(String element) {
+    List<String> texts = text.get(element);
+    return texts == null ? 0 : texts.size();
+  }
+  
+  /**
+   * @param element the element name
+   * @return true if the element occurs at least once
+   */
+  public boolean has(String element) {
+    return count(element) > 0;
+  }
+  
+  /**
+   * @param element the element name
+   * @return the text content of the first occurrence of the element, or null if it does not occur
+   */
+  public String getText(String element) {
+    return has(element) ? text.get(element).get(0) : null;
+  }
+  
+  /**
+   * @param element the element name
+   * @param attribute the attribute name
+   * @return the value of the attribute on the first occurrence of the element, or null if either does not exist
+   */
+  public String getAttribute(String element, String attribute) {
+    return has(element) ? attributes.get(element).get(0).get(attribute) : null;
+  }
+  
+  /**
+   * @param element the element name
+   * @return the attributes of every occurrence of the element, in document order
+   */
+  public List<Map<String, String>> getAllAttributes(String element) {
+    List<Map<String, String>> all = attributes.get(element);
+    return all == null ? Collections.<Map<String, String>> emptyList() : Collections.unmodifiableList(all);
+  }
+  
+  /**
+   * @return the XML text of the whole file, if it was requested when extracting; null otherwise
+   */
+  public String getXml() {
+    return xml;
+  }
+  
+}
@@ -0,0 +1,144 @@
+package uk.ac.bbsrc.tgac.miso.notification.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import uk.ac.bbsrc.tgac.miso.tools.run.RunFolderScanner;
+import uk.ac.bbsrc.tgac.miso.tools.run.util.FileSetTransformer;
+
+public class NotificationRequestManagerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File dataPath;
+  private CountingScanner scanner;
+  private CountingTransformer transformer;
+  private NotificationRequestManager manager;
+
+  @Before
+  public void setUp() throws IOException {
+    dataPath = folder.newFolder("illumina");
+    scanner = new CountingScanner();
+    transformer = new CountingTransformer();
+
+    final Map<String, Object> beans = new HashMap<>();
+    beans.put("illuminaStatusRecursiveScanner", scanner);
+    beans.put("illuminaTransformer", transformer);
+    ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext() {
+      @Override
+      public Object getBean(String name) {
+        return beans.get(name);
+      }
+    };
+
+    Map<String, Set<File>> dataPaths = new HashMap<>();
+    dataPaths.put("illumina", Collections.singleton(dataPath));
+    manager = new NotificationRequestManager(context, dataPaths);
+  }
+
+  private JSONObject request(String runAlias) {
+    JSONObject request = new JSONObject();
+    request.put("platform", "Illumina");
+    request.put("run", runAlias);
+    return request;
+  }
+
+  @Test
+  public void testRepeatedQueryUsesCachedResult() throws IOException {
+    File run = new File(dataPath, "RUN1");
+    run.mkdir();
+    new File(run, "RunInfo.xml").createNewFile();
+
+    assertEquals("Completed RUN1", manager.queryRunStatus(request("RUN1")));
+    assertEquals("Completed RUN1", manager.queryRunStatus(request("RUN1")));
+    assertEquals(1, transformer.calls);
+    //the first query walked the data paths and indexed the run, so the second one didn't need to
+    assertEquals(1, scanner.walks);
+  }
+
+  @Test
+  public void testChangedRunFolderIsReparsed() throws IOException {
+    File run = new File(dataPath, "RUN1");
+    run.mkdir();
+    new File(run, "RunInfo.xml").createNewFile();
+
+    manager.queryRunStatus(request("RUN1"));
+    new File(run, "RTAComplete.txt").createNewFile();
+    manager.queryRunStatus(request("RUN1"));
+    assertEquals(2, transformer.calls);
+  }
+
+  @Test
+  public void testUnknownRunWalkedOncePerInterval() {
+    assertEquals("", manager.queryRunStatus(request("RUN9")));
+    assertEquals("", manager.queryRunStatus(request("RUN9")));
+    assertEquals(1, scanner.walks);
+
+    manager.setMinWalkInterval(0L);
+    manager.queryRunStatus(request("RUN9"));
+    assertEquals(2, scanner.walks);
+  }
+
+  @Test
+  public void testRemovedRunFolderDroppedFromIndex() {
+    File run = new File(dataPath, "RUN1");
+    run.mkdir();
+
+    scanner.listFiles(dataPath);
+    assertEquals(run, scanner.getIndexedRunFolder("RUN1"));
+    assertEquals(1, scanner.getIndexedRunFolderCount());
+
+    run.delete();
+    assertNull(scanner.getIndexedRunFolder("RUN1"));
+    assertEquals(0, scanner.getIndexedRunFolderCount());
+  }
+
+  private static class CountingScanner extends RunFolderScanner {
+    private int walks;
+
+    CountingScanner() {
+      super(".*/RUN\\d+");
+    }
+
+    @Override
+    protected File[] listEligibleFiles(File directory) throws IllegalArgumentException {
+      walks++;
+      return super.listEligibleFiles(directory);
+    }
+  }
+
+  private static class CountingTransformer implements FileSetTransformer<String, String, File> {
+    private int calls;
+
+    @Override
+    public Map<String, String> transform(Set<File> files) {
+      calls++;
+      JSONArray runs = new JSONArray();
+      for (File file : files) {
+        JSONObject run = new JSONObject();
+        run.put("status", "Completed " + file.getName());
+        runs.add(run);
+      }
+      Map<String, String> status = new HashMap<>();
+      status.put("Completed", runs.toString());
+      return status;
+    }
+  }
+}
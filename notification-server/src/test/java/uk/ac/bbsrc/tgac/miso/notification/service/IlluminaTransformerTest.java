@@ -318,6 +318,35 @@ public class IlluminaTransformerTest {
     assertTrue(json.has("error"));
   }
   
+  @Test
+  public void testParallelScan() throws JSONException {
+    Set<File> files = new HashSet<>();
+    files.add(getResourceFile(h1080_84_raw));
+    files.add(getResourceFile(h1179_162_gzip));
+    files.add(getResourceFile(m753_25_running));
+    IlluminaTransformer transformer = new IlluminaTransformer();
+    transformer.setScanThreads(3);
+    try {
+      Map<String, String> map = transformer.transform(files);
+      assertEquals(2, JSONArray.fromObject(map.get(IlluminaTransformer.STATUS_COMPLETE)).size());
+      assertEquals(1, JSONArray.fromObject(map.get(IlluminaTransformer.STATUS_RUNNING)).size());
+    }
+    finally {
+      transformer.destroy();
+    }
+  }
+  
+  @Test
+  public void testUnchangedRunningRunRescan() throws JSONException {
+    Set<File> files = new HashSet<>();
+    files.add(getResourceFile(m753_25_running));
+    IlluminaTransformer transformer = new IlluminaTransformer();
+    JSONArray first = JSONArray.fromObject(transformer.transform(files).get(IlluminaTransformer.STATUS_RUNNING));
+    JSONArray second = JSONArray.fromObject(transformer.transform(files).get(IlluminaTransformer.STATUS_RUNNING));
+    assertEquals(1, second.size());
+    assertEquals(first.getJSONObject(0).toString(), second.getJSONObject(0).toString());
+  }
+  
   private void assertKnownSummary(JSONObject metrix) {
     assertTrue("C0JHTACXX".equals(metrix.getJSONObject("summary").getString("flowcellId")));
     assertTrue("SN7001179".equals(metrix.getJSONObject("summary").getString("instrument")));
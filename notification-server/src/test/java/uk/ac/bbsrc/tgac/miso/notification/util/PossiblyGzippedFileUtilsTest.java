@@ -1,6 +1,8 @@
 package uk.ac.bbsrc.tgac.miso.notification.util;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -10,6 +12,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
 
 import org.junit.Test;
@@ -73,6 +76,23 @@ public class PossiblyGzippedFileUtilsTest {
     assertTrue("SN1080".equals(xml.getElementsByTagName("Instrument").item(0).getTextContent()));
   }
   
+  @Test
+  public void testRawXmlFields() throws XMLStreamException, IOException {
+    XmlFields xml = PossiblyGzippedFileUtils.getXmlFields(getResourceFile(h1080_84_raw), runInfo, false, "Instrument", "Read");
+    assertEquals("SN1080", xml.getText("Instrument"));
+    assertEquals(2, xml.count("Read"));
+    assertEquals("101", xml.getAllAttributes("Read").get(1).get("NumCycles"));
+    assertNull(xml.getXml());
+  }
+  
+  @Test
+  public void testGzippedXmlFields() throws XMLStreamException, IOException {
+    XmlFields raw = PossiblyGzippedFileUtils.getXmlFields(getResourceFile(h1080_84_raw), runInfo, true, "Instrument");
+    XmlFields gzipped = PossiblyGzippedFileUtils.getXmlFields(getResourceFile(h1080_84_gzip), runInfo, true, "Instrument");
+    assertEquals("SN1080", gzipped.getText("Instrument"));
+    assertEquals(raw.getXml(), gzipped.getXml());
+  }
+  
   @Test
   public void testRawTextTailGrep() throws FileNotFoundException, IOException {
     Pattern p = Pattern.compile(
@@ -94,5 +114,21 @@ public class PossiblyGzippedFileUtilsTest {
     String cycleDateStr = m.group(1) + "," + m.group(2);
     assertTrue("11/19/2011,15:24:57".equals(cycleDateStr));
   }
+  
+  @Test
+  public void testTailGrepLineCounts() throws FileNotFoundException, IOException {
+    Pattern p = Pattern.compile(
+        "(\\d{1,2}\\/\\d{1,2}\\/\\d{4})\\s+(\\d{2}:\\d{2}:\\d{2})\\.\\d{3}\\s+[A-z0-9]+\\s+202\\s+End\\s{1}Imaging"
+    );
+    // repeated greps of the same gzipped file are served from the cached tail, and must agree with the raw file
+    for (int lines : new int[] {100, 10, 1, 10}) {
+      Matcher raw = PossiblyGzippedFileUtils.tailGrep(getResourceFile(h1080_84_raw), cycleTimes, p, lines);
+      Matcher gzipped = PossiblyGzippedFileUtils.tailGrep(getResourceFile(h1080_84_gzip), cycleTimes, p, lines);
+      assertEquals(raw == null, gzipped == null);
+      if (raw != null) {
+        assertEquals(raw.group(), gzipped.group());
+      }
+    }
+  }
 
 }
@@ -0,0 +1,99 @@
+package uk.ac.bbsrc.tgac.miso.notification.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ScanStateStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private String runJson(String runName) {
+    JSONObject run = new JSONObject();
+    run.put("runName", runName);
+    run.put("fullPath", "/data/" + runName);
+    return run.toString();
+  }
+
+  @Test
+  public void testReloadAfterRestart() throws IOException {
+    File stateFile = new File(folder.getRoot(), "illumina.scanstate");
+    ScanStateStore store = new ScanStateStore(stateFile);
+    store.put("run1", "Completed", runJson("run1"));
+    store.put("run2", "Running", runJson("run2"));
+    store.put("run2", "Completed", runJson("run2"));
+    store.put("run3", "Completed", runJson("run3"));
+    store.remove("run3");
+    store.close();
+
+    ScanStateStore reloaded = new ScanStateStore(stateFile);
+    assertEquals(2, reloaded.size());
+    assertEquals(runJson("run1"), reloaded.getRun("run1", "Completed"));
+    assertEquals(runJson("run2"), reloaded.getRun("run2", "Completed"));
+    assertNull(reloaded.getRun("run1", "Running"));
+    assertNull(reloaded.get("run3"));
+  }
+
+  @Test
+  public void testTruncatedRecordIgnored() throws IOException {
+    File stateFile = new File(folder.getRoot(), "illumina.scanstate");
+    ScanStateStore store = new ScanStateStore(stateFile);
+    store.put("run1", "Completed", runJson("run1"));
+    store.close();
+
+    try (FileWriter writer = new FileWriter(stateFile, true)) {
+      writer.write("{\"runName\":\"run2\",\"sta");
+    }
+
+    ScanStateStore reloaded = new ScanStateStore(stateFile);
+    assertEquals(1, reloaded.size());
+    assertEquals(runJson("run1"), reloaded.getRun("run1", "Completed"));
+  }
+
+  @Test
+  public void testAppendAfterTruncatedRecord() throws IOException {
+    File stateFile = new File(folder.getRoot(), "illumina.scanstate");
+    ScanStateStore store = new ScanStateStore(stateFile);
+    store.put("run1", "Completed", runJson("run1"));
+    store.close();
+
+    try (FileWriter writer = new FileWriter(stateFile, true)) {
+      writer.write("{\"runName\":\"run2\",\"sta");
+    }
+
+    ScanStateStore repaired = new ScanStateStore(stateFile);
+    repaired.put("run3", "Completed", runJson("run3"));
+    repaired.close();
+
+    ScanStateStore reloaded = new ScanStateStore(stateFile);
+    assertEquals(2, reloaded.size());
+    assertEquals(runJson("run1"), reloaded.getRun("run1", "Completed"));
+    assertEquals(runJson("run3"), reloaded.getRun("run3", "Completed"));
+  }
+
+  @Test
+  public void testCompaction() throws IOException {
+    File stateFile = new File(folder.getRoot(), "illumina.scanstate");
+    ScanStateStore store = new ScanStateStore(stateFile);
+    for (int i = 0; i < 500; i++) {
+      store.put("run1", "Running", "{\"runName\":\"run1\",\"cycle\":" + i + "}");
+    }
+    store.put("run1", "Completed", runJson("run1"));
+    store.compact();
+    store.close();
+
+    ScanStateStore reloaded = new ScanStateStore(stateFile);
+    assertEquals(1, reloaded.size());
+    assertEquals(runJson("run1"), reloaded.getRun("run1", "Completed"));
+  }
+}
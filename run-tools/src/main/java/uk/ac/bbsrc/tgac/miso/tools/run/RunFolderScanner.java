@@ -31,6 +31,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -48,6 +50,9 @@ public class RunFolderScanner extends DefaultDirectoryScanner {
 
   private Pattern runDirPattern;
 
+  //run folder name -> run folder, refreshed every time the polling scan walks the data paths
+  private final Map<String, File> runFolderIndex = new ConcurrentHashMap<String, File>();
+
   public RunFolderScanner(String runDirRegex) {
     runDirPattern = Pattern.compile(runDirRegex);
   }
@@ -55,12 +60,17 @@ public class RunFolderScanner extends DefaultDirectoryScanner {
   @Override
   protected File[] listEligibleFiles(File directory) throws IllegalArgumentException {
     File[] rootFiles = directory.listFiles();
+    if (rootFiles == null) {
+      log.warn("Cannot list " + directory.getAbsolutePath());
+      return new File[0];
+    }
     List<File> files = new ArrayList<File>(rootFiles.length);
     for (File rootFile : rootFiles) {
       if (rootFile.isDirectory()) {
         Matcher rm = runDirPattern.matcher(rootFile.getAbsolutePath());
         if (rm.matches()) {
           files.add(rootFile);
+          runFolderIndex.put(rootFile.getName(), rootFile);
         }
         else {
           if (rm.find()) {
@@ -71,4 +81,24 @@ public class RunFolderScanner extends DefaultDirectoryScanner {
     }
     return files.toArray(new File[files.size()]);
   }
+
+  /**
+   * Returns the run folder with the given name as found by the most recent scan that saw it, without touching the
+   * data paths again. Folders that have since been moved or removed are dropped from the index.
+   *
+   * @param runAlias the run folder name
+   * @return the run folder, or null if no scan has found a folder with that name
+   */
+  public File getIndexedRunFolder(String runAlias) {
+    File runFolder = runFolderIndex.get(runAlias);
+    if (runFolder != null && !runFolder.isDirectory()) {
+      runFolderIndex.remove(runAlias);
+      return null;
+    }
+    return runFolder;
+  }
+
+  public int getIndexedRunFolderCount() {
+    return runFolderIndex.size();
+  }
 }
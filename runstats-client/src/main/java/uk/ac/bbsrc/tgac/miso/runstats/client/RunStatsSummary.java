@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+
+package uk.ac.bbsrc.tgac.miso.runstats.client;
+
+import net.sf.json.JSONArray;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.runstats.client
+ * <p/>
+ * Run, lane and barcode summary statistics for a single run, gathered together so that a whole run report can be built from one
+ * structure. Lanes and barcodes that were looked up but have no statistics are remembered too, so they aren't looked up again.
+ *
+ * @since 0.2.1
+ */
+public class RunStatsSummary {
+  private final String runAlias;
+  private final long created = System.currentTimeMillis();
+
+  private JSONArray runSummary;
+  private final Map<Integer, JSONArray> laneSummaries = new HashMap<Integer, JSONArray>();
+  private final Set<Integer> fetchedLanes = new HashSet<Integer>();
+  private final Map<Integer, Map<String, JSONArray>> barcodeSummaries = new HashMap<Integer, Map<String, JSONArray>>();
+  private final Map<Integer, Set<String>> fetchedBarcodes = new HashMap<Integer, Set<String>>();
+
+  public RunStatsSummary(String runAlias, JSONArray runSummary) {
+    this.runAlias = runAlias;
+    this.runSummary = runSummary;
+  }
+
+  public String getRunAlias() {
+    return runAlias;
+  }
+
+  public long getCreated() {
+    return created;
+  }
+
+  public synchronized JSONArray getRunSummary() {
+    return runSummary;
+  }
+
+  public synchronized boolean hasLane(int lane) {
+    return fetchedLanes.contains(lane);
+  }
+
+  public synchronized void putLane(int lane, JSONArray summary) {
+    fetchedLanes.add(lane);
+    if (summary != null) {
+      laneSummaries.put(lane, summary);
+    }
+  }
+
+  public synchronized JSONArray getLaneSummary(int lane) {
+    return laneSummaries.get(lane);
+  }
+
+  public synchronized boolean hasBarcode(int lane, String barcode) {
+    return fetchedBarcodes.containsKey(lane) && fetchedBarcodes.get(lane).contains(barcode);
+  }
+
+  public synchronized void putBarcode(int lane, String barcode, JSONArray summary) {
+    if (!fetchedBarcodes.containsKey(lane)) {
+      fetchedBarcodes.put(lane, new HashSet<String>());
+      barcodeSummaries.put(lane, new HashMap<String, JSONArray>());
+    }
+    fetchedBarcodes.get(lane).add(barcode);
+    if (summary != null) {
+      barcodeSummaries.get(lane).put(barcode, summary);
+    }
+  }
+
+  /**
+   * @param lane the lane number
+   * @param barcodes the tag barcode sequences of interest
+   * @return the summaries for those of the given barcodes in this lane that have statistics
+   */
+  public synchronized Map<String, JSONArray> getBarcodeSummaries(int lane, Collection<String> barcodes) {
+    Map<String, JSONArray> summaries = new HashMap<String, JSONArray>();
+    Map<String, JSONArray> laneBarcodes = barcodeSummaries.get(lane);
+    if (laneBarcodes != null) {
+      for (String barcode : barcodes) {
+        if (laneBarcodes.containsKey(barcode)) {
+          summaries.put(barcode, laneBarcodes.get(barcode));
+        }
+      }
+    }
+    return summaries;
+  }
+}
@@ -31,6 +31,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import uk.ac.bbsrc.tgac.miso.core.data.*;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.RunImpl;
 import uk.ac.bbsrc.tgac.miso.runstats.client.RunStatsException;
+import uk.ac.bbsrc.tgac.miso.runstats.client.RunStatsSummary;
 import uk.ac.tgac.statsdb.exception.ConsumerException;
 import uk.ac.tgac.statsdb.run.ReportTable;
 import uk.ac.tgac.statsdb.run.Reports;
@@ -59,6 +60,17 @@ public class RunStatsManager {
 
   ReportsDecorator reportsDecorator;
 
+  private long summaryCacheTimeout = 10 * 60 * 1000;
+
+  private final Map<String, RunStatsSummary> summaryCache = Collections.synchronizedMap(new LinkedHashMap<String, RunStatsSummary>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, RunStatsSummary> eldest) {
+      return size() > MAX_CACHED_SUMMARIES;
+    }
+  });
+
+  private static final int MAX_CACHED_SUMMARIES = 200;
+
   public RunStatsManager(DataSource dataSource) {
     this.reports = new Reports(dataSource);
     this.reportsDecorator = new ReportsDecorator(reports);
@@ -99,18 +111,107 @@ public class RunStatsManager {
     }
   }
 
-  public JSONObject getSummaryStatsForRun(Run run) throws RunStatsException {
-    JSONObject report = new JSONObject();
-    ReportTable rt;
+  /**
+   * Sets how long a run's summary statistics are cached for before being looked up again
+   *
+   * @param summaryCacheTimeout the timeout, in milliseconds
+   */
+  public void setSummaryCacheTimeout(long summaryCacheTimeout) {
+    this.summaryCacheTimeout = summaryCacheTimeout;
+  }
 
-    Map<RunProperty, String> map = new HashMap<RunProperty, String>();
-    map.put(RunProperty.run, run.getAlias());
+  /**
+   * Removes a run's cached summary statistics. This is called by the RunStatsUpdateAspect whenever a run is saved, and can
+   * be called when new analyses have been loaded into the stats database
+   *
+   * @param runAlias the run alias
+   */
+  public void evictRunStatsSummary(String runAlias) {
+    summaryCache.remove(runAlias);
+  }
+
+  /**
+   * Gets the run, lane and barcode summary statistics for every lane and tag barcode in a run as a single structure. Each distinct
+   * lane and lane/barcode combination is looked up once, however many containers, pools and dilutions it appears in, and the result
+   * is cached by run alias so that subsequent reports for the same run only look up lanes or barcodes that have since been added.
+   * <p/>
+   * An uncached summary costs one statsdb query for the run, one per lane and one per distinct lane/barcode pair. The statsdb
+   * schema belongs to the statsdb-api library, whose Reports class only offers per-property average lookups, so these are not
+   * collapsed into a single grouped query here.
+   *
+   * @param run the run
+   * @return the summary statistics
+   */
+  public RunStatsSummary getRunStatsSummary(Run run) {
+    return getRunStatsSummary(run, collectBarcodesByLane(run, null));
+  }
+
+  private RunStatsSummary getRunStatsSummary(Run run, Map<Integer, Set<String>> barcodesByLane) {
+    String alias = run.getAlias();
+    RunStatsSummary summary = summaryCache.get(alias);
+    if (summary == null || System.currentTimeMillis() - summary.getCreated() > summaryCacheTimeout) {
+      Map<RunProperty, String> map = new HashMap<RunProperty, String>();
+      map.put(RunProperty.run, alias);
+      summary = new RunStatsSummary(alias, getAverageValues(map));
+      summaryCache.put(alias, summary);
+    }
+
+    for (Map.Entry<Integer, Set<String>> lane : barcodesByLane.entrySet()) {
+      Map<RunProperty, String> map = new HashMap<RunProperty, String>();
+      map.put(RunProperty.run, alias);
+      map.put(RunProperty.lane, Integer.toString(lane.getKey()));
+      if (!summary.hasLane(lane.getKey())) {
+        summary.putLane(lane.getKey(), getAverageValues(map));
+      }
+      for (String barcode : lane.getValue()) {
+        if (!summary.hasBarcode(lane.getKey(), barcode)) {
+          map.put(RunProperty.barcode, barcode);
+          summary.putBarcode(lane.getKey(), barcode, getAverageValues(map));
+        }
+      }
+    }
+    return summary;
+  }
+
+  /**
+   * Collects the distinct tag barcode sequences of the libraries in each lane of a run
+   *
+   * @param run the run
+   * @param onlyLane if not null, only this lane is collected
+   * @return a map of lane number to barcode sequences
+   */
+  private Map<Integer, Set<String>> collectBarcodesByLane(Run run, Integer onlyLane) {
+    Map<Integer, Set<String>> barcodesByLane = new TreeMap<Integer, Set<String>>();
+    for (SequencerPartitionContainer<SequencerPoolPartition> container : ((RunImpl) run).getSequencerPartitionContainers()) {
+      for (SequencerPoolPartition part : container.getPartitions()) {
+        if (onlyLane != null && part.getPartitionNumber() != onlyLane) {
+          continue;
+        }
+        Set<String> barcodes = barcodesByLane.get(part.getPartitionNumber());
+        if (barcodes == null) {
+          barcodes = new LinkedHashSet<String>();
+          barcodesByLane.put(part.getPartitionNumber(), barcodes);
+        }
+        if (part.getPool() != null) {
+          Pool<? extends Poolable> pool = part.getPool();
+          for (Dilution d : pool.getDilutions()) {
+            Library l = d.getLibrary();
+            for (TagBarcode tb : l.getTagBarcodes().values()) {
+              barcodes.add(tb.getSequence());
+            }
+          }
+        }
+      }
+    }
+    return barcodesByLane;
+  }
+
+  private JSONArray getAverageValues(Map<RunProperty, String> map) {
     try {
-      rt = reports.getAverageValues(map);
-      if (rt == null) {
-        return null;
+      ReportTable rt = reports.getAverageValues(map);
+      if (rt != null) {
+        return JSONArray.fromObject(rt.toJSON());
       }
-      report.put("runSummary", JSONArray.fromObject(rt.toJSON()));
     }
     catch (SQLException e) {
       e.printStackTrace();
@@ -118,6 +219,30 @@ public class RunStatsManager {
     catch (IOException e) {
       e.printStackTrace();
     }
+    return null;
+  }
+
+  private JSONObject partitionToJSON(RunStatsSummary summary, int lane, Set<String> barcodes) {
+    JSONObject partition = new JSONObject();
+    JSONArray laneSummary = summary.getLaneSummary(lane);
+    if (laneSummary != null) {
+      partition.put("partitionSummary", laneSummary);
+    }
+    for (Map.Entry<String, JSONArray> barcode : summary.getBarcodeSummaries(lane, barcodes).entrySet()) {
+      partition.put(barcode.getKey(), barcode.getValue());
+    }
+    return partition;
+  }
+
+  public JSONObject getSummaryStatsForRun(Run run) throws RunStatsException {
+    Map<Integer, Set<String>> barcodesByLane = collectBarcodesByLane(run, null);
+    RunStatsSummary summary = getRunStatsSummary(run, barcodesByLane);
+    if (summary.getRunSummary() == null) {
+      return null;
+    }
+
+    JSONObject report = new JSONObject();
+    report.put("runSummary", summary.getRunSummary());
 
     if (!((RunImpl) run).getSequencerPartitionContainers().isEmpty()) {
       JSONObject containers = new JSONObject();
@@ -127,51 +252,8 @@ public class RunStatsManager {
 
         JSONArray partitions = new JSONArray();
         for (SequencerPoolPartition part : container.getPartitions()) {
-          JSONObject partition = new JSONObject();
-
-          map.put(RunProperty.lane, Integer.toString(part.getPartitionNumber()));
-
-          try {
-            rt = reports.getAverageValues(map);
-            if (rt != null) {
-              partition.put("partitionSummary", JSONArray.fromObject(rt.toJSON()));
-            }
-          }
-          catch (SQLException e) {
-            e.printStackTrace();
-          }
-          catch (IOException e) {
-            e.printStackTrace();
-          }
-
-          //clear any previous barcode query
-          map.remove(RunProperty.barcode);
-          if (part.getPool() != null) {
-            Pool<? extends Poolable> pool = part.getPool();
-            for (Dilution d : pool.getDilutions()) {
-              Library l = d.getLibrary();
-              if (!l.getTagBarcodes().isEmpty()) {
-                for (TagBarcode tb : l.getTagBarcodes().values()) {
-                  map.remove(RunProperty.barcode);
-                  try {
-                    map.put(RunProperty.barcode, tb.getSequence());
-                    rt = reports.getAverageValues(map);
-                    if (rt != null) {
-                      partition.put(tb.getSequence(), JSONArray.fromObject(rt.toJSON()));
-                    }
-                  }
-                  catch (SQLException e) {
-                    e.printStackTrace();
-                  }
-                  catch (IOException e) {
-                    e.printStackTrace();
-                  }
-                }
-              }
-            }
-          }
-
-          partitions.add(part.getPartitionNumber() - 1, partition);
+          int lane = part.getPartitionNumber();
+          partitions.add(lane - 1, partitionToJSON(summary, lane, barcodesByLane.get(lane)));
         }
         f.put("partitions", partitions);
         containers.put(container.getId(), f);
@@ -182,61 +264,12 @@ public class RunStatsManager {
   }
 
   public JSONObject getSummaryStatsForLane(Run run, int laneNumber) throws RunStatsException {
-    Map<RunProperty, String> map = new HashMap<RunProperty, String>();
-    map.put(RunProperty.run, run.getAlias());
-    map.put(RunProperty.lane, String.valueOf(laneNumber));
-    ReportTable rt;
-
-    JSONObject partition = new JSONObject();
-    try {
-      rt = reports.getAverageValues(map);
-      if (rt != null) {
-        partition.put("partitionSummary", JSONArray.fromObject(rt.toJSON()));
-      }
-    }
-    catch (SQLException e) {
-      e.printStackTrace();
+    Map<Integer, Set<String>> barcodesByLane = collectBarcodesByLane(run, laneNumber);
+    if (!barcodesByLane.containsKey(laneNumber)) {
+      barcodesByLane.put(laneNumber, Collections.<String>emptySet());
     }
-    catch (IOException e) {
-      e.printStackTrace();
-    }
-
-    //clear any previous barcode query
-    map.remove(RunProperty.barcode);
-    if (!((RunImpl) run).getSequencerPartitionContainers().isEmpty()) {
-      for (SequencerPartitionContainer<SequencerPoolPartition> container : ((RunImpl) run).getSequencerPartitionContainers()) {
-        SequencerPoolPartition part = container.getPartitionAt(laneNumber);
-        if (part.getPartitionNumber() == laneNumber) {
-          if (part.getPool() != null) {
-            Pool<? extends Poolable> pool = part.getPool();
-            for (Dilution d : pool.getDilutions()) {
-              Library l = d.getLibrary();
-              if (!l.getTagBarcodes().isEmpty()) {
-                for (TagBarcode tb : l.getTagBarcodes().values()) {
-                  map.remove(RunProperty.barcode);
-                  try {
-                    map.put(RunProperty.barcode, tb.getSequence());
-                    rt = reports.getAverageValues(map);
-                    if (rt != null) {
-                      partition.put(tb.getSequence(), JSONArray.fromObject(rt.toJSON()));
-                    }
-                  }
-                  catch (SQLException e) {
-                    e.printStackTrace();
-                  }
-                  catch (IOException e) {
-                    e.printStackTrace();
-                  }
-                }
-              }
-            }
-          }
-          break;
-        }
-      }
-    }
-
-    return partition;
+    RunStatsSummary summary = getRunStatsSummary(run, barcodesByLane);
+    return partitionToJSON(summary, laneNumber, barcodesByLane.get(laneNumber));
   }
 
   public JSONObject getCompleteStatsForLane(String runAlias, int laneNumber) throws RunStatsException {
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.runstats.client.manager;
+
+import org.aspectj.lang.annotation.Aspect;
+import uk.ac.bbsrc.tgac.miso.core.data.Run;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.runstats.client.manager
+ * <p/>
+ * Evicts a run's cached summary statistics when the run is saved, so that lane and pool changes are picked up on the
+ * next report. The RunStatsManager is only set when a stats database is configured.
+ *
+ * @since 0.2.1
+ */
+@Aspect
+public class RunStatsUpdateAspect {
+  private RunStatsManager runStatsManager;
+
+  public void setRunStatsManager(RunStatsManager runStatsManager) {
+    this.runStatsManager = runStatsManager;
+  }
+
+  public void update(Run run) {
+    if (runStatsManager != null && run != null && run.getAlias() != null) {
+      runStatsManager.evictRunStatsSummary(run.getAlias());
+    }
+  }
+}
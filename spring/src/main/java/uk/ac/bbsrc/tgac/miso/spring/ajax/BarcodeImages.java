@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.spring.ajax;
+
+import net.sf.json.JSONObject;
+import net.sourceforge.fluxion.ajax.util.JSONUtils;
+import uk.ac.bbsrc.tgac.miso.core.data.Barcodable;
+import uk.ac.bbsrc.tgac.miso.core.factory.barcode.BarcodeFactory;
+import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.spring.ajax
+ * <p/>
+ * Builds the URLs of barcode images served by the barcode image controller, which renders and caches them, so that
+ * helper services no longer write an image file to the temp directory for every barcode shown
+ *
+ * @since 0.2.1
+ */
+public class BarcodeImages {
+  /**
+   * @param type the object type as used in the image URL, e.g. sample, library, dilution, empcrdilution, pool or plate
+   * @param id the object ID
+   * @return the URL of the default square DataMatrix image of the object's barcode
+   */
+  public static String imageUrl(String type, long id) {
+    return "/miso/barcode/" + type + "/" + id;
+  }
+
+  /**
+   * Answers a get*Barcode request with the image URL in "img". The optional barcodeGenerator, dimensionWidth and
+   * dimensionHeight parameters choose a symbology and size other than the default DataMatrix.
+   */
+  public static JSONObject imageResponse(String type, Barcodable barcodable, JSONObject json) {
+    if (LimsUtils.isStringEmptyOrNull(barcodable.getIdentificationBarcode())) {
+      return JSONUtils.SimpleJSONError(LimsUtils.capitalise(type) + " has no parseable barcode");
+    }
+    StringBuilder url = new StringBuilder(imageUrl(type, barcodable.getId()));
+    if (json.has("barcodeGenerator")) {
+      String generator = json.getString("barcodeGenerator");
+      if (BarcodeFactory.lookupGenerator(generator) == null) {
+        return JSONUtils.SimpleJSONError("'" + generator + "' is not a valid barcode generator type");
+      }
+      double width = 100;
+      double height = 100;
+      if (json.has("dimensionWidth") && json.has("dimensionHeight")) {
+        width = json.getDouble("dimensionWidth");
+        height = json.getDouble("dimensionHeight");
+      }
+      url.append("?generator=").append(generator).append("&width=").append(width).append("&height=").append(height);
+    }
+    return JSONUtils.JSONObjectResponse("img", url.toString());
+  }
+}
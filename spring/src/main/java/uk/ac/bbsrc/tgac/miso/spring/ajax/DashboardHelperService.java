@@ -64,6 +64,7 @@ import java.util.List;
 @Ajaxified
 public class DashboardHelperService {
   protected static final Logger log = LoggerFactory.getLogger(DashboardHelperService.class);
+  private static final int SEARCH_RESULT_LIMIT = 50;
   @Autowired
   private SecurityManager securityManager;
   @Autowired
@@ -244,15 +245,16 @@ public class DashboardHelperService {
       List<Run> runs;
       StringBuilder b = new StringBuilder();
       if (!"".equals(searchStr)) {
-        runs = new ArrayList<Run>(requestManager.listAllRunsBySearch(searchStr));
+        runs = requestManager.searchRuns(searchStr, SEARCH_RESULT_LIMIT);
       }
       else {
         runs = new ArrayList<Run>(requestManager.listAllRunsWithLimit(50));
-      }
 
-      if (runs.size() > 0) {
         Collections.sort(runs);
         Collections.reverse(runs);
+      }
+
+      if (runs.size() > 0) {
         for (Run r : runs) {
           b.append("<a class=\"dashboardresult\" href=\"/miso/run/" + r.getId() + "\"><div  onMouseOver=\"this.className=&#39dashboardhighlight&#39\" onMouseOut=\"this.className=&#39dashboard&#39\" class=\"dashboard\">");
           b.append("Name: <b>" + r.getName() + "</b><br/>");
@@ -319,15 +321,16 @@ public class DashboardHelperService {
           //Base64-encoded string, most likely a barcode image beeped in. decode and search
           searchStr = new String(Base64.decodeBase64(searchStr));
         }
-        libraries = new ArrayList<Library>(requestManager.listAllLibrariesBySearch(searchStr));
+        libraries = requestManager.searchLibraries(searchStr, SEARCH_RESULT_LIMIT);
       }
       else {
         libraries = new ArrayList<Library>(requestManager.listAllLibrariesWithLimit(50));
-      }
 
-      if (libraries.size() > 0) {
         Collections.sort(libraries);
         Collections.reverse(libraries);
+      }
+
+      if (libraries.size() > 0) {
         for (Library l : libraries) {
           b.append("<a class=\"dashboardresult\" href=\"/miso/library/" + l.getId() + "\"><div  onMouseOver=\"this.className=&#39dashboardhighlight&#39\" onMouseOut=\"this.className=&#39dashboard&#39\" class=\"dashboard\">");
           b.append("Name: <b>" + l.getName() + "</b><br/>");
@@ -356,15 +359,16 @@ public class DashboardHelperService {
           //Base64-encoded string, most likely a barcode image beeped in. decode and search
           searchStr = new String(Base64.decodeBase64(searchStr));
         }
-        samples = new ArrayList<Sample>(requestManager.listAllSamplesBySearch(searchStr));
+        samples = requestManager.searchSamples(searchStr, SEARCH_RESULT_LIMIT);
       }
       else {
         samples = new ArrayList<Sample>(requestManager.listAllSamplesWithLimit(50));
-      }
 
-      if (samples.size() > 0) {
         Collections.sort(samples);
         Collections.reverse(samples);
+      }
+
+      if (samples.size() > 0) {
         for (Sample s : samples) {
           b.append("<a class=\"dashboardresult\" href=\"/miso/sample/" + s.getId() + "\"><div  onMouseOver=\"this.className=&#39dashboardhighlight&#39\" onMouseOut=\"this.className=&#39dashboard&#39\" class=\"dashboard\">");
           b.append("Name: <b>" + s.getName() + "</b><br/>");
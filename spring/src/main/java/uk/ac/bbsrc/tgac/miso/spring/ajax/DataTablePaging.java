@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.spring.ajax;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import uk.ac.bbsrc.tgac.miso.core.data.type.PlatformType;
+import uk.ac.bbsrc.tgac.miso.core.store.PageRequest;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.spring.ajax
+ * <p/>
+ * Translates between the server-side processing parameters of a jQuery DataTable (iDisplayStart, iDisplayLength, sSearch,
+ * iSortCol_0, sSortDir_0 and sEcho), as forwarded by DatatableUtils.fluxionServerData, and a {@link PageRequest}
+ *
+ * @since 0.2.1
+ */
+public class DataTablePaging {
+  public static final int DEFAULT_LENGTH = 25;
+  public static final int MAX_LENGTH = 500;
+
+  /**
+   * @param json the parameters sent by the table
+   * @param sortProperties the property each column sorts on, by column index, with null for unsortable columns
+   * @param platformType the platform to restrict to, or null
+   * @return PageRequest
+   */
+  public static PageRequest pageRequest(JSONObject json, String[] sortProperties, PlatformType platformType) {
+    int offset = json.optInt("iDisplayStart", 0);
+    int length = json.optInt("iDisplayLength", DEFAULT_LENGTH);
+    if (length <= 0 || length > MAX_LENGTH) {
+      length = MAX_LENGTH;
+    }
+    String search = json.optString("sSearch", null);
+    String sortProperty = null;
+    int sortColumn = json.optInt("iSortCol_0", -1);
+    if (sortColumn >= 0 && sortColumn < sortProperties.length) {
+      sortProperty = sortProperties[sortColumn];
+    }
+    boolean descending = "desc".equalsIgnoreCase(json.optString("sSortDir_0", "asc"));
+    return new PageRequest(offset, length, search, sortProperty, descending, platformType);
+  }
+
+  /**
+   * @param json the parameters sent by the table, for its draw counter
+   * @param total the number of rows before searching
+   * @param filtered the number of rows matching the search
+   * @param rows the rows of this page
+   * @return JSONObject
+   */
+  public static JSONObject response(JSONObject json, long total, long filtered, JSONArray rows) {
+    JSONObject response = new JSONObject();
+    response.put("sEcho", json.optInt("sEcho", 0));
+    response.put("iTotalRecords", total);
+    response.put("iTotalDisplayRecords", filtered);
+    response.put("aaData", rows);
+    return response;
+  }
+}
@@ -23,7 +23,6 @@
 
 package uk.ac.bbsrc.tgac.miso.spring.ajax;
 
-import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -40,7 +39,6 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.regex.Pattern;
 
-import javax.imageio.ImageIO;
 import javax.servlet.http.HttpSession;
 
 import net.sf.json.JSONArray;
@@ -49,8 +47,6 @@ import net.sf.json.JSONObject;
 import net.sourceforge.fluxion.ajax.Ajaxified;
 import net.sourceforge.fluxion.ajax.util.JSONUtils;
 
-import org.krysalis.barcode4j.BarcodeDimension;
-import org.krysalis.barcode4j.BarcodeGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -77,6 +73,7 @@ import uk.ac.bbsrc.tgac.miso.core.factory.barcode.BarcodeFactory;
 import uk.ac.bbsrc.tgac.miso.core.manager.MisoFilesManager;
 import uk.ac.bbsrc.tgac.miso.core.manager.PrintManager;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
+import uk.ac.bbsrc.tgac.miso.core.store.PageRequest;
 import uk.ac.bbsrc.tgac.miso.core.service.naming.MisoNamingScheme;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.MisoPrintService;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.context.PrintContext;
@@ -190,40 +187,13 @@ public class LibraryControllerHelperService {
 
   public JSONObject getLibraryBarcode(HttpSession session, JSONObject json) {
     Long libraryId = json.getLong("libraryId");
-    File temploc = new File(session.getServletContext().getRealPath("/") + "temp/");
     try {
       Library library = requestManager.getLibraryById(libraryId);
-      barcodeFactory.setPointPixels(1.5f);
-      barcodeFactory.setBitmapResolution(600);
-      RenderedImage bi = null;
-
-      if (json.has("barcodeGenerator")) {
-        BarcodeDimension dim = new BarcodeDimension(100, 100);
-        if (json.has("dimensionWidth") && json.has("dimensionHeight")) {
-          dim = new BarcodeDimension(json.getDouble("dimensionWidth"), json.getDouble("dimensionHeight"));
-        }
-        BarcodeGenerator bg = BarcodeFactory.lookupGenerator(json.getString("barcodeGenerator"));
-        if (bg != null) {
-          bi = barcodeFactory.generateBarcode(library, bg, dim);
-        } else {
-          return JSONUtils.SimpleJSONError("'" + json.getString("barcodeGenerator") + "' is not a valid barcode generator type");
-        }
-      } else {
-        bi = barcodeFactory.generateSquareDataMatrix(library, 400);
-      }
-
-      if (bi != null) {
-        File tempimage = misoFileManager.generateTemporaryFile("barcode-", ".png", temploc);
-        if (ImageIO.write(bi, "png", tempimage)) {
-          return JSONUtils.JSONObjectResponse("img", tempimage.getName());
-        }
-        return JSONUtils.SimpleJSONError("Writing temp image file failed.");
-      } else {
-        return JSONUtils.SimpleJSONError("Library has no parseable barcode");
-      }
-    } catch (IOException e) {
+      return BarcodeImages.imageResponse("library", library, json);
+    }
+    catch (IOException e) {
       e.printStackTrace();
-      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot seem to generate temp file for barcode");
+      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot retrieve library " + libraryId);
     }
   }
 
@@ -249,7 +219,7 @@ public class LibraryControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
 
       JSONArray ls = JSONArray.fromObject(json.getString("libraries"));
       for (JSONObject l : (Iterable<JSONObject>) ls) {
@@ -261,15 +231,14 @@ public class LibraryControllerHelperService {
             requestManager.saveLibrary(library);
           }
 
-          File f = mps.getLabelFor(library);
-          if (f != null) thingsToPrint.add(f);
+          thingsToPrint.add(library);
         } catch (IOException e) {
           e.printStackTrace();
           return JSONUtils.SimpleJSONError("Error printing barcodes: " + e.getMessage());
         }
       }
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     } catch (MisoPrintException e) {
       e.printStackTrace();
       return JSONUtils.SimpleJSONError("Failed to print barcodes: " + e.getMessage());
@@ -301,7 +270,7 @@ public class LibraryControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
 
       JSONArray ls = JSONArray.fromObject(json.getString("dilutions"));
       for (JSONObject l : (Iterable<JSONObject>) ls) {
@@ -313,16 +282,14 @@ public class LibraryControllerHelperService {
           if (dilution.getIdentificationBarcode() == null || "".equals(dilution.getIdentificationBarcode())) {
             requestManager.saveLibraryDilution(dilution);
           }
-          File f = mps.getLabelFor(dilution);
-          if (f != null) thingsToPrint.add(f);
-          thingsToPrint.add(f);
+          thingsToPrint.add(dilution);
         } catch (IOException e) {
           e.printStackTrace();
           return JSONUtils.SimpleJSONError("Error printing barcodes: " + e.getMessage());
         }
       }
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     } catch (MisoPrintException e) {
       e.printStackTrace();
       return JSONUtils.SimpleJSONError("Failed to print barcodes: " + e.getMessage());
@@ -365,24 +332,13 @@ public class LibraryControllerHelperService {
 
   public JSONObject getLibraryDilutionBarcode(HttpSession session, JSONObject json) {
     Long dilutionId = json.getLong("dilutionId");
-    File temploc = new File(session.getServletContext().getRealPath("/") + "temp/");
     try {
       LibraryDilution dil = requestManager.getLibraryDilutionById(dilutionId);
-      barcodeFactory.setPointPixels(1.5f);
-      barcodeFactory.setBitmapResolution(600);
-      RenderedImage bi = barcodeFactory.generateSquareDataMatrix(dil, 400);
-      if (bi != null) {
-        File tempimage = misoFileManager.generateTemporaryFile("barcode-", ".png", temploc);
-        if (ImageIO.write(bi, "png", tempimage)) {
-          return JSONUtils.JSONObjectResponse("img", tempimage.getName());
-        }
-        return JSONUtils.SimpleJSONError("Writing temp image file failed.");
-      } else {
-        return JSONUtils.SimpleJSONError("Dilution has no parseable barcode");
-      }
-    } catch (IOException e) {
+      return BarcodeImages.imageResponse("dilution", dil, json);
+    }
+    catch (IOException e) {
       e.printStackTrace();
-      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot seem to generate temp file for barcode");
+      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot retrieve dilution " + dilutionId);
     }
   }
 
@@ -718,7 +674,6 @@ public class LibraryControllerHelperService {
         }
         sb.append("</tr>");
 
-        File temploc = new File(session.getServletContext().getRealPath("/") + "temp/");
         for (LibraryDilution dil : library.getLibraryDilutions()) {
           sb.append("<tr>");
           sb.append("<td>" + dil.getName() + "</td>");
@@ -727,18 +682,8 @@ public class LibraryControllerHelperService {
           sb.append("<td>" + dil.getConcentration() + " " + dil.getUnits() + "</td>");
           sb.append("<td>");
 
-          try {
-            barcodeFactory.setPointPixels(1.5f);
-            barcodeFactory.setBitmapResolution(600);
-            RenderedImage bi = barcodeFactory.generateSquareDataMatrix(dil, 400);
-            if (bi != null) {
-              File tempimage = misoFileManager.generateTemporaryFile("barcode-", ".png", temploc);
-              if (ImageIO.write(bi, "png", tempimage)) {
-                sb.append("<img style='border:0;' src='/temp/" + tempimage.getName() + "'/>");
-              }
-            }
-          } catch (IOException e) {
-            e.printStackTrace();
+          if (!LimsUtils.isStringEmptyOrNull(dil.getIdentificationBarcode())) {
+            sb.append("<img style='border:0;' src='" + BarcodeImages.imageUrl("dilution", dil.getId()) + "'/>");
           }
           sb.append("</td>");
 
@@ -908,7 +853,6 @@ public class LibraryControllerHelperService {
         sb.append("<th>ID</th><th>Done By</th><th>Date</th><th>Results</th><th>ID Barcode</th>");
         sb.append("</tr>");
 
-        File temploc = new File(session.getServletContext().getRealPath("/") + "temp/");
         for (emPCRDilution dil : requestManager.listAllEmPcrDilutionsByEmPcrId(pcrId)) {
           sb.append("<tr>");
           sb.append("<td>" + dil.getId() + "</td>");
@@ -917,18 +861,8 @@ public class LibraryControllerHelperService {
           sb.append("<td>" + dil.getConcentration() + " " + dil.getUnits() + "</td>");
 
           sb.append("<td>");
-          try {
-            barcodeFactory.setPointPixels(1.5f);
-            barcodeFactory.setBitmapResolution(600);
-            RenderedImage bi = barcodeFactory.generateSquareDataMatrix(dil, 400);
-            if (bi != null) {
-              File tempimage = misoFileManager.generateTemporaryFile("barcode-", ".png", temploc);
-              if (ImageIO.write(bi, "png", tempimage)) {
-                sb.append("<img style='border:0;' src='/temp/" + tempimage.getName() + "'/>");
-              }
-            }
-          } catch (IOException e) {
-            e.printStackTrace();
+          if (!LimsUtils.isStringEmptyOrNull(dil.getIdentificationBarcode())) {
+            sb.append("<img style='border:0;' src='" + BarcodeImages.imageUrl("empcrdilution", dil.getId()) + "'/>");
           }
           sb.append("</td>");
 
@@ -1182,22 +1116,29 @@ public class LibraryControllerHelperService {
     }
   }
 
+  private static final String[] LIBRARY_SORT_PROPERTIES = {"name", "alias", null, null, "qcPassed", null};
+
   public JSONObject listLibrariesDataTable(HttpSession session, JSONObject json) {
     try {
-      JSONObject j = new JSONObject();
+      PageRequest page = DataTablePaging.pageRequest(json, LIBRARY_SORT_PROPERTIES, null);
       JSONArray jsonArray = new JSONArray();
-      for (Library library : requestManager.listAllLibraries()) {
+      for (Library library : requestManager.listLibrariesPage(page)) {
         String qcpassed = "Unknown";
         if (library.getQcPassed() != null) {
           qcpassed = library.getQcPassed().toString();
         }
-        jsonArray.add("['" + library.getName() + "','" + library.getAlias() + "','" + library.getLibraryType().getDescription() + "','"
-            + library.getSample().getName() + "','" + qcpassed + "','" + "<a href=\"/miso/library/" + library.getId()
-            + "\"><span class=\"ui-icon ui-icon-pencil\"></span></a>" + "']");
-
+        JSONArray row = new JSONArray();
+        row.add(library.getName());
+        row.add(library.getAlias());
+        row.add(library.getLibraryType() != null ? library.getLibraryType().getDescription() : "");
+        row.add(library.getSample() != null ? library.getSample().getName() : "");
+        row.add(qcpassed);
+        row.add("<a href=\"/miso/library/" + library.getId() + "\"><span class=\"ui-icon ui-icon-pencil\"></span></a>");
+        jsonArray.add(row);
       }
-      j.put("array", jsonArray);
-      return j;
+      long total = requestManager.countLibraries(new PageRequest(0, 1, null, null, false, null));
+      long filtered = page.getSearch() != null ? requestManager.countLibraries(page) : total;
+      return DataTablePaging.response(json, total, filtered, jsonArray);
     } catch (IOException e) {
       log.debug("Failed", e);
       return JSONUtils.SimpleJSONError("Failed: " + e.getMessage());
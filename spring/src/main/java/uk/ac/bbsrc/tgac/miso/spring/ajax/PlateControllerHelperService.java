@@ -33,8 +33,6 @@ import net.sourceforge.fluxion.ajax.Ajaxified;
 import net.sourceforge.fluxion.ajax.util.JSONUtils;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.type.TypeReference;
-import org.krysalis.barcode4j.BarcodeDimension;
-import org.krysalis.barcode4j.BarcodeGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -52,9 +50,7 @@ import uk.ac.bbsrc.tgac.miso.core.service.printing.context.PrintContext;
 import uk.ac.bbsrc.tgac.miso.core.util.FormUtils;
 import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
 
-import javax.imageio.ImageIO;
 import javax.servlet.http.HttpSession;
-import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
@@ -84,45 +80,13 @@ public class PlateControllerHelperService {
 
   public JSONObject getPlateBarcode(HttpSession session, JSONObject json) {
     Long plateId = json.getLong("plateId");
-    File temploc = new File(session.getServletContext().getRealPath("/") + "temp/");
     try {
-      //Plate<LinkedList<Plateable>, Plateable> plate = requestManager.<LinkedList<Plateable>, Plateable> getPlateById(plateId);
       Plate<? extends List<? extends Plateable>, ? extends Plateable> plate = requestManager.getPlateById(plateId);
-      barcodeFactory.setPointPixels(1.5f);
-      barcodeFactory.setBitmapResolution(600);
-      RenderedImage bi = null;
-
-      if (json.has("barcodeGenerator")) {
-        BarcodeDimension dim = new BarcodeDimension(100, 100);
-        if (json.has("dimensionWidth") && json.has("dimensionHeight")) {
-          dim = new BarcodeDimension(json.getDouble("dimensionWidth"), json.getDouble("dimensionHeight"));
-        }
-        BarcodeGenerator bg = BarcodeFactory.lookupGenerator(json.getString("barcodeGenerator"));
-        if (bg != null) {
-          bi = barcodeFactory.generateBarcode(plate, bg, dim);
-        }
-        else {
-          return JSONUtils.SimpleJSONError("'" + json.getString("barcodeGenerator") + "' is not a valid barcode generator type");
-        }
-      }
-      else {
-        bi = barcodeFactory.generateSquareDataMatrix(plate, 400);
-      }
-
-      if (bi != null) {
-        File tempimage = misoFileManager.generateTemporaryFile("barcode-", ".png", temploc);
-        if (ImageIO.write(bi, "png", tempimage)) {
-          return JSONUtils.JSONObjectResponse("img", tempimage.getName());
-        }
-        return JSONUtils.SimpleJSONError("Writing temp image file failed.");
-      }
-      else {
-        return JSONUtils.SimpleJSONError("Plate has no parseable barcode");
-      }
+      return BarcodeImages.imageResponse("plate", plate, json);
     }
     catch (IOException e) {
       e.printStackTrace();
-      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot seem to access " + temploc.getAbsolutePath());
+      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot retrieve plate " + plateId);
     }
   }
 
@@ -149,7 +113,7 @@ public class PlateControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
       JSONArray ss = JSONArray.fromObject(json.getString("plates"));
       for (JSONObject s : (Iterable<JSONObject>) ss) {
         try {
@@ -160,16 +124,15 @@ public class PlateControllerHelperService {
           if (plate.getIdentificationBarcode() == null || "".equals(plate.getIdentificationBarcode())) {
             requestManager.savePlate(plate);
           }
-          File f = mps.getLabelFor(plate);
-          if (f != null) thingsToPrint.add(f);
+          thingsToPrint.add(plate);
         }
         catch (IOException e) {
           e.printStackTrace();
           return JSONUtils.SimpleJSONError("Error printing barcodes: " + e.getMessage());
         }
       }
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -30,8 +30,6 @@ import net.sf.json.JSONObject;
 import net.sourceforge.fluxion.ajax.Ajaxified;
 import net.sourceforge.fluxion.ajax.util.JSONUtils;
 import org.apache.commons.codec.binary.Base64;
-import org.krysalis.barcode4j.BarcodeDimension;
-import org.krysalis.barcode4j.BarcodeGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,13 +46,12 @@ import uk.ac.bbsrc.tgac.miso.core.factory.barcode.BarcodeFactory;
 import uk.ac.bbsrc.tgac.miso.core.manager.MisoFilesManager;
 import uk.ac.bbsrc.tgac.miso.core.manager.PrintManager;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
+import uk.ac.bbsrc.tgac.miso.core.store.PageRequest;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.MisoPrintService;
 import uk.ac.bbsrc.tgac.miso.core.service.printing.context.PrintContext;
 import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
 
-import javax.imageio.ImageIO;
 import javax.servlet.http.HttpSession;
-import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -305,45 +302,13 @@ public class PoolControllerHelperService {
 
   public JSONObject getPoolBarcode(HttpSession session, JSONObject json) {
     Long poolId = json.getLong("poolId");
-    File temploc = new File(session.getServletContext().getRealPath("/") + "temp/");
     try {
       Pool pool = requestManager.getPoolById(poolId);
-      barcodeFactory.setPointPixels(1.5f);
-      barcodeFactory.setBitmapResolution(600);
-
-      RenderedImage bi = null;
-
-      if (json.has("barcodeGenerator")) {
-        BarcodeDimension dim = new BarcodeDimension(100, 100);
-        if (json.has("dimensionWidth") && json.has("dimensionHeight")) {
-          dim = new BarcodeDimension(json.getDouble("dimensionWidth"), json.getDouble("dimensionHeight"));
-        }
-        BarcodeGenerator bg = BarcodeFactory.lookupGenerator(json.getString("barcodeGenerator"));
-        if (bg != null) {
-          bi = barcodeFactory.generateBarcode(pool, bg, dim);
-        }
-        else {
-          return JSONUtils.SimpleJSONError("'" + json.getString("barcodeGenerator") + "' is not a valid barcode generator type");
-        }
-      }
-      else {
-        bi = barcodeFactory.generateSquareDataMatrix(pool, 400);
-      }
-
-      if (bi != null) {
-        File tempimage = misoFileManager.generateTemporaryFile("barcode-", ".png", temploc);
-        if (ImageIO.write(bi, "png", tempimage)) {
-          return JSONUtils.JSONObjectResponse("img", tempimage.getName());
-        }
-        return JSONUtils.SimpleJSONError("Writing temp image file failed.");
-      }
-      else {
-        return JSONUtils.SimpleJSONError("Pool has no parseable barcode");
-      }
+      return BarcodeImages.imageResponse("pool", pool, json);
     }
     catch (IOException e) {
       e.printStackTrace();
-      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot seem to access " + temploc.getAbsolutePath());
+      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot retrieve pool " + poolId);
     }
   }
 
@@ -371,14 +336,13 @@ public class PoolControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
       for (JSONObject p : (Iterable<JSONObject>) ss) {
         try {
           Long poolId = p.getLong("poolId");
           Pool pool = requestManager.getPoolById(poolId);
 
-          File f = mps.getLabelFor(pool);
-          if (f != null) thingsToPrint.add(f);
+          thingsToPrint.add(pool);
         }
         catch (IOException e) {
           e.printStackTrace();
@@ -386,8 +350,8 @@ public class PoolControllerHelperService {
         }
       }
 
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -685,13 +649,15 @@ public class PoolControllerHelperService {
     }
   }
 
+  private static final String[] POOL_SORT_PROPERTIES = {"name", "alias", "creationDate", null, null, null, null};
+
   public JSONObject listPoolsDataTable(HttpSession session, JSONObject json) {
     if (json.has("platform") && !"".equals(json.getString("platform"))) {
       try {
-        String platform = json.getString("platform");
-        JSONObject j = new JSONObject();
+        PlatformType platformType = PlatformType.get(json.getString("platform"));
+        PageRequest page = DataTablePaging.pageRequest(json, POOL_SORT_PROPERTIES, platformType);
         JSONArray arr = new JSONArray();
-        for (Pool pool : requestManager.listAllPoolsByPlatform(PlatformType.get(platform))) {
+        for (Pool pool : requestManager.listPoolsPage(page)) {
           JSONArray pout = new JSONArray();
           pout.add(pool.getName());
           pout.add(pool.getAlias() != null ? pool.getAlias() : "");
@@ -702,8 +668,9 @@ public class PoolControllerHelperService {
           pout.add("<a href=\"/miso/pool/" + pool.getId() + "\"><span class=\"ui-icon ui-icon-pencil\"></span></a>");
           arr.add(pout);
         }
-        j.put("pools", arr);
-        return j;
+        long total = requestManager.countPools(new PageRequest(0, 1, null, null, false, platformType));
+        long filtered = page.getSearch() != null ? requestManager.countPools(page) : total;
+        return DataTablePaging.response(json, total, filtered, arr);
       }
       catch (IOException e) {
         log.debug("Failed", e);
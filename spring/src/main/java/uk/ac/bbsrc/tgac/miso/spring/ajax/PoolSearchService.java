@@ -53,6 +53,8 @@ import java.util.*;
 public class PoolSearchService {
 
   protected static final Logger log = LoggerFactory.getLogger(PoolSearchService.class);
+  private static final int SEARCH_RESULT_LIMIT = 50;
+
   @Autowired
   private SecurityManager securityManager;
   @Autowired
@@ -65,32 +67,26 @@ public class PoolSearchService {
       String platformType = json.getString("platformType").toUpperCase();
       boolean readyOnly = json.getBoolean("readyOnly");
       try {
-        Collection<Pool<? extends Poolable>> pools = null;
+        List<Pool<? extends Poolable>> pools = null;
         if (searchStr != null && !searchStr.equals("")) {
           if (LimsUtils.isBase64String(searchStr)) {
             //Base64-encoded string, most likely a barcode image beeped in. decode and search
             searchStr = new String(Base64.decodeBase64(searchStr));
           }
 
-          if (readyOnly) {
-            pools = requestManager.listReadyPoolsByPlatformAndSearch(PlatformType.valueOf(platformType), searchStr);
-          }
-          else {
-            pools = requestManager.listAllPoolsByPlatformAndSearch(PlatformType.valueOf(platformType), searchStr);
-          }
+          pools = requestManager.searchPools(searchStr, PlatformType.valueOf(platformType), readyOnly, SEARCH_RESULT_LIMIT);
         }
         else {
           if (readyOnly) {
-            pools = requestManager.listReadyPoolsByPlatform(PlatformType.valueOf(platformType));
+            pools = new ArrayList<>(requestManager.listReadyPoolsByPlatform(PlatformType.valueOf(platformType)));
           }
           else {
-            pools = requestManager.listAllPoolsByPlatform(PlatformType.valueOf(platformType));
+            pools = new ArrayList<>(requestManager.listAllPoolsByPlatform(PlatformType.valueOf(platformType)));
           }
+          Collections.reverse(pools);
         }
         if (pools.size() > 0) {
-          List<Pool<? extends Poolable>> rPools = new ArrayList<>(pools);
-          Collections.reverse(rPools);
-          for (Pool<? extends Poolable> pool : rPools) {
+          for (Pool<? extends Poolable> pool : pools) {
             b.append(poolHtml(pool));
           }
         }
@@ -348,7 +348,7 @@ public class PrinterControllerHelperService {
       MisoPrintService<File, JSONObject, PrintContext<File>> mps = null;
       mps = printManager.getPrintService(serviceName);
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<JSONObject> thingsToPrint = new LinkedList<JSONObject>();
 
       JSONObject jsonObject = new JSONObject();
 
@@ -358,11 +358,10 @@ public class PrinterControllerHelperService {
       jsonObject.put("field3", line3);
 
 
-      File f = mps.getLabelFor(jsonObject);
-      if (f != null) thingsToPrint.add(f);
+      thingsToPrint.add(jsonObject);
 
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -385,7 +384,7 @@ public class PrinterControllerHelperService {
       MisoPrintService<File, JSONObject, PrintContext<File>> mps = null;
       mps = printManager.getPrintService(serviceName);
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<JSONObject> thingsToPrint = new LinkedList<JSONObject>();
 
       JSONObject jsonObject = new JSONObject();
 
@@ -393,11 +392,10 @@ public class PrinterControllerHelperService {
       jsonObject.put("field2", line2);
 
 
-      File f = mps.getLabelFor(jsonObject);
-      if (f != null) thingsToPrint.add(f);
+      thingsToPrint.add(jsonObject);
 
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -413,32 +411,27 @@ public class PrinterControllerHelperService {
     try {
 
       if (json.has("barcodes")) {
-        String response = "";
         String barcodes = json.getString("barcodes");
         String[] codes = barcodes.split("\n");
         User user = securityManager.getUserByLoginName(SecurityContextHolder.getContext().getAuthentication().getName());
 
-        for (String code : codes) {
-          String serviceName = json.getString("serviceName");
-
-          MisoPrintService<File, JSONObject, PrintContext<File>> mps = null;
-          mps = printManager.getPrintService(serviceName);
+        String serviceName = json.getString("serviceName");
 
-          Queue<File> thingsToPrint = new LinkedList<File>();
+        MisoPrintService<File, JSONObject, PrintContext<File>> mps = null;
+        mps = printManager.getPrintService(serviceName);
 
+        Queue<JSONObject> thingsToPrint = new LinkedList<JSONObject>();
+        for (String code : codes) {
           JSONObject jsonObject = new JSONObject();
 
           jsonObject.put("field1", code);
           jsonObject.put("field2", "1");
 
-
-          File f = mps.getLabelFor(jsonObject);
-          if (f != null) thingsToPrint.add(f);
-
-          PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-          response  += "Job " + pj.getJobId() + " : Barcodes printed.\n";
+          thingsToPrint.add(jsonObject);
         }
-        return JSONUtils.SimpleJSONResponse(response);
+
+        PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+        return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
       }
       else {
         return JSONUtils.SimpleJSONResponse("No barcode.");
@@ -474,18 +474,17 @@ public class ProjectControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
       Collection<Sample> samples = requestManager.listAllSamplesByProjectId(projectId);
       for (Sample sample : samples) {
         //autosave the barcode if none has been previously generated
         if (sample.getIdentificationBarcode() == null || "".equals(sample.getIdentificationBarcode())) {
           requestManager.saveSample(sample);
         }
-        File f = mps.getLabelFor(sample);
-        if (f != null) thingsToPrint.add(f);
+        thingsToPrint.add(sample);
       }
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -521,18 +520,17 @@ public class ProjectControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
       for (JSONObject p : (Iterable<JSONObject>) ss) {
         Long sampleId = p.getLong("sampleId");
         Sample sample = requestManager.getSampleById(sampleId);
         if (sample.getIdentificationBarcode() == null || "".equals(sample.getIdentificationBarcode())) {
           requestManager.saveSample(sample);
         }
-        File f = mps.getLabelFor(sample);
-        if (f != null) thingsToPrint.add(f);
+        thingsToPrint.add(sample);
       }
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -568,18 +566,17 @@ public class ProjectControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
       Collection<Library> libraries = requestManager.listAllLibrariesByProjectId(projectId);
       for (Library library : libraries) {
         //autosave the barcode if none has been previously generated
         if (library.getIdentificationBarcode() == null || "".equals(library.getIdentificationBarcode())) {
           requestManager.saveLibrary(library);
         }
-        File f = mps.getLabelFor(library);
-        if (f != null) thingsToPrint.add(f);
+        thingsToPrint.add(library);
       }
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -615,7 +612,7 @@ public class ProjectControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
       for (JSONObject p : (Iterable<JSONObject>) ss) {
         Long libraryId = p.getLong("libraryId");
         Library library = requestManager.getLibraryById(libraryId);
@@ -623,11 +620,10 @@ public class ProjectControllerHelperService {
         if (library.getIdentificationBarcode() == null || "".equals(library.getIdentificationBarcode())) {
           requestManager.saveLibrary(library);
         }
-        File f = mps.getLabelFor(library);
-        if (f != null) thingsToPrint.add(f);
+        thingsToPrint.add(library);
       }
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -663,18 +659,17 @@ public class ProjectControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
       Collection<LibraryDilution> libraryDilutions = requestManager.listAllLibraryDilutionsByProjectId(projectId);
       for (LibraryDilution libraryDilution : libraryDilutions) {
         //autosave the barcode if none has been previously generated
         if (libraryDilution.getIdentificationBarcode() == null || "".equals(libraryDilution.getIdentificationBarcode())) {
           requestManager.saveLibraryDilution(libraryDilution);
         }
-        File f = mps.getLabelFor(libraryDilution);
-        if (f != null) thingsToPrint.add(f);
+        thingsToPrint.add(libraryDilution);
       }
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -710,7 +705,7 @@ public class ProjectControllerHelperService {
         mps = printManager.getPrintService(serviceName);
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
       for (JSONObject p : (Iterable<JSONObject>) ss) {
         Long dilutionId = p.getLong("dilutionId");
         LibraryDilution libraryDilution = requestManager.getLibraryDilutionById(dilutionId);
@@ -718,11 +713,10 @@ public class ProjectControllerHelperService {
         if (libraryDilution.getIdentificationBarcode() == null || "".equals(libraryDilution.getIdentificationBarcode())) {
           requestManager.saveLibraryDilution(libraryDilution);
         }
-        File f = mps.getLabelFor(libraryDilution);
-        if (f != null) thingsToPrint.add(f);
+        thingsToPrint.add(libraryDilution);
       }
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
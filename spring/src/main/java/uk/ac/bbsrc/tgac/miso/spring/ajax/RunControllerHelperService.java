@@ -47,6 +47,7 @@ import uk.ac.bbsrc.tgac.miso.core.data.type.PlatformType;
 import uk.ac.bbsrc.tgac.miso.core.factory.DataObjectFactory;
 import uk.ac.bbsrc.tgac.miso.core.manager.MisoFilesManager;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
+import uk.ac.bbsrc.tgac.miso.core.store.PageRequest;
 import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
 import uk.ac.bbsrc.tgac.miso.core.util.RunProcessingUtils;
 
@@ -1346,22 +1347,26 @@ public class RunControllerHelperService {
     }
   }
 
+  private static final String[] RUN_SORT_PROPERTIES = {"name", "alias", null, null, null, "platformType", null};
+
   public JSONObject listRunsDataTable(HttpSession session, JSONObject json) {
     try {
-      JSONObject j = new JSONObject();
+      PageRequest page = DataTablePaging.pageRequest(json, RUN_SORT_PROPERTIES, null);
       JSONArray jsonArray = new JSONArray();
-      for (Run run : requestManager.listAllRuns()) {
-        jsonArray.add("['" + run.getName() + "','" +
-                      run.getAlias() + "','" +
-                      (run.getStatus() != null && run.getStatus().getHealth() != null ? run.getStatus().getHealth().getKey() : "") + "','" +
-                      (run.getStatus() != null && run.getStatus().getStartDate() != null ? LimsUtils.getDateAsString(run.getStatus().getStartDate()) : "") + "','" +
-                      (run.getStatus() != null && run.getStatus().getCompletionDate() != null ? LimsUtils.getDateAsString(run.getStatus().getCompletionDate()) : "") + "','" +
-                      (run.getPlatformType() != null ? run.getPlatformType().getKey() : "") + "','" +
-                      "<a href=\"/miso/run/" + run.getId() + "\"><span class=\"ui-icon ui-icon-pencil\"></span></a>" + "']");
-
+      for (Run run : requestManager.listRunsPage(page)) {
+        JSONArray row = new JSONArray();
+        row.add(run.getName());
+        row.add(run.getAlias());
+        row.add(run.getStatus() != null && run.getStatus().getHealth() != null ? run.getStatus().getHealth().getKey() : "");
+        row.add(run.getStatus() != null && run.getStatus().getStartDate() != null ? LimsUtils.getDateAsString(run.getStatus().getStartDate()) : "");
+        row.add(run.getStatus() != null && run.getStatus().getCompletionDate() != null ? LimsUtils.getDateAsString(run.getStatus().getCompletionDate()) : "");
+        row.add(run.getPlatformType() != null ? run.getPlatformType().getKey() : "");
+        row.add("<a href=\"/miso/run/" + run.getId() + "\"><span class=\"ui-icon ui-icon-pencil\"></span></a>");
+        jsonArray.add(row);
       }
-      j.put("runsArray", jsonArray);
-      return j;
+      long total = requestManager.countRuns(new PageRequest(0, 1, null, null, false, null));
+      long filtered = page.getSearch() != null ? requestManager.countRuns(page) : total;
+      return DataTablePaging.response(json, total, filtered, jsonArray);
     }
     catch (IOException e) {
       log.debug("Failed", e);
@@ -29,8 +29,6 @@ import com.opensymphony.util.FileUtils;
 import net.sf.ehcache.Cache;
 import net.sf.json.JSONArray;
 import org.apache.commons.codec.binary.Base64;
-import org.krysalis.barcode4j.BarcodeDimension;
-import org.krysalis.barcode4j.BarcodeGenerator;
 import uk.ac.bbsrc.tgac.miso.core.data.*;
 import com.eaglegenomics.simlims.core.User;
 import com.eaglegenomics.simlims.core.manager.SecurityManager;
@@ -57,11 +55,10 @@ import uk.ac.bbsrc.tgac.miso.core.factory.barcode.BarcodeFactory;
 import uk.ac.bbsrc.tgac.miso.core.factory.barcode.MisoJscriptFactory;
 import uk.ac.bbsrc.tgac.miso.core.manager.PrintManager;
 import uk.ac.bbsrc.tgac.miso.core.manager.RequestManager;
+import uk.ac.bbsrc.tgac.miso.core.store.PageRequest;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
 
-import javax.imageio.ImageIO;
 import javax.servlet.http.HttpSession;
-import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
@@ -534,44 +531,13 @@ public class SampleControllerHelperService {
 
   public JSONObject getSampleBarcode(HttpSession session, JSONObject json) {
     Long sampleId = json.getLong("sampleId");
-    File temploc = new File(session.getServletContext().getRealPath("/") + "temp/");
     try {
       Sample sample = requestManager.getSampleById(sampleId);
-      barcodeFactory.setPointPixels(1.5f);
-      barcodeFactory.setBitmapResolution(600);
-      RenderedImage bi = null;
-
-      if (json.has("barcodeGenerator")) {
-        BarcodeDimension dim = new BarcodeDimension(100, 100);
-        if (json.has("dimensionWidth") && json.has("dimensionHeight")) {
-          dim = new BarcodeDimension(json.getDouble("dimensionWidth"), json.getDouble("dimensionHeight"));
-        }
-        BarcodeGenerator bg = BarcodeFactory.lookupGenerator(json.getString("barcodeGenerator"));
-        if (bg != null) {
-          bi = barcodeFactory.generateBarcode(sample, bg, dim);
-        }
-        else {
-          return JSONUtils.SimpleJSONError("'" + json.getString("barcodeGenerator") + "' is not a valid barcode generator type");
-        }
-      }
-      else {
-        bi = barcodeFactory.generateSquareDataMatrix(sample, 400);
-      }
-
-      if (bi != null) {
-        File tempimage = misoFileManager.generateTemporaryFile("barcode-", ".png", temploc);
-        if (ImageIO.write(bi, "png", tempimage)) {
-          return JSONUtils.JSONObjectResponse("img", tempimage.getName());
-        }
-        return JSONUtils.SimpleJSONError("Writing temp image file failed.");
-      }
-      else {
-        return JSONUtils.SimpleJSONError("Sample has no parseable barcode");
-      }
+      return BarcodeImages.imageResponse("sample", sample, json);
     }
     catch (IOException e) {
       e.printStackTrace();
-      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot seem to access " + temploc.getAbsolutePath());
+      return JSONUtils.SimpleJSONError(e.getMessage() + ": Cannot retrieve sample " + sampleId);
     }
   }
 
@@ -604,7 +570,7 @@ public class SampleControllerHelperService {
         }
       }
 
-      Queue<File> thingsToPrint = new LinkedList<File>();
+      Queue<Barcodable> thingsToPrint = new LinkedList<Barcodable>();
       JSONArray ss = JSONArray.fromObject(json.getString("samples"));
       for (JSONObject s : (Iterable<JSONObject>) ss) {
         try {
@@ -614,8 +580,7 @@ public class SampleControllerHelperService {
           if (sample.getIdentificationBarcode() == null || "".equals(sample.getIdentificationBarcode())) {
             requestManager.saveSample(sample);
           }
-          File f = mps.getLabelFor(sample);
-          if (f != null) thingsToPrint.add(f);
+          thingsToPrint.add(sample);
         }
         catch (IOException e) {
           e.printStackTrace();
@@ -623,8 +588,8 @@ public class SampleControllerHelperService {
         }
       }
 
-      PrintJob pj = printManager.print(thingsToPrint, mps.getName(), user);
-      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes printed.");
+      PrintJob pj = printManager.printBatch(thingsToPrint, mps.getName(), user);
+      return JSONUtils.SimpleJSONResponse("Job " + pj.getJobId() + " : Barcodes queued for printing.");
     }
     catch (MisoPrintException e) {
       e.printStackTrace();
@@ -756,22 +721,25 @@ public class SampleControllerHelperService {
     }
   }
 
+  private static final String[] SAMPLE_SORT_PROPERTIES = {"name", "alias", "sampleType", "qcPassed", null, null};
+
   public JSONObject listSamplesDataTable(HttpSession session, JSONObject json) {
     try {
-      JSONObject j = new JSONObject();
+      PageRequest page = DataTablePaging.pageRequest(json, SAMPLE_SORT_PROPERTIES, null);
       JSONArray jsonArray = new JSONArray();
-      for (Sample sample : requestManager.listAllSamples()) {
-
-        jsonArray.add("['" + sample.getName() + "','" +
-                      sample.getAlias() + "','" +
-                      sample.getSampleType() + "','" +
-                      (sample.getQcPassed() != null ? sample.getQcPassed().toString() : "") + "','" +
-                      getSampleLastQC(sample.getId()) + "','" +
-                      "<a href=\"/miso/sample/" + sample.getId() + "\"><span class=\"ui-icon ui-icon-pencil\"></span></a>" + "']");
-
-      }
-      j.put("array", jsonArray);
-      return j;
+      for (Sample sample : requestManager.listSamplesPage(page)) {
+        JSONArray row = new JSONArray();
+        row.add(sample.getName());
+        row.add(sample.getAlias());
+        row.add(sample.getSampleType());
+        row.add(sample.getQcPassed() != null ? sample.getQcPassed().toString() : "");
+        row.add(getSampleLastQC(sample.getId()));
+        row.add("<a href=\"/miso/sample/" + sample.getId() + "\"><span class=\"ui-icon ui-icon-pencil\"></span></a>");
+        jsonArray.add(row);
+      }
+      long total = requestManager.countSamples(new PageRequest(0, 1, null, null, false, null));
+      long filtered = page.getSearch() != null ? requestManager.countSamples(page) : total;
+      return DataTablePaging.response(json, total, filtered, jsonArray);
     }
     catch (IOException e) {
       log.debug("Failed", e);
@@ -48,6 +48,7 @@ import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.bbsrc.tgac.miso.core.store.Store;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.AbstractDilution;
 import uk.ac.bbsrc.tgac.miso.core.data.Dilution;
 import uk.ac.bbsrc.tgac.miso.core.data.Library;
@@ -222,6 +223,7 @@ public class SQLDilutionDAO implements DilutionStore {
   private LibraryStore libraryDAO;
   private Store<SecurityProfile> securityProfileDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private MisoNamingScheme<Dilution> namingScheme;
@@ -278,6 +280,10 @@ public class SQLDilutionDAO implements DilutionStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   public Collection<LibraryDilution> listAllLibraryDilutionsBySearch(String query, PlatformType platformType) {
     String squery = "%" + query + "%";
     MapSqlParameterSource params = new MapSqlParameterSource();
@@ -456,11 +462,8 @@ public class SQLDilutionDAO implements DilutionStore {
             .addValue("dilutionUserName", dilution.getDilutionCreator());
 
     if (dilution.getId() == AbstractDilution.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                              .withTableName("LibraryDilution")
-                              .usingGeneratedKeyColumns("dilutionId");
       try {
-        dilution.setId(DbUtils.getAutoIncrement(template, "LibraryDilution"));
+        dilution.setId(DbUtils.nextId(idAllocator, template, "LibraryDilution"));
 
         String name = namingScheme.generateNameFor("name", dilution);
         dilution.setName(name);
@@ -471,12 +474,7 @@ public class SQLDilutionDAO implements DilutionStore {
 
           params.addValue("identificationBarcode", barcode);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != dilution.getId()) {
-            log.error("Expected LibraryDilution ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(LIBRARY_DILUTION_DELETE, new MapSqlParameterSource().addValue("dilutionId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected LibraryDilution ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, "LibraryDilution", "dilutionId", dilution.getId(), params);
         }
         else {
           throw new IOException("Cannot save LibraryDilution - invalid field:" + dilution.toString());
@@ -581,12 +579,9 @@ public class SQLDilutionDAO implements DilutionStore {
             .addValue("securityProfile_profileId", securityProfileId);
 
     if (dilution.getId() == AbstractDilution.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                              .withTableName("emPCRDilution")
-                              .usingGeneratedKeyColumns("dilutionId");
 
       try {
-        dilution.setId(DbUtils.getAutoIncrement(template, "emPCRDilution"));
+        dilution.setId(DbUtils.nextId(idAllocator, template, "emPCRDilution"));
 
         String name = namingScheme.generateNameFor("name", dilution);
         dilution.setName(name);
@@ -596,12 +591,7 @@ public class SQLDilutionDAO implements DilutionStore {
 
           params.addValue("identificationBarcode", barcode);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != dilution.getId()) {
-            log.error("Expected emPCRDilution ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(EMPCR_DILUTION_DELETE, new MapSqlParameterSource().addValue("dilutionId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected emPCRDilution ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, "emPCRDilution", "dilutionId", dilution.getId(), params);
         }
         else {
           throw new IOException("Cannot save emPCRDilution - invalid field:" + dilution.toString());
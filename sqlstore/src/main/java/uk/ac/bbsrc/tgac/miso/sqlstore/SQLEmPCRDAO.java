@@ -49,6 +49,7 @@ import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.emPCR;
 import uk.ac.bbsrc.tgac.miso.core.factory.DataObjectFactory;
 
@@ -102,6 +103,7 @@ public class SQLEmPCRDAO implements EmPCRStore {
   private LibraryDilutionStore libraryDilutionDAO;
   private EmPCRDilutionStore emPCRDilutionDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
   private Store<SecurityProfile> securityProfileDAO;
 
   @Autowired
@@ -151,6 +153,10 @@ public class SQLEmPCRDAO implements EmPCRStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   public Store<SecurityProfile> getSecurityProfileDAO() {
     return securityProfileDAO;
   }
@@ -183,11 +189,8 @@ public class SQLEmPCRDAO implements EmPCRStore {
           .addValue("securityProfile_profileId", securityProfileId);
 
     if (pcr.getId() == emPCR.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                              .withTableName(TABLE_NAME)
-                              .usingGeneratedKeyColumns("pcrId");
       try {
-        pcr.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+        pcr.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
         String name = namingScheme.generateNameFor("name", pcr);
         pcr.setName(name);
@@ -195,12 +198,7 @@ public class SQLEmPCRDAO implements EmPCRStore {
         if (namingScheme.validateField("name", pcr.getName())) {
           params.addValue("name", name);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != pcr.getId()) {
-            log.error("Expected emPCR ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(EMPCR_DELETE, new MapSqlParameterSource().addValue("pcrId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected emPCR ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "pcrId", pcr.getId(), params);
         }
         else {
           throw new IOException("Cannot save emPCR - invalid field:" + pcr.toString());
@@ -50,6 +50,7 @@ import uk.ac.bbsrc.tgac.miso.core.service.naming.MisoNamingScheme;
 import uk.ac.bbsrc.tgac.miso.core.store.*;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 
 import javax.persistence.CascadeType;
 import java.io.IOException;
@@ -57,6 +58,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -67,7 +69,7 @@ import java.util.List;
  * @author Rob Davey
  * @since 0.0.2
  */
-public class SQLEmPCRDilutionDAO implements EmPCRDilutionStore {
+public class SQLEmPCRDilutionDAO implements EmPCRDilutionStore, BulkStore<emPCRDilution> {
   public static String DILUTION_SELECT_BY_ID_AND_LIBRARY_PLATFORM =
           "SELECT DISTINCT * " +
           "FROM Library l " +
@@ -113,6 +115,9 @@ public class SQLEmPCRDilutionDAO implements EmPCRDilutionStore {
   public static final String EMPCR_DILUTION_SELECT_BY_DILUTION_ID =
           EMPCR_DILUTION_SELECT + " WHERE dilutionId=?";
 
+  public static final String EMPCR_DILUTIONS_SELECT_BY_IDS =
+          EMPCR_DILUTION_SELECT + " WHERE dilutionId IN (:ids)";
+
   public static final String EMPCR_DILUTION_SELECT_BY_IDENTIFICATION_BARCODE =
           EMPCR_DILUTION_SELECT + " WHERE identificationBarcode=?";  
 
@@ -152,6 +157,7 @@ public class SQLEmPCRDilutionDAO implements EmPCRDilutionStore {
   private LibraryStore libraryDAO;
   private Store<SecurityProfile> securityProfileDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private MisoNamingScheme<emPCRDilution> namingScheme;
@@ -208,6 +214,10 @@ public class SQLEmPCRDilutionDAO implements EmPCRDilutionStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   @Override
   public Collection<emPCRDilution> listAllEmPcrDilutionsByPlatformAndSearch(String query, PlatformType platformType) throws IOException {
     return listAllEmPcrDilutionsBySearch(query, platformType);
@@ -278,6 +288,17 @@ public class SQLEmPCRDilutionDAO implements EmPCRDilutionStore {
     return e;
   }
 
+  public Collection<emPCRDilution> listByIds(Collection<Long> ids) throws IOException {
+    List<emPCRDilution> results = new ArrayList<emPCRDilution>();
+    if (!ids.isEmpty()) {
+      NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+      for (List<Long> batch : DbUtils.partition(new HashSet<Long>(ids), DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+        results.addAll(namedTemplate.query(EMPCR_DILUTIONS_SELECT_BY_IDS, new MapSqlParameterSource("ids", batch), new EmPCRDilutionMapper(true)));
+      }
+    }
+    return results;
+  }
+
   @Override
   public emPCRDilution lazyGet(long id) throws IOException {
     return get(id);
@@ -313,12 +334,9 @@ public class SQLEmPCRDilutionDAO implements EmPCRDilutionStore {
             .addValue("securityProfile_profileId", securityProfileId);
 
     if (dilution.getId() == AbstractDilution.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                              .withTableName("emPCRDilution")
-                              .usingGeneratedKeyColumns("dilutionId");
 
       try {
-        dilution.setId(DbUtils.getAutoIncrement(template, "emPCRDilution"));
+        dilution.setId(DbUtils.nextId(idAllocator, template, "emPCRDilution"));
 
         String name = namingScheme.generateNameFor("name", dilution);
         dilution.setName(name);
@@ -328,12 +346,7 @@ public class SQLEmPCRDilutionDAO implements EmPCRDilutionStore {
 
           params.addValue("identificationBarcode", barcode);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != dilution.getId()) {
-            log.error("Expected emPCRDilution ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(EMPCR_DILUTION_DELETE, new MapSqlParameterSource().addValue("dilutionId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected emPCRDilution ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, "emPCRDilution", "dilutionId", dilution.getId(), params);
         }
         else {
           throw new IOException("Cannot save emPCRDilution - invalid field:" + dilution.toString());
@@ -21,6 +21,7 @@ import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DaoLookup;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 
 import javax.persistence.CascadeType;
 import java.io.IOException;
@@ -68,6 +69,7 @@ public class SQLEntityGroupDAO implements EntityGroupStore {
   protected static final Logger log = LoggerFactory.getLogger(SQLEntityGroupDAO.class);
   private JdbcTemplate template;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private CacheManager cacheManager;
@@ -95,6 +97,10 @@ public class SQLEntityGroupDAO implements EntityGroupStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   @Override
   public EntityGroup<? extends Nameable, ? extends Nameable> lazyGet(long groupId) throws IOException {
     List<EntityGroup<? extends Nameable, ? extends Nameable>> eResults = template.query(ENTITYGROUP_SELECT_BY_ID, new Object[]{groupId}, new EntityGroupMapper(true));
@@ -187,17 +193,9 @@ public class SQLEntityGroupDAO implements EntityGroupStore {
           .addValue("parentType", entityGroup.getParent().getClass().getName());
 
     if (entityGroup.getId() == EntityGroupImpl.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                            .withTableName(TABLE_NAME)
-                            .usingGeneratedKeyColumns("entityGroupId");
-      entityGroup.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
-
-      Number newId = insert.executeAndReturnKey(params);
-      if (newId.longValue() != entityGroup.getId()) {
-        log.error("Expected EntityGroup ID doesn't match returned value from database insert: rolling back...");
-        new NamedParameterJdbcTemplate(template).update(ENTITYGROUP_DELETE, new MapSqlParameterSource().addValue("entityGroupId", newId.longValue()));
-        throw new IOException("Something bad happened. Expected EntityGroup ID doesn't match returned value from DB insert");
-      }
+      entityGroup.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
+
+      DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "entityGroupId", entityGroup.getId(), params);
     }
 
     if (entityGroup.getEntities() != null && !entityGroup.getEntities().isEmpty()) {
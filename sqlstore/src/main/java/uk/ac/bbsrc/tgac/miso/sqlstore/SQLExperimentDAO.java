@@ -45,6 +45,7 @@ import uk.ac.bbsrc.tgac.miso.core.service.naming.MisoNamingScheme;
 import uk.ac.bbsrc.tgac.miso.core.store.*;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.*;
 import uk.ac.bbsrc.tgac.miso.core.factory.DataObjectFactory;
 
@@ -141,6 +142,7 @@ public class SQLExperimentDAO implements ExperimentStore {
   private KitStore kitDAO;
   private Store<SecurityProfile> securityProfileDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private MisoNamingScheme<Experiment> namingScheme;
@@ -243,6 +245,10 @@ public class SQLExperimentDAO implements ExperimentStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   private void purgeListCache(Experiment experiment, boolean replace) {
     Cache cache = cacheManager.getCache("experimentListCache");
     DbUtils.updateListCache(cache, replace, experiment, Experiment.class);
@@ -284,11 +290,8 @@ public class SQLExperimentDAO implements ExperimentStore {
             .addValue("study_studyId", experiment.getStudy().getId());
 
     if (experiment.getId() == AbstractExperiment.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                            .withTableName(TABLE_NAME)
-                            .usingGeneratedKeyColumns("experimentId");
       try {
-        experiment.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+        experiment.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
         String name = namingScheme.generateNameFor("name", experiment);
         experiment.setName(name);
@@ -296,12 +299,7 @@ public class SQLExperimentDAO implements ExperimentStore {
         if (namingScheme.validateField("name", experiment.getName())) {
           params.addValue("name", name);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != experiment.getId()) {
-            log.error("Expected Experiment ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(EXPERIMENT_DELETE, new MapSqlParameterSource().addValue("experimentId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected Experiment ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "experimentId", experiment.getId(), params);
         }
         else {
           throw new IOException("Cannot save Experiment - invalid field:" + experiment.toString());
@@ -25,6 +25,7 @@ package uk.ac.bbsrc.tgac.miso.sqlstore;
 
 import com.eaglegenomics.simlims.core.Note;
 import com.eaglegenomics.simlims.core.SecurityProfile;
+import com.eaglegenomics.simlims.core.User;
 import com.googlecode.ehcache.annotations.Cacheable;
 import com.googlecode.ehcache.annotations.KeyGenerator;
 import com.googlecode.ehcache.annotations.Property;
@@ -36,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -51,6 +53,10 @@ import uk.ac.bbsrc.tgac.miso.core.service.naming.MisoNamingScheme;
 import uk.ac.bbsrc.tgac.miso.core.store.*;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.PaginatedQuery;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IndexedSearch;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.SearchIndex;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.*;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.LibraryDilution;
 import uk.ac.bbsrc.tgac.miso.core.exception.MalformedDilutionException;
@@ -72,7 +78,7 @@ import java.util.regex.Matcher;
  * @author Rob Davey
  * @since 0.0.2
  */
-public class SQLLibraryDAO implements LibraryStore {
+public class SQLLibraryDAO implements LibraryStore, SecurableStore<Library>, PaginatedStore<Library>, SearchableStore<Library> {
   private static String TABLE_NAME = "Library";
 
   public static final String LIBRARIES_SELECT =
@@ -80,6 +86,19 @@ public class SQLLibraryDAO implements LibraryStore {
           "locationBarcode, paired, libraryType, librarySelectionType, libraryStrategyType, platformName, concentration, creationDate, qcPassed " +
           "FROM "+TABLE_NAME;
 
+  public static final String LIBRARIES_SELECT_BY_IDS =
+          LIBRARIES_SELECT + " WHERE libraryId IN (:ids)";
+
+  public static final String LIBRARIES_SEARCH_FIELDS_SELECT =
+          "SELECT libraryId, name, alias, identificationBarcode, description FROM " + TABLE_NAME;
+
+  private static final PaginatedQuery LIBRARIES_PAGE =
+      new PaginatedQuery(LIBRARIES_SELECT, TABLE_NAME, "libraryId", "platformName", "name", "alias", "identificationBarcode")
+          .sortable("name", "libraryId")
+          .sortable("alias", "alias")
+          .sortable("qcPassed", "qcPassed")
+          .sortable("creationDate", "creationDate");
+
   public static final String LIBRARIES_SELECT_LIMIT =
           LIBRARIES_SELECT + " ORDER BY libraryId DESC LIMIT ?";
 
@@ -117,6 +136,9 @@ public class SQLLibraryDAO implements LibraryStore {
           "WHERE l.sample_sampleId=s.sampleId " +
           "AND s.sampleId=?";
 
+  public static final String LIBRARIES_SELECT_BY_SAMPLE_IDS =
+          LIBRARIES_SELECT + " WHERE sample_sampleId IN (:ids)";
+
   public static String LIBRARIES_SELECT_BY_PROJECT_ID =
 /*          "SELECT li.* " +
           "FROM Project p " +
@@ -215,6 +237,25 @@ public class SQLLibraryDAO implements LibraryStore {
 
   protected static final Logger log = LoggerFactory.getLogger(SQLLibraryDAO.class);
   private JdbcTemplate template;
+
+  private final IndexedSearch searchIndex = new IndexedSearch("library", 3f, 3f, 2f, 1f) {
+    @Override
+    protected void load(final SearchIndex index) throws IOException {
+      template.query(LIBRARIES_SEARCH_FIELDS_SELECT, new RowCallbackHandler() {
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+          index.put(rs.getLong("libraryId"), null, rs.getString("name"), rs.getString("alias"), rs.getString("identificationBarcode"), rs.getString("description"));
+        }
+      });
+    }
+  };
+
+  /**
+   * Set the age in milliseconds after which the search index is reloaded from the database
+   */
+  public void setSearchIndexMaxAge(long maxAge) {
+    searchIndex.setMaxAge(maxAge);
+  }
   private Store<SecurityProfile> securityProfileDAO;
   private SampleStore sampleDAO;
   private PoolStore poolDAO;
@@ -222,6 +263,7 @@ public class SQLLibraryDAO implements LibraryStore {
   private LibraryDilutionStore dilutionDAO;
   private NoteStore noteDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private MisoNamingScheme<Library> libraryNamingScheme;
@@ -301,6 +343,10 @@ public class SQLLibraryDAO implements LibraryStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   private void purgeListCache(Library l, boolean replace) {
     Cache cache = cacheManager.getCache("libraryListCache");
     DbUtils.updateListCache(cache, replace, l, Library.class);
@@ -354,9 +400,6 @@ public class SQLLibraryDAO implements LibraryStore {
         throw new IOException("NEW: A library with this alias already exists in the database");
       }
       else {
-        SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                .withTableName(TABLE_NAME)
-                .usingGeneratedKeyColumns("libraryId");
         /*
         String name = Library.PREFIX + DbUtils.getAutoIncrement(template, TABLE_NAME);
         params.addValue("name", name);
@@ -367,7 +410,7 @@ public class SQLLibraryDAO implements LibraryStore {
         */
 
         try {
-          library.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+          library.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
           String name = libraryNamingScheme.generateNameFor("name", library);
           library.setName(name);
@@ -377,12 +420,7 @@ public class SQLLibraryDAO implements LibraryStore {
 
             params.addValue("identificationBarcode", barcode);
 
-            Number newId = insert.executeAndReturnKey(params);
-            if (newId.longValue() != library.getId()) {
-              log.error("Expected library ID doesn't match returned value from database insert: rolling back...");
-              new NamedParameterJdbcTemplate(template).update(LIBRARY_DELETE, new MapSqlParameterSource().addValue("libraryId", newId.longValue()));
-              throw new IOException("Something bad happened. Expected library ID doesn't match returned value from DB insert");
-            }
+            DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "libraryId", library.getId(), params);
           }
           else {
             throw new IOException("Cannot save library - invalid field:" + library.toString());
@@ -477,6 +515,8 @@ public class SQLLibraryDAO implements LibraryStore {
       purgeListCache(library);
     }
 
+    searchIndex.put(library.getId(), null, library.getName(), library.getAlias(), library.getName() + "::" + library.getAlias(), library.getDescription());
+
     return library.getId();
   }
 
@@ -527,6 +567,27 @@ public class SQLLibraryDAO implements LibraryStore {
     return template.query(LIBRARIES_SELECT_BY_SAMPLE_ID, new Object[]{sampleId}, new LibraryMapper(true));
   }
 
+  public Map<Long, Collection<Library>> listBySampleIds(Collection<Long> sampleIds) throws IOException {
+    final Map<Long, Collection<Library>> libraries = new HashMap<Long, Collection<Library>>();
+    if (!sampleIds.isEmpty()) {
+      NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+      final LibraryMapper mapper = new LibraryMapper(true);
+      for (List<Long> ids : DbUtils.partition(new HashSet<Long>(sampleIds), DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+        namedTemplate.query(LIBRARIES_SELECT_BY_SAMPLE_IDS, new MapSqlParameterSource("ids", ids), new RowCallbackHandler() {
+          @Override
+          public void processRow(ResultSet rs) throws SQLException {
+            long sampleId = rs.getLong("sample_sampleId");
+            if (!libraries.containsKey(sampleId)) {
+              libraries.put(sampleId, new ArrayList<Library>());
+            }
+            libraries.get(sampleId).add(mapper.mapRow(rs, rs.getRow()));
+          }
+        });
+      }
+    }
+    return libraries;
+  }
+
   public List<Library> listByProjectId(long projectId) throws IOException {
     return template.query(LIBRARIES_SELECT_BY_PROJECT_ID, new Object[]{projectId}, new LibraryMapper(true));
   }
@@ -544,6 +605,23 @@ public class SQLLibraryDAO implements LibraryStore {
     return template.query(LIBRARIES_SELECT, new LibraryMapper(true));
   }
 
+  public List<Library> listAllReadableBy(User user) throws IOException {
+    if (user.isAdmin()) {
+      return listAll();
+    }
+    List<Object> args = new ArrayList<Object>();
+    String join = SQLSecurityProfileDAO.readableProfilesJoin(user, "securityProfile_profileId", args);
+    return template.query(LIBRARIES_SELECT + " " + join, args.toArray(), new LibraryMapper(true));
+  }
+
+  public List<Library> listByPageReadableBy(User user, PageRequest page) throws IOException {
+    return LIBRARIES_PAGE.list(template, user, page, new LibraryMapper(true));
+  }
+
+  public long countReadableBy(User user, PageRequest page) throws IOException {
+    return LIBRARIES_PAGE.count(template, user, page);
+  }
+
   public List<Library> listAllWithLimit(long limit) throws IOException {
     return template.query(LIBRARIES_SELECT_LIMIT, new Object[]{limit}, new LibraryMapper(true));
   }
@@ -558,6 +636,19 @@ public class SQLLibraryDAO implements LibraryStore {
     return template.query(LIBRARIES_SELECT_BY_SEARCH, new Object[]{mySQLQuery,mySQLQuery,mySQLQuery,mySQLQuery}, new LibraryMapper(true));
   }
 
+  public List<Library> searchRanked(String query, int limit) throws IOException {
+    List<Long> ids = searchIndex.search(query, limit);
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+    List<Library> libraries = new ArrayList<Library>();
+    for (List<Long> batch : DbUtils.partition(ids, DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+      libraries.addAll(namedTemplate.query(LIBRARIES_SELECT_BY_IDS, new MapSqlParameterSource("ids", batch), new LibraryMapper(true)));
+    }
+    return IndexedSearch.inRankOrder(ids, libraries);
+  }
+
   @Transactional(readOnly = false, rollbackFor = IOException.class)
   @TriggersRemove(
           cacheName = {"libraryCache", "lazyLibraryCache"},
@@ -605,6 +696,7 @@ public class SQLLibraryDAO implements LibraryStore {
 
       purgeListCache(library, false);
 
+      searchIndex.remove(library.getId());
       return true;
     }
     return false;
@@ -50,6 +50,7 @@ import org.springframework.transaction.annotation.Transactional;
 import uk.ac.bbsrc.tgac.miso.core.store.Store;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.AbstractDilution;
 import uk.ac.bbsrc.tgac.miso.core.data.Dilution;
 import uk.ac.bbsrc.tgac.miso.core.data.Library;
@@ -61,7 +62,9 @@ import javax.persistence.CascadeType;
 import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -72,7 +75,7 @@ import java.util.List;
  * @author Rob Davey
  * @since 0.0.2
  */
-public class SQLLibraryDilutionDAO implements LibraryDilutionStore {
+public class SQLLibraryDilutionDAO implements LibraryDilutionStore, BulkStore<LibraryDilution> {
   public static String DILUTION_SELECT_BY_ID_AND_LIBRARY_PLATFORM =
           "SELECT DISTINCT * " +
           "FROM Library l " +
@@ -112,6 +115,9 @@ public class SQLLibraryDilutionDAO implements LibraryDilutionStore {
   public static final String LIBRARY_DILUTION_SELECT_BY_DILUTION_ID =
           LIBRARY_DILUTION_SELECT + " WHERE dilutionId=?";
 
+  public static final String LIBRARY_DILUTIONS_SELECT_BY_IDS =
+          LIBRARY_DILUTION_SELECT + " WHERE dilutionId IN (:ids)";
+
   public static final String LIBRARY_DILUTION_SELECT_BY_LIBRARY_ID =
           LIBRARY_DILUTION_SELECT + " WHERE library_libraryId=?";
 
@@ -158,6 +164,7 @@ public class SQLLibraryDilutionDAO implements LibraryDilutionStore {
   private LibraryStore libraryDAO;
   private Store<SecurityProfile> securityProfileDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private MisoNamingScheme<LibraryDilution> namingScheme;
@@ -214,6 +221,10 @@ public class SQLLibraryDilutionDAO implements LibraryDilutionStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   public Collection<LibraryDilution> listAllLibraryDilutionsBySearch(String query, PlatformType platformType) {
     String squery = "%" + query + "%";
     MapSqlParameterSource params = new MapSqlParameterSource();
@@ -306,6 +317,17 @@ public class SQLLibraryDilutionDAO implements LibraryDilutionStore {
     return e;
   }
 
+  public Collection<LibraryDilution> listByIds(Collection<Long> ids) throws IOException {
+    List<LibraryDilution> results = new ArrayList<LibraryDilution>();
+    if (!ids.isEmpty()) {
+      NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+      for (List<Long> batch : DbUtils.partition(new HashSet<Long>(ids), DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+        results.addAll(namedTemplate.query(LIBRARY_DILUTIONS_SELECT_BY_IDS, new MapSqlParameterSource("ids", batch), new LibraryDilutionMapper()));
+      }
+    }
+    return results;
+  }
+
   @Override
   public LibraryDilution lazyGet(long id) throws IOException {
     return get(id);
@@ -341,11 +363,8 @@ public class SQLLibraryDilutionDAO implements LibraryDilutionStore {
             .addValue("dilutionUserName", dilution.getDilutionCreator());
 
     if (dilution.getId() == AbstractDilution.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                              .withTableName("LibraryDilution")
-                              .usingGeneratedKeyColumns("dilutionId");
       try {
-        dilution.setId(DbUtils.getAutoIncrement(template, "LibraryDilution"));
+        dilution.setId(DbUtils.nextId(idAllocator, template, "LibraryDilution"));
 
         String name = namingScheme.generateNameFor("name", dilution);
         dilution.setName(name);
@@ -356,12 +375,7 @@ public class SQLLibraryDilutionDAO implements LibraryDilutionStore {
 
           params.addValue("identificationBarcode", barcode);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != dilution.getId()) {
-            log.error("Expected LibraryDilution ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(LIBRARY_DILUTION_DELETE, new MapSqlParameterSource().addValue("dilutionId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected LibraryDilution ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, "LibraryDilution", "dilutionId", dilution.getId(), params);
         }
         else {
           throw new IOException("Cannot save LibraryDilution - invalid field:" + dilution.toString());
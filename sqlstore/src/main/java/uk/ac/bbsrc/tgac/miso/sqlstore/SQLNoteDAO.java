@@ -38,6 +38,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
@@ -48,8 +49,12 @@ import javax.persistence.CascadeType;
 import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * uk.ac.bbsrc.tgac.miso.sqlstore
@@ -81,6 +86,12 @@ public class SQLNoteDAO implements NoteStore {
           "WHERE n.noteId=sn.notes_noteId " +
           "AND sn.sample_sampleId=?";
 
+  public static final String NOTES_BY_RELATED_SAMPLES =
+          "SELECT n.noteId, n.creationDate, n.internalOnly, n.text, n.owner_userId, sn.sample_sampleId " +
+          "FROM "+TABLE_NAME+" n, Sample_Note sn " +
+          "WHERE n.noteId=sn.notes_noteId " +
+          "AND sn.sample_sampleId IN (:ids)";
+
   public static final String NOTES_BY_RELATED_LIBRARY =
           "SELECT n.noteId, n.creationDate, n.internalOnly, n.text, n.owner_userId " +
           "FROM "+TABLE_NAME+" n, Library_Note ln " +
@@ -278,6 +289,27 @@ public class SQLNoteDAO implements NoteStore {
     return template.query(NOTES_BY_RELATED_SAMPLE, new Object[]{sampleId}, new NoteMapper());
   }
 
+  public Map<Long, List<Note>> listBySampleIds(Collection<Long> sampleIds) throws IOException {
+    final Map<Long, List<Note>> notes = new HashMap<Long, List<Note>>();
+    if (!sampleIds.isEmpty()) {
+      NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+      final NoteMapper mapper = new NoteMapper();
+      for (List<Long> ids : DbUtils.partition(new HashSet<Long>(sampleIds), DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+        namedTemplate.query(NOTES_BY_RELATED_SAMPLES, new MapSqlParameterSource("ids", ids), new RowCallbackHandler() {
+          @Override
+          public void processRow(ResultSet rs) throws SQLException {
+            long sampleId = rs.getLong("sample_sampleId");
+            if (!notes.containsKey(sampleId)) {
+              notes.put(sampleId, new ArrayList<Note>());
+            }
+            notes.get(sampleId).add(mapper.mapRow(rs, rs.getRow()));
+          }
+        });
+      }
+    }
+    return notes;
+  }
+
   public List<Note> listByLibrary(Long libraryId) throws IOException {
     return template.query(NOTES_BY_RELATED_LIBRARY, new Object[]{libraryId}, new NoteMapper());
   }
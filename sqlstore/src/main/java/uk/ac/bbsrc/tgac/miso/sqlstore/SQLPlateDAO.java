@@ -52,6 +52,7 @@ import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DaoLookup;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 
 import javax.persistence.CascadeType;
 import java.io.IOException;
@@ -69,7 +70,7 @@ import java.util.*;
  * @date 12-Sep-2011
  * @since 0.1.1
  */
-public class SQLPlateDAO implements PlateStore {
+public class SQLPlateDAO implements PlateStore, BulkStore<Plate<? extends List<? extends Plateable>, ? extends Plateable>> {
   private static final String TABLE_NAME = "Plate";
 
   public static final String PLATE_SELECT =
@@ -79,6 +80,9 @@ public class SQLPlateDAO implements PlateStore {
   public static final String PLATE_SELECT_BY_ID =
           PLATE_SELECT + " WHERE plateId = ?";
 
+  public static final String PLATES_SELECT_BY_IDS =
+          PLATE_SELECT + " WHERE plateId IN (:ids)";
+
   public static final String PLATE_SELECT_BY_ID_BARCODE =
           PLATE_SELECT + " WHERE identificationBarcode = ?";
 
@@ -128,6 +132,7 @@ public class SQLPlateDAO implements PlateStore {
 
   private JdbcTemplate template;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
   private LibraryStore libraryDAO;
   private SampleStore sampleDAO;
   private LibraryDilutionStore dilutionDAO;
@@ -197,6 +202,10 @@ public class SQLPlateDAO implements PlateStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   @Override
   public Plate<? extends List<? extends Plateable>, ? extends Plateable> lazyGet(long plateId) throws IOException {
     List<Plate<? extends List<? extends Plateable>, ? extends Plateable>> eResults = template.query(PLATE_SELECT_BY_ID, new Object[]{plateId}, new PlateMapper(true));
@@ -218,6 +227,17 @@ public class SQLPlateDAO implements PlateStore {
     return eResults.size() > 0 ? eResults.get(0) : null;
   }
 
+  public Collection<Plate<? extends List<? extends Plateable>, ? extends Plateable>> listByIds(Collection<Long> ids) throws IOException {
+    List<Plate<? extends List<? extends Plateable>, ? extends Plateable>> results = new ArrayList<Plate<? extends List<? extends Plateable>, ? extends Plateable>>();
+    if (!ids.isEmpty()) {
+      NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+      for (List<Long> batch : DbUtils.partition(new HashSet<Long>(ids), DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+        results.addAll(namedTemplate.query(PLATES_SELECT_BY_IDS, new MapSqlParameterSource("ids", batch), new PlateMapper()));
+      }
+    }
+    return results;
+  }
+
   public Plate<? extends List<? extends Plateable>, ? extends Plateable> getPlateByIdentificationBarcode(String barcode) throws IOException {
     List<Plate<? extends List<? extends Plateable>, ? extends Plateable>> eResults = template.query(PLATE_SELECT_BY_ID_BARCODE, new Object[]{barcode}, new PlateMapper());
     return eResults.size() > 0 ? eResults.get(0) : null;
@@ -280,11 +300,8 @@ public class SQLPlateDAO implements PlateStore {
     }
 
     if (plate.getId() == AbstractPlate.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                            .withTableName(TABLE_NAME)
-                            .usingGeneratedKeyColumns("plateId");
       try {
-        plate.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+        plate.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
         String name = namingScheme.generateNameFor("name", plate);
         plate.setName(name);
@@ -302,12 +319,7 @@ public class SQLPlateDAO implements PlateStore {
 
           params.addValue("identificationBarcode", barcode);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != plate.getId()) {
-            log.error("Expected Plate ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(PLATE_DELETE, new MapSqlParameterSource().addValue("plateId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected Plate ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "plateId", plate.getId(), params);
         }
         else {
           throw new IOException("Cannot save Plate - invalid field:" + plate.toString());
@@ -45,7 +45,7 @@ import com.googlecode.ehcache.annotations.TriggersRemove;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
@@ -53,6 +53,10 @@ import org.springframework.transaction.annotation.Transactional;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DaoLookup;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.PaginatedQuery;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IndexedSearch;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.SearchIndex;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.factory.DataObjectFactory;
 
 import javax.persistence.CascadeType;
@@ -70,13 +74,26 @@ import java.util.*;
  * @author Rob Davey
  * @since 0.0.2
  */
-public class SQLPoolDAO implements PoolStore {
+public class SQLPoolDAO implements PoolStore, PaginatedStore<Pool<? extends Poolable>>, SearchableStore<Pool<? extends Poolable>> {
   private static final String TABLE_NAME = "Pool";
 
   private static final String POOL_SELECT =
       "SELECT poolId, concentration, identificationBarcode, name, alias, creationDate, securityProfile_profileId, platformType, ready, qcPassed " +
       "FROM " + TABLE_NAME;
 
+  public static final String POOLS_SELECT_BY_IDS =
+          POOL_SELECT + " WHERE poolId IN (:ids)";
+
+  public static final String POOLS_SEARCH_FIELDS_SELECT =
+          "SELECT poolId, name, alias, identificationBarcode, platformType, ready FROM " + TABLE_NAME;
+
+  private static final PaginatedQuery POOLS_PAGE =
+      new PaginatedQuery(POOL_SELECT, TABLE_NAME, "poolId", "platformType", "name", "alias", "identificationBarcode")
+          .sortable("name", "poolId")
+          .sortable("alias", "alias")
+          .sortable("creationDate", "creationDate")
+          .sortable("concentration", "concentration");
+
   public static final String POOL_SELECT_BY_POOL_ID =
       POOL_SELECT + " WHERE poolId=?";
 
@@ -286,11 +303,31 @@ public class SQLPoolDAO implements PoolStore {
   protected static final Logger log = LoggerFactory.getLogger(SQLPoolDAO.class);
 
   private JdbcTemplate template;
+
+  private final IndexedSearch searchIndex = new IndexedSearch("pool", 3f, 3f, 2f) {
+    @Override
+    protected void load(final SearchIndex index) throws IOException {
+      template.query(POOLS_SEARCH_FIELDS_SELECT, new RowCallbackHandler() {
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+          index.put(rs.getLong("poolId"), searchTags(rs.getString("platformType"), rs.getBoolean("ready")), rs.getString("name"), rs.getString("alias"), rs.getString("identificationBarcode"));
+        }
+      });
+    }
+  };
+
+  /**
+   * Set the age in milliseconds after which the search index is reloaded from the database
+   */
+  public void setSearchIndexMaxAge(long maxAge) {
+    searchIndex.setMaxAge(maxAge);
+  }
   private ExperimentStore experimentDAO;
   private PoolQcStore poolQcDAO;
   private Store<SecurityProfile> securityProfileDAO;
   private WatcherStore watcherDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private PoolAlertManager poolAlertManager;
@@ -372,6 +409,10 @@ public class SQLPoolDAO implements PoolStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   private void purgeListCache(Pool p, boolean replace) {
     Cache cache = cacheManager.getCache("poolListCache");
     DbUtils.updateListCache(cache, replace, p, Pool.class);
@@ -384,15 +425,15 @@ public class SQLPoolDAO implements PoolStore {
   public Pool getPoolByExperiment(Experiment e) {
     if (e.getPlatform() != null) {
       if (e.getPlatform().getPlatformType().equals(PlatformType.ILLUMINA)) {
-        List<Pool<? extends Poolable>> eResults = template.query(ILLUMINA_POOL_SELECT_BY_EXPERIMENT_ID, new Object[]{e.getId()}, new PoolMapper());
+        List<Pool<? extends Poolable>> eResults = query(ILLUMINA_POOL_SELECT_BY_EXPERIMENT_ID, new Object[]{e.getId()}, new PoolMapper());
         return eResults.size() > 0 ? eResults.get(0) : null;
       }
       else if (e.getPlatform().getPlatformType().equals(PlatformType.LS454)) {
-        List<Pool<? extends Poolable>> eResults = template.query(LS454_POOL_SELECT_BY_EXPERIMENT_ID, new Object[]{e.getId()}, new PoolMapper());
+        List<Pool<? extends Poolable>> eResults = query(LS454_POOL_SELECT_BY_EXPERIMENT_ID, new Object[]{e.getId()}, new PoolMapper());
         return eResults.size() > 0 ? eResults.get(0) : null;
       }
       else if (e.getPlatform().getPlatformType().equals(PlatformType.SOLID)) {
-        List<Pool<? extends Poolable>> eResults = template.query(SOLID_POOL_SELECT_BY_EXPERIMENT_ID, new Object[]{e.getId()}, new PoolMapper());
+        List<Pool<? extends Poolable>> eResults = query(SOLID_POOL_SELECT_BY_EXPERIMENT_ID, new Object[]{e.getId()}, new PoolMapper());
         return eResults.size() > 0 ? eResults.get(0) : null;
       }
     }
@@ -432,11 +473,8 @@ public class SQLPoolDAO implements PoolStore {
     }
 
     if (pool.getId() == AbstractPool.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-          .withTableName(TABLE_NAME)
-          .usingGeneratedKeyColumns("poolId");
       try {
-        pool.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+        pool.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
         String name = namingScheme.generateNameFor("name", pool);
         pool.setName(name);
@@ -447,12 +485,7 @@ public class SQLPoolDAO implements PoolStore {
 
           params.addValue("identificationBarcode", barcode);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != pool.getId()) {
-            log.error("Expected Pool ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(POOL_DELETE, new MapSqlParameterSource().addValue("poolId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected Pool ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "poolId", pool.getId(), params);
         }
         else {
           throw new IOException("Cannot save Pool - invalid field:" + pool.toString());
@@ -556,6 +589,8 @@ public class SQLPoolDAO implements PoolStore {
 
     purgeListCache(pool);
 
+    searchIndex.put(pool.getId(), searchTags(pool.getPlatformType().getKey(), pool.getReadyToRun()), pool.getName(), pool.getAlias(), pool.getName() + "::" + pool.getPlatformType().getKey());
+
     return pool.getId();
   }
 
@@ -566,17 +601,17 @@ public class SQLPoolDAO implements PoolStore {
   }
 
   public Collection<Pool<? extends Poolable>> listBySampleId(long sampleId) throws IOException {
-    return template.query(POOL_SELECT_BY_RELATED_SAMPLE, new Object[]{sampleId}, new PoolMapper());
+    return query(POOL_SELECT_BY_RELATED_SAMPLE, new Object[]{sampleId}, new PoolMapper());
   }
 
   public Collection<Pool<? extends Poolable>> listByLibraryId(long libraryId) throws IOException {
-    return template.query(POOL_SELECT_BY_RELATED_LIBRARY, new Object[]{libraryId}, new PoolMapper());
+    return query(POOL_SELECT_BY_RELATED_LIBRARY, new Object[]{libraryId}, new PoolMapper());
   }
 
   public Collection<Pool<? extends Poolable>> listByProjectId(long projectId) throws IOException {
-    List<Pool<? extends Poolable>> lpools = template.query(DILUTION_POOL_SELECT_BY_RELATED_PROJECT, new Object[]{projectId}, new PoolMapper());
-    List<Pool<? extends Poolable>> epools = template.query(EMPCR_POOL_SELECT_BY_RELATED_PROJECT, new Object[]{projectId}, new PoolMapper());
-    List<Pool<? extends Poolable>> ppools = template.query(PLATE_POOL_SELECT_BY_RELATED_PROJECT, new Object[]{projectId}, new PoolMapper());
+    List<Pool<? extends Poolable>> lpools = query(DILUTION_POOL_SELECT_BY_RELATED_PROJECT, new Object[]{projectId}, new PoolMapper());
+    List<Pool<? extends Poolable>> epools = query(EMPCR_POOL_SELECT_BY_RELATED_PROJECT, new Object[]{projectId}, new PoolMapper());
+    List<Pool<? extends Poolable>> ppools = query(PLATE_POOL_SELECT_BY_RELATED_PROJECT, new Object[]{projectId}, new PoolMapper());
     lpools.addAll(epools);
     lpools.addAll(ppools);
     return lpools;
@@ -592,13 +627,13 @@ public class SQLPoolDAO implements PoolStore {
              )
   )
   public Pool<? extends Poolable> get(long poolId) throws IOException {
-    List<Pool<? extends Poolable>> eResults = template.query(POOL_SELECT_BY_POOL_ID, new Object[]{poolId}, new PoolMapper());
+    List<Pool<? extends Poolable>> eResults = query(POOL_SELECT_BY_POOL_ID, new Object[]{poolId}, new PoolMapper());
     return eResults.size() > 0 ? eResults.get(0) : null;
   }
 
   @Override
   public Pool<? extends Poolable> lazyGet(long poolId) throws IOException {
-    List<Pool<? extends Poolable>> eResults = template.query(POOL_SELECT_BY_POOL_ID, new Object[]{poolId}, new PoolMapper(true));
+    List<Pool<? extends Poolable>> eResults = query(POOL_SELECT_BY_POOL_ID, new Object[]{poolId}, new PoolMapper(true));
     return eResults.size() > 0 ? eResults.get(0) : null;
   }
 
@@ -612,7 +647,7 @@ public class SQLPoolDAO implements PoolStore {
              )
   )
   public Collection<Pool<? extends Poolable>> listAll() throws IOException {
-    return template.query(POOL_SELECT, new PoolMapper());
+    return query(POOL_SELECT, new PoolMapper());
   }
 
   @Override
@@ -621,25 +656,82 @@ public class SQLPoolDAO implements PoolStore {
   }
 
   public List<Pool<? extends Poolable>> listAllByPlatform(PlatformType platformType) throws IOException {
-    return template.query(POOL_SELECT_BY_PLATFORM, new Object[]{platformType.getKey()}, new PoolMapper());
+    return query(POOL_SELECT_BY_PLATFORM, new Object[]{platformType.getKey()}, new PoolMapper());
+  }
+
+  public List<Pool<? extends Poolable>> listByPageReadableBy(User user, PageRequest page) throws IOException {
+    PoolMapper mapper = new PoolMapper();
+    List<Pool<? extends Poolable>> pools = POOLS_PAGE.list(template, user, page, mapper);
+    mapper.resolveWatchers();
+    return pools;
+  }
+
+  public long countReadableBy(User user, PageRequest page) throws IOException {
+    return POOLS_PAGE.count(template, user, page);
   }
 
   public List<Pool<? extends Poolable>> listAllByPlatformAndSearch(PlatformType platformType, String query) throws IOException {
     String mySQLQuery = "%" + query + "%";
-    return template.query(POOL_SELECT_BY_PLATFORM_AND_SEARCH, new Object[]{platformType.getKey(), mySQLQuery, mySQLQuery, mySQLQuery}, new PoolMapper());
+    return query(POOL_SELECT_BY_PLATFORM_AND_SEARCH, new Object[]{platformType.getKey(), mySQLQuery, mySQLQuery, mySQLQuery}, new PoolMapper());
   }
 
   public List<Pool<? extends Poolable>> listReadyByPlatform(PlatformType platformType) throws IOException {
-    return template.query(POOL_SELECT_BY_PLATFORM_AND_READY, new Object[]{platformType.getKey()}, new PoolMapper());
+    return query(POOL_SELECT_BY_PLATFORM_AND_READY, new Object[]{platformType.getKey()}, new PoolMapper());
   }
 
   public List<Pool<? extends Poolable>> listReadyByPlatformAndSearch(PlatformType platformType, String query) throws IOException {
     String mySQLQuery = "%" + query + "%";
-    return template.query(POOL_SELECT_BY_PLATFORM_AND_READY_AND_SEARCH, new Object[]{platformType.getKey(), mySQLQuery, mySQLQuery, mySQLQuery}, new PoolMapper());
+    return query(POOL_SELECT_BY_PLATFORM_AND_READY_AND_SEARCH, new Object[]{platformType.getKey(), mySQLQuery, mySQLQuery, mySQLQuery}, new PoolMapper());
+  }
+
+  public List<Pool<? extends Poolable>> searchRanked(String query, int limit) throws IOException {
+    List<Long> ids = searchIndex.search(query, limit);
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+    PoolMapper mapper = new PoolMapper(true);
+    List<Pool<? extends Poolable>> pools = new ArrayList<Pool<? extends Poolable>>();
+    for (List<Long> batch : DbUtils.partition(ids, DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+      pools.addAll(namedTemplate.query(POOLS_SELECT_BY_IDS, new MapSqlParameterSource("ids", batch), mapper));
+    }
+    mapper.resolveWatchers();
+    return IndexedSearch.inRankOrder(ids, pools);
+  }
+
+  public List<Pool<? extends Poolable>> searchRankedByPlatform(String query, PlatformType platformType, boolean readyOnly, int limit) throws IOException {
+    List<Long> ids = readyOnly ?
+                     searchIndex.search(query, limit, PLATFORM_TAG + platformType.getKey(), READY_TAG) :
+                     searchIndex.search(query, limit, PLATFORM_TAG + platformType.getKey());
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+    PoolMapper mapper = new PoolMapper(true);
+    List<Pool<? extends Poolable>> pools = new ArrayList<Pool<? extends Poolable>>();
+    for (List<Long> batch : DbUtils.partition(ids, DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+      pools.addAll(namedTemplate.query(POOLS_SELECT_BY_IDS, new MapSqlParameterSource("ids", batch), mapper));
+    }
+    mapper.resolveWatchers();
+    return IndexedSearch.inRankOrder(ids, pools);
+  }
+
+  private static final String PLATFORM_TAG = "platform:";
+  private static final String READY_TAG = "ready";
+
+  private static List<String> searchTags(String platformType, boolean ready) {
+    List<String> tags = new ArrayList<String>();
+    tags.add(PLATFORM_TAG + platformType);
+    if (ready) {
+      tags.add(READY_TAG);
+    }
+    return tags;
   }
 
   public Collection<? extends Poolable> listPoolableElementsByPoolId(long poolId) throws IOException {
-    return template.query(POOL_ELEMENT_SELECT_BY_POOL_ID, new Object[]{poolId}, new PoolableMapper());
+    PoolableElementLoader loader = new PoolableElementLoader();
+    template.query(POOL_ELEMENT_SELECT_BY_POOL_ID, new Object[]{poolId}, loader);
+    return loader.load();
   }
 
   @TriggersRemove(
@@ -700,11 +792,24 @@ public class SQLPoolDAO implements PoolStore {
           }
         }
       }
+      searchIndex.remove(pool.getId());
       return ok;
     }
     return false;
   }
 
+  private List<Pool<? extends Poolable>> query(String sql, PoolMapper mapper) {
+    List<Pool<? extends Poolable>> results = template.query(sql, mapper);
+    mapper.resolveWatchers();
+    return results;
+  }
+
+  private List<Pool<? extends Poolable>> query(String sql, Object[] args, PoolMapper mapper) {
+    List<Pool<? extends Poolable>> results = template.query(sql, args, mapper);
+    mapper.resolveWatchers();
+    return results;
+  }
+
   public class PoolMapper extends CacheAwareRowMapper<Pool<? extends Poolable>> {
     public PoolMapper() {
       super((Class<Pool<? extends Poolable>>) ((ParameterizedType) new TypeReference<Pool<? extends Poolable>>() {
@@ -716,6 +821,52 @@ public class SQLPoolDAO implements PoolStore {
       }.getType()).getRawType(), lazy);
     }
 
+    private final List<Pool<? extends Poolable>> unresolved = new ArrayList<Pool<? extends Poolable>>();
+
+    /**
+     * Adds the directly registered watchers of every pool mapped since the last call, using one lookup for the whole
+     * result set instead of one query per row, then caches the pools and hands them to the alert manager. A pool is only
+     * cached once its watchers are complete, and not at all if the lookup fails. Only rows read from the database reach
+     * here, so the alert manager records each pool's persisted state before any edit to it is saved, and keeps the state
+     * it already holds for pools it knows.
+     */
+    public void resolveWatchers() {
+      if (unresolved.isEmpty()) {
+        return;
+      }
+      List<String> names = new ArrayList<String>();
+      for (Pool<? extends Poolable> p : unresolved) {
+        names.add(p.getWatchableIdentifier());
+      }
+      boolean resolved = false;
+      try {
+        Map<String, Collection<User>> watchers = watcherDAO.getWatchersByEntityNames(names);
+        for (Pool<? extends Poolable> p : unresolved) {
+          Collection<User> users = watchers.get(p.getWatchableIdentifier());
+          if (users != null) {
+            for (User u : users) {
+              p.addWatcher(u);
+            }
+          }
+        }
+        resolved = true;
+      }
+      catch (IOException e) {
+        log.error("Cannot resolve watchers for mapped pools: ", e);
+      }
+      if (resolved && isCacheEnabled() && lookupCache(cacheManager) != null) {
+        for (Pool<? extends Poolable> p : unresolved) {
+          lookupCache(cacheManager).put(new Element(DbUtils.hashCodeCacheKeyFor(p.getId()), p));
+        }
+      }
+      if (poolAlertManager != null) {
+        for (Pool<? extends Poolable> p : unresolved) {
+          poolAlertManager.push(p);
+        }
+      }
+      unresolved.clear();
+    }
+
     @Override
     public Pool<? extends Poolable> mapRow(ResultSet rs, int rowNum) throws SQLException {
       long id = rs.getLong("poolId");
@@ -754,7 +905,7 @@ public class SQLPoolDAO implements PoolStore {
         }
 
         p.setSecurityProfile(securityProfileDAO.get(rs.getLong("securityProfile_profileId")));
-        p.setWatchers(new HashSet<User>(watcherDAO.getWatchersByEntityName(p.getWatchableIdentifier())));
+        p.setWatchers(new HashSet<User>());
         if (p.getSecurityProfile() != null &&
             p.getSecurityProfile().getOwner() != null) {
           p.addWatcher(p.getSecurityProfile().getOwner());
@@ -762,6 +913,7 @@ public class SQLPoolDAO implements PoolStore {
         for (User u : watcherDAO.getWatchersByWatcherGroup("PoolWatchers")) {
           p.addWatcher(u);
         }
+        unresolved.add(p);
 
         if (!isLazy()) {
           p.setExperiments(experimentDAO.listByPoolId(id));
@@ -780,49 +932,82 @@ public class SQLPoolDAO implements PoolStore {
         e.printStackTrace();
       }
 
-      if (poolAlertManager != null) {
-        poolAlertManager.push(p);
-      }
-
-      if (isCacheEnabled() && lookupCache(cacheManager) != null) {
-        lookupCache(cacheManager).put(new Element(DbUtils.hashCodeCacheKeyFor(id), p));
-      }
-
       return p;
     }
   }
 
-  public class PoolableMapper implements RowMapper<Poolable> {
-    public Poolable mapRow(ResultSet rs, int rowNum) throws SQLException {
-      Long poolId = rs.getLong("pool_poolId");
-      Long elementId = rs.getLong("elementId");
+  /**
+   * Collects the Pool_Elements rows for a pool, then loads the elements one type at a time, with a single IN query per
+   * type where the type's store supports it, rather than one get() per element
+   */
+  public class PoolableElementLoader implements RowCallbackHandler {
+    private final List<String> types = new ArrayList<String>();
+    private final List<Long> elementIds = new ArrayList<Long>();
+    private final Map<String, Set<Long>> idsByType = new LinkedHashMap<String, Set<Long>>();
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
       String type = rs.getString("elementType");
+      long elementId = rs.getLong("elementId");
+      types.add(type);
+      elementIds.add(elementId);
+      if (!idsByType.containsKey(type)) {
+        idsByType.put(type, new HashSet<Long>());
+      }
+      idsByType.get(type).add(elementId);
+    }
 
-      try {
-        Class<? extends Poolable> clz = Class.forName(type).asSubclass(Poolable.class);
-        Store<? extends Poolable> dao = daoLookup.lookup(clz);
-        if (dao != null) {
-          log.debug("Mapping poolable -> " + poolId + " : " + type + " : " + elementId);
-          Poolable p = dao.get(elementId);
+    public List<Poolable> load() throws IOException {
+      Map<String, Map<Long, Poolable>> loaded = new HashMap<String, Map<Long, Poolable>>();
+      for (Map.Entry<String, Set<Long>> group : idsByType.entrySet()) {
+        loaded.put(group.getKey(), loadGroup(group.getKey(), group.getValue()));
+      }
 
-          if (p != null) {
-            log.debug("\\_ got " + p.getId() + " : " + p.getName());
-          }
-          else {
-            log.debug("\\_ got null");
-          }
-          return p;
+      //keep the order the elements were stored in
+      List<Poolable> elements = new ArrayList<Poolable>(elementIds.size());
+      for (int i = 0; i < elementIds.size(); i++) {
+        Poolable p = loaded.get(types.get(i)).get(elementIds.get(i));
+        if (p != null) {
+          elements.add(p);
         }
         else {
-          throw new SQLException("No DAO found or more than one found.");
+          log.warn("No poolable element found: [" + types.get(i) + "] " + elementIds.get(i));
         }
       }
+      return elements;
+    }
+
+    private Map<Long, Poolable> loadGroup(String type, Set<Long> ids) throws IOException {
+      Class<? extends Poolable> clz;
+      try {
+        clz = Class.forName(type).asSubclass(Poolable.class);
+      }
       catch (ClassNotFoundException e) {
-        throw new SQLException("Cannot resolve element type to a valid class", e);
+        throw new IOException("Cannot resolve element type to a valid class: " + type, e);
       }
-      catch (IOException e) {
-        throw new SQLException("Cannot retrieve poolable element: [" + type + " ] " + elementId);
+
+      Store<? extends Poolable> dao = daoLookup.lookup(clz);
+      if (dao == null) {
+        throw new IOException("No DAO found for poolable element type " + type);
+      }
+
+      log.debug("Mapping " + ids.size() + " poolables of type " + type);
+      Map<Long, Poolable> byId = new HashMap<Long, Poolable>();
+      if (dao instanceof BulkStore) {
+        for (Object o : ((BulkStore<?>) dao).listByIds(ids)) {
+          Poolable p = (Poolable) o;
+          byId.put(p.getId(), p);
+        }
+      }
+      else {
+        for (Long id : ids) {
+          Poolable p = dao.get(id);
+          if (p != null) {
+            byId.put(id, p);
+          }
+        }
       }
+      return byId;
     }
   }
-}
\ No newline at end of file
+}
@@ -49,6 +49,7 @@ import uk.ac.bbsrc.tgac.miso.core.store.*;
 import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.ProjectOverview;
 import uk.ac.bbsrc.tgac.miso.core.data.type.ProgressType;
 
@@ -67,7 +68,7 @@ import java.util.regex.Matcher;
  * @author Rob Davey
  * @since 0.0.2
  */
-public class SQLProjectDAO implements ProjectStore {
+public class SQLProjectDAO implements ProjectStore, SecurableStore<Project>, PageableStore<Project> {
   private static final String TABLE_NAME = "Project";
 
   public static final String PROJECTS_SELECT =
@@ -80,6 +81,9 @@ public class SQLProjectDAO implements ProjectStore {
   public static final String PROJECT_SELECT_BY_ID =
           PROJECTS_SELECT + " WHERE projectId = ?";
 
+  public static final String PROJECTS_SELECT_BY_IDS =
+          PROJECTS_SELECT + " WHERE projectId IN (:ids)";
+
   public static final String PROJECTS_SELECT_BY_SEARCH =
           PROJECTS_SELECT + " WHERE " +
           "name LIKE ? OR " +
@@ -192,6 +196,7 @@ public class SQLProjectDAO implements ProjectStore {
   private StudyStore studyDAO;
   private Store<SecurityProfile> securityProfileDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
   private SampleStore sampleDAO;
   private EntityGroupStore entityGroupDAO;
   private LibraryStore libraryDAO;
@@ -288,6 +293,10 @@ public class SQLProjectDAO implements ProjectStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   private void purgeListCache(Project p, boolean replace) {
     Cache cache = cacheManager.getCache("projectListCache");
     DbUtils.updateListCache(cache, replace, p, Project.class);
@@ -325,11 +334,8 @@ public class SQLProjectDAO implements ProjectStore {
             .addValue("progress", project.getProgress().getKey());
 
     if (project.getId() == AbstractProject.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-              .withTableName(TABLE_NAME)
-              .usingGeneratedKeyColumns("projectId");
       try {
-        project.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+        project.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
         String name = namingScheme.generateNameFor("name", project);
         project.setName(name);
@@ -337,12 +343,7 @@ public class SQLProjectDAO implements ProjectStore {
         if (namingScheme.validateField("name", project.getName())) {
           params.addValue("name", name);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != project.getId()) {
-            log.error("Expected Project ID ('"+project.getId()+"') doesn't match returned value ('"+newId.longValue()+"') from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(PROJECT_DELETE, new MapSqlParameterSource().addValue("projectId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected Project ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "projectId", project.getId(), params);
         }
         else {
           throw new IOException("Cannot save Project - invalid field:" + project.toString());
@@ -505,6 +506,23 @@ public class SQLProjectDAO implements ProjectStore {
     return template.query(PROJECTS_SELECT, new ProjectMapper(true));
   }
 
+  public List<Project> listAllReadableBy(User user) throws IOException {
+    if (user.isAdmin()) {
+      return listAll();
+    }
+    List<Object> args = new ArrayList<Object>();
+    String join = SQLSecurityProfileDAO.readableProfilesJoin(user, "securityProfile_profileId", args);
+    return template.query(PROJECTS_SELECT + " " + join, args.toArray(), new ProjectMapper(true));
+  }
+
+  public List<Project> listPageReadableBy(User user, long afterId, int limit) throws IOException {
+    List<Object> args = new ArrayList<Object>();
+    String join = user.isAdmin() ? "" : " " + SQLSecurityProfileDAO.readableProfilesJoin(user, "securityProfile_profileId", args);
+    args.add(afterId);
+    args.add(limit);
+    return template.query(PROJECTS_SELECT + join + " WHERE projectId > ? ORDER BY projectId LIMIT ?", args.toArray(), new ProjectMapper(true));
+  }
+
   public List<Project> listAllWithLimit(long limit) throws IOException {
     return template.query(PROJECTS_SELECT_LIMIT, new Object[]{limit}, new ProjectMapper(true));
   }
@@ -577,6 +595,17 @@ public class SQLProjectDAO implements ProjectStore {
     return eResults.size() > 0 ? eResults.get(0) : null;
   }
 
+  public Collection<Project> listByIds(Collection<Long> projectIds) throws IOException {
+    List<Project> projects = new ArrayList<Project>();
+    if (!projectIds.isEmpty()) {
+      NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+      for (List<Long> ids : DbUtils.partition(new HashSet<Long>(projectIds), DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+        projects.addAll(namedTemplate.query(PROJECTS_SELECT_BY_IDS, new MapSqlParameterSource("ids", ids), new ProjectMapper()));
+      }
+    }
+    return projects;
+  }
+
   public Project lazyGet(long projectId) throws IOException {
     List<Project> eResults = template.query(PROJECT_SELECT_BY_ID, new Object[]{projectId}, new ProjectMapper(true));
     return eResults.size() > 0 ? eResults.get(0) : null;
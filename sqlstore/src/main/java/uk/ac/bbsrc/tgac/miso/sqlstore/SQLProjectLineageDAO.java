@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore;
+
+import com.eaglegenomics.simlims.core.User;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import uk.ac.bbsrc.tgac.miso.core.data.impl.ProjectLineage;
+import uk.ac.bbsrc.tgac.miso.core.store.ProjectLineageStore;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.sqlstore
+ * <p/>
+ * Builds project lineages with one query per level of the graph, selecting only IDs, names, aliases and security profile
+ * IDs. Full lineages are held in the projectLineageCache until evicted. Each request cuts the cached lineage down to the
+ * security profiles the requesting user can read, found with the same join the readable list queries use.
+ *
+ * @since 0.2.1
+ */
+public class SQLProjectLineageDAO implements ProjectLineageStore {
+  public static final String PROJECT_SELECT_BY_ID =
+          "SELECT projectId, name, alias FROM Project WHERE projectId = ?";
+
+  public static final String STUDY_EXPERIMENTS_SELECT_BY_PROJECT_ID =
+          "SELECT st.studyId, st.name, st.alias, st.securityProfile_profileId, ex.experimentId, ex.name AS experimentName, ex.alias AS experimentAlias, ex.securityProfile_profileId AS experimentProfileId " +
+          "FROM Study st " +
+          "LEFT JOIN Experiment ex ON ex.study_studyId = st.studyId " +
+          "WHERE st.project_projectId = ? " +
+          "ORDER BY st.studyId, ex.experimentId";
+
+  public static final String SAMPLE_LIBRARIES_SELECT_BY_PROJECT_ID =
+          "SELECT s.sampleId, s.name, s.alias, s.qcPassed, s.securityProfile_profileId, l.libraryId, l.name AS libraryName, l.alias AS libraryAlias, l.securityProfile_profileId AS libraryProfileId, COUNT(q.qcId) AS qcCount " +
+          "FROM Sample s " +
+          "LEFT JOIN Library l ON l.sample_sampleId = s.sampleId " +
+          "LEFT JOIN LibraryQC q ON q.library_libraryId = l.libraryId " +
+          "WHERE s.project_projectId = ? " +
+          "GROUP BY s.sampleId, l.libraryId " +
+          "ORDER BY s.sampleId, l.libraryId";
+
+  public static final String DILUTION_POOLS_SELECT_BY_PROJECT_ID =
+          "SELECT ld.dilutionId, ld.name, ld.library_libraryId, ld.securityProfile_profileId, p.poolId, p.name AS poolName, p.alias AS poolAlias, p.securityProfile_profileId AS poolProfileId " +
+          "FROM LibraryDilution ld " +
+          "INNER JOIN Library l ON l.libraryId = ld.library_libraryId " +
+          "INNER JOIN Sample s ON s.sampleId = l.sample_sampleId " +
+          "LEFT JOIN Pool_Elements pe ON pe.elementId = ld.dilutionId AND pe.elementType = 'uk.ac.bbsrc.tgac.miso.core.data.impl.LibraryDilution' " +
+          "LEFT JOIN Pool p ON p.poolId = pe.pool_poolId " +
+          "WHERE s.project_projectId = ? " +
+          "ORDER BY ld.dilutionId, p.poolId";
+
+  public static final String POOL_RUNS_SELECT_BY_PROJECT_ID =
+          "SELECT DISTINCT pool.poolId, pool.name AS poolName, pool.alias AS poolAlias, pool.securityProfile_profileId AS poolProfileId, ra.runId, ra.name, ra.alias, ra.securityProfile_profileId, s.health " +
+          "FROM Study st " +
+          "INNER JOIN Experiment ex ON st.studyId = ex.study_studyId " +
+          "INNER JOIN Pool_Experiment pex ON ex.experimentId = pex.experiments_experimentId " +
+          "INNER JOIN Pool pool ON pool.poolId = pex.pool_poolId " +
+          "INNER JOIN _Partition c ON pool.poolId = c.pool_poolId " +
+          "INNER JOIN SequencerPartitionContainer_Partition fc ON c.partitionId = fc.partitions_partitionId " +
+          "INNER JOIN SequencerPartitionContainer fa ON fc.container_containerId = fa.containerId " +
+          "INNER JOIN Run_SequencerPartitionContainer rf ON fa.containerId = rf.containers_containerId " +
+          "INNER JOIN Run ra ON rf.Run_runId = ra.runId " +
+          "LEFT JOIN Status s ON ra.status_statusId = s.statusId " +
+          "WHERE st.project_projectId = ? " +
+          "ORDER BY ra.runId, pool.poolId";
+
+  public static final String SECURITY_PROFILE_IDS_SELECT =
+          "SELECT sp.profileId FROM SecurityProfile sp";
+
+  protected static final Logger log = LoggerFactory.getLogger(SQLProjectLineageDAO.class);
+
+  private static final String LINEAGE_CACHE = "projectLineageCache";
+
+  private JdbcTemplate template;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  public void setCacheManager(CacheManager cacheManager) {
+    this.cacheManager = cacheManager;
+  }
+
+  public JdbcTemplate getJdbcTemplate() {
+    return template;
+  }
+
+  public void setJdbcTemplate(JdbcTemplate template) {
+    this.template = template;
+  }
+
+  @Override
+  public ProjectLineage getLineage(long projectId, User user) throws IOException {
+    ProjectLineage lineage = getFullLineage(projectId);
+    if (lineage == null || user.isAdmin()) {
+      return lineage;
+    }
+    List<Object> args = new ArrayList<Object>();
+    String join = SQLSecurityProfileDAO.readableProfilesJoin(user, "sp.profileId", args);
+    List<Long> readableProfileIds = template.queryForList(SECURITY_PROFILE_IDS_SELECT + " " + join, args.toArray(), Long.class);
+    return lineage.readableBy(new HashSet<Long>(readableProfileIds));
+  }
+
+  private ProjectLineage getFullLineage(long projectId) throws IOException {
+    Cache cache = lineageCache();
+    if (cache == null) {
+      return buildLineage(projectId);
+    }
+
+    Element element = cache.get(projectId);
+    if (element != null) {
+      return (ProjectLineage) element.getObjectValue();
+    }
+    long evictionsBefore = evictions.get();
+    ProjectLineage lineage = buildLineage(projectId);
+    // don't cache a lineage that may have been read before a concurrent save finished
+    if (lineage != null && evictions.get() == evictionsBefore) {
+      cache.put(new Element(projectId, lineage));
+    }
+    return lineage;
+  }
+
+  @Override
+  public void evict(long projectId) {
+    evictions.incrementAndGet();
+    Cache cache = lineageCache();
+    if (cache != null) {
+      cache.remove(projectId);
+    }
+  }
+
+  @Override
+  public void evictAll() {
+    evictions.incrementAndGet();
+    Cache cache = lineageCache();
+    if (cache != null) {
+      cache.removeAll();
+    }
+  }
+
+  private Cache lineageCache() {
+    return cacheManager != null ? cacheManager.getCache(LINEAGE_CACHE) : null;
+  }
+
+  private ProjectLineage buildLineage(long projectId) throws IOException {
+    final ProjectLineage lineage;
+    try {
+      lineage = template.queryForObject(PROJECT_SELECT_BY_ID, new Object[]{projectId}, new RowMapper<ProjectLineage>() {
+        @Override
+        public ProjectLineage mapRow(ResultSet rs, int rowNum) throws SQLException {
+          return new ProjectLineage(rs.getLong("projectId"), rs.getString("name"), rs.getString("alias"));
+        }
+      });
+    }
+    catch (EmptyResultDataAccessException e) {
+      return null;
+    }
+
+    template.query(STUDY_EXPERIMENTS_SELECT_BY_PROJECT_ID, new Object[]{projectId}, new RowCallbackHandler() {
+      private long lastStudyId = -1L;
+
+      @Override
+      public void processRow(ResultSet rs) throws SQLException {
+        long studyId = rs.getLong("studyId");
+        if (studyId != lastStudyId) {
+          lineage.addStudy(new ProjectLineage.Node(studyId, rs.getString("name"), rs.getString("alias"), false, rs.getLong("securityProfile_profileId")));
+          lastStudyId = studyId;
+        }
+        long experimentId = rs.getLong("experimentId");
+        if (!rs.wasNull()) {
+          lineage.addExperiment(studyId, new ProjectLineage.Node(experimentId, rs.getString("experimentName"), rs.getString("experimentAlias"), false, rs.getLong("experimentProfileId")));
+        }
+      }
+    });
+
+    template.query(SAMPLE_LIBRARIES_SELECT_BY_PROJECT_ID, new Object[]{projectId}, new RowCallbackHandler() {
+      private long lastSampleId = -1L;
+
+      @Override
+      public void processRow(ResultSet rs) throws SQLException {
+        long sampleId = rs.getLong("sampleId");
+        if (sampleId != lastSampleId) {
+          lineage.addSample(new ProjectLineage.Node(sampleId, rs.getString("name"), rs.getString("alias"), rs.getBoolean("qcPassed"), rs.getLong("securityProfile_profileId")));
+          lastSampleId = sampleId;
+        }
+        long libraryId = rs.getLong("libraryId");
+        if (!rs.wasNull()) {
+          lineage.addLibrary(sampleId, new ProjectLineage.Node(libraryId, rs.getString("libraryName"), rs.getString("libraryAlias"), rs.getInt("qcCount") > 0, rs.getLong("libraryProfileId")));
+        }
+      }
+    });
+
+    final Map<Long, ProjectLineage.Node> pools = new TreeMap<Long, ProjectLineage.Node>();
+    template.query(DILUTION_POOLS_SELECT_BY_PROJECT_ID, new Object[]{projectId}, new RowCallbackHandler() {
+      private long lastDilutionId = -1L;
+
+      @Override
+      public void processRow(ResultSet rs) throws SQLException {
+        long dilutionId = rs.getLong("dilutionId");
+        if (dilutionId != lastDilutionId) {
+          lineage.addDilution(rs.getLong("library_libraryId"), new ProjectLineage.Node(dilutionId, rs.getString("name"), null, false, rs.getLong("securityProfile_profileId")));
+          lastDilutionId = dilutionId;
+        }
+        long poolId = rs.getLong("poolId");
+        if (!rs.wasNull()) {
+          if (!pools.containsKey(poolId)) {
+            pools.put(poolId, new ProjectLineage.Node(poolId, rs.getString("poolName"), rs.getString("poolAlias"), false, rs.getLong("poolProfileId")));
+          }
+          lineage.addDilutionPool(dilutionId, poolId);
+        }
+      }
+    });
+
+    final Set<Long> runIds = new HashSet<Long>();
+    template.query(POOL_RUNS_SELECT_BY_PROJECT_ID, new Object[]{projectId}, new RowCallbackHandler() {
+      @Override
+      public void processRow(ResultSet rs) throws SQLException {
+        long poolId = rs.getLong("poolId");
+        long runId = rs.getLong("runId");
+        if (runIds.add(runId)) {
+          lineage.addRun(new ProjectLineage.Node(runId, rs.getString("name"), rs.getString("alias"), "Completed".equals(rs.getString("health")), rs.getLong("securityProfile_profileId")));
+        }
+        if (!pools.containsKey(poolId)) {
+          pools.put(poolId, new ProjectLineage.Node(poolId, rs.getString("poolName"), rs.getString("poolAlias"), false, rs.getLong("poolProfileId")));
+        }
+        lineage.addPoolRun(poolId, runId);
+      }
+    });
+
+    for (ProjectLineage.Node pool : pools.values()) {
+      lineage.addPool(pool);
+    }
+
+    log.debug("Built lineage for project " + projectId + ": " + lineage.getSamples().size() + " samples, " + lineage.getLibraries().size() + " libraries, " + lineage.getRuns().size() + " runs");
+    return lineage;
+  }
+}
@@ -40,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -55,7 +56,12 @@ import uk.ac.bbsrc.tgac.miso.core.exception.MisoNamingException;
 import uk.ac.bbsrc.tgac.miso.core.service.naming.MisoNamingScheme;
 import uk.ac.bbsrc.tgac.miso.core.store.*;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
+import uk.ac.bbsrc.tgac.miso.sqlstore.cache.IndexedListCache;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.PaginatedQuery;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IndexedSearch;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.SearchIndex;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.*;
 import uk.ac.bbsrc.tgac.miso.core.factory.DataObjectFactory;
 
@@ -74,13 +80,26 @@ import java.util.regex.Matcher;
  * @author Rob Davey
  * @since 0.0.2
  */
-public class SQLRunDAO implements RunStore {
+public class SQLRunDAO implements RunStore, SecurableStore<Run>, PaginatedStore<Run>, SearchableStore<Run> {
   private static final String TABLE_NAME = "Run";
+  private static final String LIST_CACHE_KEY = "runList";
 
   public static final String RUNS_SELECT =
           "SELECT runId, name, alias, description, accession, platformRunId, pairedEnd, cycles, filePath, securityProfile_profileId, platformType, status_statusId, sequencerReference_sequencerReferenceId " +
           "FROM "+TABLE_NAME;
 
+  public static final String RUNS_SELECT_BY_IDS =
+          RUNS_SELECT + " WHERE runId IN (:ids)";
+
+  public static final String RUNS_SEARCH_FIELDS_SELECT =
+          "SELECT runId, name, alias, description FROM " + TABLE_NAME;
+
+  private static final PaginatedQuery RUNS_PAGE =
+      new PaginatedQuery(RUNS_SELECT, TABLE_NAME, "runId", "platformType", "name", "alias")
+          .sortable("name", "runId")
+          .sortable("alias", "alias")
+          .sortable("platformType", "platformType");
+
   public static final String RUNS_SELECT_LIMIT =
           RUNS_SELECT + " ORDER BY runId DESC LIMIT ?";
 
@@ -188,6 +207,25 @@ public class SQLRunDAO implements RunStore {
   protected static final Logger log = LoggerFactory.getLogger(SQLRunDAO.class);
 
   private JdbcTemplate template;
+
+  private final IndexedSearch searchIndex = new IndexedSearch("run", 3f, 3f, 1f) {
+    @Override
+    protected void load(final SearchIndex index) throws IOException {
+      template.query(RUNS_SEARCH_FIELDS_SELECT, new RowCallbackHandler() {
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+          index.put(rs.getLong("runId"), null, rs.getString("name"), rs.getString("alias"), rs.getString("description"));
+        }
+      });
+    }
+  };
+
+  /**
+   * Set the age in milliseconds after which the search index is reloaded from the database
+   */
+  public void setSearchIndexMaxAge(long maxAge) {
+    searchIndex.setMaxAge(maxAge);
+  }
   private Store<SecurityProfile> securityProfileDAO;
   private SequencerReferenceStore sequencerReferenceDAO;
   private RunQcStore runQcDAO;
@@ -196,6 +234,7 @@ public class SQLRunDAO implements RunStore {
   private NoteStore noteDAO;
   private WatcherStore watcherDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private RunAlertManager runAlertManager;
@@ -282,6 +321,10 @@ public class SQLRunDAO implements RunStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   private void purgeCaches(Collection<Run> runs) {
     for (Run run : runs) {
       purgeListCache(run, true);
@@ -351,11 +394,8 @@ public class SQLRunDAO implements RunStore {
             .addValue("sequencerReference_sequencerReferenceId", run.getSequencerReference().getId());
 
     if (run.getId() == AbstractRun.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-              .withTableName(TABLE_NAME)
-              .usingGeneratedKeyColumns("runId");
       try {
-        run.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+        run.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
         String name = namingScheme.generateNameFor("name", run);
         run.setName(name);
@@ -363,12 +403,7 @@ public class SQLRunDAO implements RunStore {
         if (namingScheme.validateField("name", run.getName())) {
           params.addValue("name", name);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != run.getId()) {
-            log.error("Expected Run ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(RUN_DELETE, new MapSqlParameterSource().addValue("runId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected Run ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "runId", run.getId(), params);
         }
         else {
           throw new IOException("Cannot save Run - invalid field:" + run.toString());
@@ -435,14 +470,26 @@ public class SQLRunDAO implements RunStore {
       purgeListCache(run);
     }
 
+    searchIndex.put(run.getId(), null, run.getName(), run.getAlias(), run.getDescription());
+
     return run.getId();
   }
 
-  public synchronized int[] saveAll(Collection<Run> runs) throws IOException {
+  public int[] saveAll(Collection<Run> runs) throws IOException {
+    //predicted IDs are handed out sequentially from a single lookup, so concurrent saves must not interleave
+    if (idAllocator != null && idAllocator.reservesIds()) {
+      return doSaveAll(runs, true);
+    }
+    synchronized (this) {
+      return doSaveAll(runs, false);
+    }
+  }
+
+  private int[] doSaveAll(Collection<Run> runs, boolean reserved) throws IOException {
     log.debug(">>> Entering saveAll with " + runs.size() + " runs");
     NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
     List<SqlParameterSource> batch = new ArrayList<SqlParameterSource>();
-    long autoIncrement = DbUtils.getAutoIncrement(template, TABLE_NAME);
+    long autoIncrement = reserved ? 0L : DbUtils.getAutoIncrement(template, TABLE_NAME);
 
     for (Run run : runs) {
       Long securityProfileId = run.getSecurityProfile().getProfileId();
@@ -487,11 +534,8 @@ public class SQLRunDAO implements RunStore {
                 .addValue("sequencerReference_sequencerReferenceId", run.getSequencerReference().getId());
 
         if (run.getId() == AbstractRun.UNSAVED_ID) {
-          SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                  .withTableName(TABLE_NAME)
-                  .usingGeneratedKeyColumns("runId");
           try {
-            run.setId(autoIncrement);
+            run.setId(reserved ? idAllocator.nextId(TABLE_NAME) : autoIncrement);
 
             String name = namingScheme.generateNameFor("name", run);
             run.setName(name);
@@ -499,13 +543,8 @@ public class SQLRunDAO implements RunStore {
             if (namingScheme.validateField("name", run.getName())) {
               params.addValue("name", name);
 
-              Number newId = insert.executeAndReturnKey(params);
-              if (newId.longValue() != run.getId()) {
-                log.error("Expected Run ID doesn't match returned value from database insert: rolling back...");
-                new NamedParameterJdbcTemplate(template).update(RUN_DELETE, new MapSqlParameterSource().addValue("runId", newId.longValue()));
-                throw new IOException("Something bad happened. Expected Run ID doesn't match returned value from DB insert");
-              }
-              autoIncrement = newId.longValue() + 1;
+              DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "runId", run.getId(), params);
+              autoIncrement = run.getId() + 1;
               log.debug(run.getName() + ":: Inserted as ID " + run.getId());
             }
             else {
@@ -587,13 +626,43 @@ public class SQLRunDAO implements RunStore {
   }
 
   @Override
-  @Cacheable(cacheName="runListCache")
   public List<Run> listAll() {
-    return template.query(RUNS_SELECT, new RunMapper(true));
+    Cache cache = cacheManager != null ? cacheManager.getCache("runListCache") : null;
+    if (cache == null) {
+      return query(RUNS_SELECT, new RunMapper(true));
+    }
+
+    Element element = cache.get(LIST_CACHE_KEY);
+    if (element == null) {
+      element = new Element(LIST_CACHE_KEY, new IndexedListCache<Run>(query(RUNS_SELECT, new RunMapper(true))));
+      cache.put(element);
+    }
+    //hand out a copy, as callers are free to sort or trim the list they get back
+    return new ArrayList<Run>(((IndexedListCache<Run>)element.getObjectValue()).snapshot());
+  }
+
+  public List<Run> listAllReadableBy(User user) throws IOException {
+    if (user.isAdmin()) {
+      return listAll();
+    }
+    List<Object> args = new ArrayList<Object>();
+    String join = SQLSecurityProfileDAO.readableProfilesJoin(user, "securityProfile_profileId", args);
+    return query(RUNS_SELECT + " " + join, args.toArray(), new RunMapper(true));
+  }
+
+  public List<Run> listByPageReadableBy(User user, PageRequest page) throws IOException {
+    RunMapper mapper = new RunMapper(true);
+    List<Run> runs = RUNS_PAGE.list(template, user, page, mapper);
+    mapper.resolveWatchers();
+    return runs;
+  }
+
+  public long countReadableBy(User user, PageRequest page) throws IOException {
+    return RUNS_PAGE.count(template, user, page);
   }
 
   public List<Run> listAllWithLimit(long limit) throws IOException {
-    return template.query(RUNS_SELECT_LIMIT, new Object[]{limit}, new RunMapper(true));
+    return query(RUNS_SELECT_LIMIT, new Object[]{limit}, new RunMapper(true));
   }
 
   @Override
@@ -604,22 +673,37 @@ public class SQLRunDAO implements RunStore {
   @Override
   public List<Run> listBySearch(String query) {
     String mySQLQuery = "%" + query.replaceAll("_", Matcher.quoteReplacement("\\_")) + "%";
-    return template.query(RUNS_SELECT_BY_SEARCH, new Object[]{mySQLQuery,mySQLQuery,mySQLQuery}, new RunMapper(true));
+    return query(RUNS_SELECT_BY_SEARCH, new Object[]{mySQLQuery,mySQLQuery,mySQLQuery}, new RunMapper(true));
+  }
+
+  public List<Run> searchRanked(String query, int limit) throws IOException {
+    List<Long> ids = searchIndex.search(query, limit);
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+    RunMapper mapper = new RunMapper(true);
+    List<Run> runs = new ArrayList<Run>();
+    for (List<Long> batch : DbUtils.partition(ids, DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+      runs.addAll(namedTemplate.query(RUNS_SELECT_BY_IDS, new MapSqlParameterSource("ids", batch), mapper));
+    }
+    mapper.resolveWatchers();
+    return IndexedSearch.inRankOrder(ids, runs);
   }
 
   @Override
   public List<Run> listByProjectId(long projectId) throws IOException {
-    return template.query(RUNS_SELECT_BY_PROJECT_ID, new Object[]{projectId}, new RunMapper(true));
+    return query(RUNS_SELECT_BY_PROJECT_ID, new Object[]{projectId}, new RunMapper(true));
   }
 
   @Override
   public List<Run> listByPlatformId(long platformId) throws IOException {
-    return template.query(RUNS_SELECT_BY_PLATFORM_ID, new Object[]{platformId}, new RunMapper(true));
+    return query(RUNS_SELECT_BY_PLATFORM_ID, new Object[]{platformId}, new RunMapper(true));
   }
 
   @Override
   public List<Run> listByStatus(String health) throws IOException {
-    return template.query(RUNS_SELECT_BY_STATUS_HEALTH, new Object[]{health}, new RunMapper(true));
+    return query(RUNS_SELECT_BY_STATUS_HEALTH, new Object[]{health}, new RunMapper(true));
   }
 
   @Deprecated
@@ -630,23 +714,23 @@ public class SQLRunDAO implements RunStore {
 
   @Override
   public List<Run> listByPoolId(long poolId) throws IOException {
-    return template.query(RUNS_SELECT_BY_POOL_ID, new Object[]{poolId}, new RunMapper());
+    return query(RUNS_SELECT_BY_POOL_ID, new Object[]{poolId}, new RunMapper());
   }
 
   @Override
   public List<Run> listBySequencerPartitionContainerId(long containerId) throws IOException {
-    return template.query(RUNS_SELECT_BY_SEQUENCER_PARTITION_CONTAINER_ID, new Object[]{containerId}, new RunMapper(true));
+    return query(RUNS_SELECT_BY_SEQUENCER_PARTITION_CONTAINER_ID, new Object[]{containerId}, new RunMapper(true));
   }
 
   public Run getLatestStartDateRunBySequencerPartitionContainerId(long containerId) throws IOException {
-    List eResults = template.query(LATEST_RUN_STARTED_SELECT_BY_SEQUENCER_PARTITION_CONTAINER_ID, new Object[]{containerId}, new RunMapper(true));
+    List eResults = query(LATEST_RUN_STARTED_SELECT_BY_SEQUENCER_PARTITION_CONTAINER_ID, new Object[]{containerId}, new RunMapper(true));
     Run r = eResults.size() > 0 ? (Run)eResults.get(0) : null;
     if (r == null) { r = getLatestRunIdRunBySequencerPartitionContainerId(containerId); }
     return r;
   }
 
   public Run getLatestRunIdRunBySequencerPartitionContainerId(long containerId) throws IOException {
-    List eResults = template.query(LATEST_RUN_ID_SELECT_BY_SEQUENCER_PARTITION_CONTAINER_ID, new Object[]{containerId}, new RunMapper(true));
+    List eResults = query(LATEST_RUN_ID_SELECT_BY_SEQUENCER_PARTITION_CONTAINER_ID, new Object[]{containerId}, new RunMapper(true));
     return eResults.size() > 0 ? (Run)eResults.get(0) : null;
   }
 
@@ -661,19 +745,19 @@ public class SQLRunDAO implements RunStore {
                   )
   )
   public Run get(long runId) throws IOException {
-    List eResults = template.query(RUN_SELECT_BY_ID, new Object[]{runId}, new RunMapper());
-    return eResults.size() > 0 ? (Run) eResults.get(0) : null;
+    List<Run> eResults = query(RUN_SELECT_BY_ID, new Object[]{runId}, new RunMapper());
+    return eResults.size() > 0 ? eResults.get(0) : null;
   }
 
   @Override
   public Run getByAlias(String alias) throws IOException {
-    List eResults = template.query(RUN_SELECT_BY_ALIAS, new Object[]{alias}, new RunMapper());
-    return eResults.size() > 0 ? (Run) eResults.get(0) : null;
+    List<Run> eResults = query(RUN_SELECT_BY_ALIAS, new Object[]{alias}, new RunMapper());
+    return eResults.size() > 0 ? eResults.get(0) : null;
   }
 
   @Override
   public Run lazyGet(long runId) throws IOException {
-    List eResults = template.query(RUN_SELECT_BY_ID, new Object[]{runId}, new RunMapper(true));
+    List eResults = query(RUN_SELECT_BY_ID, new Object[]{runId}, new RunMapper(true));
     return eResults.size() > 0 ? (Run) eResults.get(0) : null;
   }
 
@@ -695,11 +779,24 @@ public class SQLRunDAO implements RunStore {
            (namedTemplate.update(RUN_DELETE,
                             new MapSqlParameterSource().addValue("runId", r.getId())) == 1)) {
       purgeListCache(r, false);
+      searchIndex.remove(r.getId());
       return true;
     }
     return false;
   }
 
+  private List<Run> query(String sql, RunMapper mapper) {
+    List<Run> results = template.query(sql, mapper);
+    mapper.resolveWatchers();
+    return results;
+  }
+
+  private List<Run> query(String sql, Object[] args, RunMapper mapper) {
+    List<Run> results = template.query(sql, args, mapper);
+    mapper.resolveWatchers();
+    return results;
+  }
+
   public class RunMapper extends CacheAwareRowMapper<Run> {
     public RunMapper() {
       super(Run.class);
@@ -709,6 +806,52 @@ public class SQLRunDAO implements RunStore {
       super(Run.class, lazy);
     }
 
+    private final List<Run> unresolved = new ArrayList<Run>();
+
+    /**
+     * Adds the directly registered watchers of every run mapped since the last call, using one lookup for the whole
+     * result set instead of one query per row, then caches the runs and hands them to the alert manager. A run is only
+     * cached once its watchers are complete, and not at all if the lookup fails. Only rows read from the database reach
+     * here, so the alert manager records each run's persisted state before any edit to it is saved, and keeps the state
+     * it already holds for runs it knows.
+     */
+    public void resolveWatchers() {
+      if (unresolved.isEmpty()) {
+        return;
+      }
+      List<String> names = new ArrayList<String>();
+      for (Run r : unresolved) {
+        names.add(r.getWatchableIdentifier());
+      }
+      boolean resolved = false;
+      try {
+        Map<String, Collection<User>> watchers = watcherDAO.getWatchersByEntityNames(names);
+        for (Run r : unresolved) {
+          Collection<User> users = watchers.get(r.getWatchableIdentifier());
+          if (users != null) {
+            for (User u : users) {
+              r.addWatcher(u);
+            }
+          }
+        }
+        resolved = true;
+      }
+      catch (IOException e) {
+        log.error("Cannot resolve watchers for mapped runs: ", e);
+      }
+      if (resolved && isCacheEnabled() && lookupCache(cacheManager) != null) {
+        for (Run r : unresolved) {
+          lookupCache(cacheManager).put(new Element(DbUtils.hashCodeCacheKeyFor(r.getId()), r));
+        }
+      }
+      if (runAlertManager != null) {
+        for (Run r : unresolved) {
+          runAlertManager.push(r, !isLazy());
+        }
+      }
+      unresolved.clear();
+    }
+
     public Run mapRow(ResultSet rs, int rowNum) throws SQLException {
       long id = rs.getLong("runId");
 
@@ -737,13 +880,14 @@ public class SQLRunDAO implements RunStore {
         r.setSecurityProfile(securityProfileDAO.get(rs.getLong("securityProfile_profileId")));
         r.setStatus(statusDAO.get(rs.getLong("status_statusId")));
         r.setSequencerReference(sequencerReferenceDAO.get(rs.getLong("sequencerReference_sequencerReferenceId")));
-        r.setWatchers(new HashSet<User>(watcherDAO.getWatchersByEntityName(r.getWatchableIdentifier())));
+        r.setWatchers(new HashSet<User>());
         if (r.getSecurityProfile() != null &&
             r.getSecurityProfile().getOwner() != null)
           r.addWatcher(r.getSecurityProfile().getOwner());
         for (User u : watcherDAO.getWatchersByWatcherGroup("RunWatchers")) {
           r.addWatcher(u);
         }
+        unresolved.add(r);
 
         if (!isLazy()) {
           List<SequencerPartitionContainer<SequencerPoolPartition>> ss =
@@ -764,14 +908,6 @@ public class SQLRunDAO implements RunStore {
         e.printStackTrace();
       }
 
-      if (runAlertManager != null) {
-        runAlertManager.push(r);
-      }
-
-      if (isCacheEnabled() && lookupCache(cacheManager) != null) {
-        lookupCache(cacheManager).put(new Element(DbUtils.hashCodeCacheKeyFor(id) ,r));
-      }
-
       return r;
     }
   }
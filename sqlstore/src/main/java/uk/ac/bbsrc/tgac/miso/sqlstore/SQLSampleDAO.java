@@ -34,9 +34,11 @@ import org.springframework.jdbc.core.simple.SimpleJdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import uk.ac.bbsrc.tgac.miso.core.data.Project;
 import com.eaglegenomics.simlims.core.SecurityProfile;
+import com.eaglegenomics.simlims.core.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -48,7 +50,12 @@ import uk.ac.bbsrc.tgac.miso.core.exception.MisoNamingException;
 import uk.ac.bbsrc.tgac.miso.core.service.naming.MisoNamingScheme;
 import uk.ac.bbsrc.tgac.miso.core.store.*;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
+import uk.ac.bbsrc.tgac.miso.sqlstore.cache.IndexedListCache;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.PaginatedQuery;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IndexedSearch;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.SearchIndex;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.*;
 import uk.ac.bbsrc.tgac.miso.core.exception.MalformedLibraryException;
 import uk.ac.bbsrc.tgac.miso.core.exception.MalformedSampleQcException;
@@ -61,7 +68,12 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 
 /**
@@ -72,14 +84,29 @@ import java.util.regex.Matcher;
  * @author Rob Davey
  * @since 0.0.2
  */
-public class SQLSampleDAO implements SampleStore {
+public class SQLSampleDAO implements SampleStore, SecurableStore<Sample>, PageableStore<Sample>, PaginatedStore<Sample>, SearchableStore<Sample> {
   private static final String TABLE_NAME = "Sample";
+  private static final String LIST_CACHE_KEY = "sampleList";
 
   public static final String SAMPLES_SELECT =
         "SELECT sampleId, name, description, scientificName, taxonIdentifier, alias, accession, securityProfile_profileId, identificationBarcode, locationBarcode, " +
         "sampleType, receivedDate, qcPassed, project_projectId " +
         "FROM "+TABLE_NAME;
 
+  public static final String SAMPLES_SELECT_BY_IDS =
+          SAMPLES_SELECT + " WHERE sampleId IN (:ids)";
+
+  public static final String SAMPLES_SEARCH_FIELDS_SELECT =
+          "SELECT sampleId, name, alias, identificationBarcode, description, scientificName FROM " + TABLE_NAME;
+
+  private static final PaginatedQuery SAMPLES_PAGE =
+      new PaginatedQuery(SAMPLES_SELECT, TABLE_NAME, "sampleId", null, "name", "alias", "identificationBarcode")
+          .sortable("name", "sampleId")
+          .sortable("alias", "alias")
+          .sortable("sampleType", "sampleType")
+          .sortable("qcPassed", "qcPassed")
+          .sortable("receivedDate", "receivedDate");
+
   public static final String SAMPLES_SELECT_LIMIT =
           SAMPLES_SELECT + " ORDER BY sampleId DESC LIMIT ?";
 
@@ -92,6 +119,9 @@ public class SQLSampleDAO implements SampleStore {
   public static final String SAMPLE_SELECT_BY_ALIAS =
           SAMPLES_SELECT + " " + "WHERE alias = ?";
 
+  public static final String SAMPLES_SELECT_BY_ALIASES =
+          SAMPLES_SELECT + " " + "WHERE alias IN (:aliases)";
+
   public static final String SAMPLE_SELECT_BY_IDENTIFICATION_BARCODE =
           SAMPLES_SELECT + " " + "WHERE identificationBarcode = ?";
 
@@ -155,12 +185,32 @@ public class SQLSampleDAO implements SampleStore {
   protected static final Logger log = LoggerFactory.getLogger(SQLSampleDAO.class);
 
   private JdbcTemplate template;
+
+  private final IndexedSearch searchIndex = new IndexedSearch("sample", 3f, 3f, 2f, 1f, 1f) {
+    @Override
+    protected void load(final SearchIndex index) throws IOException {
+      template.query(SAMPLES_SEARCH_FIELDS_SELECT, new RowCallbackHandler() {
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+          index.put(rs.getLong("sampleId"), null, rs.getString("name"), rs.getString("alias"), rs.getString("identificationBarcode"), rs.getString("description"), rs.getString("scientificName"));
+        }
+      });
+    }
+  };
+
+  /**
+   * Set the age in milliseconds after which the search index is reloaded from the database
+   */
+  public void setSearchIndexMaxAge(long maxAge) {
+    searchIndex.setMaxAge(maxAge);
+  }
   private Store<SecurityProfile> securityProfileDAO;
   private ProjectStore projectDAO;
   private LibraryStore libraryDAO;
   private SampleQcStore sampleQcDAO;
   private NoteStore noteDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private MisoNamingScheme<Sample> sampleNamingScheme;
@@ -236,6 +286,10 @@ public class SQLSampleDAO implements SampleStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   private void purgeCache(Sample sample) {
     cacheManager.getCache("sampleCache").remove(sample);
   }
@@ -330,11 +384,8 @@ public class SQLSampleDAO implements SampleStore {
         throw new IOException("NEW: A sample with this alias already exists in the database");
       }
       else {
-        SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                                .withTableName(TABLE_NAME)
-                                .usingGeneratedKeyColumns("sampleId");
         try {
-          sample.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+          sample.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
           String name = sampleNamingScheme.generateNameFor("name", sample);
           sample.setName(name);
@@ -345,12 +396,7 @@ public class SQLSampleDAO implements SampleStore {
 
             params.addValue("identificationBarcode", barcode);
 
-            Number newId = insert.executeAndReturnKey(params);
-            if (newId.longValue() != sample.getId()) {
-              log.error("Expected Sample ID doesn't match returned value from database insert: rolling back...");
-              new NamedParameterJdbcTemplate(template).update(SAMPLE_DELETE, new MapSqlParameterSource().addValue("sampleId", newId.longValue()));
-              throw new IOException("Something bad happened. Expected Sample ID doesn't match returned value from DB insert");
-            }
+            DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "sampleId", sample.getId(), params);
           }
           else {
             throw new IOException("Cannot save sample - invalid field:" + sample.toString());
@@ -415,20 +461,49 @@ public class SQLSampleDAO implements SampleStore {
       purgeListCache(sample);
     }
 
+    searchIndex.put(sample.getId(), null, sample.getName(), sample.getAlias(), sample.getName() + "::" + sample.getAlias(), sample.getDescription(), sample.getScientificName());
+
     return sample.getId();
   }
 
-  @Cacheable(cacheName="sampleListCache",
-      keyGenerator = @KeyGenerator(
-              name = "HashCodeCacheKeyGenerator",
-              properties = {
-                      @Property(name="includeMethod", value="false"),
-                      @Property(name="includeParameterTypes", value="false")
-              }
-      )
-  )
   public List<Sample> listAll() {
-    return template.query(SAMPLES_SELECT, new SampleMapper(true));
+    Cache cache = cacheManager != null ? cacheManager.getCache("sampleListCache") : null;
+    if (cache == null) {
+      return template.query(SAMPLES_SELECT, new SampleMapper(true));
+    }
+
+    Element element = cache.get(LIST_CACHE_KEY);
+    if (element == null) {
+      element = new Element(LIST_CACHE_KEY, new IndexedListCache<Sample>(template.query(SAMPLES_SELECT, new SampleMapper(true))));
+      cache.put(element);
+    }
+    //hand out a copy, as callers are free to sort or trim the list they get back
+    return new ArrayList<Sample>(((IndexedListCache<Sample>)element.getObjectValue()).snapshot());
+  }
+
+  public List<Sample> listAllReadableBy(User user) throws IOException {
+    if (user.isAdmin()) {
+      return listAll();
+    }
+    List<Object> args = new ArrayList<Object>();
+    String join = SQLSecurityProfileDAO.readableProfilesJoin(user, "securityProfile_profileId", args);
+    return template.query(SAMPLES_SELECT + " " + join, args.toArray(), new SampleMapper(true));
+  }
+
+  public List<Sample> listPageReadableBy(User user, long afterId, int limit) throws IOException {
+    List<Object> args = new ArrayList<Object>();
+    String join = user.isAdmin() ? "" : " " + SQLSecurityProfileDAO.readableProfilesJoin(user, "securityProfile_profileId", args);
+    args.add(afterId);
+    args.add(limit);
+    return template.query(SAMPLES_SELECT + join + " WHERE sampleId > ? ORDER BY sampleId LIMIT ?", args.toArray(), new SampleMapper(true));
+  }
+
+  public List<Sample> listByPageReadableBy(User user, PageRequest page) throws IOException {
+    return SAMPLES_PAGE.list(template, user, page, new SampleMapper(true));
+  }
+
+  public long countReadableBy(User user, PageRequest page) throws IOException {
+    return SAMPLES_PAGE.count(template, user, page);
   }
 
   public List<Sample> listAllWithLimit(long limit) throws IOException {
@@ -449,6 +524,19 @@ public class SQLSampleDAO implements SampleStore {
     return template.query(SAMPLES_SELECT_BY_SEARCH, new String[]{mySQLQuery,mySQLQuery,mySQLQuery,mySQLQuery,mySQLQuery}, new SampleMapper(true));
   }
 
+  public List<Sample> searchRanked(String query, int limit) throws IOException {
+    List<Long> ids = searchIndex.search(query, limit);
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+    List<Sample> samples = new ArrayList<Sample>();
+    for (List<Long> batch : DbUtils.partition(ids, DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+      samples.addAll(namedTemplate.query(SAMPLES_SELECT_BY_IDS, new MapSqlParameterSource("ids", batch), new SampleMapper(true)));
+    }
+    return IndexedSearch.inRankOrder(ids, samples);
+  }
+
   @Transactional(readOnly = false, rollbackFor = IOException.class)
   @TriggersRemove(
           cacheName={"sampleCache", "lazySampleCache"},
@@ -477,6 +565,7 @@ public class SQLSampleDAO implements SampleStore {
 
       purgeListCache(sample, false);
 
+      searchIndex.remove(sample.getId());
       return true;
     }
     return false;
@@ -523,15 +612,48 @@ public class SQLSampleDAO implements SampleStore {
     return template.query(SAMPLE_SELECT_BY_ALIAS, new Object[]{alias}, new SampleMapper(true));
   }
 
+  public Collection<Sample> listByAliases(Collection<String> aliases) throws IOException {
+    List<Sample> samples = new ArrayList<Sample>();
+    if (!aliases.isEmpty()) {
+      NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+      for (List<String> batch : DbUtils.partition(new HashSet<String>(aliases), DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+        samples.addAll(namedTemplate.query(SAMPLES_SELECT_BY_ALIASES, new MapSqlParameterSource("aliases", batch), new SampleMapper(true)));
+      }
+    }
+    return samples;
+  }
+
   public List<String> listAllSampleTypes() throws IOException {
     return template.queryForList(SAMPLE_TYPES_SELECT, String.class);
   }
 
   public List<Sample> listBySubmissionId(long submissionId) throws IOException {
-    return template.query(SAMPLES_BY_RELATED_SUBMISSION, new Object[]{submissionId}, new SampleMapper());  
+    return batchQuery(SAMPLES_BY_RELATED_SUBMISSION, new Object[]{submissionId});
+  }
+
+  /**
+   * Runs a Sample query in batch-fetch mode. Rather than each mapped row issuing its own queries for
+   * related libraries, QCs, notes, projects and security profiles, the IDs are collected from the whole
+   * result set and each relation is then resolved in bulk and stitched back onto the Samples in memory.
+   *
+   * @param query the Sample select query
+   * @param args the query arguments
+   * @return List<Sample> fully populated Samples
+   * @throws IOException when the related entities cannot be retrieved
+   */
+  private List<Sample> batchQuery(String query, Object[] args) throws IOException {
+    SampleMapper mapper = new SampleMapper(false, true);
+    List<Sample> samples = template.query(query, args, mapper);
+    mapper.fetchRelations();
+    return samples;
   }
 
   public class SampleMapper extends CacheAwareRowMapper<Sample> {
+    private boolean batch = false;
+    private final Map<Long, Sample> pending = new LinkedHashMap<Long, Sample>();
+    private final Map<Long, Long> pendingProjectIds = new HashMap<Long, Long>();
+    private final Map<Long, Long> pendingProfileIds = new HashMap<Long, Long>();
+
     public SampleMapper() {
       super(Sample.class);
     }
@@ -540,6 +662,87 @@ public class SQLSampleDAO implements SampleStore {
       super(Sample.class, lazy);
     }
 
+    public SampleMapper(boolean lazy, boolean batch) {
+      super(Sample.class, lazy);
+      this.batch = batch && !lazy;
+    }
+
+    public boolean isBatch() {
+      return batch;
+    }
+
+    /**
+     * Resolves the related entities of all Samples mapped so far in batch mode, using one query per relation,
+     * and caches the completed Samples. Samples served from the cache whilst mapping are already complete and
+     * are not touched.
+     *
+     * @throws IOException when the related entities cannot be retrieved
+     */
+    public void fetchRelations() throws IOException {
+      if (pending.isEmpty()) {
+        return;
+      }
+
+      Set<Long> sampleIds = pending.keySet();
+
+      //profiles are shared by the vast majority of samples in a result set, so resolve each distinct one once
+      Map<Long, SecurityProfile> profiles = new HashMap<Long, SecurityProfile>();
+      for (Long profileId : new HashSet<Long>(pendingProfileIds.values())) {
+        profiles.put(profileId, securityProfileDAO.get(profileId));
+      }
+
+      Map<Long, Project> projects = new HashMap<Long, Project>();
+      for (Project p : projectDAO.listByIds(new HashSet<Long>(pendingProjectIds.values()))) {
+        projects.put(p.getProjectId(), p);
+      }
+
+      Map<Long, Collection<Library>> libraries = libraryDAO.listBySampleIds(sampleIds);
+      Map<Long, Collection<SampleQC>> qcs = sampleQcDAO.listBySampleIds(sampleIds);
+      Map<Long, List<Note>> notes = noteDAO.listBySampleIds(sampleIds);
+
+      for (Map.Entry<Long, Sample> entry : pending.entrySet()) {
+        long id = entry.getKey();
+        Sample s = entry.getValue();
+        s.setSecurityProfile(profiles.get(pendingProfileIds.get(id)));
+        s.setProject(projects.get(pendingProjectIds.get(id)));
+
+        try {
+          if (libraries.containsKey(id)) {
+            for (Library l : libraries.get(id)) {
+              s.addLibrary(l);
+            }
+          }
+
+          if (qcs.containsKey(id)) {
+            for (SampleQC qc : qcs.get(id)) {
+              s.addQc(qc);
+            }
+          }
+        }
+        catch (MalformedLibraryException e) {
+          e.printStackTrace();
+        }
+        catch (MalformedSampleQcException e) {
+          e.printStackTrace();
+        }
+
+        if (notes.containsKey(id)) {
+          s.setNotes(notes.get(id));
+        }
+        else {
+          s.setNotes(new ArrayList<Note>());
+        }
+
+        if (isCacheEnabled() && lookupCache(cacheManager) != null) {
+          lookupCache(cacheManager).put(new Element(DbUtils.hashCodeCacheKeyFor(id), s));
+        }
+      }
+
+      pending.clear();
+      pendingProjectIds.clear();
+      pendingProfileIds.clear();
+    }
+
     @Override
     public Sample mapRow(ResultSet rs, int rowNum) throws SQLException {
       long id = rs.getLong("sampleId");
@@ -579,6 +782,13 @@ public class SQLSampleDAO implements SampleStore {
 
       //s.setLastUpdated(rs.getTimestamp("lastUpdated"));
 
+      if (isBatch()) {
+        pending.put(id, s);
+        pendingProjectIds.put(id, rs.getLong("project_projectId"));
+        pendingProfileIds.put(id, rs.getLong("securityProfile_profileId"));
+        return s;
+      }
+
       try {
         s.setSecurityProfile(securityProfileDAO.get(rs.getLong("securityProfile_profileId")));
         if (!isLazy()) {
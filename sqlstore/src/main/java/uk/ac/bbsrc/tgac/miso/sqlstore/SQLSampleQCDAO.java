@@ -37,6 +37,7 @@ import uk.ac.bbsrc.tgac.miso.core.data.type.QcType;
 import uk.ac.bbsrc.tgac.miso.core.store.SampleQcStore;
 import uk.ac.bbsrc.tgac.miso.core.store.SampleStore;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -56,8 +57,11 @@ import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * uk.ac.bbsrc.tgac.miso.sqlstore
@@ -81,6 +85,10 @@ public class SQLSampleQCDAO implements SampleQcStore {
           SAMPLE_QC + " WHERE sample_sampleId=? " +
           "ORDER BY qcDate ASC";
   
+  public static final String SAMPLE_QC_SELECT_BY_SAMPLE_IDS =
+          SAMPLE_QC + " WHERE sample_sampleId IN (:ids) " +
+          "ORDER BY qcDate ASC";
+
   public static final String SAMPLE_QC_UPDATE =
           "UPDATE "+TABLE_NAME+" " +
           "SET sample_sampleId=:sample_sampleId, qcUserName=:qcUserName, qcDate=:qcDate, qcMethod=:qcMethod, results=:results " +
@@ -215,6 +223,27 @@ public class SQLSampleQCDAO implements SampleQcStore {
     return new LinkedList(template.query(SAMPLE_QC_SELECT_BY_SAMPLE_ID, new Object[]{sampleId}, new SampleQcMapper(true)));
   }
 
+  public Map<Long, Collection<SampleQC>> listBySampleIds(Collection<Long> sampleIds) throws IOException {
+    final Map<Long, Collection<SampleQC>> qcs = new HashMap<Long, Collection<SampleQC>>();
+    if (!sampleIds.isEmpty()) {
+      NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+      final SampleQcMapper mapper = new SampleQcMapper(true);
+      for (List<Long> ids : DbUtils.partition(new HashSet<Long>(sampleIds), DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+        namedTemplate.query(SAMPLE_QC_SELECT_BY_SAMPLE_IDS, new MapSqlParameterSource("ids", ids), new RowCallbackHandler() {
+          @Override
+          public void processRow(ResultSet rs) throws SQLException {
+            long sampleId = rs.getLong("sample_sampleId");
+            if (!qcs.containsKey(sampleId)) {
+              qcs.put(sampleId, new LinkedList<SampleQC>());
+            }
+            qcs.get(sampleId).add(mapper.mapRow(rs, rs.getRow()));
+          }
+        });
+      }
+    }
+    return qcs;
+  }
+
   public Collection<SampleQC> listAll() throws IOException {
     return template.query(SAMPLE_QC, new SampleQcMapper(true));
   }
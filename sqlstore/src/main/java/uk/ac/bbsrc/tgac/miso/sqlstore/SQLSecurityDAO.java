@@ -40,6 +40,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.bbsrc.tgac.miso.core.data.impl.UserImpl;
 import uk.ac.bbsrc.tgac.miso.core.security.PasswordCodecService;
+import uk.ac.bbsrc.tgac.miso.core.security.PrincipalContext;
 import uk.ac.bbsrc.tgac.miso.core.store.Store;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -301,6 +302,7 @@ public class SQLSecurityDAO implements SecurityStore {
     }
 
     DbUtils.updateCaches(cacheManager.getCache("userCache"), user.getUserId());
+    PrincipalContext.invalidate();
 
     return user.getUserId();
   }
@@ -376,8 +378,9 @@ public class SQLSecurityDAO implements SecurityStore {
       NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
       namedTemplate.update(GROUP_UPDATE, params);
     }
+    PrincipalContext.invalidate();
 
-    return group.getGroupId();    
+    return group.getGroupId();
   }
 
   public Group getGroupById(Long groupId) throws IOException {
@@ -31,6 +31,7 @@ import com.googlecode.ehcache.annotations.KeyGenerator;
 import com.googlecode.ehcache.annotations.Property;
 import net.sf.ehcache.CacheManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import uk.ac.bbsrc.tgac.miso.core.security.PrincipalContext;
 import uk.ac.bbsrc.tgac.miso.core.store.Store;
 import com.googlecode.ehcache.annotations.Cacheable;
 import com.googlecode.ehcache.annotations.TriggersRemove;
@@ -92,6 +93,49 @@ public class SQLSecurityProfileDAO implements Store<SecurityProfile> {
   @Autowired
   private CacheManager cacheManager;
 
+  /**
+   * Builds a JOIN clause that restricts a query over a securable table to rows whose security profile gives the user read
+   * or write access, either as the owner, through allowAllInternal, or as a read/write user or group member. Admins can read
+   * everything, so callers should not apply the clause for them.
+   * <p/>
+   * The user and group IDs are bound as ? placeholders, and their values are appended to args in the order they appear in
+   * the clause, so the caller must add the clause to its SQL at the point its own args have reached.
+   *
+   * @param user the user to check access for
+   * @param profileColumn the column of the securable table holding the security profile ID
+   * @param args the argument list of the enclosing query, to which the clause's arguments are appended
+   * @return String
+   */
+  public static String readableProfilesJoin(User user, String profileColumn, List<Object> args) {
+    long userId = user.getUserId();
+    StringBuilder sb = new StringBuilder();
+    sb.append("JOIN (");
+    sb.append("SELECT profileId FROM ").append(TABLE_NAME).append(" WHERE owner_userId = ?");
+    args.add(userId);
+    if (user.isInternal()) {
+      sb.append(" OR allowAllInternal = 1");
+    }
+    sb.append(" UNION SELECT SecurityProfile_profileId FROM SecurityProfile_ReadUser WHERE readUser_userId = ?");
+    args.add(userId);
+    sb.append(" UNION SELECT SecurityProfile_profileId FROM SecurityProfile_WriteUser WHERE writeUser_userId = ?");
+    args.add(userId);
+    if (user.getGroups() != null && !user.getGroups().isEmpty()) {
+      List<Long> groupIds = new ArrayList<Long>();
+      StringBuilder placeholders = new StringBuilder();
+      for (Group g : user.getGroups()) {
+        if (placeholders.length() > 0) placeholders.append(",");
+        placeholders.append("?");
+        groupIds.add(g.getGroupId());
+      }
+      sb.append(" UNION SELECT SecurityProfile_profileId FROM SecurityProfile_ReadGroup WHERE readGroup_groupId IN (").append(placeholders).append(")");
+      args.addAll(groupIds);
+      sb.append(" UNION SELECT SecurityProfile_profileId FROM SecurityProfile_WriteGroup WHERE writeGroup_groupId IN (").append(placeholders).append(")");
+      args.addAll(groupIds);
+    }
+    sb.append(") readable ON readable.profileId = ").append(profileColumn);
+    return sb.toString();
+  }
+
   public void setCacheManager(CacheManager cacheManager) {
     this.cacheManager = cacheManager;
   }
@@ -202,7 +246,8 @@ public class SQLSecurityProfileDAO implements Store<SecurityProfile> {
         uInsert.execute(uParams);
       }
     }
-    
+    PrincipalContext.invalidate();
+
     return securityProfile.getProfileId();
   }
 
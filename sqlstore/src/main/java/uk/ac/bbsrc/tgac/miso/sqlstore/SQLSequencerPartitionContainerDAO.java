@@ -50,6 +50,7 @@ import uk.ac.bbsrc.tgac.miso.core.service.naming.MisoNamingScheme;
 import uk.ac.bbsrc.tgac.miso.core.store.*;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 
 import javax.persistence.CascadeType;
 import java.io.IOException;
@@ -116,6 +117,7 @@ public class SQLSequencerPartitionContainerDAO implements SequencerPartitionCont
   private Store<SecurityProfile> securityProfileDAO;
   private JdbcTemplate template;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   private PlatformStore platformDAO;
 
@@ -178,6 +180,10 @@ public class SQLSequencerPartitionContainerDAO implements SequencerPartitionCont
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   @Override
   @Cacheable(cacheName = "sequencerPartitionContainerCache",
              keyGenerator = @KeyGenerator(
@@ -310,11 +316,8 @@ public class SQLSequencerPartitionContainerDAO implements SequencerPartitionCont
     }
 
     if (sequencerPartitionContainer.getId() == AbstractSequencerPartitionContainer.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-          .withTableName(TABLE_NAME)
-          .usingGeneratedKeyColumns("containerId");
       //try {
-      sequencerPartitionContainer.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+      sequencerPartitionContainer.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
         /*
         String name = namingScheme.generateNameFor("name", sequencerPartitionContainer);
@@ -339,8 +342,7 @@ public class SQLSequencerPartitionContainerDAO implements SequencerPartitionCont
         throw new IOException("Cannot save SequencerPartitionContainer - issue with naming scheme", e);
       }
       */
-      Number newId = insert.executeAndReturnKey(params);
-      sequencerPartitionContainer.setId(newId.longValue());
+      DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "containerId", sequencerPartitionContainer.getId(), params);
     }
     else {
       /*
@@ -50,6 +50,7 @@ import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.bbsrc.tgac.miso.sqlstore.cache.CacheAwareRowMapper;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.AbstractStudy;
 import uk.ac.bbsrc.tgac.miso.core.data.Experiment;
 import uk.ac.bbsrc.tgac.miso.core.data.Study;
@@ -146,6 +147,7 @@ public class SQLStudyDAO implements StudyStore {
   private ExperimentStore experimentDAO;
   private Store<SecurityProfile> securityProfileDAO;
   private CascadeType cascadeType;
+  private IdAllocator idAllocator;
 
   @Autowired
   private MisoNamingScheme<Study> namingScheme;
@@ -202,6 +204,10 @@ public class SQLStudyDAO implements StudyStore {
     this.cascadeType = cascadeType;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   private void purgeListCache(Study s, boolean replace) {
     Cache cache = cacheManager.getCache("studyListCache");
     DbUtils.updateListCache(cache, replace, s, Study.class);
@@ -236,11 +242,8 @@ public class SQLStudyDAO implements StudyStore {
             .addValue("studyType", study.getStudyType());
 
     if (study.getId() == AbstractStudy.UNSAVED_ID) {
-      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
-                            .withTableName(TABLE_NAME)
-                            .usingGeneratedKeyColumns("studyId");
       try {
-        study.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+        study.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
         String name = namingScheme.generateNameFor("name", study);
         study.setName(name);
@@ -248,12 +251,7 @@ public class SQLStudyDAO implements StudyStore {
         if (namingScheme.validateField("name", study.getName())) {
           params.addValue("name", name);
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != study.getId()) {
-            log.error("Expected Study ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(STUDY_DELETE, new MapSqlParameterSource().addValue("studyId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected Study ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "studyId", study.getId(), params);
         }
         else {
           throw new IOException("Cannot save Study - invalid field:" + study.toString());
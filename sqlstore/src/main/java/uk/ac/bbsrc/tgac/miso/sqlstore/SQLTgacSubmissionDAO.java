@@ -43,6 +43,7 @@ import uk.ac.bbsrc.tgac.miso.core.service.naming.NamingSchemeAware;
 import uk.ac.bbsrc.tgac.miso.core.store.*;
 import uk.ac.bbsrc.tgac.miso.core.store.Store;
 import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.IdAllocator;
 import uk.ac.bbsrc.tgac.miso.core.data.*;
 import uk.ac.bbsrc.tgac.miso.core.factory.DataObjectFactory;
 
@@ -95,6 +96,7 @@ public class SQLTgacSubmissionDAO implements Store<Submission>, NamingSchemeAwar
   protected static final Logger log = LoggerFactory.getLogger(SQLTgacSubmissionDAO.class);
 
   private JdbcTemplate template;
+  private IdAllocator idAllocator;
   private LibraryDilutionStore libraryDilutionDAO;
   private ExperimentStore experimentDAO;
   private PartitionStore partitionDAO;
@@ -154,6 +156,10 @@ public class SQLTgacSubmissionDAO implements Store<Submission>, NamingSchemeAwar
     this.template = template;
   }
 
+  public void setIdAllocator(IdAllocator idAllocator) {
+    this.idAllocator = idAllocator;
+  }
+
   @Transactional(readOnly = false, rollbackFor = IOException.class)
   public long save(Submission submission) throws IOException {
     SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
@@ -198,9 +204,8 @@ public class SQLTgacSubmissionDAO implements Store<Submission>, NamingSchemeAwar
       */
     }
     else {
-      insert.usingGeneratedKeyColumns("submissionId");
       try {
-        submission.setId(DbUtils.getAutoIncrement(template, TABLE_NAME));
+        submission.setId(DbUtils.nextId(idAllocator, template, TABLE_NAME));
 
         String name = namingScheme.generateNameFor("name", submission);
         submission.setName(name);
@@ -209,12 +214,7 @@ public class SQLTgacSubmissionDAO implements Store<Submission>, NamingSchemeAwar
           params.addValue("name", name)
                 .addValue("creationDate", new Date());
 
-          Number newId = insert.executeAndReturnKey(params);
-          if (newId.longValue() != submission.getId()) {
-            log.error("Expected Submission ID doesn't match returned value from database insert: rolling back...");
-            new NamedParameterJdbcTemplate(template).update(SUBMISSION_DELETE, new MapSqlParameterSource().addValue("submissionId", newId.longValue()));
-            throw new IOException("Something bad happened. Expected Submission ID doesn't match returned value from DB insert");
-          }
+          DbUtils.insertWithId(idAllocator, template, TABLE_NAME, "submissionId", submission.getId(), params);
         }
         else {
           throw new IOException("Cannot save Submission - invalid field:" + submission.toString());
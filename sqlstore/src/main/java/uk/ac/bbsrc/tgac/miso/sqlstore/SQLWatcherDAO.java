@@ -30,17 +30,26 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import uk.ac.bbsrc.tgac.miso.core.data.Watchable;
 import uk.ac.bbsrc.tgac.miso.core.store.WatcherStore;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.DbUtils;
 
 import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * uk.ac.bbsrc.tgac.miso.sqlstore
@@ -59,6 +68,9 @@ public class SQLWatcherDAO implements WatcherStore {
   private static final String WATCHERS_SELECT_BY_ENTITY_NAME =
           WATCHER_SELECT + " WHERE entityName = ?";
 
+  private static final String WATCHERS_SELECT_BY_ENTITY_NAMES =
+          WATCHER_SELECT + " WHERE entityName IN (:entityNames)";
+
   private static final String WATCHED_ENTITIES_BY_USER =
           WATCHER_SELECT + " WHERE userId = ?";
 
@@ -75,6 +87,10 @@ public class SQLWatcherDAO implements WatcherStore {
 
   private JdbcTemplate template;
 
+  private long watcherGroupCacheTimeout = 60000L;
+
+  private final Map<String, CachedGroup> watcherGroupCache = new ConcurrentHashMap<String, CachedGroup>();
+
   public void setSecurityManager(SecurityManager securityManager) {
     this.securityManager = securityManager;
   }
@@ -87,9 +103,35 @@ public class SQLWatcherDAO implements WatcherStore {
     this.template = template;
   }
 
+  /**
+   * Sets the number of milliseconds a resolved watcher group membership is reused before the security manager is
+   * asked again. A value of zero or less disables the cache.
+   *
+   * @param watcherGroupCacheTimeout of type long
+   */
+  public void setWatcherGroupCacheTimeout(long watcherGroupCacheTimeout) {
+    this.watcherGroupCacheTimeout = watcherGroupCacheTimeout;
+  }
+
+  @Override
+  public void clearWatcherGroupCache() {
+    watcherGroupCache.clear();
+  }
+
   @Override
   public Collection<User> getWatchersByWatcherGroup(String groupName) throws IOException {
-    return securityManager.listUsersByGroupName(groupName);
+    if (watcherGroupCacheTimeout <= 0) {
+      return securityManager.listUsersByGroupName(groupName);
+    }
+
+    CachedGroup cached = watcherGroupCache.get(groupName);
+    long now = System.currentTimeMillis();
+    if (cached == null || now - cached.resolvedAt > watcherGroupCacheTimeout) {
+      Collection<User> users = securityManager.listUsersByGroupName(groupName);
+      cached = new CachedGroup(users == null ? Collections.<User>emptyList() : Collections.unmodifiableList(new ArrayList<User>(users)), now);
+      watcherGroupCache.put(groupName, cached);
+    }
+    return cached.users;
   }
 
   @Override
@@ -97,6 +139,52 @@ public class SQLWatcherDAO implements WatcherStore {
     return template.query(WATCHERS_SELECT_BY_ENTITY_NAME, new Object[]{entityName}, new WatcherMapper());
   }
 
+  @Override
+  public Map<String, Collection<User>> getWatchersByEntityNames(Collection<String> entityNames) throws IOException {
+    final Map<String, Collection<User>> watchers = new HashMap<String, Collection<User>>();
+    if (entityNames == null || entityNames.isEmpty()) {
+      return watchers;
+    }
+
+    final Map<Long, User> users = new HashMap<Long, User>();
+    NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+    try {
+      for (List<String> batch : DbUtils.partition(new HashSet<String>(entityNames), DbUtils.DEFAULT_MAX_QUERY_PARAMS)) {
+        namedTemplate.query(WATCHERS_SELECT_BY_ENTITY_NAMES, new MapSqlParameterSource("entityNames", batch), new RowCallbackHandler() {
+          @Override
+          public void processRow(ResultSet rs) throws SQLException {
+            long userId = rs.getLong("userId");
+            User user = users.get(userId);
+            if (user == null) {
+              try {
+                user = securityManager.getUserById(userId);
+              }
+              catch (IOException e) {
+                throw new SQLException(e);
+              }
+              if (user == null) {
+                return;
+              }
+              users.put(userId, user);
+            }
+
+            String entityName = rs.getString("entityName");
+            Collection<User> entityWatchers = watchers.get(entityName);
+            if (entityWatchers == null) {
+              entityWatchers = new ArrayList<User>();
+              watchers.put(entityName, entityWatchers);
+            }
+            entityWatchers.add(user);
+          }
+        });
+      }
+    }
+    catch (Exception e) {
+      throw new IOException("Cannot resolve watchers for " + entityNames.size() + " entities", e);
+    }
+    return watchers;
+  }
+
 //  @Override
 //  public Collection<Watchable> getWatchedEntitiesByUserId(Long userId) throws IOException {
 //    return template.query(WATCHED_ENTITIES_BY_USER, new Object[]{userId}, new WatchedEntityMapper());
@@ -140,6 +228,16 @@ public class SQLWatcherDAO implements WatcherStore {
     }
   }
 
+  private static class CachedGroup {
+    private final Collection<User> users;
+    private final long resolvedAt;
+
+    CachedGroup(Collection<User> users, long resolvedAt) {
+      this.users = users;
+      this.resolvedAt = resolvedAt;
+    }
+  }
+
   public class WatcherMapper implements RowMapper<User> {
     public User mapRow(ResultSet rs, int rowNum) throws SQLException {
       try {
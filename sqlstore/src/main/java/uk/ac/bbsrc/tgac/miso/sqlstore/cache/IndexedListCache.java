@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore.cache;
+
+import uk.ac.bbsrc.tgac.miso.core.data.Nameable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A list cache value indexed on entity ID. Upserts and removals are O(1) and never block readers or each other.
+ * Readers get an immutable snapshot ordered by ID, which is rebuilt lazily the first time it is asked for after
+ * a write, so a run of saves with no intervening reads costs nothing extra.
+ *
+ * @since 0.2.1
+ */
+public class IndexedListCache<T extends Nameable> implements Serializable {
+  private static final Comparator<Nameable> ID_ORDER = new Comparator<Nameable>() {
+    @Override
+    public int compare(Nameable a, Nameable b) {
+      return a.getId() < b.getId() ? -1 : (a.getId() == b.getId() ? 0 : 1);
+    }
+  };
+
+  private final ConcurrentMap<Long, T> entries = new ConcurrentHashMap<Long, T>();
+  private final AtomicLong version = new AtomicLong();
+  private volatile transient Snapshot<T> snapshot;
+
+  public IndexedListCache(Collection<? extends T> values) {
+    for (T value : values) {
+      entries.put(value.getId(), value);
+    }
+  }
+
+  /**
+   * Add an entity to the cache, replacing any existing entity with the same ID
+   *
+   * @param value of type T
+   */
+  public void upsert(T value) {
+    entries.put(value.getId(), value);
+    version.incrementAndGet();
+  }
+
+  /**
+   * Remove the entity with the same ID as the given entity, if present
+   *
+   * @param value of type T
+   * @return true if an entity was removed
+   */
+  public boolean remove(T value) {
+    if (entries.remove(value.getId()) != null) {
+      version.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  public boolean contains(long id) {
+    return entries.containsKey(id);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Get an immutable, ID-ordered view of the cache contents at the time of the call. Writes made after this call
+   * returns are not reflected in the returned list.
+   *
+   * @return List<T>
+   */
+  public List<T> snapshot() {
+    //read the version before the values, so a write racing the copy can only ever make the snapshot look stale
+    long current = version.get();
+    Snapshot<T> s = snapshot;
+    if (s == null || s.version != current) {
+      List<T> values = new ArrayList<T>(entries.values());
+      Collections.sort(values, ID_ORDER);
+      s = new Snapshot<T>(current, Collections.unmodifiableList(values));
+      snapshot = s;
+    }
+    return s.values;
+  }
+
+  private static class Snapshot<T> {
+    private final long version;
+    private final List<T> values;
+
+    Snapshot(long version, List<T> values) {
+      this.version = version;
+      this.values = values;
+    }
+  }
+}
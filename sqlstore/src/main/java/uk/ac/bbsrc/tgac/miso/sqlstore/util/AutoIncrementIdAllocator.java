@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore.util;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+
+/**
+ * IdAllocator that predicts the next ID from the table's Auto_increment metadata value. IDs are not reserved, so
+ * concurrent inserts into the same table can cause the prediction to be wrong, in which case the insert is rolled
+ * back by {@link DbUtils#insertWithId}.
+ *
+ * @since 0.2.1
+ */
+public class AutoIncrementIdAllocator implements IdAllocator {
+  private JdbcTemplate template;
+
+  public AutoIncrementIdAllocator() {
+  }
+
+  public AutoIncrementIdAllocator(JdbcTemplate template) {
+    this.template = template;
+  }
+
+  public JdbcTemplate getJdbcTemplate() {
+    return template;
+  }
+
+  public void setJdbcTemplate(JdbcTemplate template) {
+    this.template = template;
+  }
+
+  @Override
+  public long nextId(String tableName) throws IOException {
+    return DbUtils.getAutoIncrement(template, tableName);
+  }
+
+  @Override
+  public boolean reservesIds() {
+    return false;
+  }
+}
@@ -17,16 +17,24 @@ import java.util.*;
  */
 public class DaoLookup {
   protected static final Logger log = LoggerFactory.getLogger(DaoLookup.class);
-  private Map<Class<?>, Store<?>> daos = new HashMap<Class<?>, Store<?>>();
+  private Map<Class<?>, Store<?>> daos = Collections.emptyMap();
+
+  //concrete class -> registered key it resolves to (null if none). replaced wholesale, never modified in place
+  private volatile Map<Class<?>, Class<?>> resolved = Collections.emptyMap();
 
   public void setDaos(Map<Class<?>, Store<?>> daos) {
-    this.daos = daos;
+    this.daos = Collections.unmodifiableMap(new HashMap<Class<?>, Store<?>>(daos));
+    Map<Class<?>, Class<?>> table = new HashMap<Class<?>, Class<?>>();
+    for (Class<?> type : this.daos.keySet()) {
+      table.put(type, type);
+    }
+    this.resolved = Collections.unmodifiableMap(table);
   }
 
   public <T> Store<T> lookup(Class<? extends T> clz) {
     Class<?> type = getAssignableClassFromClass(clz);
     if (type != null) {
-      return (Store<T>)daos.get(getAssignableClassFromClass(clz));
+      return (Store<T>)daos.get(type);
     }
     return null;
   }
@@ -35,10 +43,42 @@ public class DaoLookup {
     return daos.keySet();
   }
 
+  /**
+   * Resolves a class to the registered type it is stored under: the class itself if registered, otherwise its nearest
+   * registered superclass or interface. Each class is resolved once and then served from a lookup table.
+   *
+   * @param clz the class to resolve
+   * @return the registered type, or null if no registered type is assignable from clz
+   */
   public Class<?> getAssignableClassFromClass(Class<?> clz) {
-    for (Class<?> type : getDaoKeys()) {
-      if (type.isAssignableFrom(clz)) {
-        return type;
+    Map<Class<?>, Class<?>> table = resolved;
+    if (table.containsKey(clz)) {
+      return table.get(clz);
+    }
+
+    Class<?> type = resolve(clz);
+    Map<Class<?>, Class<?>> updated = new HashMap<Class<?>, Class<?>>(table);
+    updated.put(clz, type);
+    //losing a race here only means another thread's resolution gets redone later
+    resolved = Collections.unmodifiableMap(updated);
+    return type;
+  }
+
+  //breadth-first over superclasses and interfaces, so the most specific registration wins
+  private Class<?> resolve(Class<?> clz) {
+    Deque<Class<?>> queue = new ArrayDeque<Class<?>>();
+    Set<Class<?>> seen = new HashSet<Class<?>>();
+    queue.add(clz);
+    while (!queue.isEmpty()) {
+      Class<?> c = queue.poll();
+      if (seen.add(c)) {
+        if (daos.containsKey(c)) {
+          return c;
+        }
+        if (c.getSuperclass() != null) {
+          queue.add(c.getSuperclass());
+        }
+        queue.addAll(Arrays.asList(c.getInterfaces()));
       }
     }
     return null;
@@ -29,11 +29,14 @@ import net.sf.ehcache.constructs.blocking.BlockingCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.DatabaseMetaDataCallback;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.MetaDataAccessException;
 import uk.ac.bbsrc.tgac.miso.core.data.Nameable;
 import uk.ac.bbsrc.tgac.miso.core.util.LimsUtils;
+import uk.ac.bbsrc.tgac.miso.sqlstore.cache.IndexedListCache;
 
 import java.io.IOException;
 import java.sql.Connection;
@@ -41,6 +44,7 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,6 +61,12 @@ public class DbUtils {
   protected static final Logger log = LoggerFactory.getLogger(DbUtils.class);
   private static final HashCodeCacheKeyGenerator hashCodeCacheKeyGenerator = new HashCodeCacheKeyGenerator();
 
+  /**
+   * The default maximum bound for an "IN" list used by the batch fetch queries, i.e.
+   * SELECT * FROM foo WHERE foo.bar IN (?,?,?,...,?)
+   */
+  public static final int DEFAULT_MAX_QUERY_PARAMS = 500;
+
   public static long getAutoIncrement(JdbcTemplate template, String tableName) throws IOException {
     final String q = "SHOW TABLE STATUS LIKE '" + tableName + "'";
     Map<String, Object> rs = template.queryForMap(q);
@@ -69,6 +79,54 @@ public class DbUtils {
     }
   }
 
+  /**
+   * Get the ID to assign to the next row inserted into a table. If no IdAllocator is configured, the ID is predicted
+   * from the table's Auto_increment value.
+   *
+   * @param allocator the configured IdAllocator, or null
+   * @param template the JdbcTemplate to query when no allocator is configured
+   * @param tableName the table to insert into
+   * @return long the next ID
+   * @throws IOException when an ID cannot be obtained
+   */
+  public static long nextId(IdAllocator allocator, JdbcTemplate template, String tableName) throws IOException {
+    if (allocator != null) {
+      return allocator.nextId(tableName);
+    }
+    return getAutoIncrement(template, tableName);
+  }
+
+  /**
+   * Insert a new row whose ID was obtained from {@link #nextId}. IDs reserved by the allocator are inserted
+   * explicitly. Predicted IDs are left to AUTO_INCREMENT, and the insert is rolled back if the generated key doesn't
+   * match the prediction.
+   *
+   * @param allocator the configured IdAllocator, or null
+   * @param template the JdbcTemplate to insert with
+   * @param tableName the table to insert into
+   * @param idColumn the primary key column
+   * @param id the ID obtained from nextId
+   * @param params the column values of the new row
+   * @throws IOException when a predicted ID doesn't match the generated key
+   */
+  public static void insertWithId(IdAllocator allocator, JdbcTemplate template, String tableName, String idColumn, long id, MapSqlParameterSource params) throws IOException {
+    if (allocator != null && allocator.reservesIds()) {
+      params.addValue(idColumn, id);
+      new SimpleJdbcInsert(template).withTableName(tableName).execute(params);
+    }
+    else {
+      SimpleJdbcInsert insert = new SimpleJdbcInsert(template)
+                              .withTableName(tableName)
+                              .usingGeneratedKeyColumns(idColumn);
+      Number newId = insert.executeAndReturnKey(params);
+      if (newId.longValue() != id) {
+        log.error("Expected " + tableName + " ID ('" + id + "') doesn't match returned value ('" + newId.longValue() + "') from database insert: rolling back...");
+        template.update("DELETE FROM " + tableName + " WHERE " + idColumn + "=?", newId.longValue());
+        throw new IOException("Something bad happened. Expected " + tableName + " ID doesn't match returned value from DB insert");
+      }
+    }
+  }
+
   public static ArrayList<String> getTables(JdbcTemplate template) throws MetaDataAccessException, SQLException {
     Object o = JdbcUtils.extractDatabaseMetaData(template.getDataSource(), new GetTableNames(template.getDataSource().getConnection().getCatalog()));
     return (ArrayList<String>)o;
@@ -199,9 +257,25 @@ public class DbUtils {
 
   public static <T> void updateListCache(Cache cache, boolean replace, T obj, Class<T> cacheClass) {
     if (cache != null && cache.getKeys().size() > 0) {
+      Object cachekey = cache.getKeys().get(0);
+      Element element = cache.get(cachekey);
+      if (element == null) {
+        return;
+      }
+      if (element.getObjectValue() instanceof IndexedListCache && obj instanceof Nameable) {
+        //indexed caches are updated in place, so there is no need to copy the list or lock the cache to put it back
+        IndexedListCache<Nameable> indexed = (IndexedListCache<Nameable>)element.getObjectValue();
+        if (replace) {
+          indexed.upsert((Nameable)obj);
+        }
+        else {
+          indexed.remove((Nameable)obj);
+        }
+        return;
+      }
+
       BlockingCache c = new BlockingCache(cache);
-      Object cachekey = c.getKeys().get(0);
-      List<T> e = (List<T>)c.get(cachekey).getObjectValue();
+      List<T> e = (List<T>)element.getObjectValue();
       if (e.remove(obj)) {
         if (replace) {
           e.add(obj);
@@ -214,6 +288,34 @@ public class DbUtils {
     }
   }
 
+  /**
+   * Splits a collection of IDs into sublists no larger than maxQueryParams, so that batch "IN" queries never exceed
+   * the parameter limit of the underlying database. Duplicate IDs are preserved - callers should pass in a Set if
+   * they require uniqueness.
+   *
+   * @param ids the IDs to partition
+   * @param maxQueryParams the maximum size of each sublist
+   * @return a List of ID sublists
+   */
+  public static <T> List<List<T>> partition(Collection<T> ids, int maxQueryParams) {
+    if (maxQueryParams < 1) {
+      throw new IllegalArgumentException("Cannot partition a collection into chunks of size " + maxQueryParams);
+    }
+    List<List<T>> chunks = new ArrayList<List<T>>();
+    List<T> chunk = new ArrayList<T>();
+    for (T id : ids) {
+      chunk.add(id);
+      if (chunk.size() == maxQueryParams) {
+        chunks.add(chunk);
+        chunk = new ArrayList<T>();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      chunks.add(chunk);
+    }
+    return chunks;
+  }
+
   public static Long hashCodeCacheKeyFor(Object ... datas) {
     return hashCodeCacheKeyGenerator.generateKey(datas);
   }
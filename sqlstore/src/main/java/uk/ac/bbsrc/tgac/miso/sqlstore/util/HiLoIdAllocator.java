@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IdAllocator that reserves blocks of IDs per table from the IdSequence table, and then hands out IDs from the
+ * current block in memory without touching the database. Handing out an ID from a block is lock-free - only
+ * reserving the next block is synchronized.
+ * <p/>
+ * Blocks are reserved atomically in the database, so several JVMs can share a sequence. All writers to a table
+ * must use this allocator once it is enabled, as rows inserted via AUTO_INCREMENT do not advance the sequence.
+ *
+ * @since 0.2.1
+ */
+public class HiLoIdAllocator implements IdAllocator {
+  protected static final Logger log = LoggerFactory.getLogger(HiLoIdAllocator.class);
+
+  public static final String SEQUENCE_TABLE_NAME = "IdSequence";
+
+  public static final String SEQUENCE_ADVANCE =
+          "UPDATE "+SEQUENCE_TABLE_NAME+" SET nextId=LAST_INSERT_ID(nextId + ?) WHERE tableName=?";
+
+  public static final String SEQUENCE_INSERT =
+          "INSERT IGNORE INTO "+SEQUENCE_TABLE_NAME+" (tableName, nextId) VALUES (?, ?)";
+
+  private JdbcTemplate template;
+  private int blockSize = 50;
+  private final ConcurrentMap<String, IdBlock> blocks = new ConcurrentHashMap<String, IdBlock>();
+
+  public JdbcTemplate getJdbcTemplate() {
+    return template;
+  }
+
+  public void setJdbcTemplate(JdbcTemplate template) {
+    this.template = template;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Set the number of IDs reserved from the sequence table at a time. Larger blocks mean fewer database round trips,
+   * at the cost of bigger gaps in the ID sequence when a JVM is restarted. Defaults to 50.
+   *
+   * @param blockSize the number of IDs per block
+   */
+  public void setBlockSize(int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("Block size must be at least 1");
+    }
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public long nextId(String tableName) throws IOException {
+    while (true) {
+      IdBlock block = blocks.get(tableName);
+      if (block != null) {
+        long id = block.next();
+        if (id != -1) {
+          return id;
+        }
+      }
+
+      synchronized (this) {
+        //another thread may have already replaced the exhausted block
+        if (blocks.get(tableName) == block) {
+          blocks.put(tableName, reserveBlock(tableName));
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean reservesIds() {
+    return true;
+  }
+
+  private IdBlock reserveBlock(final String tableName) throws IOException {
+    Long limit = advanceSequence(tableName);
+    if (limit == null) {
+      //first allocation for this table - seed the sequence from the table's current Auto_increment value
+      long seed = DbUtils.getAutoIncrement(template, tableName);
+      template.update(SEQUENCE_INSERT, tableName, seed);
+      log.info("Initialised " + tableName + " ID sequence at " + seed);
+      limit = advanceSequence(tableName);
+      if (limit == null) {
+        throw new IOException("Cannot initialise ID sequence for " + tableName);
+      }
+    }
+    log.debug("Reserved " + tableName + " IDs " + (limit - blockSize) + " to " + (limit - 1));
+    return new IdBlock(limit - blockSize, limit);
+  }
+
+  private Long advanceSequence(final String tableName) throws IOException {
+    try {
+      return template.execute(new ConnectionCallback<Long>() {
+        @Override
+        public Long doInConnection(Connection con) throws SQLException, DataAccessException {
+          PreparedStatement ps = con.prepareStatement(SEQUENCE_ADVANCE);
+          try {
+            ps.setInt(1, blockSize);
+            ps.setString(2, tableName);
+            if (ps.executeUpdate() == 0) {
+              return null;
+            }
+          }
+          finally {
+            ps.close();
+          }
+
+          //LAST_INSERT_ID is per-connection, so must be read on the same connection as the update
+          PreparedStatement last = con.prepareStatement("SELECT LAST_INSERT_ID()");
+          try {
+            ResultSet rs = last.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+          }
+          finally {
+            last.close();
+          }
+        }
+      });
+    }
+    catch (DataAccessException e) {
+      throw new IOException("Cannot reserve ID block for " + tableName, e);
+    }
+  }
+
+  private static class IdBlock {
+    private final AtomicLong next;
+    private final long limit;
+
+    IdBlock(long start, long limit) {
+      this.next = new AtomicLong(start);
+      this.limit = limit;
+    }
+
+    long next() {
+      long id = next.getAndIncrement();
+      return id < limit ? id : -1;
+    }
+  }
+}
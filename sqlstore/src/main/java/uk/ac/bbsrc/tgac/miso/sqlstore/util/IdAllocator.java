@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore.util;
+
+import java.io.IOException;
+
+/**
+ * Hands out primary key values for new rows, so that DAOs (and the naming schemes they call) know the ID of an
+ * entity before it is inserted.
+ *
+ * @since 0.2.1
+ */
+public interface IdAllocator {
+  /**
+   * Get the ID to use for the next row inserted into the given table
+   *
+   * @param tableName of type String
+   * @return long
+   * @throws IOException when an ID cannot be obtained
+   */
+  long nextId(String tableName) throws IOException;
+
+  /**
+   * Whether IDs returned by this allocator are reserved for the caller, and so must be inserted explicitly, or are
+   * only a prediction of the value the database will generate on insert.
+   *
+   * @return boolean
+   */
+  boolean reservesIds();
+}
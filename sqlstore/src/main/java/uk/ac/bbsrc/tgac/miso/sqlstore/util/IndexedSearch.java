@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.bbsrc.tgac.miso.core.data.Nameable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.sqlstore.util
+ * <p/>
+ * Owns the {@link SearchIndex} for one DAO. The index is loaded from the database on the first search, kept in step by the
+ * DAO calling {@link #put(long, Collection, String...)} and {@link #remove(long)} from its save and remove paths, and reloaded
+ * in the background once it is older than maxAge, to pick up rows written by other processes. Updates that arrive while a
+ * reload is running are replayed onto the new index before it replaces the old one.
+ *
+ * @since 0.2.1
+ */
+public abstract class IndexedSearch {
+  protected static final Logger log = LoggerFactory.getLogger(IndexedSearch.class);
+
+  private final String name;
+  private final float[] weights;
+  private volatile SearchIndex index;
+  private volatile long builtAt;
+  private long maxAge = 30 * 60 * 1000L;
+
+  private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+  private final List<Update> journal = new ArrayList<Update>();
+  private boolean journaling = false;
+
+  /**
+   * @param name a name for log messages and the reload thread
+   * @param weights the weight of each indexed field
+   */
+  public IndexedSearch(String name, float... weights) {
+    this.name = name;
+    this.weights = weights;
+  }
+
+  /**
+   * Load every document into a fresh index
+   */
+  protected abstract void load(SearchIndex index) throws IOException;
+
+  /**
+   * Set the age in milliseconds after which the index is reloaded from the database. Defaults to 30 minutes.
+   */
+  public void setMaxAge(long maxAge) {
+    this.maxAge = maxAge;
+  }
+
+  public List<Long> search(String query, int limit, String... requiredTags) throws IOException {
+    SearchIndex current = index;
+    if (current == null) {
+      synchronized (this) {
+        if (index == null) {
+          rebuild();
+        }
+      }
+      current = index;
+    }
+    else if (System.currentTimeMillis() - builtAt > maxAge && rebuilding.compareAndSet(false, true)) {
+      Thread reload = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            rebuild();
+          }
+          catch (IOException e) {
+            log.error("Failed to reload the " + name + " search index", e);
+          }
+          finally {
+            rebuilding.set(false);
+          }
+        }
+      }, name + "-search-index");
+      reload.setDaemon(true);
+      reload.start();
+    }
+    return current.search(query, limit, requiredTags);
+  }
+
+  public void put(long id, Collection<String> tags, String... fields) {
+    synchronized (journal) {
+      if (journaling) {
+        journal.add(new Update(id, tags, fields));
+      }
+    }
+    SearchIndex current = index;
+    if (current != null) {
+      current.put(id, tags, fields);
+    }
+  }
+
+  public void remove(long id) {
+    synchronized (journal) {
+      if (journaling) {
+        journal.add(new Update(id, null, null));
+      }
+    }
+    SearchIndex current = index;
+    if (current != null) {
+      current.remove(id);
+    }
+  }
+
+  /**
+   * Puts objects loaded by ID back into the order their IDs were ranked in
+   */
+  public static <T extends Nameable> List<T> inRankOrder(List<Long> rankedIds, Collection<T> objects) {
+    Map<Long, T> byId = new HashMap<Long, T>();
+    for (T t : objects) {
+      byId.put(t.getId(), t);
+    }
+    List<T> ordered = new ArrayList<T>(rankedIds.size());
+    for (Long id : rankedIds) {
+      T t = byId.get(id);
+      if (t != null) {
+        ordered.add(t);
+      }
+    }
+    return ordered;
+  }
+
+  private void rebuild() throws IOException {
+    synchronized (journal) {
+      journal.clear();
+      journaling = true;
+    }
+    SearchIndex fresh = new SearchIndex(weights);
+    long start = System.currentTimeMillis();
+    try {
+      load(fresh);
+    }
+    catch (IOException | RuntimeException e) {
+      synchronized (journal) {
+        journal.clear();
+        journaling = false;
+      }
+      throw e;
+    }
+    synchronized (journal) {
+      for (Update update : journal) {
+        update.applyTo(fresh);
+      }
+      journal.clear();
+      journaling = false;
+      index = fresh;
+      builtAt = System.currentTimeMillis();
+    }
+    log.info("Loaded " + fresh.size() + " documents into the " + name + " search index in " + (builtAt - start) + "ms");
+  }
+
+  private static class Update {
+    private final long id;
+    private final Collection<String> tags;
+    private final String[] fields;
+
+    Update(long id, Collection<String> tags, String[] fields) {
+      this.id = id;
+      this.tags = tags;
+      this.fields = fields;
+    }
+
+    void applyTo(SearchIndex index) {
+      if (fields == null) {
+        index.remove(id);
+      }
+      else {
+        index.put(id, tags, fields);
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore.util;
+
+import com.eaglegenomics.simlims.core.User;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import uk.ac.bbsrc.tgac.miso.core.store.PageRequest;
+import uk.ac.bbsrc.tgac.miso.sqlstore.SQLSecurityProfileDAO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.sqlstore.util
+ * <p/>
+ * Builds the page and count queries behind a paged list page for a single securable table, so that each DAO only has to
+ * declare which of its columns can be searched and sorted.
+ * <p/>
+ * Searches are prefix matches (LIKE 'query%') so that they can use the indexes on the searched columns, rather than the
+ * leading-wildcard matches of the free text searches. Sort properties are looked up in a whitelist, and anything else falls
+ * back to the ID column, so no request parameter ever reaches the SQL text.
+ *
+ * @since 0.2.1
+ */
+public class PaginatedQuery {
+  private final String select;
+  private final String count;
+  private final String idColumn;
+  private final String platformColumn;
+  private final List<String> searchColumns;
+  private final Map<String, String> sortColumns = new HashMap<String, String>();
+
+  /**
+   * @param select the DAO's own SELECT ... FROM table, with no WHERE clause
+   * @param table the table being selected from
+   * @param idColumn the primary key column, used as the default sort and as a tie-breaker
+   * @param platformColumn the column holding the PlatformType key, or null if the table has none
+   * @param searchColumns the columns to prefix match a search against
+   */
+  public PaginatedQuery(String select, String table, String idColumn, String platformColumn, String... searchColumns) {
+    this.select = select;
+    this.count = "SELECT COUNT(*) FROM " + table;
+    this.idColumn = idColumn;
+    this.platformColumn = platformColumn;
+    List<String> search = new ArrayList<String>();
+    Collections.addAll(search, searchColumns);
+    this.searchColumns = Collections.unmodifiableList(search);
+  }
+
+  /**
+   * Allow sorting on a column
+   *
+   * @param property the property name a client sorts by
+   * @param column the column holding that property
+   * @return this query, for chaining
+   */
+  public PaginatedQuery sortable(String property, String column) {
+    sortColumns.put(property, column);
+    return this;
+  }
+
+  public <T> List<T> list(JdbcTemplate template, User user, PageRequest page, RowMapper<T> mapper) {
+    List<Object> args = new ArrayList<Object>();
+    StringBuilder sql = new StringBuilder(select);
+    appendFilters(sql, args, user, page);
+
+    String sortColumn = page.getSortProperty() != null ? sortColumns.get(page.getSortProperty()) : null;
+    String direction = page.isDescending() ? " DESC" : " ASC";
+    sql.append(" ORDER BY ");
+    if (sortColumn != null && !sortColumn.equals(idColumn)) {
+      sql.append(sortColumn).append(direction).append(", ");
+    }
+    sql.append(idColumn).append(direction);
+    sql.append(" LIMIT ? OFFSET ?");
+    args.add(page.getLimit());
+    args.add(page.getOffset());
+    return template.query(sql.toString(), args.toArray(), mapper);
+  }
+
+  public long count(JdbcTemplate template, User user, PageRequest page) {
+    List<Object> args = new ArrayList<Object>();
+    StringBuilder sql = new StringBuilder(count);
+    appendFilters(sql, args, user, page);
+    return template.queryForLong(sql.toString(), args.toArray());
+  }
+
+  private void appendFilters(StringBuilder sql, List<Object> args, User user, PageRequest page) {
+    if (!user.isAdmin()) {
+      sql.append(" ").append(SQLSecurityProfileDAO.readableProfilesJoin(user, "securityProfile_profileId", args));
+    }
+    List<String> conditions = new ArrayList<String>();
+    if (page.getPlatformType() != null && platformColumn != null) {
+      conditions.add(platformColumn + " = ?");
+      args.add(page.getPlatformType().getKey());
+    }
+    if (page.getSearch() != null && !searchColumns.isEmpty()) {
+      String prefix = escapeLike(page.getSearch()) + "%";
+      StringBuilder or = new StringBuilder("(");
+      for (String column : searchColumns) {
+        if (or.length() > 1) or.append(" OR ");
+        or.append(column).append(" LIKE ?");
+        args.add(prefix);
+      }
+      conditions.add(or.append(")").toString());
+    }
+    for (int i = 0; i < conditions.size(); i++) {
+      sql.append(i == 0 ? " WHERE " : " AND ").append(conditions.get(i));
+    }
+  }
+
+  private static String escapeLike(String s) {
+    return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+}
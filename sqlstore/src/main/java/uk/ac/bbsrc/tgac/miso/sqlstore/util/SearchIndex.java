@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore.util;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.sqlstore.util
+ * <p/>
+ * An in-memory inverted index from lower-cased terms to the IDs of the objects whose fields contain them, used to answer
+ * search-as-you-type queries without scanning tables with leading-wildcard LIKEs.
+ * <p/>
+ * Fields are split into alphanumeric terms, and runs of digits within a term are indexed too, so that "SAM1234" can be found
+ * by "sam1234", "sam12" or "1234". Each query term must match a document by exact term (best), term prefix, or, for terms of
+ * four or more characters with no other match, a single-character edit. Matches are weighted by the field they occur in, and
+ * results are returned best first, with newer (higher) IDs breaking ties.
+ * <p/>
+ * Documents may also carry tags, e.g. a platform, which are never matched by a query but can be required of every result.
+ *
+ * @since 0.2.1
+ */
+public class SearchIndex {
+  private static final float EXACT = 3f;
+  private static final float PREFIX = 2f;
+  private static final float FUZZY = 1f;
+  private static final int MIN_FUZZY_LENGTH = 4;
+
+  private final float[] weights;
+  private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<String, Map<Long, Float>>();
+  private final Map<Long, Document> documents = new HashMap<Long, Document>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * @param weights the weight of each field, in the order fields are given to {@link #put(long, Collection, String...)}
+   */
+  public SearchIndex(float... weights) {
+    this.weights = weights;
+  }
+
+  /**
+   * Adds a document to the index, replacing any previous document with the same ID
+   *
+   * @param id the object ID
+   * @param tags tags to filter on, or null
+   * @param fields the text of each field, in the order of the weights given at construction. Null fields are skipped.
+   */
+  public void put(long id, Collection<String> tags, String... fields) {
+    Map<String, Float> terms = new HashMap<String, Float>();
+    for (int i = 0; i < fields.length && i < weights.length; i++) {
+      for (String term : tokenize(fields[i], true)) {
+        Float existing = terms.get(term);
+        if (existing == null || existing < weights[i]) {
+          terms.put(term, weights[i]);
+        }
+      }
+    }
+    Set<String> docTags = tags == null ? Collections.<String>emptySet() : new HashSet<String>(tags);
+
+    lock.writeLock().lock();
+    try {
+      removeUnlocked(id);
+      for (Map.Entry<String, Float> term : terms.entrySet()) {
+        Map<Long, Float> ids = postings.get(term.getKey());
+        if (ids == null) {
+          ids = new HashMap<Long, Float>();
+          postings.put(term.getKey(), ids);
+        }
+        ids.put(id, term.getValue());
+      }
+      documents.put(id, new Document(terms.keySet(), docTags));
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      removeUnlocked(id);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeUnlocked(long id) {
+    Document doc = documents.remove(id);
+    if (doc != null) {
+      for (String term : doc.terms) {
+        Map<Long, Float> ids = postings.get(term);
+        if (ids != null) {
+          ids.remove(id);
+          if (ids.isEmpty()) {
+            postings.remove(term);
+          }
+        }
+      }
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Find the IDs of the documents best matching a query
+   *
+   * @param query the user's search string
+   * @param limit the maximum number of IDs to return
+   * @param requiredTags tags every result must carry
+   * @return the matching IDs, best first
+   */
+  public List<Long> search(String query, int limit, String... requiredTags) {
+    List<String> queryTerms = tokenize(query, false);
+    if (queryTerms.isEmpty() || limit <= 0) {
+      return Collections.emptyList();
+    }
+
+    final Map<Long, Float> scores;
+    lock.readLock().lock();
+    try {
+      Map<Long, Float> combined = null;
+      for (String queryTerm : queryTerms) {
+        Map<Long, Float> matches = match(queryTerm);
+        if (combined == null) {
+          combined = matches;
+        }
+        else {
+          Map<Long, Float> both = new HashMap<Long, Float>();
+          for (Map.Entry<Long, Float> e : combined.entrySet()) {
+            Float score = matches.get(e.getKey());
+            if (score != null) {
+              both.put(e.getKey(), e.getValue() + score);
+            }
+          }
+          combined = both;
+        }
+        if (combined.isEmpty()) {
+          return Collections.emptyList();
+        }
+      }
+      if (requiredTags.length > 0) {
+        List<String> required = Arrays.asList(requiredTags);
+        for (Iterator<Long> it = combined.keySet().iterator(); it.hasNext(); ) {
+          Document doc = documents.get(it.next());
+          if (doc == null || !doc.tags.containsAll(required)) {
+            it.remove();
+          }
+        }
+      }
+      scores = combined;
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+
+    List<Long> ids = new ArrayList<Long>(scores.keySet());
+    Collections.sort(ids, new Comparator<Long>() {
+      @Override
+      public int compare(Long a, Long b) {
+        int byScore = Float.compare(scores.get(b), scores.get(a));
+        return byScore != 0 ? byScore : b.compareTo(a);
+      }
+    });
+    return ids.size() > limit ? new ArrayList<Long>(ids.subList(0, limit)) : ids;
+  }
+
+  private Map<Long, Float> match(String queryTerm) {
+    Map<Long, Float> best = new HashMap<Long, Float>();
+    Map<Long, Float> exact = postings.get(queryTerm);
+    if (exact != null) {
+      collect(best, exact, EXACT);
+    }
+    for (Map.Entry<String, Map<Long, Float>> e : postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+      // shorter completions are closer to what was typed
+      collect(best, e.getValue(), PREFIX * queryTerm.length() / e.getKey().length());
+    }
+    if (best.isEmpty() && queryTerm.length() >= MIN_FUZZY_LENGTH) {
+      String first = queryTerm.substring(0, 1);
+      for (Map.Entry<String, Map<Long, Float>> e : postings.subMap(first, true, first + Character.MAX_VALUE, false).entrySet()) {
+        if (withinOneEdit(queryTerm, e.getKey())) {
+          collect(best, e.getValue(), FUZZY);
+        }
+      }
+    }
+    return best;
+  }
+
+  private static void collect(Map<Long, Float> best, Map<Long, Float> ids, float factor) {
+    for (Map.Entry<Long, Float> e : ids.entrySet()) {
+      float score = e.getValue() * factor;
+      Float existing = best.get(e.getKey());
+      if (existing == null || existing < score) {
+        best.put(e.getKey(), score);
+      }
+    }
+  }
+
+  static boolean withinOneEdit(String a, String b) {
+    int la = a.length(), lb = b.length();
+    if (Math.abs(la - lb) > 1) {
+      return false;
+    }
+    int i = 0, j = 0, edits = 0;
+    while (i < la && j < lb) {
+      if (a.charAt(i) == b.charAt(j)) {
+        i++;
+        j++;
+        continue;
+      }
+      if (++edits > 1) {
+        return false;
+      }
+      if (la > lb) {
+        i++;
+      }
+      else if (lb > la) {
+        j++;
+      }
+      else {
+        i++;
+        j++;
+      }
+    }
+    return edits + (la - i) + (lb - j) <= 1;
+  }
+
+  static List<String> tokenize(String text, boolean withDigitRuns) {
+    if (text == null) {
+      return Collections.emptyList();
+    }
+    Set<String> terms = new LinkedHashSet<String>();
+    for (String term : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+      if (term.length() == 0) {
+        continue;
+      }
+      terms.add(term);
+      if (withDigitRuns) {
+        for (String digits : term.split("[^\\p{N}]+")) {
+          if (digits.length() > 0 && digits.length() < term.length()) {
+            terms.add(digits);
+          }
+        }
+      }
+    }
+    return new ArrayList<String>(terms);
+  }
+
+  private static class Document {
+    private final Set<String> terms;
+    private final Set<String> tags;
+
+    Document(Set<String> terms, Set<String> tags) {
+      this.terms = terms;
+      this.tags = tags;
+    }
+  }
+}
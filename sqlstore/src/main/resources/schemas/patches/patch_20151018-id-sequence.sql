@@ -0,0 +1,7 @@
+-- Backing table for uk.ac.bbsrc.tgac.miso.sqlstore.util.HiLoIdAllocator.
+-- Rows are created on demand, seeded from each table's current Auto_increment value.
+CREATE TABLE `IdSequence` (
+  `tableName` varchar(255) NOT NULL,
+  `nextId` bigint(20) NOT NULL,
+  PRIMARY KEY (`tableName`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
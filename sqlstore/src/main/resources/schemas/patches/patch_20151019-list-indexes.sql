@@ -0,0 +1,6 @@
+-- Indexes for the paged list pages, which prefix match searches against these columns
+-- and sort on them. See uk.ac.bbsrc.tgac.miso.sqlstore.util.PaginatedQuery.
+ALTER TABLE `Sample` ADD INDEX `sample_name` (`name`), ADD INDEX `sample_alias` (`alias`), ADD INDEX `sample_identificationBarcode` (`identificationBarcode`), ADD INDEX `sample_securityProfile` (`securityProfile_profileId`);
+ALTER TABLE `Library` ADD INDEX `library_name` (`name`), ADD INDEX `library_alias` (`alias`), ADD INDEX `library_identificationBarcode` (`identificationBarcode`), ADD INDEX `library_securityProfile` (`securityProfile_profileId`);
+ALTER TABLE `Pool` ADD INDEX `pool_platform_name` (`platformType`, `name`), ADD INDEX `pool_alias` (`alias`), ADD INDEX `pool_identificationBarcode` (`identificationBarcode`), ADD INDEX `pool_securityProfile` (`securityProfile_profileId`);
+ALTER TABLE `Run` ADD INDEX `run_name` (`name`), ADD INDEX `run_alias` (`alias`), ADD INDEX `run_securityProfile` (`securityProfile_profileId`);
@@ -25,6 +25,8 @@ package uk.ac.bbsrc.tgac.miso.sqlstore;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.HiLoIdAllocatorTests;
+import uk.ac.bbsrc.tgac.miso.sqlstore.util.SearchIndexTests;
 
 /**
  * uk.ac.bbsrc.tgac.miso.sqlstore
@@ -37,6 +39,6 @@ import org.junit.runners.Suite;
  */
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ LimsDAO.class })
+@Suite.SuiteClasses({ LimsDAO.class, HiLoIdAllocatorTests.class, SearchIndexTests.class })
 public class AllTestsSuite {
 }
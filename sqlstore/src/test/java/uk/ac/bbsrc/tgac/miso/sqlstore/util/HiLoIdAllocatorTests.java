@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.UncategorizedSQLException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.sqlstore.util
+ * <p/>
+ * Tests HiLoIdAllocator against an in-memory IdSequence table
+ *
+ * @since 0.2.1
+ */
+public class HiLoIdAllocatorTests {
+  @Test
+  public void testBlockRollover() throws Exception {
+    SequenceTemplate template = new SequenceTemplate();
+    template.seed("Sample", 10L);
+
+    HiLoIdAllocator allocator = new HiLoIdAllocator();
+    allocator.setJdbcTemplate(template);
+    allocator.setBlockSize(3);
+
+    for (long expected = 10L; expected < 17L; expected++) {
+      TestCase.assertEquals(expected, allocator.nextId("Sample"));
+    }
+    //7 IDs from blocks of 3 need three reservations
+    TestCase.assertEquals(3, template.reservations);
+    TestCase.assertEquals(19L, template.nextIdFor("Sample"));
+  }
+
+  @Test
+  public void testTablesHaveSeparateSequences() throws Exception {
+    SequenceTemplate template = new SequenceTemplate();
+    template.seed("Sample", 1L);
+    template.seed("Library", 100L);
+
+    HiLoIdAllocator allocator = new HiLoIdAllocator();
+    allocator.setJdbcTemplate(template);
+    allocator.setBlockSize(2);
+
+    TestCase.assertEquals(1L, allocator.nextId("Sample"));
+    TestCase.assertEquals(100L, allocator.nextId("Library"));
+    TestCase.assertEquals(2L, allocator.nextId("Sample"));
+    TestCase.assertEquals(3L, allocator.nextId("Sample"));
+    TestCase.assertEquals(101L, allocator.nextId("Library"));
+  }
+
+  @Test
+  public void testConcurrentAllocation() throws Exception {
+    SequenceTemplate template = new SequenceTemplate();
+    template.seed("Sample", 1L);
+
+    final HiLoIdAllocator allocator = new HiLoIdAllocator();
+    allocator.setJdbcTemplate(template);
+    allocator.setBlockSize(7);
+
+    final int threads = 8;
+    final int idsPerThread = 500;
+    final Set<Long> ids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int i = 0; i < idsPerThread; i++) {
+              if (!ids.add(allocator.nextId("Sample"))) {
+                throw new IllegalStateException("Duplicate ID allocated");
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> f : futures) {
+        f.get();
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+
+    TestCase.assertEquals(threads * idsPerThread, ids.size());
+    //no block is ever reserved and then abandoned unused by a racing thread
+    TestCase.assertTrue(template.nextIdFor("Sample") - 1L - (threads * idsPerThread) < 7);
+  }
+
+  /**
+   * Stands in for the IdSequence table. The allocator's connection callback runs against a stub connection that applies
+   * the sequence UPDATE and answers SELECT LAST_INSERT_ID() as MySQL would.
+   */
+  private static class SequenceTemplate extends JdbcTemplate {
+    private final Map<String, Long> sequences = new HashMap<String, Long>();
+    private int reservations = 0;
+    private long lastInsertId = 0L;
+
+    synchronized void seed(String tableName, long nextId) {
+      sequences.put(tableName, nextId);
+    }
+
+    synchronized long nextIdFor(String tableName) {
+      return sequences.get(tableName);
+    }
+
+    @Override
+    public synchronized <T> T execute(ConnectionCallback<T> action) throws DataAccessException {
+      try {
+        return action.doInConnection(stub(Connection.class, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("prepareStatement".equals(method.getName())) {
+              return statement((String) args[0]);
+            }
+            return null;
+          }
+        }));
+      }
+      catch (SQLException e) {
+        throw new UncategorizedSQLException("execute", null, e);
+      }
+    }
+
+    private PreparedStatement statement(final String sql) {
+      final Object[] params = new Object[3];
+      return stub(PreparedStatement.class, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+          String name = method.getName();
+          if ("setInt".equals(name) || "setString".equals(name)) {
+            params[(Integer) args[0]] = args[1];
+          }
+          else if ("executeUpdate".equals(name)) {
+            TestCase.assertEquals(HiLoIdAllocator.SEQUENCE_ADVANCE, sql);
+            String table = (String) params[2];
+            Long next = sequences.get(table);
+            if (next == null) {
+              return 0;
+            }
+            lastInsertId = next + (Integer) params[1];
+            sequences.put(table, lastInsertId);
+            reservations++;
+            return 1;
+          }
+          else if ("executeQuery".equals(name)) {
+            TestCase.assertEquals("SELECT LAST_INSERT_ID()", sql);
+            final long id = lastInsertId;
+            return stub(ResultSet.class, new InvocationHandler() {
+              @Override
+              public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("next".equals(method.getName())) {
+                  return true;
+                }
+                if ("getLong".equals(method.getName())) {
+                  return id;
+                }
+                return null;
+              }
+            });
+          }
+          return null;
+        }
+      });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+      return (T) Proxy.newProxyInstance(HiLoIdAllocatorTests.class.getClassLoader(), new Class[]{type}, handler);
+    }
+  }
+}
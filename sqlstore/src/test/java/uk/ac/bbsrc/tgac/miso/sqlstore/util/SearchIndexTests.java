@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2012. The Genome Analysis Centre, Norwich, UK
+ * MISO project contacts: Robert Davey, Mario Caccamo @ TGAC
+ * *********************************************************************
+ *
+ * This file is part of MISO.
+ *
+ * MISO is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MISO is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MISO.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * *********************************************************************
+ */
+
+package uk.ac.bbsrc.tgac.miso.sqlstore.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * uk.ac.bbsrc.tgac.miso.sqlstore.util
+ * <p/>
+ * Tests SearchIndex tokenising, matching and ranking, and IndexedSearch loading
+ *
+ * @since 0.2.1
+ */
+public class SearchIndexTests {
+  @Test
+  public void testTokenize() {
+    TestCase.assertEquals(Arrays.asList("sam1234", "1234", "foo", "bar"), SearchIndex.tokenize("SAM1234_Foo-bar", true));
+    TestCase.assertEquals(Arrays.asList("sam1234", "foo", "bar"), SearchIndex.tokenize("SAM1234_Foo-bar", false));
+    TestCase.assertEquals(Arrays.asList("lib12a3", "12", "3"), SearchIndex.tokenize("LIB12a3", true));
+    //repeated terms are only listed once
+    TestCase.assertEquals(Arrays.asList("pool"), SearchIndex.tokenize("pool POOL", false));
+    TestCase.assertTrue(SearchIndex.tokenize(null, true).isEmpty());
+    TestCase.assertTrue(SearchIndex.tokenize(" - ", true).isEmpty());
+  }
+
+  @Test
+  public void testWithinOneEdit() {
+    TestCase.assertTrue(SearchIndex.withinOneEdit("alpha", "alpha"));
+    TestCase.assertTrue(SearchIndex.withinOneEdit("alpha", "alpga"));
+    TestCase.assertTrue(SearchIndex.withinOneEdit("alpha", "alpa"));
+    TestCase.assertTrue(SearchIndex.withinOneEdit("alpha", "alphas"));
+    TestCase.assertTrue(SearchIndex.withinOneEdit("lpha", "alpha"));
+    //a transposition is two edits
+    TestCase.assertFalse(SearchIndex.withinOneEdit("alpha", "aplha"));
+    TestCase.assertFalse(SearchIndex.withinOneEdit("alpha", "alphabet"));
+    TestCase.assertFalse(SearchIndex.withinOneEdit("alpha", "beta"));
+  }
+
+  @Test
+  public void testRankOrder() {
+    SearchIndex index = newIndex();
+
+    //exact alias (6) beats exact description (3), which beats an alias prefix (2.5)
+    TestCase.assertEquals(Arrays.asList(1L, 3L, 2L), index.search("alpha", 10));
+    //equal prefix matches are ordered newest first
+    TestCase.assertEquals(Arrays.asList(3L, 2L, 1L), index.search("sam", 10));
+    TestCase.assertEquals(Arrays.asList(3L, 2L), index.search("sam", 2));
+    //a single typo only matches whole terms of the same length, give or take one
+    TestCase.assertEquals(Arrays.asList(1L, 3L), index.search("alpga", 10));
+    //typos are not corrected in short terms
+    TestCase.assertTrue(index.search("sxm", 10).isEmpty());
+  }
+
+  @Test
+  public void testEveryTermMustMatch() {
+    SearchIndex index = newIndex();
+    TestCase.assertEquals(Collections.singletonList(1L), index.search("sam1 alpha", 10));
+    TestCase.assertTrue(index.search("sam1 beta", 10).isEmpty());
+  }
+
+  @Test
+  public void testDigitRuns() {
+    SearchIndex index = new SearchIndex(1f);
+    index.put(7L, null, "SAM1234");
+    TestCase.assertEquals(Collections.singletonList(7L), index.search("1234", 10));
+    TestCase.assertEquals(Collections.singletonList(7L), index.search("sam12", 10));
+  }
+
+  @Test
+  public void testRequiredTags() {
+    SearchIndex index = new SearchIndex(1f);
+    index.put(1L, Collections.singleton("illumina"), "RUN1");
+    index.put(2L, Collections.singleton("ls454"), "RUN2");
+    TestCase.assertEquals(Collections.singletonList(2L), index.search("run", 10, "ls454"));
+    //tags are never matched by the query itself
+    TestCase.assertTrue(index.search("illumina", 10).isEmpty());
+  }
+
+  @Test
+  public void testPutReplacesAndRemoves() {
+    SearchIndex index = newIndex();
+    index.put(1L, null, "SAM1", "gamma", null);
+    TestCase.assertEquals(Arrays.asList(3L, 2L), index.search("alpha", 10));
+    TestCase.assertEquals(Collections.singletonList(1L), index.search("gamma", 10));
+
+    index.remove(3L);
+    TestCase.assertEquals(Collections.singletonList(2L), index.search("alpha", 10));
+    TestCase.assertEquals(2, index.size());
+  }
+
+  @Test
+  public void testIndexedSearchLoadsOnce() throws Exception {
+    CountingSearch search = new CountingSearch();
+    TestCase.assertEquals(Collections.singletonList(1L), search.search("sam1", 10));
+    TestCase.assertEquals(Arrays.asList(3L, 2L, 1L), search.search("sam", 10));
+    TestCase.assertEquals(1, search.loads);
+
+    search.put(4L, null, "SAM4", "delta", null);
+    search.remove(1L);
+    TestCase.assertEquals(Arrays.asList(4L, 3L, 2L), search.search("sam", 10));
+    TestCase.assertEquals(1, search.loads);
+  }
+
+  private static SearchIndex newIndex() {
+    SearchIndex index = new SearchIndex(3f, 2f, 1f);
+    load(index);
+    return index;
+  }
+
+  private static void load(SearchIndex index) {
+    index.put(1L, null, "SAM1", "alpha", null);
+    index.put(2L, null, "SAM2", "alphabet", null);
+    index.put(3L, null, "SAM3", null, "alpha");
+  }
+
+  private static class CountingSearch extends IndexedSearch {
+    private int loads = 0;
+
+    CountingSearch() {
+      super("test", 3f, 2f, 1f);
+    }
+
+    @Override
+    protected void load(SearchIndex index) throws IOException {
+      loads++;
+      SearchIndexTests.load(index);
+    }
+  }
+}